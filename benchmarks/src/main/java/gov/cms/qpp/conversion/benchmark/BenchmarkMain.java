@@ -0,0 +1,38 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks over every sample file in {@link #SAMPLE_DIRECTORIES} and reports allocation rates
+ * with the GC profiler. Accepts the usual JMH command line options, for example {@code ConversionBenchmark.parse}
+ * to select benchmarks or {@code -p file=qrda-files/valid-QRDA-III-latest.xml} to pick the files instead.
+ */
+public final class BenchmarkMain {
+
+	static final String[] SAMPLE_DIRECTORIES = {"sample-files/2019", "qrda-files"};
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(String... arguments) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(arguments);
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class);
+
+		if (!commandLine.getParameter("file").hasValue()) {
+			List<String> files = SampleFiles.list(SAMPLE_DIRECTORIES);
+			options.param("file", files.toArray(new String[0]));
+		}
+
+		new Runner(options.build()).run();
+	}
+}
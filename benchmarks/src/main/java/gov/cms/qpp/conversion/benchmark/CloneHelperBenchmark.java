@@ -0,0 +1,37 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Node;
+import gov.cms.qpp.conversion.util.CloneHelper;
+
+/**
+ * Deep copies the decoded and encoded trees, as {@link ConversionReport} does whenever they are read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CloneHelperBenchmark {
+
+	@Benchmark
+	public Node deepCloneDecoded(Document document) {
+		return CloneHelper.deepClone(document.decoded);
+	}
+
+	@Benchmark
+	public JsonWrapper deepCloneEncoded(Document document) {
+		return CloneHelper.deepClone(document.encoded);
+	}
+}
@@ -0,0 +1,85 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jdom2.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.Converter;
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.decode.QrdaDecoderEngine;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Node;
+import gov.cms.qpp.conversion.model.error.TransformException;
+import gov.cms.qpp.conversion.model.error.ValidationResult;
+import gov.cms.qpp.conversion.util.CloneHelper;
+import gov.cms.qpp.conversion.validate.QrdaValidator;
+
+/**
+ * Measures each stage of a conversion on its own, and a whole conversion from bytes to QPP.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+	/**
+	 * Validation marks the nodes it visits, so every validation gets its own copy of the decoded tree.
+	 * Copying per invocation is acceptable as validating a document takes milliseconds.
+	 */
+	@State(Scope.Thread)
+	public static class Unvalidated {
+		Node decoded;
+
+		@Setup(Level.Invocation)
+		public void copy(Document document) {
+			decoded = CloneHelper.deepClone(document.decoded);
+		}
+	}
+
+	@Benchmark
+	public Element parse(Document document) {
+		return document.parse();
+	}
+
+	@Benchmark
+	public Node decode(Document document) {
+		return new QrdaDecoderEngine(document.engine.newContext()).decode(document.parsed);
+	}
+
+	@Benchmark
+	public ValidationResult validate(Document document, Unvalidated unvalidated) {
+		return new QrdaValidator(document.engine.newContext()).validate(unvalidated.decoded);
+	}
+
+	@Benchmark
+	public JsonWrapper encode(Document document) {
+		return Document.encode(document.engine.newContext(), document.decoded);
+	}
+
+	@Benchmark
+	public ConversionReport transform(Document document) {
+		Converter converter = document.engine.newConverter(new InputStreamSupplierSource(document.file,
+				new ByteArrayInputStream(document.content)));
+		try {
+			converter.transform();
+		} catch (TransformException failed) {
+			// failing sample files are measured too, their report is the result
+		}
+		return converter.getReport();
+	}
+}
@@ -0,0 +1,56 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import org.jdom2.Element;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gov.cms.qpp.conversion.ConversionEngine;
+import gov.cms.qpp.conversion.Context;
+import gov.cms.qpp.conversion.decode.QrdaDecoderEngine;
+import gov.cms.qpp.conversion.encode.JsonOutputEncoder;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.encode.QppOutputEncoder;
+import gov.cms.qpp.conversion.model.Node;
+import gov.cms.qpp.conversion.xml.XmlUtils;
+
+/**
+ * A sample document prepared up to every stage of a conversion, so each benchmark only measures its own stage.
+ * The file is a JMH parameter, {@link BenchmarkMain} fills it with every sample file in the repository.
+ */
+@State(Scope.Benchmark)
+public class Document {
+
+	@Param("sample-files/2019/valid-mips-sample-file.xml")
+	public String file;
+
+	ConversionEngine engine;
+	byte[] content;
+	Element parsed;
+	Node decoded;
+	JsonWrapper encoded;
+
+	@Setup(Level.Trial)
+	public void prepare() {
+		engine = ConversionEngine.builder().build();
+		content = SampleFiles.read(file);
+		parsed = parse();
+		decoded = new QrdaDecoderEngine(engine.newContext()).decode(parsed);
+		encoded = encode(engine.newContext(), decoded);
+	}
+
+	Element parse() {
+		return XmlUtils.parseXmlStream(new ByteArrayInputStream(content));
+	}
+
+	static JsonWrapper encode(Context context, Node decoded) {
+		JsonOutputEncoder encoder = new QppOutputEncoder(context);
+		encoder.setNodes(Collections.singletonList(decoded));
+		return encoder.encode();
+	}
+}
@@ -0,0 +1,52 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.cms.qpp.conversion.correlation.PathCorrelator;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+
+/**
+ * Renders and correlates the {@link JsonWrapper} trees encoded from the sample documents.
+ * Decoding and encoding happen once per trial so only the work on the encoded tree is measured,
+ * except in {@link #encodeToString(Document)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonWrapperBenchmark {
+
+	/**
+	 * A path every converted submission has, shaped like the paths reported by QPP submission validation.
+	 */
+	private static final String VALIDATION_PATH = "$.measurementSets[0].performanceStart";
+
+	@Benchmark
+	public String encodeToString(Document document) {
+		return Document.encode(document.engine.newContext(), document.decoded).copyWithoutMetadata().toString();
+	}
+
+	@Benchmark
+	public String toStringWithoutMetadata(Document document) {
+		return document.encoded.copyWithoutMetadata().toString();
+	}
+
+	@Benchmark
+	public String toStringWithMetadata(Document document) {
+		return document.encoded.toStringWithMetadata();
+	}
+
+	@Benchmark
+	public String prepPath(Document document) {
+		return PathCorrelator.prepPath(VALIDATION_PATH, document.encoded);
+	}
+}
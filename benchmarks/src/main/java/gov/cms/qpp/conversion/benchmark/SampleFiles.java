@@ -0,0 +1,90 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Locates the repository sample files used as benchmark inputs.
+ * Benchmarks may be launched from the repository root or from the benchmarks module, so both are probed.
+ * Set the {@code qpp.repository.dir} system property to point elsewhere.
+ */
+public final class SampleFiles {
+
+	public static final String REPOSITORY_DIR_PROPERTY = "qpp.repository.dir";
+
+	private static final String QRDA_III_TEMPLATE_ID = "2.16.840.1.113883.10.20.27.1.1";
+
+	private SampleFiles() {
+	}
+
+	/**
+	 * Resolve a path relative to the repository root, e.g. {@code sample-files/2019/valid-mips-sample-file.xml}.
+	 *
+	 * @param relative path relative to the repository root
+	 * @return existing path
+	 */
+	public static Path resolve(String relative) {
+		String configured = System.getProperty(REPOSITORY_DIR_PROPERTY);
+		Path[] candidates = configured == null
+				? new Path[] {Paths.get(relative), Paths.get("..").resolve(relative)}
+				: new Path[] {Paths.get(configured).resolve(relative)};
+
+		for (Path candidate : candidates) {
+			if (Files.exists(candidate)) {
+				return candidate;
+			}
+		}
+		throw new IllegalArgumentException("Cannot locate " + relative
+				+ ", set -D" + REPOSITORY_DIR_PROPERTY + " to the repository root");
+	}
+
+	/**
+	 * List the QRDA documents directly within directories relative to the repository root.
+	 * Files that are not QRDA III documents at all, like {@code not-a-QDRA-III-file.xml}, are left out
+	 * since no stage past parsing could be measured with them.
+	 *
+	 * @param directories paths relative to the repository root
+	 * @return paths relative to the repository root, in name order
+	 */
+	public static List<String> list(String... directories) {
+		List<String> files = new ArrayList<>();
+		for (String directory : directories) {
+			try (Stream<Path> listing = Files.list(resolve(directory))) {
+				listing.filter(Files::isRegularFile)
+						.map(path -> path.getFileName().toString())
+						.filter(name -> name.endsWith(".xml"))
+						.filter(name -> isQrda(directory + "/" + name))
+						.sorted()
+						.forEach(name -> files.add(directory + "/" + name));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return files;
+	}
+
+	private static boolean isQrda(String relative) {
+		return new String(read(relative), StandardCharsets.UTF_8).contains(QRDA_III_TEMPLATE_ID);
+	}
+
+	/**
+	 * Read a file relative to the repository root.
+	 *
+	 * @param relative path relative to the repository root
+	 * @return file contents
+	 */
+	public static byte[] read(String relative) {
+		try {
+			return Files.readAllBytes(resolve(relative));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
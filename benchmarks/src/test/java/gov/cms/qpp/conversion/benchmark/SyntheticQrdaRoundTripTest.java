@@ -0,0 +1,100 @@
+package gov.cms.qpp.conversion.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gov.cms.qpp.conversion.Converter;
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.model.error.Detail;
+import gov.cms.qpp.conversion.model.error.ProblemCode;
+import gov.cms.qpp.conversion.model.error.TransformException;
+import gov.cms.qpp.generator.SyntheticQrdaGenerator;
+import gov.cms.qpp.generator.SyntheticQrdaGenerator.Defect;
+import gov.cms.qpp.generator.SyntheticQrdaGenerator.Settings;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs documents of the {@link SyntheticQrdaGenerator} through the {@link Converter}, so that changes to the measure
+ * data or the validations can not silently break the documents the benchmarks and load tests rely on.
+ */
+class SyntheticQrdaRoundTripTest {
+
+	private static final Map<Defect, ProblemCode> EXPECTED_PROBLEMS = new EnumMap<>(Defect.class);
+
+	static {
+		EXPECTED_PROBLEMS.put(Defect.NEGATIVE_COUNT, ProblemCode.MEASURE_DATA_VALUE_NOT_INTEGER);
+		EXPECTED_PROBLEMS.put(Defect.MISSING_NUMERATOR, ProblemCode.POPULATION_CRITERIA_COUNT_INCORRECT);
+		EXPECTED_PROBLEMS.put(Defect.UNKNOWN_MEASURE, ProblemCode.MEASURE_GUID_MISSING);
+		EXPECTED_PROBLEMS.put(Defect.INVALID_PERFORMANCE_RATE, ProblemCode.PERFORMANCE_RATE_INVALID_VALUE);
+		EXPECTED_PROBLEMS.put(Defect.INVALID_NPI, ProblemCode.CPC_PLUS_INVALID_NPI);
+		EXPECTED_PROBLEMS.put(Defect.MISSING_REPORTING_PARAMETERS,
+				ProblemCode.QUALITY_MEASURE_SECTION_REQUIRED_REPORTING_PARAM_REQUIREMENT);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"MIPS_INDIV", "MIPS_GROUP", "CPCPLUS"})
+	void testValidDocumentsConvert(String program) throws Exception {
+		for (long seed = 0; seed < 5; seed++) {
+			try {
+				convert(settings(program).seed(seed));
+			} catch (TransformException exception) {
+				throw new AssertionError("Seed " + seed + " does not convert: " + exception.getDetails(), exception);
+			}
+		}
+	}
+
+	@Test
+	void testDefaultDocumentConverts() throws Exception {
+		convert(new Settings());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Defect.class)
+	void testDefectIsReported(Defect defect) throws Exception {
+		ProblemCode expected = EXPECTED_PROBLEMS.get(defect);
+		assertWithMessage("No expected problem for %s", defect).that(expected).isNotNull();
+		Settings settings = settings(defect == Defect.INVALID_NPI ? "CPCPLUS" : "MIPS_INDIV")
+				.defects(EnumSet.of(defect));
+
+		TransformException thrown = assertThrows(TransformException.class, () -> convert(settings));
+
+		assertThat(errorCodes(thrown)).contains(expected.getCode());
+	}
+
+	private static Settings settings(String program) {
+		Settings settings = new Settings().program(program).measures(4);
+		if ("CPCPLUS".equals(program)) {
+			return settings.apmEntityId("T1AR0058").performers(20).tins(3).piMeasures(0).iaMeasures(0);
+		}
+		return settings.piMeasures(3).iaMeasures(3);
+	}
+
+	private static void convert(Settings settings) throws Exception {
+		StringWriter writer = new StringWriter();
+		new SyntheticQrdaGenerator(settings).generate(writer);
+		byte[] document = writer.toString().getBytes(StandardCharsets.UTF_8);
+
+		new Converter(new InputStreamSupplierSource("synthetic.xml", new ByteArrayInputStream(document))).transform();
+	}
+
+	private static List<Integer> errorCodes(TransformException exception) {
+		return exception.getDetails().getErrors().stream()
+				.flatMap(error -> error.getDetails().stream())
+				.map(Detail::getErrorCode)
+				.collect(Collectors.toList());
+	}
+}
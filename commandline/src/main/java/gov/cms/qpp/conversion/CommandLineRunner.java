@@ -32,8 +32,6 @@ public class CommandLineRunner implements Runnable {
 
 	private final CommandLine commandLine;
 	private final FileSystem fileSystem;
-	private boolean doValidation;
-	private boolean historical;
 	private Pattern normalPathPattern;
 	private Pattern globFinderPattern;
 
@@ -74,13 +72,21 @@ public class CommandLineRunner implements Runnable {
 					.filter(path -> !isValid(path))
 					.collect(Collectors.toList());
 			if (invalid.isEmpty()) {
-				doValidation = !commandLine.hasOption(CommandLineMain.SKIP_VALIDATION);
-				historical = commandLine.hasOption(CommandLineMain.BYGONE);
+				ConversionSummary summary = commandLine.hasOption(CommandLineMain.METRICS) ? new ConversionSummary() : null;
+				ConversionEngine engine = ConversionEngine.builder()
+						.doValidation(!commandLine.hasOption(CommandLineMain.SKIP_VALIDATION))
+						.historical(commandLine.hasOption(CommandLineMain.BYGONE))
+						.metrics(summary == null ? ConversionMetrics.NONE : summary)
+						.build();
 
 				convert.parallelStream()
 					.map(ConversionFileWriterWrapper::new)
-					.peek(conversion -> conversion.setContext(createContext()))
+					.peek(conversion -> conversion.setContext(engine.newContext()))
 					.forEach(ConversionFileWriterWrapper::transform);
+
+				if (summary != null) {
+					DEV_LOG.info("Conversion summary" + System.lineSeparator() + summary.render());
+				}
 			} else {
 				DEV_LOG.error("Invalid or missing paths: " + invalid);
 				sendHelpHint();
@@ -91,13 +97,6 @@ public class CommandLineRunner implements Runnable {
 		}
 	}
 
-	private Context createContext() {
-		Context context = new Context();
-		context.setDoValidation(doValidation);
-		context.setHistorical(historical);
-		return context;
-	}
-
 	private boolean isHelp() {
 		return commandLine.hasOption(CommandLineMain.HELP);
 	}
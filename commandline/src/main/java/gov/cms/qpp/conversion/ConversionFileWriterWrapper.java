@@ -26,7 +26,7 @@ public class ConversionFileWriterWrapper {
 	private Context context;
 
 	public ConversionFileWriterWrapper(Path inFile) {
-		this.source = new PathSource(inFile);
+		this.source = new MappedPathSource(inFile);
 
 		fileSystem = inFile.getFileSystem();
 	}
@@ -0,0 +1,108 @@
+package gov.cms.qpp.conversion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
+
+/**
+ * Collects the {@link ConversionStatistics} of every file converted from the command line
+ * and renders them as a table with a row per file and a totals row.
+ */
+class ConversionSummary implements ConversionMetrics {
+
+	private static final Phase[] CONVERTER_PHASES = {Phase.PARSE, Phase.DECODE, Phase.VALIDATE, Phase.ENCODE};
+	private static final String ROW = "%-40s %-7s %-7s %12s %8s %12s %6s %8s %9s %9s %9s %9s %9s%n";
+
+	private final ConcurrentLinkedQueue<Row> rows = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void converted(ConversionStatistics statistics) {
+		rows.add(new Row(statistics));
+	}
+
+	/**
+	 * Renders the summary of every conversion so far, ordered by file name.
+	 *
+	 * @return the summary table
+	 */
+	String render() {
+		List<Row> sorted = new ArrayList<>(rows);
+		sorted.sort(Comparator.comparing(row -> row.name));
+
+		StringBuilder table = new StringBuilder();
+		table.append(String.format(Locale.ENGLISH, ROW, "file", "program", "outcome", "input bytes", "nodes",
+				"json bytes", "errors", "warnings", "parse ms", "decode ms", "valid. ms", "encode ms", "total ms"));
+
+		Row total = new Row("total (" + sorted.size() + " files)");
+		for (Row row : sorted) {
+			row.appendTo(table);
+			total.add(row);
+		}
+		total.appendTo(table);
+		return table.toString();
+	}
+
+	private static final class Row {
+		private final String name;
+		private final String program;
+		private String outcome;
+		private long inputBytes;
+		private long nodes;
+		private long jsonBytes;
+		private long errors;
+		private long warnings;
+		private final long[] nanos = new long[CONVERTER_PHASES.length];
+		private long totalNanos;
+		private int successes;
+
+		private Row(String name) {
+			this.name = name;
+			this.program = "";
+		}
+
+		private Row(ConversionStatistics statistics) {
+			this.name = statistics.getSource().getName();
+			this.program = statistics.getProgram().name();
+			this.outcome = statistics.isSuccessful() ? "success" : "failure";
+			this.successes = statistics.isSuccessful() ? 1 : 0;
+			this.inputBytes = statistics.getInputBytes();
+			this.nodes = statistics.getNodeCount();
+			this.jsonBytes = statistics.getJsonBytes();
+			this.errors = statistics.getErrorCount();
+			this.warnings = statistics.getWarningCount();
+			for (int i = 0; i < CONVERTER_PHASES.length; i++) {
+				nanos[i] = statistics.getNanos(CONVERTER_PHASES[i]);
+			}
+			this.totalNanos = statistics.getTotalNanos();
+		}
+
+		private void add(Row other) {
+			successes += other.successes;
+			outcome = successes + " ok";
+			inputBytes += other.inputBytes;
+			nodes += other.nodes;
+			jsonBytes += other.jsonBytes;
+			errors += other.errors;
+			warnings += other.warnings;
+			for (int i = 0; i < nanos.length; i++) {
+				nanos[i] += other.nanos[i];
+			}
+			totalNanos += other.totalNanos;
+		}
+
+		private void appendTo(StringBuilder table) {
+			table.append(String.format(Locale.ENGLISH, ROW, name, program, outcome == null ? "0 ok" : outcome,
+					inputBytes, nodes, jsonBytes, errors, warnings,
+					millis(nanos[0]), millis(nanos[1]), millis(nanos[2]), millis(nanos[3]), millis(totalNanos)));
+		}
+
+		private static String millis(long nanos) {
+			return String.format(Locale.ENGLISH, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+}
@@ -76,6 +76,32 @@ class CommandLineRunnerTest implements LoggerContract {
 		Truth.assertThat(Files.exists(fileSystem.getPath("qrda_bad_denominator-qpp.json"))).isTrue();
 	}
 
+	@JimfsTest
+	void testRunWithMetrics(FileSystem fileSystem) {
+		String valid = VALID_FILE.replaceAll("/", "\\" + fileSystem.getSeparator());
+		String invalid = "src/test/resources/qrda_bad_denominator.xml".replaceAll("/", "\\" + fileSystem.getSeparator());
+		CommandLineRunner runner = new CommandLineRunner(line(valid, invalid, "-" + CommandLineMain.METRICS), fileSystem);
+		runner.run();
+
+		String summary = getLogs().stream()
+				.filter(log -> log.startsWith("Conversion summary"))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+		Truth.assertThat(summary).contains("valid-QRDA-III-latest.xml");
+		Truth.assertThat(summary).contains("qrda_bad_denominator.xml");
+		Truth.assertThat(summary).contains("total (2 files)");
+		Truth.assertThat(summary).contains("1 ok");
+	}
+
+	@JimfsTest
+	void testRunWithoutMetrics(FileSystem fileSystem) {
+		String path = VALID_FILE.replaceAll("/", "\\" + fileSystem.getSeparator());
+		CommandLineRunner runner = new CommandLineRunner(line(path), fileSystem);
+		runner.run();
+
+		Truth.assertThat(getLogs().stream().noneMatch(log -> log.startsWith("Conversion summary"))).isTrue();
+	}
+
 	@JimfsTest
 	void testRunWithValidFileGlobAtHeadInRoot(FileSystem fileSystem) throws IOException {
 		Files.copy(fileSystem.getPath(VALID_FILE), fileSystem.getPath(VALID_QRDA_III_LATEST_QPP_JSON));
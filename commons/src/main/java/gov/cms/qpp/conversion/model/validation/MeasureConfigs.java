@@ -2,12 +2,15 @@ package gov.cms.qpp.conversion.model.validation;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.IOUtils;
 import org.reflections.util.ClasspathHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +26,7 @@ public class MeasureConfigs {
 	private static String measureDataFileName = DEFAULT_MEASURE_DATA_FILE_NAME;
 	private static Map<String, MeasureConfig> configurationMap;
 	private static Map<String, List<MeasureConfig>> cpcPlusGroups;
+	private static String version;
 
 	/**
 	 * Static initialization
@@ -50,6 +54,7 @@ public class MeasureConfigs {
 	 */
 	private static void initMeasureConfigs() {
 		configurationMap = grabConfiguration(measureDataFileName);
+		version = hashConfiguration(measureDataFileName);
 		cpcPlusGroups = new HashMap<>();
 		getMeasureConfigs().stream()
 				.filter(config -> config.getCpcPlusGroup() != null)
@@ -74,6 +79,20 @@ public class MeasureConfigs {
 		}
 	}
 
+	/**
+	 * Hashes the content of a measure data file
+	 *
+	 * @param fileName Name of the measure data file
+	 * @return SHA-256 of the file content
+	 */
+	private static String hashConfiguration(String fileName) {
+		try (InputStream measuresInput = ClasspathHelper.contextClassLoader().getResourceAsStream(fileName)) {
+			return Hashing.sha256().hashBytes(IOUtils.toByteArray(measuresInput)).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * Finds the first existing guid, electronicMeasureId, or measureId that exists for an aci, ia, or ecqm section
 	 *
@@ -121,6 +140,15 @@ public class MeasureConfigs {
 		return configurationMap;
 	}
 
+	/**
+	 * Identifies the loaded measure data by content, so results derived from it can be tied to the data used
+	 *
+	 * @return SHA-256 of the measure data file
+	 */
+	public static String getVersion() {
+		return version;
+	}
+
 	/**
 	 * Retrieves a mapping of CPC+ measure groups
 	 *
@@ -3,6 +3,7 @@ package gov.cms.qpp.conversion;
 import java.lang.annotation.Annotation;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import gov.cms.qpp.conversion.model.Program;
 import gov.cms.qpp.conversion.model.Registry;
@@ -20,6 +21,7 @@ public class Context {
 	private boolean historical;
 	private boolean doValidation = true;
 	private PiiValidator piiValidator = MissingPiiValidator.INSTANCE;
+	private ConversionMetrics metrics = ConversionMetrics.NONE;
 
 	/**
 	 * Gets the current contextual {@link Program}
@@ -83,6 +85,24 @@ public class Context {
 		this.piiValidator = piiValidator;
 	}
 
+	/**
+	 * Gets the listener for the timings and sizes of conversions
+	 *
+	 * @return the listener, {@link ConversionMetrics#NONE} by default
+	 */
+	public ConversionMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the listener for the timings and sizes of conversions
+	 *
+	 * @param metrics the listener
+	 */
+	public void setMetrics(ConversionMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics, "metrics");
+	}
+
 	/**
 	 * Looks up or creates a new {@link Registry} for the given annotation type under this context
 	 *
@@ -0,0 +1,143 @@
+package gov.cms.qpp.conversion;
+
+import java.util.Objects;
+
+import gov.cms.qpp.conversion.model.Decoder;
+import gov.cms.qpp.conversion.model.Encoder;
+import gov.cms.qpp.conversion.model.Validator;
+import gov.cms.qpp.conversion.model.validation.MeasureConfigs;
+import gov.cms.qpp.conversion.validate.pii.MissingPiiValidator;
+import gov.cms.qpp.conversion.validate.pii.PiiValidator;
+
+/**
+ * Immutable conversion configuration that is built once and shared by every conversion it starts.
+ * Building an engine loads the measure data and scans the class path for the decoder, encoder and validator
+ * registries up front, so the {@link Context} minted for each document only carries that document's own state.
+ *
+ * <p>An engine is safe to use from multiple threads. The {@link PiiValidator} it is given must be as well.
+ */
+public final class ConversionEngine {
+
+	private final boolean historical;
+	private final boolean doValidation;
+	private final PiiValidator piiValidator;
+	private final ConversionMetrics metrics;
+
+	private ConversionEngine(Builder builder) {
+		this.historical = builder.historical;
+		this.doValidation = builder.doValidation;
+		this.piiValidator = builder.piiValidator;
+		this.metrics = builder.metrics;
+
+		MeasureConfigs.init();
+		Context warmup = new Context();
+		warmup.getRegistry(Decoder.class);
+		warmup.getRegistry(Encoder.class);
+		warmup.getRegistry(Validator.class);
+	}
+
+	/**
+	 * Starts the configuration of a new engine.
+	 *
+	 * @return a builder with the same defaults as a new {@link Context}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Creates the per document state for a single conversion.
+	 *
+	 * @return a new {@link Context} configured like this engine
+	 */
+	public Context newContext() {
+		Context context = new Context();
+		context.setHistorical(historical);
+		context.setDoValidation(doValidation);
+		context.setPiiValidator(piiValidator);
+		context.setMetrics(metrics);
+		return context;
+	}
+
+	/**
+	 * Creates a converter for the given source.
+	 *
+	 * @param source the QRDA to convert
+	 * @return a converter with its own {@link #newContext() context}
+	 */
+	public Converter newConverter(Source source) {
+		return new Converter(source, newContext());
+	}
+
+	public boolean isHistorical() {
+		return historical;
+	}
+
+	public boolean isDoValidation() {
+		return doValidation;
+	}
+
+	public PiiValidator getPiiValidator() {
+		return piiValidator;
+	}
+
+	public ConversionMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Collects the configuration of a {@link ConversionEngine}.
+	 */
+	public static final class Builder {
+		private boolean historical;
+		private boolean doValidation = true;
+		private PiiValidator piiValidator = MissingPiiValidator.INSTANCE;
+		private ConversionMetrics metrics = ConversionMetrics.NONE;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param historical whether conversions are of historical submissions
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Builder historical(boolean historical) {
+			this.historical = historical;
+			return this;
+		}
+
+		/**
+		 * @param doValidation whether conversions validate the decoded document
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Builder doValidation(boolean doValidation) {
+			this.doValidation = doValidation;
+			return this;
+		}
+
+		/**
+		 * @param piiValidator validator of APM, TIN and NPI combinations
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Builder piiValidator(PiiValidator piiValidator) {
+			this.piiValidator = Objects.requireNonNull(piiValidator, "piiValidator");
+			return this;
+		}
+
+		/**
+		 * @param metrics listener for the timings and sizes of every conversion
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Builder metrics(ConversionMetrics metrics) {
+			this.metrics = Objects.requireNonNull(metrics, "metrics");
+			return this;
+		}
+
+		/**
+		 * @return an engine with the collected configuration
+		 */
+		public ConversionEngine build() {
+			return new ConversionEngine(this);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package gov.cms.qpp.conversion;
+
+import gov.cms.qpp.conversion.model.Program;
+
+/**
+ * Listener for the timings and sizes of conversions. A listener is configured on a {@link ConversionEngine}
+ * or {@link Context} and is shared by all of its conversions, so implementations must be thread safe.
+ * Listeners are called on the converting thread and should return quickly.
+ */
+public interface ConversionMetrics {
+
+	/**
+	 * A listener that ignores everything.
+	 */
+	ConversionMetrics NONE = new ConversionMetrics() {};
+
+	/**
+	 * The timed steps of handling a submission. The first four are the {@link Converter.Stage}s,
+	 * the others are performed on the converted result by the application hosting the converter.
+	 */
+	enum Phase {
+		PARSE, DECODE, VALIDATE, ENCODE, QPP_VALIDATION, AUDIT;
+
+		static Phase of(Converter.Stage stage) {
+			return valueOf(stage.name());
+		}
+	}
+
+	/**
+	 * Called once for every conversion when the converter completes, whether or not it succeeded.
+	 *
+	 * @param statistics timings and sizes of the conversion
+	 */
+	default void converted(ConversionStatistics statistics) {
+	}
+
+	/**
+	 * Called for work done on a converted submission after the converter completed,
+	 * such as {@link Phase#QPP_VALIDATION} and {@link Phase#AUDIT}.
+	 *
+	 * @param program the program of the converted submission
+	 * @param phase the step that was performed
+	 * @param nanos how long the step took
+	 */
+	default void timed(Program program, Phase phase, long nanos) {
+	}
+
+	/**
+	 * Called when the application hosting the converter rendered the QPP JSON of a converted submission.
+	 *
+	 * @param program the program of the converted submission
+	 * @param jsonBytes size of the UTF-8 encoded QPP JSON
+	 */
+	default void rendered(Program program, long jsonBytes) {
+	}
+}
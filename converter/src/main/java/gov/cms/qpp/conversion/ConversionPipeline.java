@@ -0,0 +1,377 @@
+package gov.cms.qpp.conversion;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.cms.qpp.conversion.Converter.Stage;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.error.TransformException;
+
+/**
+ * Converts many {@link Source}s concurrently. Each {@link Stage} of a conversion runs on its own fixed size executor,
+ * and the stages are connected by bounded queues. When a stage falls behind, the stage feeding it blocks, and that
+ * back pressure eventually stops further sources from being read. This lets parsing of one file overlap with the
+ * validation of another without holding an unbounded number of documents in memory.
+ *
+ * <p>Each batch admits no more sources than the stages can hold plus its {@link Settings#resultCapacity(int) result
+ * capacity}, and gets a permit back as its consumer takes a result. Stage workers therefore never wait for the
+ * consumer of a batch, so a slow consumer only holds up its own batch.
+ *
+ * <p>A pipeline may be shared by concurrent batches and should be {@link #close() closed} when no longer needed.
+ */
+public class ConversionPipeline implements AutoCloseable {
+
+	private static final Logger DEV_LOG = LoggerFactory.getLogger(ConversionPipeline.class);
+	private static final long POLL_MILLIS = 25;
+	private static final AtomicInteger FEEDER_COUNT = new AtomicInteger();
+
+	private final Supplier<Context> contexts;
+	private final Map<Stage, ThreadPoolExecutor> executors = new EnumMap<>(Stage.class);
+	private final int admissions;
+
+	/**
+	 * Creates a pipeline with the default {@link Settings}.
+	 *
+	 * @param contexts creates a fresh {@link Context} for each conversion
+	 */
+	public ConversionPipeline(Supplier<Context> contexts) {
+		this(contexts, new Settings());
+	}
+
+	/**
+	 * Creates a pipeline.
+	 *
+	 * @param contexts creates a fresh {@link Context} for each conversion
+	 * @param settings executor and queue sizing
+	 */
+	public ConversionPipeline(Supplier<Context> contexts, Settings settings) {
+		Objects.requireNonNull(contexts, "contexts");
+		Objects.requireNonNull(settings, "settings");
+
+		this.contexts = contexts;
+		int admitted = settings.resultCapacity;
+		for (Stage stage : Stage.values()) {
+			int threads = settings.threads.get(stage);
+			admitted += threads + settings.queueCapacities.get(stage);
+			executors.put(stage, new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(settings.queueCapacities.get(stage)),
+					new StageThreadFactory("qpp-" + stage.name().toLowerCase(Locale.ENGLISH) + "-"),
+					new BlockingSubmission()));
+		}
+		this.admissions = admitted;
+	}
+
+	/**
+	 * Converts the given sources.
+	 *
+	 * @param sources sources to convert
+	 * @return results in completion order
+	 */
+	public Batch convert(Iterable<? extends Source> sources) {
+		Objects.requireNonNull(sources, "sources");
+		return convert(sources.iterator());
+	}
+
+	/**
+	 * Converts the given sources. Sources are only pulled from the iterator as the pipeline has room for them.
+	 *
+	 * @param sources sources to convert
+	 * @return results in completion order
+	 */
+	public Batch convert(Iterator<? extends Source> sources) {
+		Objects.requireNonNull(sources, "sources");
+		Batch batch = new Batch(sources);
+		batch.feeder.start();
+		return batch;
+	}
+
+	/**
+	 * Stops all stages, abandoning in flight conversions.
+	 */
+	@Override
+	public void close() {
+		executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+	}
+
+	/**
+	 * Streaming view of the results of a single {@link #convert(Iterator)} call.
+	 * Results become available as soon as each conversion completes. Closing a batch abandons its remaining work.
+	 */
+	public final class Batch implements Iterator<ConversionResult>, AutoCloseable {
+
+		private final Iterator<? extends Source> sources;
+		private final BlockingQueue<ConversionResult> results = new LinkedBlockingQueue<>();
+		/**
+		 * Sources this batch may still admit, returned as its results are taken.
+		 */
+		private final Semaphore admission = new Semaphore(admissions);
+		/**
+		 * Conversions in flight plus one for the feeder, which releases its share once all sources are submitted.
+		 */
+		private final AtomicInteger outstanding = new AtomicInteger(1);
+		private final Thread feeder;
+		private volatile boolean cancelled;
+		private volatile RuntimeException feedFailure;
+		private ConversionResult next;
+
+		private Batch(Iterator<? extends Source> sources) {
+			this.sources = sources;
+			this.feeder = new Thread(this::feed, "qpp-pipeline-feeder-" + FEEDER_COUNT.incrementAndGet());
+			this.feeder.setDaemon(true);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				boolean drained = outstanding.get() == 0;
+				try {
+					next = results.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+					throw new CancellationException("Interrupted while awaiting conversion results");
+				}
+				if (next == null && drained) {
+					if (feedFailure != null) {
+						throw feedFailure;
+					}
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public ConversionResult next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ConversionResult result = next;
+			next = null;
+			admission.release();
+			return result;
+		}
+
+		/**
+		 * Abandons conversions that have not completed yet.
+		 */
+		@Override
+		public void close() {
+			cancelled = true;
+			feeder.interrupt();
+			results.clear();
+		}
+
+		private void feed() {
+			long sequence = 0;
+			try {
+				while (!cancelled && sources.hasNext()) {
+					admission.acquire();
+					Source source = sources.next();
+					Converter converter = new Converter(source, contexts.get());
+					outstanding.incrementAndGet();
+					submit(new Conversion(sequence++, source, converter), Stage.PARSE);
+				}
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException exception) {
+				if (!cancelled) {
+					DEV_LOG.error("Unable to read the sources to convert", exception);
+					feedFailure = exception;
+				}
+			} finally {
+				arrive();
+			}
+		}
+
+		private void submit(Conversion conversion, Stage stage) {
+			try {
+				executors.get(stage).execute(() -> run(conversion, stage));
+			} catch (RejectedExecutionException exception) {
+				if (!cancelled) {
+					feedFailure = exception;
+				}
+				arrive();
+			}
+		}
+
+		private void run(Conversion conversion, Stage stage) {
+			if (cancelled) {
+				arrive();
+				return;
+			}
+
+			Converter converter = conversion.converter;
+			boolean proceed;
+			try {
+				proceed = converter.advance(stage);
+			} catch (Error error) {
+				publish(new ConversionResult(conversion.sequence, conversion.source, null, converter.getReport(),
+						new TransformException("Unexpected error", error, converter.getReport())));
+				throw error;
+			}
+
+			if (proceed && stage.ordinal() < Stage.ENCODE.ordinal()) {
+				submit(conversion, Stage.values()[stage.ordinal() + 1]);
+			} else {
+				publish(complete(conversion));
+			}
+		}
+
+		private ConversionResult complete(Conversion conversion) {
+			Converter converter = conversion.converter;
+			try {
+				JsonWrapper encoded = converter.complete();
+				return new ConversionResult(conversion.sequence, conversion.source, encoded,
+						converter.getReport(), null);
+			} catch (TransformException exception) {
+				return new ConversionResult(conversion.sequence, conversion.source, null,
+						exception.getConversionReport(), exception);
+			}
+		}
+
+		/**
+		 * Hands a result to the consumer without waiting, the admission permits keep the queue bounded.
+		 */
+		private void publish(ConversionResult result) {
+			try {
+				if (!cancelled) {
+					results.add(result);
+				}
+			} finally {
+				arrive();
+			}
+		}
+
+		private void arrive() {
+			outstanding.decrementAndGet();
+		}
+	}
+
+	/**
+	 * A source travelling through the stages.
+	 */
+	private static final class Conversion {
+		private final long sequence;
+		private final Source source;
+		private final Converter converter;
+
+		private Conversion(long sequence, Source source, Converter converter) {
+			this.sequence = sequence;
+			this.source = source;
+			this.converter = converter;
+		}
+	}
+
+	/**
+	 * Executor and queue sizing for each {@link Stage}.
+	 * By default every stage gets half the available processors and a queue twice that deep.
+	 */
+	public static class Settings {
+		private final Map<Stage, Integer> threads = new EnumMap<>(Stage.class);
+		private final Map<Stage, Integer> queueCapacities = new EnumMap<>(Stage.class);
+		private int resultCapacity;
+
+		public Settings() {
+			int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+			for (Stage stage : Stage.values()) {
+				threads.put(stage, defaultThreads);
+				queueCapacities.put(stage, defaultThreads * 2);
+			}
+			resultCapacity = defaultThreads * 2;
+		}
+
+		/**
+		 * @param stage stage to size
+		 * @param count number of worker threads for the stage
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings threads(Stage stage, int count) {
+			threads.put(stage, positive(count, "threads"));
+			return this;
+		}
+
+		/**
+		 * @param stage stage to size
+		 * @param capacity number of conversions that may wait for a worker of the stage
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings queueCapacity(Stage stage, int capacity) {
+			queueCapacities.put(stage, positive(capacity, "queue capacity"));
+			return this;
+		}
+
+		/**
+		 * @param capacity number of completed results of a batch that may wait for the consumer, in addition to the
+		 * conversions the stages can hold
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings resultCapacity(int capacity) {
+			resultCapacity = positive(capacity, "result capacity");
+			return this;
+		}
+
+		private static int positive(int value, String name) {
+			if (value < 1) {
+				throw new IllegalArgumentException(name + " must be positive");
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Blocks the submitting thread until the stage queue has room, propagating back pressure upstream.
+	 */
+	private static class BlockingSubmission implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Conversion pipeline is closed");
+			}
+			try {
+				executor.getQueue().put(task);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for the conversion pipeline", e);
+			}
+		}
+	}
+
+	/**
+	 * Names stage workers and marks them as daemons so an abandoned pipeline does not keep the JVM alive.
+	 */
+	private static class StageThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		StageThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
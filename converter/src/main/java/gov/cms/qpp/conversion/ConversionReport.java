@@ -2,7 +2,9 @@ package gov.cms.qpp.conversion;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,6 +12,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import gov.cms.qpp.conversion.encode.EncodeException;
 import gov.cms.qpp.conversion.encode.JsonWrapper;
 import gov.cms.qpp.conversion.model.Node;
+import gov.cms.qpp.conversion.model.Program;
 import gov.cms.qpp.conversion.model.error.AllErrors;
 import gov.cms.qpp.conversion.model.error.Detail;
 import gov.cms.qpp.conversion.model.error.Error;
@@ -22,7 +25,9 @@ public class ConversionReport {
 	private final ObjectMapper mapper = new ObjectMapper();
 	private Source source;
 	private Node decoded;
+	private final Program program;
 	private JsonWrapper encodedWithMetadata;
+	private byte[] qppBytes;
 	private AllErrors reportDetails;
 	private List<Detail> warnings;
 
@@ -34,11 +39,33 @@ public class ConversionReport {
 	ConversionReport(Source source, List<Detail> errors, List<Detail> warnings, Node decoded, JsonWrapper encodedWithMetadata) {
 		this.source = source;
 		this.decoded = decoded;
+		this.program = decoded == null ? Program.ALL : Program.extractProgram(decoded);
 		this.encodedWithMetadata = encodedWithMetadata;
 		this.warnings = warnings;
 		reportDetails = constructErrorHierarchy(source.getName(), errors);
 	}
 
+	/**
+	 * Attributes the results of this conversion to another source with the same content, for instance when reusing
+	 * a cached conversion. The decoded and encoded results are shared, since both are only handed out as copies.
+	 *
+	 * @param other The source to attribute the results to.
+	 * @return A new report for the other source.
+	 */
+	public ConversionReport copyFor(Source other) {
+		Objects.requireNonNull(other, "other");
+
+		List<Detail> errors = new ArrayList<>();
+		if (reportDetails != null && reportDetails.getErrors() != null) {
+			reportDetails.getErrors().stream()
+					.map(Error::getDetails)
+					.filter(Objects::nonNull)
+					.forEach(errors::addAll);
+		}
+		return new ConversionReport(other, errors, warnings == null ? null : new ArrayList<>(warnings),
+				decoded, encodedWithMetadata);
+	}
+
 	/**
 	 * Constructs an {@link AllErrors} from all the validation errors.
 	 *
@@ -79,6 +106,15 @@ public class ConversionReport {
 		return CloneHelper.deepClone(decoded);
 	}
 
+	/**
+	 * The program of the decoded submission, read once without copying it.
+	 *
+	 * @return the program, {@link Program#ALL} if the submission could not be decoded
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
 	/**
 	 * Defensive copy of the result of the conversion
 	 *
@@ -132,7 +168,32 @@ public class ConversionReport {
 	 * @return {@link Source} for the output.
 	 */
 	public Source getQppSource() {
-		return getEncodedWithMetadata().toSource();
+		return new InputStreamSupplierSource("QPP", new ByteArrayInputStream(renderQpp()));
+	}
+
+	/**
+	 * The QPP JSON of the conversion, without metadata. It is rendered once and reused.
+	 *
+	 * @return the QPP JSON
+	 */
+	public String getQppJson() {
+		return new String(renderQpp(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Size of the QPP JSON, if it was rendered.
+	 *
+	 * @return the size of the UTF-8 encoded QPP JSON, -1 if it was not rendered yet
+	 */
+	public synchronized long getRenderedQppBytes() {
+		return qppBytes == null ? -1 : qppBytes.length;
+	}
+
+	private synchronized byte[] renderQpp() {
+		if (qppBytes == null) {
+			qppBytes = encodedWithMetadata.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return qppBytes;
 	}
 
 	/**
@@ -0,0 +1,74 @@
+package gov.cms.qpp.conversion;
+
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.error.TransformException;
+
+/**
+ * Outcome of converting a single {@link Source} as part of a batch, see {@link ConversionPipeline}.
+ */
+public class ConversionResult {
+
+	private final long sequence;
+	private final Source source;
+	private final JsonWrapper encoded;
+	private final ConversionReport report;
+	private final TransformException failure;
+
+	ConversionResult(long sequence, Source source, JsonWrapper encoded, ConversionReport report,
+			TransformException failure) {
+		this.sequence = sequence;
+		this.source = source;
+		this.encoded = encoded;
+		this.report = report;
+		this.failure = failure;
+	}
+
+	/**
+	 * Position of the source in the batch input, starting at zero.
+	 * Results are delivered in completion order, so this allows callers to restore input order.
+	 *
+	 * @return input position
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the converted source
+	 */
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * @return whether the conversion produced QPP without errors
+	 */
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+
+	/**
+	 * The converted QPP, as returned by {@link Converter#transform()}.
+	 *
+	 * @return encoded QPP or null if the conversion failed
+	 */
+	public JsonWrapper getEncoded() {
+		return encoded;
+	}
+
+	/**
+	 * @return the conversion report for the source, whether or not the conversion succeeded
+	 */
+	public ConversionReport getReport() {
+		return report;
+	}
+
+	/**
+	 * The exception {@link Converter#transform()} would have thrown for the source.
+	 *
+	 * @return the failure or null if the conversion succeeded
+	 */
+	public TransformException getFailure() {
+		return failure;
+	}
+}
@@ -0,0 +1,139 @@
+package gov.cms.qpp.conversion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Node;
+import gov.cms.qpp.conversion.model.Program;
+
+/**
+ * Timings and sizes of a single completed conversion, see {@link ConversionMetrics}.
+ *
+ * <p>The node count and JSON size are only computed when asked for, since the latter requires the
+ * converted submission to be rendered.
+ */
+public final class ConversionStatistics {
+
+	private final Source source;
+	private final Program program;
+	private final long[] nanos;
+	private final int errorCount;
+	private final int warningCount;
+	private final Node decoded;
+	private final JsonWrapper encoded;
+	private int nodeCount = -1;
+	private long jsonBytes = -1;
+
+	ConversionStatistics(Source source, Program program, long[] nanos, int errorCount, int warningCount,
+			Node decoded, JsonWrapper encoded) {
+		this.source = source;
+		this.program = program;
+		this.nanos = nanos.clone();
+		this.errorCount = errorCount;
+		this.warningCount = warningCount;
+		this.decoded = decoded;
+		this.encoded = encoded;
+	}
+
+	/**
+	 * @return the converted source
+	 */
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the program of the submission, {@link Program#ALL} if the conversion failed before it was known
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * @return whether the conversion succeeded
+	 */
+	public boolean isSuccessful() {
+		return errorCount == 0;
+	}
+
+	/**
+	 * How long one of the {@link Converter.Stage}s took.
+	 *
+	 * @param phase one of the converter phases
+	 * @return nanoseconds spent, zero if the stage was not run
+	 */
+	public long getNanos(Phase phase) {
+		return phase.ordinal() < nanos.length ? nanos[phase.ordinal()] : 0;
+	}
+
+	/**
+	 * @return nanoseconds spent in all stages of the converter
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+		for (long stage : nanos) {
+			total += stage;
+		}
+		return total;
+	}
+
+	/**
+	 * @return size of the QRDA
+	 */
+	public long getInputBytes() {
+		return source.getSize();
+	}
+
+	/**
+	 * @return number of nodes decoded from the QRDA, zero if it could not be decoded
+	 */
+	public synchronized int getNodeCount() {
+		if (nodeCount < 0) {
+			nodeCount = count(decoded);
+		}
+		return nodeCount;
+	}
+
+	/**
+	 * @return size of the UTF-8 encoded QPP JSON, zero if the conversion produced none
+	 */
+	public synchronized long getJsonBytes() {
+		if (jsonBytes < 0) {
+			jsonBytes = encoded == null ? 0 : encoded.toString().getBytes(StandardCharsets.UTF_8).length;
+		}
+		return jsonBytes;
+	}
+
+	/**
+	 * @return number of errors found
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return number of warnings found
+	 */
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	private static int count(Node root) {
+		if (root == null) {
+			return 0;
+		}
+
+		int count = 0;
+		Deque<Node> remaining = new ArrayDeque<>();
+		remaining.push(root);
+		while (!remaining.isEmpty()) {
+			Node node = remaining.pop();
+			count++;
+			node.getChildNodes().forEach(remaining::push);
+		}
+		return count;
+	}
+}
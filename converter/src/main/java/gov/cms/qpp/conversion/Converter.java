@@ -18,7 +18,6 @@ import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -37,8 +36,17 @@ public class Converter {
 	private final Context context;
 	private List<Detail> errors = new ArrayList<>();
 	private List<Detail> warnings = new ArrayList<>();
+	private Element document;
 	private Node decoded;
 	private JsonWrapper encoded;
+	private final long[] nanos = new long[Stage.values().length];
+
+	/**
+	 * The steps of a conversion in the order they are run.
+	 */
+	public enum Stage {
+		PARSE, DECODE, VALIDATE, ENCODE
+	}
 
 	public Converter(Source source) {
 		this(source, new Context());
@@ -73,8 +81,45 @@ public class Converter {
 	 */
 	public JsonWrapper transform() {
 		DEV_LOG.info("Transform invoked");
+		for (Stage stage : Stage.values()) {
+			if (!advance(stage)) {
+				break;
+			}
+		}
+		return complete();
+	}
+
+	/**
+	 * Run a single conversion {@link Stage}. Stages must be run in declaration order, each only
+	 * if the previous one returned true. This allows stages to be scheduled independently, see {@link ConversionPipeline}.
+	 *
+	 * @param stage the step to perform
+	 * @return whether the conversion may continue to the next stage
+	 */
+	boolean advance(Stage stage) {
+		long start = System.nanoTime();
 		try {
-			encoded = transform(source.toInputStream());
+			return perform(stage);
+		} finally {
+			nanos[stage.ordinal()] = System.nanoTime() - start;
+		}
+	}
+
+	private boolean perform(Stage stage) {
+		try {
+			switch (stage) {
+				case PARSE:
+					document = XmlUtils.parseXmlStream(source.toInputStream());
+					return true;
+				case DECODE:
+					return decode();
+				case VALIDATE:
+					validate();
+					return errors.isEmpty();
+				default:
+					encoded = encode();
+					return true;
+			}
 		} catch (XmlInputFileException | XmlException xe) {
 			DEV_LOG.error(ProblemCode.NOT_VALID_XML_DOCUMENT.getMessage(), xe);
 			Detail detail = Detail.forProblemCode(ProblemCode.NOT_VALID_XML_DOCUMENT);
@@ -84,7 +129,17 @@ public class Converter {
 			Detail detail = Detail.forProblemCode(ProblemCode.UNEXPECTED_ERROR);
 			errors.add(detail);
 		}
+		return false;
+	}
 
+	/**
+	 * Finish the conversion once no further stages will be run.
+	 *
+	 * @return the encoded result
+	 * @throws TransformException if errors were found along the way
+	 */
+	JsonWrapper complete() {
+		publishStatistics();
 		if (!errors.isEmpty()) {
 			throw new TransformException("Validation errors exist", null, getReport());
 		}
@@ -93,37 +148,49 @@ public class Converter {
 	}
 
 	/**
-	 * Transform the content in a given input stream
+	 * Let the context's {@link ConversionMetrics} know how the conversion went.
+	 * A failing listener is logged rather than failing the conversion.
+	 */
+	private void publishStatistics() {
+		try {
+			context.getMetrics().converted(new ConversionStatistics(source, context.getProgram(), nanos,
+					errors.size(), warnings.size(), decoded, encoded));
+		} catch (RuntimeException exception) {
+			DEV_LOG.warn("Conversion metrics could not be recorded", exception);
+		}
+	}
+
+	/**
+	 * Decode the parsed document, releasing it once decoded.
 	 *
-	 * @param inStream source content
-	 * @return a transformed representation of the source content
-	 * @throws XmlException during transform
+	 * @return whether a QRDA document was decoded
 	 */
-	private JsonWrapper transform(InputStream inStream) {
-		Element doc = XmlUtils.parseXmlStream(inStream);
+	private boolean decode() {
+		Element doc = document;
+		document = null;
 		decoded = XmlDecoderEngine.decodeXml(context, doc);
-		JsonWrapper qpp = null;
-		if (null != decoded) {
-			DEV_LOG.info("Decoded template ID {}", decoded.getType());
-
-			if (context.isDoValidation()) {
-				QrdaValidator validator = new QrdaValidator(context);
-				ValidationResult result = validator.validate(decoded);
-				List<Detail> truncatedErrors = truncateTooManyErrors(result.getErrors());
-				errors.addAll(truncatedErrors);
-				warnings.addAll(result.getWarnings());
-			}
-
-			if (errors.isEmpty()) {
-				qpp = encode();
-			}
-		} else {
+		if (null == decoded) {
 			Detail detail = Detail.forProblemCode(ProblemCode.NOT_VALID_QRDA_DOCUMENT.format(
 				Context.REPORTING_YEAR, DocumentationReference.CLINICAL_DOCUMENT));
 			errors.add(detail);
+			return false;
 		}
 
-		return qpp;
+		DEV_LOG.info("Decoded template ID {}", decoded.getType());
+		return true;
+	}
+
+	/**
+	 * Validate the decoded submission if the context asks for validation.
+	 */
+	private void validate() {
+		if (context.isDoValidation()) {
+			QrdaValidator validator = new QrdaValidator(context);
+			ValidationResult result = validator.validate(decoded);
+			List<Detail> truncatedErrors = truncateTooManyErrors(result.getErrors());
+			errors.addAll(truncatedErrors);
+			warnings.addAll(result.getWarnings());
+		}
 	}
 
 	private List<Detail> truncateTooManyErrors(List<Detail> errors) {
@@ -0,0 +1,77 @@
+package gov.cms.qpp.conversion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link PathSource} that memory maps the file on first use. Every {@link #toInputStream()} replays the same
+ * mapping, so repeated reads are served from the page cache without copying the file onto the heap.
+ *
+ * <p>Files that are too large to map, or that live on a file system without mapping support, are streamed
+ * like a plain {@link PathSource}.
+ */
+public class MappedPathSource extends PathSource {
+
+	private volatile ByteBuffer mapped;
+	private volatile boolean unmappable;
+
+	public MappedPathSource(Path path) {
+		super(path);
+	}
+
+	/**
+	 * An {@link InputStream} over the mapped file.
+	 *
+	 * @return An InputStream representing the source.
+	 */
+	@Override
+	public InputStream toInputStream() {
+		ByteBuffer buffer = map();
+		return buffer == null ? super.toInputStream() : new ByteBufferInputStream(buffer.duplicate());
+	}
+
+	/**
+	 * The size of the mapped file.
+	 *
+	 * @return The source's size.
+	 */
+	@Override
+	public long getSize() {
+		ByteBuffer buffer = mapped;
+		return buffer == null ? super.getSize() : buffer.capacity();
+	}
+
+	private ByteBuffer map() {
+		ByteBuffer buffer = mapped;
+		if (buffer == null && !unmappable) {
+			synchronized (this) {
+				buffer = mapped;
+				if (buffer == null && !unmappable) {
+					buffer = mapFile();
+					mapped = buffer;
+					unmappable = buffer == null;
+				}
+			}
+		}
+		return buffer;
+	}
+
+	private ByteBuffer mapFile() {
+		try (FileChannel channel = FileChannel.open(getPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return null;
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (UnsupportedOperationException notMappable) {
+			return null;
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
@@ -18,6 +18,15 @@ public class PathSource extends SkeletalSource {
 		this.path = path;
 	}
 
+	/**
+	 * The path to the file.
+	 *
+	 * @return The source's path.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
 	/**
 	 * An {@link InputStream} representation of the file at the path.
 	 *
@@ -0,0 +1,196 @@
+package gov.cms.qpp.conversion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A replayable {@link Source} for an {@link InputStream} that may be large.
+ * Content up to the threshold is held on the heap, just like {@link InputStreamSupplierSource}. Anything larger is
+ * spooled to a temporary file that is memory mapped, so concurrent large uploads do not pin their size in heap.
+ *
+ * <p>{@link #close() Closing} the source deletes the temporary file. Streams obtained before then keep reading
+ * from the mapping, which is released once the source is garbage collected.
+ */
+public class SpooledSource extends SkeletalSource implements Closeable {
+
+	public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+	private static final Logger DEV_LOG = LoggerFactory.getLogger(SpooledSource.class);
+
+	private final String purpose;
+	private final byte[] bytes;
+	private final ByteBuffer mapped;
+	private final Path spool;
+	private final long size;
+
+	/**
+	 * Creates a new Source with the given name, spooling content beyond {@link #DEFAULT_THRESHOLD} to disk.
+	 *
+	 * @param name The name of the source.
+	 * @param source an {@link InputStream}, which is read fully.
+	 * @param purpose The purpose of the source creation
+	 */
+	public SpooledSource(String name, InputStream source, String purpose) {
+		this(name, source, purpose, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a new Source with the given name.
+	 *
+	 * @param name The name of the source.
+	 * @param source an {@link InputStream}, which is read fully.
+	 * @param purpose The purpose of the source creation
+	 * @param threshold The most bytes to hold on the heap before spooling to disk.
+	 */
+	public SpooledSource(String name, InputStream source, String purpose, int threshold) {
+		super(name);
+
+		Objects.requireNonNull(source, "source");
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold must not be negative");
+		}
+
+		this.purpose = purpose;
+		byte[] head = readHead(source, threshold);
+		if (head.length <= threshold) {
+			this.bytes = head;
+			this.mapped = null;
+			this.spool = null;
+			this.size = head.length;
+		} else {
+			this.bytes = null;
+			this.spool = spool(head, source);
+			this.mapped = map(spool);
+			this.size = mapped == null ? fileSize(spool) : mapped.capacity();
+		}
+	}
+
+	/**
+	 * A new {@link InputStream} over the full content.
+	 *
+	 * @return An InputStream representing the source.
+	 */
+	@Override
+	public InputStream toInputStream() {
+		if (bytes != null) {
+			return new ByteArrayInputStream(bytes);
+		}
+		if (mapped != null) {
+			return new ByteBufferInputStream(mapped.duplicate());
+		}
+		try {
+			return Files.newInputStream(spool);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * The size of the content.
+	 *
+	 * @return The source's size.
+	 */
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getPurpose() {
+		return purpose;
+	}
+
+	/**
+	 * Whether the content was larger than the threshold and spooled to disk.
+	 *
+	 * @return true if the content is backed by a temporary file
+	 */
+	public boolean isSpooled() {
+		return spool != null;
+	}
+
+	/**
+	 * Deletes the temporary file, if any. Safe to call more than once.
+	 */
+	@Override
+	public void close() {
+		if (spool != null) {
+			try {
+				Files.deleteIfExists(spool);
+			} catch (IOException exception) {
+				DEV_LOG.warn("Unable to delete spooled upload " + spool, exception);
+			}
+		}
+	}
+
+	private static byte[] readHead(InputStream source, int threshold) {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		try {
+			IOUtils.copyLarge(source, head, 0, threshold + 1L);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return head.toByteArray();
+	}
+
+	private static Path spool(byte[] head, InputStream rest) {
+		Path file = null;
+		try {
+			file = Files.createTempFile("qpp-upload-", ".spool");
+			try (OutputStream out = Files.newOutputStream(file)) {
+				out.write(head);
+				IOUtils.copyLarge(rest, out);
+			}
+			return file;
+		} catch (IOException exception) {
+			deleteQuietly(file);
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static ByteBuffer map(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long length = channel.size();
+			return length > Integer.MAX_VALUE ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		} catch (IOException exception) {
+			deleteQuietly(file);
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static long fileSize(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException suppressed) {
+				DEV_LOG.warn("Unable to delete spooled upload " + file, suppressed);
+			}
+		}
+	}
+}
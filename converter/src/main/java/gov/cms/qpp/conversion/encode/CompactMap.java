@@ -0,0 +1,231 @@
+package gov.cms.qpp.conversion.encode;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Insertion ordered {@link Map} backed by parallel key and value arrays.
+ * Most JSON objects produced by the encoders hold a handful of keys, for which a linear
+ * scan beats the per entry node overhead of a {@link java.util.LinkedHashMap}.
+ * A hash index is only built once the map grows beyond {@link #INDEX_THRESHOLD} keys.
+ *
+ * @param <V> value type
+ */
+final class CompactMap<V> extends AbstractMap<String, V> {
+
+	static final int INDEX_THRESHOLD = 8;
+	private static final int INITIAL_CAPACITY = 4;
+
+	private String[] keys;
+	private Object[] values;
+	private int size;
+	private Map<String, Integer> index;
+
+	CompactMap() {
+		this(INITIAL_CAPACITY);
+	}
+
+	CompactMap(int capacity) {
+		keys = new String[Math.max(capacity, 1)];
+		values = new Object[keys.length];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < size; i++) {
+			if (Objects.equals(value, values[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		int found = indexOf(key);
+		return found < 0 ? null : valueAt(found);
+	}
+
+	@Override
+	public V put(String key, V value) {
+		int found = indexOf(key);
+		if (found >= 0) {
+			V previous = valueAt(found);
+			values[found] = value;
+			return previous;
+		}
+
+		if (size == keys.length) {
+			int capacity = keys.length << 1;
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		keys[size] = key;
+		values[size] = value;
+		if (index != null) {
+			index.put(key, size);
+		}
+		size++;
+		if (index == null && size > INDEX_THRESHOLD) {
+			reindex();
+		}
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		int found = indexOf(key);
+		if (found < 0) {
+			return null;
+		}
+		V previous = valueAt(found);
+		removeAt(found);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		index = null;
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new Cursor<V>() {
+					@Override
+					V current(int position) {
+						return valueAt(position);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<Entry<String, V>> entrySet() {
+		return new AbstractSet<Entry<String, V>>() {
+			@Override
+			public Iterator<Entry<String, V>> iterator() {
+				return new Cursor<Entry<String, V>>() {
+					@Override
+					Entry<String, V> current(int position) {
+						return new SimpleImmutableEntry<>(keys[position], valueAt(position));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueAt(int position) {
+		return (V) values[position];
+	}
+
+	private int indexOf(Object key) {
+		if (index != null) {
+			Integer found = index.get(key);
+			return found == null ? -1 : found;
+		}
+		for (int i = 0; i < size; i++) {
+			if (Objects.equals(key, keys[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int position) {
+		int moved = size - position - 1;
+		if (moved > 0) {
+			System.arraycopy(keys, position + 1, keys, position, moved);
+			System.arraycopy(values, position + 1, values, position, moved);
+		}
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		if (index != null) {
+			reindex();
+		}
+	}
+
+	private void reindex() {
+		if (size <= INDEX_THRESHOLD) {
+			index = null;
+			return;
+		}
+		index = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			index.put(keys[i], i);
+		}
+	}
+
+	/**
+	 * Positional iterator shared by the entry and value views.
+	 *
+	 * @param <T> element type
+	 */
+	private abstract class Cursor<T> implements Iterator<T> {
+		private int next;
+		private int last = -1;
+
+		abstract T current(int position);
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public T next() {
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return current(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+	}
+}
@@ -5,7 +5,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -26,7 +28,6 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import gov.cms.qpp.conversion.InputStreamSupplierSource;
 import gov.cms.qpp.conversion.Source;
 import gov.cms.qpp.conversion.model.Node;
-import gov.cms.qpp.conversion.util.CloneHelper;
 import gov.cms.qpp.conversion.util.FormatHelper;
 
 /**
@@ -45,7 +46,7 @@ public class JsonWrapper {
 		BOOLEAN {
 			public void json(JsonWrapper value, JsonGenerator gen) throws IOException {
 				if (hasValue(value)) {
-					gen.writeBoolean(Boolean.parseBoolean(value.toObject().toString()));
+					gen.writeBoolean(value.booleanValue());
 				}
 			}
 		}, DATE {
@@ -55,13 +56,13 @@ public class JsonWrapper {
 		}, INTEGER {
 			public void json(JsonWrapper value, JsonGenerator gen) throws IOException {
 				if (hasValue(value)) {
-					gen.writeNumber(Integer.parseInt(value.toObject().toString()));
+					gen.writeNumber(value.intValue());
 				}
 			}
 		}, FLOAT {
 			public void json(JsonWrapper value, JsonGenerator gen) throws IOException {
 				if (hasValue(value)) {
-					gen.writeNumber(Float.parseFloat(value.toObject().toString()));
+					gen.writeNumber(value.floatValue());
 				}
 			}
 		}, STRING {
@@ -116,7 +117,7 @@ public class JsonWrapper {
 		};
 		
 		public boolean hasValue(JsonWrapper value) throws IOException {
-			return null != value && null != value.toObject() && !value.isType(UNKNOWN);
+			return null != value && !value.isType(UNKNOWN) && (!value.isValue() || value.hasLeafValue());
 		}
 		
 		public void json(JsonWrapper value, JsonGenerator gen) throws IOException {}
@@ -202,10 +203,22 @@ public class JsonWrapper {
 	private static final ObjectWriter jsonWriter = standardWriter();
 	private static final ObjectWriter withMetadataWriter = metadataWriter();
 	
+	/**
+	 * Lexical value of a leaf. Primitive leaves only retain it when the parsed value
+	 * would not render back to the same text, for example "007" or "1.50".
+	 */
 	private final String value;
-	private final Map<String, JsonWrapper> childrenMap;
-	private final List<JsonWrapper> childrenList;
-	private final JsonWrapper metadata;
+	/**
+	 * The primitive kind held in {@link #primitiveBits}, or null for a string leaf or container.
+	 */
+	private final Type primitive;
+	/**
+	 * Primitive leaf value: an int, float bits, or 1/0 for true/false.
+	 */
+	private final int primitiveBits;
+	private CompactMap<JsonWrapper> childrenMap;
+	private List<JsonWrapper> childrenList;
+	private JsonWrapper metadata;
 	private final Kind kind;
 	private Type type = Type.UNKNOWN;
 	
@@ -226,6 +239,7 @@ public class JsonWrapper {
 	
 	/**
 	 * Cunstruct a JSON container for a given kind.
+	 * The child collections and metadata are created on first use.
 	 * @param kind
 	 */
 	public JsonWrapper(Kind kind) {
@@ -236,11 +250,8 @@ public class JsonWrapper {
 		}
 		
 		value = null;
-		childrenMap = new LinkedHashMap<>();
-		childrenList = new LinkedList<>();
-		
-		// no metadata on metadata
-		metadata = isMetadata() ? null : new JsonWrapper(Kind.METADATA);
+		primitive = null;
+		primitiveBits = 0;
 	}
 	
 	/**
@@ -250,27 +261,35 @@ public class JsonWrapper {
 	 * @param value
 	 */
 	public JsonWrapper(String value) {
-		kind = Kind.VALUE;
-		type = Type.STRING;
-		this.value = value;
-		childrenMap = null;
-		childrenList = null;
-		metadata = null;
+		this(Type.STRING, null, 0, value);
 	}
 	
 	public JsonWrapper(Boolean value) {
-		this(value.toString());
-		type = Type.BOOLEAN;
+		this(Type.BOOLEAN, Type.BOOLEAN, value ? 1 : 0, null);
 	}
 	
 	public JsonWrapper(Integer value) {
-		this(value.toString());
-		type = Type.INTEGER;
+		this(Type.INTEGER, Type.INTEGER, value, null);
 	}
 	
 	public JsonWrapper(Float value) {
-		this(value.toString());
-		type = Type.FLOAT;
+		this(Type.FLOAT, Type.FLOAT, Float.floatToRawIntBits(value), null);
+	}
+
+	/**
+	 * Construct a leaf node.
+	 *
+	 * @param type the JSON type rendered for the leaf
+	 * @param primitive the primitive kind held in primitiveBits, or null for a string leaf
+	 * @param primitiveBits the primitive value
+	 * @param value the lexical value, required for string leaves
+	 */
+	private JsonWrapper(Type type, Type primitive, int primitiveBits, String value) {
+		this.kind = Kind.VALUE;
+		this.type = type;
+		this.primitive = primitive;
+		this.primitiveBits = primitiveBits;
+		this.value = value;
 	}
 	
 	/**
@@ -291,15 +310,31 @@ public class JsonWrapper {
 		kind = wrapper.kind;
 		type = wrapper.type;
 		value = wrapper.value;
+		primitive = wrapper.primitive;
+		primitiveBits = wrapper.primitiveBits;
 		
-		childrenMap = CloneHelper.deepClone(wrapper.childrenMap);
-		childrenList = CloneHelper.deepClone(wrapper.childrenList);
+		if (wrapper.childrenMap != null) {
+			childrenMap = new CompactMap<>(wrapper.childrenMap.size());
+			wrapper.childrenMap.forEach((name, child) -> {
+				JsonWrapper copy = new JsonWrapper(child, true);
+				copy.keyForMapStream = name;
+				childrenMap.put(name, copy);
+			});
+		}
+		if (wrapper.childrenList != null) {
+			childrenList = new ArrayList<>(wrapper.childrenList.size());
+			for (JsonWrapper child : wrapper.childrenList) {
+				JsonWrapper copy = new JsonWrapper(child, true);
+				copy.keyForMapStream = child.keyForMapStream;
+				childrenList.add(copy);
+			}
+		}
 		
 		if (isMetadata()) {
 			metadata = null;
 		} else if (withMetadata) {
-			metadata = CloneHelper.deepClone(wrapper.metadata);
-		} else {
+			metadata = wrapper.metadata == null ? null : new JsonWrapper(wrapper.metadata, true);
+		} else if (isValue()) {
 			// instance allows for new metadata to be added
 			metadata = new JsonWrapper(Kind.METADATA);
 		}
@@ -351,8 +386,12 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper clear() {
 		if (!isValue()) {
-			childrenMap.clear();
-			childrenList.clear();
+			if (childrenMap != null) {
+				childrenMap.clear();
+			}
+			if (childrenList != null) {
+				childrenList.clear();
+			}
 			// metadata do not have metadata but are clearable wrappers.
 			if (metadata != null) {
 				metadata.clear();
@@ -381,7 +420,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(String name, Integer value) {
-		put(name, Integer.toString(value), Type.INTEGER);
+		put(name, new JsonWrapper(value));
 		return this;
 	}
 
@@ -392,7 +431,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(String name, Float value) {
-		put(name, Float.toString(value), Type.FLOAT);
+		put(name, new JsonWrapper(value));
 		return this;
 	}
 	
@@ -403,7 +442,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(String name, Boolean value) {
-		put(name, Boolean.toString(value), Type.BOOLEAN);
+		put(name, new JsonWrapper(value));
 		return this;
 	}
 
@@ -426,7 +465,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(Integer value) {
-		put(value.toString(), Type.INTEGER);
+		put(new JsonWrapper(value));
 		return this;
 	}
 	
@@ -437,7 +476,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(Float value) {
-		put(value.toString(), Type.FLOAT);
+		put(new JsonWrapper(value));
 		return this;
 	}
 	
@@ -448,7 +487,7 @@ public class JsonWrapper {
 	 * @return <i><b>this</b></i> reference for chaining
 	 */
 	public JsonWrapper put(Boolean value) {
-		put(value.toString(), Type.BOOLEAN);
+		put(new JsonWrapper(value));
 		return this;
 	}
 
@@ -462,6 +501,9 @@ public class JsonWrapper {
 	public JsonWrapper put(JsonWrapper value) {
 		checkMapState();
 		if (checkState(value)) {
+			if (childrenList == null) {
+				childrenList = new ArrayList<>();
+			}
 			childrenList.add(value);
 			type = Type.LIST;
 		}
@@ -469,8 +511,8 @@ public class JsonWrapper {
 	}
 
 	/**
-	 * The master putter of MAP elements. They must specify the type.
-	 * The JSON values are all represented as strings because JSON is a string.
+	 * The master putter of MAP string elements. They must specify the type.
+	 * Values that fail format validation are kept as strings of the intended type.
 	 * The type parameter is a sort of metadata about the entry for the
 	 * wrapper to know what data was stored for toString processing, 
 	 * format validation, and value fetching.
@@ -480,14 +522,12 @@ public class JsonWrapper {
 	 * @param type
 	 */
 	private void put(String name, String value, Type type) {
-		JsonWrapper wrapper = new JsonWrapper(value);
-		wrapper.type = type;
-		put(name, wrapper);
+		put(name, new JsonWrapper(type, null, 0, value));
 	}
 	
 	/**
-	 * The master putter of LIST elements. They must specify the type.
-	 * The JSON values are all represented as strings because JSON is a string.
+	 * The master putter of LIST string elements. They must specify the type.
+	 * Values that fail format validation are kept as strings of the intended type.
 	 * The type parameter is a sort of metadata about the entry for the
 	 * wrapper to know what data was stored for toString processing, 
 	 * format validation, and value fetching.
@@ -496,9 +536,7 @@ public class JsonWrapper {
 	 * @param type
 	 */
 	private void put(String value, Type type) {
-		JsonWrapper wrapper = new JsonWrapper(value);
-		wrapper.type = type;
-		put(wrapper);
+		put(new JsonWrapper(type, null, 0, value));
 	}
 			
 	/**
@@ -514,6 +552,9 @@ public class JsonWrapper {
 		checkListState();
 		if (checkState(value)) {
 			value.keyForMapStream = name;
+			if (childrenMap == null) {
+				childrenMap = new CompactMap<>();
+			}
 			childrenMap.put(name, value);
 			type = Type.MAP;
 		}
@@ -562,7 +603,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putInteger(String name, String value) {
 		try {
-			put(name, validInteger(value), Type.INTEGER);
+			put(name, integerValue(value));
 		} catch (EncodeException e) {
 			put(name, value, Type.INTEGER);
 			throw e;
@@ -578,7 +619,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putInteger(String value) { // TODO only used in unit tests
 		try {
-			put(validInteger(value), Type.INTEGER);
+			put(integerValue(value));
 		} catch (EncodeException e) {
 			put(value, Type.INTEGER);
 			throw e;
@@ -595,7 +636,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putFloat(String name, String value) { // TODO only used in unit tests
 		try {
-			put(name, validFloat(value), Type.FLOAT);
+			put(name, floatValue(value));
 		} catch (EncodeException e) {
 			put(name, value, Type.FLOAT);
 			throw e;
@@ -611,7 +652,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putFloat(String value) { // TODO only used in unit tests
 		try {
-			put(validFloat(value), Type.FLOAT);
+			put(floatValue(value));
 		} catch (EncodeException e) {
 			put(value, Type.FLOAT);
 			throw e;
@@ -628,7 +669,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putBoolean(String name, String value) {
 		try {
-			put(name, Boolean.toString(validBoolean(value)), Type.BOOLEAN);
+			put(name, new JsonWrapper(validBoolean(value)));
 		} catch (EncodeException e) {
 			put(name, value, Type.BOOLEAN);
 			throw e;
@@ -644,7 +685,7 @@ public class JsonWrapper {
 	 */
 	public JsonWrapper putBoolean(String value) { // TODO only used in unit tests
 		try {
-			put(Boolean.toString(validBoolean(value)), Type.BOOLEAN);
+			put(new JsonWrapper(validBoolean(value)));
 		} catch (EncodeException e) {
 			put(value, Type.BOOLEAN);
 			throw e;
@@ -664,7 +705,7 @@ public class JsonWrapper {
 		if (wrapper == null) {
 			return null;
 		}
-		return wrapper.value;
+		return wrapper.leafString();
 	}
 
 	/**
@@ -679,8 +720,10 @@ public class JsonWrapper {
 		if (wrapper == null) {
 			return null;
 		}
-		String value = wrapper.value;
-		return Integer.valueOf(value);
+		if (wrapper.primitive == Type.INTEGER) {
+			return wrapper.primitiveBits;
+		}
+		return Integer.valueOf(wrapper.leafString());
 	}
 
 	/**
@@ -695,8 +738,10 @@ public class JsonWrapper {
 		if (wrapper == null) {
 			return null;
 		}
-		String value = wrapper.value;
-		return Float.valueOf(value);
+		if (wrapper.primitive == Type.FLOAT) {
+			return Float.intBitsToFloat(wrapper.primitiveBits);
+		}
+		return Float.valueOf(wrapper.leafString());
 	}
 
 	/**
@@ -713,8 +758,10 @@ public class JsonWrapper {
 		if (wrapper == null) {
 			return null;
 		}
-		String value = wrapper.value;
-		return Boolean.valueOf(value);
+		if (wrapper.primitive == Type.BOOLEAN) {
+			return wrapper.primitiveBits != 0;
+		}
+		return Boolean.valueOf(wrapper.leafString());
 	}
 
 	/**
@@ -725,15 +772,47 @@ public class JsonWrapper {
 	 * @throws EncodeException
 	 */
 	protected String validInteger(String value) {
+		String cleanValue = FormatHelper.cleanString(value);
+		parseInteger(value, cleanValue);
+		return cleanValue;
+	}
+
+	private static int parseInteger(String value, String cleanValue) {
 		try {
-			String cleanValue = FormatHelper.cleanString(value);
-			Integer.parseInt(cleanValue);
-			return cleanValue;
+			return Integer.parseInt(cleanValue);
 		} catch (RuntimeException e) {
 			throw new EncodeException(value + " is not an integer.", e);
 		}
 	}
 
+	/**
+	 * Validates and parses the given value into a primitive integer leaf.
+	 * The cleaned text is only retained when it differs from the canonical rendering.
+	 *
+	 * @param value to validate
+	 * @return integer leaf
+	 * @throws EncodeException
+	 */
+	private static JsonWrapper integerValue(String value) {
+		String cleanValue = FormatHelper.cleanString(value);
+		int parsed = parseInteger(value, cleanValue);
+		String lexical = isCanonicalInteger(cleanValue) ? null : cleanValue;
+		return new JsonWrapper(Type.INTEGER, Type.INTEGER, parsed, lexical);
+	}
+
+	/**
+	 * Whether {@link Integer#toString(int)} of the parsed value reproduces the text,
+	 * i.e. no explicit plus sign, no leading zeros and no negative zero.
+	 */
+	private static boolean isCanonicalInteger(String cleanValue) {
+		char first = cleanValue.charAt(0);
+		if (first == '+') {
+			return false;
+		}
+		int digits = first == '-' ? 1 : 0;
+		return cleanValue.charAt(digits) != '0' || cleanValue.length() == 1;
+	}
+
 	/**
 	 * Validates that the given value conforms to an ISO date with or without separators.
 	 * It can include a time but is unnecessary.
@@ -759,15 +838,34 @@ public class JsonWrapper {
 	 * @throws EncodeException
 	 */
 	protected String validFloat(String value) {
+		String cleanValue = FormatHelper.cleanString(value);
+		parseFloat(value, cleanValue);
+		return cleanValue;
+	}
+
+	private static float parseFloat(String value, String cleanValue) {
 		try {
-			String cleanValue = FormatHelper.cleanString(value);
-			Float.parseFloat(cleanValue);
-			return cleanValue;
+			return Float.parseFloat(cleanValue);
 		} catch (RuntimeException e) {
 			throw new EncodeException(value + " is not a number.", e);
 		}
 	}
 
+	/**
+	 * Validates and parses the given value into a primitive float leaf.
+	 * The cleaned text is only retained when it differs from the canonical rendering.
+	 *
+	 * @param value to validate
+	 * @return float leaf
+	 * @throws EncodeException
+	 */
+	private static JsonWrapper floatValue(String value) {
+		String cleanValue = FormatHelper.cleanString(value);
+		float parsed = parseFloat(value, cleanValue);
+		String lexical = Float.toString(parsed).equals(cleanValue) ? null : cleanValue;
+		return new JsonWrapper(Type.FLOAT, Type.FLOAT, Float.floatToRawIntBits(parsed), lexical);
+	}
+
 	/**
 	 * Validates that the given value is passable as a {@link Boolean}.
 	 *
@@ -816,7 +914,7 @@ public class JsonWrapper {
 	 * @param check should be null
 	 */
 	protected boolean checkState(JsonWrapper wrapper) {
-		if (wrapper == null) { // no null entries
+		if (wrapper == null || isValue()) { // no null entries, no children on values
 			return false;
 		}
 		
@@ -826,7 +924,7 @@ public class JsonWrapper {
 			return false;
 		}
 		
-		if (wrapper.value == null && wrapper.isKind(Kind.VALUE)) { // no null values
+		if (wrapper.isKind(Kind.VALUE) && !wrapper.hasLeafValue()) { // no null values
 			return false;
 		} else if (wrapper.isType(Type.UNKNOWN)) { // no empty containers
 			return false;
@@ -847,8 +945,8 @@ public class JsonWrapper {
 	 */
 	public boolean isDuplicateEntry(JsonWrapper wrapper) {
 		boolean duplicate = wrapper == this 
-				|| childrenList.contains(wrapper) 
-				|| childrenMap.values().contains(wrapper);
+				|| (childrenList != null && childrenList.contains(wrapper))
+				|| (childrenMap != null && childrenMap.containsValue(wrapper));
 		if (duplicate) {
 			throw new UnsupportedOperationException("May not add parent to itself nor a child more than once.");
 		}
@@ -863,7 +961,7 @@ public class JsonWrapper {
 	 */
 	public boolean isMap() {
 		if (isType(Type.UNKNOWN)) {
-			return isKind(Kind.CONTAINER) && childrenList.isEmpty() && ! childrenMap.isEmpty();
+			return isKind(Kind.CONTAINER) && isEmpty(childrenList) && ! isEmpty(childrenMap);
 		}
 		return isType(Type.MAP);
 	}
@@ -875,7 +973,7 @@ public class JsonWrapper {
 	 */
 	public boolean isList() {
 		if (isType(Type.UNKNOWN)) {
-			return isKind(Kind.CONTAINER) && ! childrenList.isEmpty() && childrenMap.isEmpty();
+			return isKind(Kind.CONTAINER) && ! isEmpty(childrenList) && isEmpty(childrenMap);
 		}
 		return isType(Type.LIST);
 	}
@@ -915,16 +1013,14 @@ public class JsonWrapper {
 	public Stream<JsonWrapper> stream() {
 		Stream<JsonWrapper> stream;
 		
-		if (isValue() && value != null) {
+		if (isValue() && hasLeafValue()) {
 			stream = Stream.of(this);
 		} else if (isList()) {
 			stream = childrenList.stream();
+		} else if (childrenMap != null) {
+			stream = childrenMap.values().stream();
 		} else {
-			stream = childrenMap.entrySet()
-				.stream()
-				.map(entry -> {
-					return entry.getValue();
-				});
+			stream = Stream.empty();
 		}
 		return stream;
 	}
@@ -969,13 +1065,61 @@ public class JsonWrapper {
 	 */
 	public Object toObject() {
 		if (isValue()) {
-			return value;
+			return leafString();
 		} else if (isList()) {
 			return childrenList;
+		} else if (childrenMap == null) {
+			return Collections.emptyMap();
 		}
 		return childrenMap;
 	}
 
+	/**
+	 * @return true if this leaf holds either a primitive or a string value
+	 */
+	boolean hasLeafValue() {
+		return primitive != null || value != null;
+	}
+
+	/**
+	 * Text of a leaf value, rendering primitives on demand.
+	 *
+	 * @return the leaf text or null for containers
+	 */
+	String leafString() {
+		if (value != null || primitive == null) {
+			return value;
+		}
+		switch (primitive) {
+			case INTEGER:
+				return Integer.toString(primitiveBits);
+			case FLOAT:
+				return Float.toString(Float.intBitsToFloat(primitiveBits));
+			default:
+				return Boolean.toString(primitiveBits != 0);
+		}
+	}
+
+	int intValue() {
+		return primitive == Type.INTEGER ? primitiveBits : Integer.parseInt(leafString());
+	}
+
+	float floatValue() {
+		return primitive == Type.FLOAT ? Float.intBitsToFloat(primitiveBits) : Float.parseFloat(leafString());
+	}
+
+	boolean booleanValue() {
+		return primitive == Type.BOOLEAN ? primitiveBits != 0 : Boolean.parseBoolean(leafString());
+	}
+
+	private static boolean isEmpty(Collection<?> children) {
+		return children == null || children.isEmpty();
+	}
+
+	private static boolean isEmpty(Map<?, ?> children) {
+		return children == null || children.isEmpty();
+	}
+
 	/**
 	 * Extract wrapped content from a {@link gov.cms.qpp.conversion.encode.JsonWrapper}.
 	 *
@@ -1034,6 +1178,9 @@ public class JsonWrapper {
 		if (isMetadata()) {
 			return this;
 		}
+		if (metadata == null && isKind(Kind.CONTAINER)) {
+			metadata = new JsonWrapper(Kind.METADATA);
+		}
 		return metadata;
 	}
 
@@ -1069,7 +1216,7 @@ public class JsonWrapper {
 	 * @param value the metadata value
 	 */
 	public JsonWrapper putMetadata(String name, String value) {
-		metadata.put(name, value);
+		getMetadata().put(name, value);
 		return this;
 	}
 	
@@ -1081,12 +1228,12 @@ public class JsonWrapper {
 			return 0;
 		}
 		if (isValue()) {
-			return (value == null) ? 0 : 1;
+			return hasLeafValue() ? 1 : 0;
 		} 
 		if (isList()) {
 			return childrenList.size();
 		}
-		return childrenMap.size();
+		return childrenMap == null ? 0 : childrenMap.size();
 	}
 
 	JsonWrapper getByJsonPath(List<String> jsonPath) {
@@ -1174,7 +1321,7 @@ public class JsonWrapper {
 	 * @return T retrieved keyed value
 	 */
 	public JsonWrapper get(String name) {
-		return childrenMap.get(name);
+		return childrenMap == null ? null : childrenMap.get(name);
 	}
 	
 	/**
@@ -1183,7 +1330,7 @@ public class JsonWrapper {
 	 * @return the wrapper at given index or null
 	 */
 	public JsonWrapper get(int index) {
-		if (index >= 0 && index < childrenList.size()) {
+		if (childrenList != null && index >= 0 && index < childrenList.size()) {
 			return childrenList.get(index);
 		}
 		return null;
@@ -9,7 +9,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +16,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.reflections.Reflections;
 import org.slf4j.Logger;
@@ -35,13 +33,16 @@ import gov.cms.qpp.conversion.Context;
 public class Registry<R> {
 
 	private static final Logger DEV_LOG = LoggerFactory.getLogger(Registry.class);
-	private static final Map<Class<?>, Function<Context, Object>> CONSTRUCTORS = new IdentityHashMap<>();
-	private static final Map<Class<? extends Annotation>, Map<ComponentKey, Class<?>>> SHARED_REGISTRY_MAP
-		= new ConcurrentHashMap<>();
+	private static final Map<Class<?>, Function<Context, Object>> CONSTRUCTORS = new ConcurrentHashMap<>();
+	private static final Map<Class<? extends Annotation>, Table> SHARED_REGISTRY_MAP = new ConcurrentHashMap<>();
 
 	private final Context context;
-	private final Map<ComponentKey, Class<?>> registryMap;
+	private final Table table;
 	private final Class<? extends Annotation> annotationClass;
+	/**
+	 * Private copy of the shared handlers, only made once something is {@link #register registered} on this registry.
+	 */
+	private Map<ComponentKey, Class<?>> registryMap;
 
 	/**
 	 * Registry constructor
@@ -55,7 +56,7 @@ public class Registry<R> {
 
 		this.context = context;
 		this.annotationClass = annotationClass;
-		this.registryMap = new HashMap<>(SHARED_REGISTRY_MAP.computeIfAbsent(annotationClass, this::lookupAnnotatedClasses));
+		this.table = SHARED_REGISTRY_MAP.computeIfAbsent(annotationClass, key -> new Table(lookupAnnotatedClasses(key)));
 	}
 
 	/**
@@ -217,9 +218,11 @@ public class Registry<R> {
 	 * @return all applicable handlers
 	 */
 	public Set<R> inclusiveGet(TemplateId registryKey) {
-		return findHandlers(getKeys(registryKey, true)).stream()
-				.map(this::instantiateHandler)
-				.collect(Collectors.toCollection(LinkedHashSet<R>::new));
+		Set<R> instances = new LinkedHashSet<>();
+		for (Class<? extends R> handler : dispatch(registryKey, true)) {
+			instances.add(instantiateHandler(handler));
+		}
+		return instances;
 	}
 
 	/**
@@ -251,27 +254,46 @@ public class Registry<R> {
 	 * @return handler i.e. {@link Validator}, {@link Decoder} or {@link Encoder}
 	 */
 	private Class<? extends R> findHandler(TemplateId registryKey) {
-		return findHandlers(getKeys(registryKey, false))
-				.stream()
-				.findFirst()
-				.orElse(null);
+		Set<Class<? extends R>> handlers = dispatch(registryKey, false);
+		return handlers.isEmpty() ? null : handlers.iterator().next();
+	}
+
+	/**
+	 * Resolves the handler classes for a template under the current contextual {@link Program}.
+	 * Until something is registered on this registry the resolution is memoized in the shared {@link Table},
+	 * so repeated lookups across conversions do not rebuild the search keys.
+	 *
+	 * @param registryKey template id
+	 * @param generalPriority specify the order of specificity i.e. general first or program specific first.
+	 * @return ordered set of handler classes
+	 */
+	@SuppressWarnings("unchecked") // every class in the table was registered for type R
+	private Set<Class<? extends R>> dispatch(TemplateId registryKey, boolean generalPriority) {
+		if (registryMap != null) {
+			return (Set<Class<? extends R>>) (Set<?>) findHandlers(getKeys(registryKey, generalPriority), registryMap);
+		}
+
+		Map<ComponentKey, Set<Class<?>>> resolved = generalPriority ? table.inclusive : table.specific;
+		return (Set<Class<? extends R>>) (Set<?>) resolved.computeIfAbsent(
+				new ComponentKey(registryKey, context.getProgram()),
+				ignore -> Collections.unmodifiableSet(findHandlers(getKeys(registryKey, generalPriority), table.handlers)));
 	}
 
 	/**
 	 * Find and return handler classes that correspond to the given component keys.
 	 *
 	 * @param keys a list of potential {@link Registry#registryMap} keys
+	 * @param handlerMap the handlers to search
 	 * @return ordered set of handler classes
 	 */
-	private Set<Class<? extends R>> findHandlers(List<ComponentKey> keys) {
-		Set<Class<? extends R>> handlers = new LinkedHashSet<>();
-		keys.forEach(key -> {
-			@SuppressWarnings("unchecked")
-			Class<? extends R> handler = (Class<? extends R>) registryMap.get(key);
+	private static Set<Class<?>> findHandlers(List<ComponentKey> keys, Map<ComponentKey, Class<?>> handlerMap) {
+		Set<Class<?>> handlers = new LinkedHashSet<>();
+		for (ComponentKey key : keys) {
+			Class<?> handler = handlerMap.get(key);
 			if (handler != null) {
 				handlers.add(handler);
 			}
-		});
+		}
 		return handlers;
 	}
 
@@ -285,6 +307,9 @@ public class Registry<R> {
 		DEV_LOG.debug("Registering " + handler.getName() + " to '" + registryKey + "' for "
 				+ annotationClass.getSimpleName() + ".");
 		// This could be a class or class name and instantiated on lookup
+		if (registryMap == null) {
+			registryMap = new HashMap<>(table.handlers);
+		}
 		if (registryMap.containsKey(registryKey)) {
 			DEV_LOG.error("Duplicate registered handler for " + registryKey
 						+ " both " + registryMap.get(registryKey).getName()
@@ -295,6 +320,20 @@ public class Registry<R> {
 	}
 
 	public int size() {
-		return registryMap.size();
+		return registryMap == null ? table.handlers.size() : registryMap.size();
+	}
+
+	/**
+	 * The class path scan for one annotation type along with the lookups already resolved against it.
+	 * Tables are never modified after the scan, so they are shared by the registries of every {@link Context}.
+	 */
+	private static final class Table {
+		private final Map<ComponentKey, Class<?>> handlers;
+		private final Map<ComponentKey, Set<Class<?>>> specific = new ConcurrentHashMap<>();
+		private final Map<ComponentKey, Set<Class<?>>> inclusive = new ConcurrentHashMap<>();
+
+		private Table(Map<ComponentKey, Class<?>> handlers) {
+			this.handlers = Collections.unmodifiableMap(handlers);
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package gov.cms.qpp.conversion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gov.cms.qpp.conversion.model.error.TransformException;
+import gov.cms.qpp.test.allocation.AllocationBudget;
+import gov.cms.qpp.test.allocation.AllocationBudgets;
+import uk.org.lidalia.slf4jtest.TestLoggerFactory;
+
+/**
+ * Guards against conversions allocating or taking noticeably more than they used to, for example by handlers being
+ * instantiated or json trees being copied again. The budgets are in {@code allocation-budgets.properties}.
+ */
+@AllocationBudgets("allocation-budgets.properties")
+class ConversionAllocationBudgetTest {
+
+	@BeforeEach
+	void clearLogs() {
+		//the captured logs of earlier tests would otherwise be copied while the logs of a conversion are added
+		TestLoggerFactory.clearAll();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			"../qrda-files/valid-QRDA-III-latest.xml",
+			"../sample-files/2019/valid-mips-sample-file.xml",
+			"../sample-files/2019/CMS22v7MeasureExample.xml",
+			"../sample-files/2019/ComprehensivePrimaryCareSampleQRDA-III_SDE.xml",
+			"../sample-files/2019/missingMeasure122And165.xml",
+			"src/test/resources/valid-QRDA-III-abridged.xml"})
+	void testTransformWithinBudget(String file, AllocationBudget budget) throws IOException {
+		Path path = Paths.get(file);
+		Source source;
+		try (InputStream stream = Files.newInputStream(path)) {
+			source = new InputStreamSupplierSource(path.getFileName().toString(), stream);
+		}
+
+		budget.measure(path.getFileName().toString(), () -> {
+			try {
+				new Converter(source).transform();
+			} catch (TransformException expected) {
+				//conversions with errors are measured as well
+			}
+		});
+	}
+}
@@ -0,0 +1,86 @@
+package gov.cms.qpp.conversion;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import gov.cms.qpp.conversion.model.Decoder;
+import gov.cms.qpp.conversion.model.Program;
+import gov.cms.qpp.conversion.validate.pii.MissingPiiValidator;
+import gov.cms.qpp.conversion.validate.pii.PiiValidator;
+
+class ConversionEngineTest {
+
+	private static final PiiValidator ACCEPT_ALL = (node, validator) -> { };
+
+	@Test
+	void testDefaultsMatchContext() {
+		Context context = ConversionEngine.builder().build().newContext();
+		Context expected = new Context();
+
+		assertThat(context.isDoValidation()).isEqualTo(expected.isDoValidation());
+		assertThat(context.isHistorical()).isEqualTo(expected.isHistorical());
+		assertThat(context.getPiiValidator()).isSameInstanceAs(MissingPiiValidator.INSTANCE);
+	}
+
+	@Test
+	void testContextsCarryConfiguration() {
+		ConversionEngine engine = ConversionEngine.builder()
+				.doValidation(false)
+				.historical(true)
+				.piiValidator(ACCEPT_ALL)
+				.build();
+
+		Context context = engine.newContext();
+
+		assertThat(context.isDoValidation()).isFalse();
+		assertThat(context.isHistorical()).isTrue();
+		assertThat(context.getPiiValidator()).isSameInstanceAs(ACCEPT_ALL);
+	}
+
+	@Test
+	void testContextsAreIndependent() {
+		ConversionEngine engine = ConversionEngine.builder().build();
+		Context first = engine.newContext();
+		Context second = engine.newContext();
+
+		first.setProgram(Program.CPC);
+
+		assertThat(first).isNotSameInstanceAs(second);
+		assertThat(second.getProgram()).isSameInstanceAs(Program.ALL);
+		assertThat(first.getRegistry(Decoder.class)).isNotSameInstanceAs(second.getRegistry(Decoder.class));
+	}
+
+	@Test
+	void testNewConverterUsesNewContext() {
+		ConversionEngine engine = ConversionEngine.builder().historical(true).build();
+
+		Converter converter = engine.newConverter(new PathSource(Paths.get("../qrda-files/valid-QRDA-III-latest.xml")));
+
+		assertThat(converter.getContext().isHistorical()).isTrue();
+		assertThat(converter.transform()).isNotNull();
+	}
+
+	@Test
+	void testContextsShareMetrics() {
+		ConversionMetrics metrics = new ConversionMetrics() {};
+		ConversionEngine engine = ConversionEngine.builder().metrics(metrics).build();
+
+		assertThat(engine.getMetrics()).isSameInstanceAs(metrics);
+		assertThat(engine.newContext().getMetrics()).isSameInstanceAs(metrics);
+		assertThat(ConversionEngine.builder().build().newContext().getMetrics()).isSameInstanceAs(ConversionMetrics.NONE);
+	}
+
+	@Test
+	void testMetricsRequired() {
+		assertThrows(NullPointerException.class, () -> ConversionEngine.builder().metrics(null));
+	}
+
+	@Test
+	void testPiiValidatorRequired() {
+		assertThrows(NullPointerException.class, () -> ConversionEngine.builder().piiValidator(null));
+	}
+}
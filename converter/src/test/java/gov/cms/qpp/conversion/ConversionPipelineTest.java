@@ -0,0 +1,201 @@
+package gov.cms.qpp.conversion;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import gov.cms.qpp.conversion.Converter.Stage;
+import gov.cms.qpp.conversion.model.error.ProblemCode;
+
+class ConversionPipelineTest {
+
+	private static final Path VALID_FILE = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
+	private static final Path INVALID_XML = Paths.get("src/test/resources/non-xml-file.xml");
+	private static final Path INVALID_QRDA = Paths.get("src/test/resources/not-a-QRDA-III-file.xml");
+
+	private ConversionPipeline pipeline;
+
+	@AfterEach
+	void close() {
+		if (pipeline != null) {
+			pipeline.close();
+		}
+	}
+
+	@Test
+	void testConvertsEverySource() {
+		pipeline = new ConversionPipeline(Context::new);
+		List<Source> sources = Arrays.asList(new PathSource(VALID_FILE), new PathSource(INVALID_XML),
+				new PathSource(INVALID_QRDA), new PathSource(VALID_FILE));
+
+		List<ConversionResult> results = drain(pipeline.convert(sources));
+
+		assertThat(results).hasSize(4);
+		results.sort((one, other) -> Long.compare(one.getSequence(), other.getSequence()));
+		assertThat(results.get(0).isSuccessful()).isTrue();
+		assertThat(results.get(1).isSuccessful()).isFalse();
+		assertThat(results.get(2).isSuccessful()).isFalse();
+		assertThat(results.get(3).isSuccessful()).isTrue();
+		for (int i = 0; i < sources.size(); i++) {
+			assertThat(results.get(i).getSource()).isSameInstanceAs(sources.get(i));
+			assertThat(results.get(i).getReport()).isNotNull();
+		}
+	}
+
+	@Test
+	void testMatchesSequentialConversion() {
+		pipeline = new ConversionPipeline(Context::new);
+		String expected = new Converter(new PathSource(VALID_FILE)).transform().toString();
+
+		ConversionResult result = pipeline.convert(Collections.singletonList(new PathSource(VALID_FILE))).next();
+
+		assertThat(result.getEncoded().toString()).isEqualTo(expected);
+		assertThat(result.getFailure()).isNull();
+	}
+
+	@Test
+	void testFailureCarriesReport() {
+		pipeline = new ConversionPipeline(Context::new);
+
+		ConversionResult result = pipeline.convert(Collections.singletonList(new PathSource(INVALID_XML))).next();
+
+		assertThat(result.getEncoded()).isNull();
+		assertThat(result.getFailure().getConversionReport()).isSameInstanceAs(result.getReport());
+		assertThat(result.getReport().getReportDetails().getErrors().get(0).getDetails().get(0).getErrorCode())
+				.isEqualTo(ProblemCode.NOT_VALID_XML_DOCUMENT.getCode());
+	}
+
+	@Test
+	void testEmptyBatch() {
+		pipeline = new ConversionPipeline(Context::new);
+
+		ConversionPipeline.Batch batch = pipeline.convert(Collections.emptyList());
+
+		assertThat(batch.hasNext()).isFalse();
+		assertThrows(NoSuchElementException.class, batch::next);
+	}
+
+	@Test
+	void testAppliesBackPressure() throws InterruptedException {
+		ConversionPipeline.Settings settings = new ConversionPipeline.Settings().resultCapacity(1);
+		for (Stage stage : Stage.values()) {
+			settings.threads(stage, 1).queueCapacity(stage, 1);
+		}
+		pipeline = new ConversionPipeline(Context::new, settings);
+		CountingSources sources = new CountingSources(100);
+
+		try (ConversionPipeline.Batch batch = pipeline.convert(sources)) {
+			Thread.sleep(1000);
+			// each stage holds one running and one queued conversion, one result waits, one is blocked in the feeder
+			assertWithMessage("Sources should only be read as the pipeline has room")
+					.that(sources.pulled.get()).isAtMost(Stage.values().length * 2 + 2);
+
+			assertThat(batch.next()).isNotNull();
+		}
+	}
+
+	@Test
+	void testSlowConsumerOnlyHoldsUpItsOwnBatch() {
+		ConversionPipeline.Settings settings = new ConversionPipeline.Settings().resultCapacity(1);
+		for (Stage stage : Stage.values()) {
+			settings.threads(stage, 1).queueCapacity(stage, 1);
+		}
+		pipeline = new ConversionPipeline(Context::new, settings);
+
+		try (ConversionPipeline.Batch unread = pipeline.convert(new CountingSources(100))) {
+			List<ConversionResult> results = assertTimeoutPreemptively(Duration.ofSeconds(30),
+					() -> drain(pipeline.convert(Arrays.asList(new PathSource(VALID_FILE),
+							new PathSource(VALID_FILE), new PathSource(VALID_FILE)))));
+
+			assertThat(results).hasSize(3);
+			assertThat(unread.hasNext()).isTrue();
+		}
+	}
+
+	@Test
+	void testSourceFailureSurfacesAfterResults() {
+		pipeline = new ConversionPipeline(Context::new);
+		Iterator<Source> failing = new Iterator<Source>() {
+			private boolean served;
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public Source next() {
+				if (served) {
+					throw new IllegalStateException("broken source listing");
+				}
+				served = true;
+				return new PathSource(VALID_FILE);
+			}
+		};
+
+		ConversionPipeline.Batch batch = pipeline.convert(failing);
+
+		assertThat(batch.next().isSuccessful()).isTrue();
+		assertThrows(IllegalStateException.class, batch::hasNext);
+	}
+
+	@Test
+	void testClosedPipelineRejectsWork() {
+		pipeline = new ConversionPipeline(Context::new);
+		pipeline.close();
+
+		ConversionPipeline.Batch batch = pipeline.convert(Collections.singletonList(new PathSource(VALID_FILE)));
+
+		assertThrows(RuntimeException.class, batch::hasNext);
+	}
+
+	@Test
+	void testSettingsMustBePositive() {
+		ConversionPipeline.Settings settings = new ConversionPipeline.Settings();
+
+		assertThrows(IllegalArgumentException.class, () -> settings.threads(Stage.PARSE, 0));
+		assertThrows(IllegalArgumentException.class, () -> settings.queueCapacity(Stage.PARSE, 0));
+		assertThrows(IllegalArgumentException.class, () -> settings.resultCapacity(0));
+	}
+
+	private static List<ConversionResult> drain(Iterator<ConversionResult> results) {
+		List<ConversionResult> drained = new ArrayList<>();
+		results.forEachRemaining(drained::add);
+		return drained;
+	}
+
+	private static class CountingSources implements Iterator<Source> {
+		private final int total;
+		private final AtomicInteger pulled = new AtomicInteger();
+
+		CountingSources(int total) {
+			this.total = total;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return pulled.get() < total;
+		}
+
+		@Override
+		public Source next() {
+			pulled.incrementAndGet();
+			return new PathSource(VALID_FILE);
+		}
+	}
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import gov.cms.qpp.conversion.encode.EncodeException;
 import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Program;
 import gov.cms.qpp.conversion.model.error.AllErrors;
 import gov.cms.qpp.conversion.model.error.Error;
 import gov.cms.qpp.conversion.model.error.TransformException;
@@ -79,6 +80,22 @@ class ConversionReportTest {
 			.isEqualTo(IOUtils.toString(wrapper.toSource().toInputStream(), StandardCharsets.UTF_8));
 	}
 
+	@Test
+	void testGetProgram() {
+		assertThat(report.getProgram()).isEqualTo(Program.extractProgram(report.getDecoded()));
+	}
+
+	@Test
+	void testQppIsRenderedOnce() {
+		Converter converter = new Converter(inputSource);
+		JsonWrapper qpp = converter.transform();
+		ConversionReport fresh = converter.getReport();
+
+		assertThat(fresh.getRenderedQppBytes()).isEqualTo(-1L);
+		assertThat(fresh.getQppJson()).isEqualTo(qpp.toString());
+		assertThat(fresh.getRenderedQppBytes()).isEqualTo((long) qpp.toString().getBytes(StandardCharsets.UTF_8).length);
+	}
+
 	@Test
 	void getBadReportDetails() throws NoSuchFieldException, IllegalAccessException, JsonProcessingException {
 		ObjectMapper mockMapper = mock(ObjectMapper.class);
@@ -133,4 +150,46 @@ class ConversionReportTest {
 
 		assertThat(details).isEmpty();
 	}
+
+	@Test
+	void testCopyForAttributesResultsToOtherSource() {
+		Source other = new PathSource(Paths.get("renamed.xml"));
+
+		ConversionReport copy = errorReport.copyFor(other);
+
+		assertThat(copy.getQrdaSource()).isSameInstanceAs(other);
+		assertThat(copy.getReportDetails()).isNotSameInstanceAs(errorReport.getReportDetails());
+		assertThat(copy.getReportDetails().getErrors().get(0).getSourceIdentifier()).isEqualTo("renamed.xml");
+		assertThat(copy.getReportDetails().getErrors().get(0).getDetails())
+				.containsExactlyElementsIn(errorReport.getReportDetails().getErrors().get(0).getDetails());
+	}
+
+	@Test
+	void testCopyForKeepsEncodedAndWarnings() {
+		ConversionReport copy = report.copyFor(inputSource);
+
+		assertThat(copy.getEncodedWithMetadata().toString()).isEqualTo(wrapper.toString());
+		assertThat(copy.getDecoded().toString()).isEqualTo(report.getDecoded().toString());
+		assertThat(copy.getWarnings()).containsExactlyElementsIn(report.getWarnings());
+		assertThat(copy.getReportDetails().getErrors().get(0).getDetails()).isEmpty();
+	}
+
+	@Test
+	void testCopyForWithoutDetails() {
+		Converter converter = new Converter(inputSource);
+		ConversionReport bare = converter.getReport();
+		bare.setWarnings(null);
+		AllErrors errors = new AllErrors();
+		errors.addError(new Error());
+		bare.setReportDetails(errors);
+
+		assertThat(bare.copyFor(inputSource).getReportDetails().getErrors().get(0).getDetails()).isEmpty();
+		assertThat(bare.copyFor(inputSource).getWarnings()).isNull();
+
+		bare.setReportDetails(new AllErrors());
+		assertThat(bare.copyFor(inputSource).getReportDetails().getErrors().get(0).getDetails()).isEmpty();
+
+		bare.setReportDetails(null);
+		assertThat(bare.copyFor(inputSource).getReportDetails().getErrors().get(0).getDetails()).isEmpty();
+	}
 }
@@ -0,0 +1,119 @@
+package gov.cms.qpp.conversion;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Program;
+import gov.cms.qpp.conversion.model.error.TransformException;
+
+class ConversionStatisticsTest {
+
+	private static final Path VALID_FILE = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
+	private static final Path CPC_FILE = Paths.get("src/test/resources/cpc_plus/success/CPCPlus_CMSPrgrm_UpperCase_SampleQRDA-III.xml");
+	private static final Path INVALID_XML = Paths.get("src/test/resources/non-xml-file.xml");
+
+	private List<ConversionStatistics> recorded;
+	private Context context;
+
+	@BeforeEach
+	void setup() {
+		recorded = new ArrayList<>();
+		context = new Context();
+		context.setMetrics(new ConversionMetrics() {
+			@Override
+			public void converted(ConversionStatistics statistics) {
+				recorded.add(statistics);
+			}
+		});
+	}
+
+	@Test
+	void testSuccessfulConversion() {
+		JsonWrapper qpp = new Converter(new PathSource(VALID_FILE), context).transform();
+
+		ConversionStatistics statistics = recorded.get(0);
+		assertThat(recorded).hasSize(1);
+		assertThat(statistics.isSuccessful()).isTrue();
+		assertThat(statistics.getProgram()).isEqualTo(Program.MIPS);
+		assertThat(statistics.getInputBytes()).isEqualTo(VALID_FILE.toFile().length());
+		assertThat(statistics.getNodeCount()).isGreaterThan(1);
+		assertThat(statistics.getJsonBytes()).isEqualTo(qpp.toString().getBytes(StandardCharsets.UTF_8).length);
+		assertThat(statistics.getErrorCount()).isEqualTo(0);
+		assertThat(statistics.getSource().getName()).isEqualTo(VALID_FILE.getFileName().toString());
+	}
+
+	@Test
+	void testEveryConverterPhaseIsTimed() {
+		new Converter(new PathSource(VALID_FILE), context).transform();
+
+		ConversionStatistics statistics = recorded.get(0);
+		long sum = 0;
+		for (Converter.Stage stage : Converter.Stage.values()) {
+			long nanos = statistics.getNanos(Phase.of(stage));
+			assertThat(nanos).isGreaterThan(0L);
+			sum += nanos;
+		}
+		assertThat(statistics.getTotalNanos()).isEqualTo(sum);
+		assertThat(statistics.getNanos(Phase.QPP_VALIDATION)).isEqualTo(0L);
+	}
+
+	@Test
+	void testCpcProgram() {
+		context.setDoValidation(false);
+		new Converter(new PathSource(CPC_FILE), context).transform();
+
+		assertThat(recorded.get(0).getProgram()).isEqualTo(Program.CPC);
+	}
+
+	@Test
+	void testFailedConversion() {
+		assertThrows(TransformException.class, () -> new Converter(new PathSource(INVALID_XML), context).transform());
+
+		ConversionStatistics statistics = recorded.get(0);
+		assertThat(statistics.isSuccessful()).isFalse();
+		assertThat(statistics.getErrorCount()).isEqualTo(1);
+		assertThat(statistics.getProgram()).isEqualTo(Program.ALL);
+		assertThat(statistics.getNodeCount()).isEqualTo(0);
+		assertThat(statistics.getJsonBytes()).isEqualTo(0L);
+		assertThat(statistics.getNanos(Phase.DECODE)).isEqualTo(0L);
+	}
+
+	@Test
+	void testSizesAreComputedOnce() {
+		new Converter(new PathSource(VALID_FILE), context).transform();
+
+		ConversionStatistics statistics = recorded.get(0);
+		assertThat(statistics.getNodeCount()).isEqualTo(statistics.getNodeCount());
+		assertThat(statistics.getJsonBytes()).isEqualTo(statistics.getJsonBytes());
+	}
+
+	@Test
+	void testFailingListenerDoesNotFailConversion() {
+		context.setMetrics(new ConversionMetrics() {
+			@Override
+			public void converted(ConversionStatistics statistics) {
+				throw new IllegalStateException("meep");
+			}
+		});
+
+		assertThat(new Converter(new PathSource(VALID_FILE), context).transform()).isNotNull();
+	}
+
+	@Test
+	void testDefaultListenerIgnoresEverything() {
+		ConversionMetrics.NONE.timed(Program.MIPS, Phase.AUDIT, 1);
+
+		assertThat(new Converter(new PathSource(VALID_FILE)).transform()).isNotNull();
+	}
+}
@@ -0,0 +1,70 @@
+package gov.cms.qpp.conversion;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import gov.cms.qpp.test.jimfs.JimfsTest;
+
+class MappedPathSourceTest extends SourceTestSuite {
+
+	MappedPathSourceTest() {
+		super("arbitrary.txt", new MappedPathSource(Paths.get("src/test/resources/arbitrary.txt")));
+	}
+
+	@Test
+	void testReplaysMappedContent() throws IOException {
+		assertThat(IOUtils.toString(source.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("hello, world");
+		assertThat(IOUtils.toString(source.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("hello, world");
+		assertThat(source.getSize()).isEqualTo("hello, world".length());
+	}
+
+	@Test
+	void testStreamReadsInPieces() throws IOException {
+		try (InputStream stream = source.toInputStream()) {
+			assertThat(stream.available()).isEqualTo(12);
+			assertThat(stream.read()).isEqualTo('h');
+			assertThat(stream.skip(6)).isEqualTo(6);
+			byte[] rest = new byte[10];
+			assertThat(stream.read(rest, 0, 0)).isEqualTo(0);
+			assertThat(stream.read(rest, 0, rest.length)).isEqualTo(5);
+			assertThat(stream.read(rest, 0, rest.length)).isEqualTo(-1);
+			assertThat(stream.read()).isEqualTo(-1);
+			assertThat(stream.skip(1)).isEqualTo(0);
+		}
+	}
+
+	@Test
+	void testSizeBeforeMapping() {
+		assertThat(new MappedPathSource(Paths.get("src/test/resources/arbitrary.txt")).getSize()).isEqualTo(12);
+	}
+
+	@JimfsTest
+	void testFallsBackWhenMappingIsUnsupported(FileSystem fileSystem) throws IOException {
+		Path path = fileSystem.getPath("unmappable.txt");
+		Files.write(path, "moof".getBytes(StandardCharsets.UTF_8));
+		MappedPathSource unmappable = new MappedPathSource(path);
+
+		assertThat(IOUtils.toString(unmappable.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("moof");
+		assertThat(IOUtils.toString(unmappable.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("moof");
+		assertThat(unmappable.getSize()).isEqualTo(4);
+	}
+
+	@JimfsTest
+	void testMissingFile(FileSystem fileSystem) {
+		MappedPathSource missing = new MappedPathSource(fileSystem.getPath(UUID.randomUUID().toString()));
+		assertThrows(UncheckedIOException.class, missing::toInputStream);
+	}
+}
@@ -0,0 +1,125 @@
+package gov.cms.qpp.conversion;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+class SpooledSourceTest extends SourceTestSuite {
+
+	private static final byte[] CONTENT = "hello, world".getBytes(StandardCharsets.UTF_8);
+
+	SpooledSourceTest() {
+		super("arbitrary.txt", new SpooledSource("arbitrary.txt", new ByteArrayInputStream(CONTENT), "Test"));
+	}
+
+	@Test
+	void testSmallContentStaysInMemory() throws IOException {
+		SpooledSource small = (SpooledSource) source;
+
+		assertThat(small.isSpooled()).isFalse();
+		assertThat(small.getSize()).isEqualTo(CONTENT.length);
+		assertThat(IOUtils.toByteArray(small.toInputStream())).isEqualTo(CONTENT);
+		assertThat(small.getPurpose()).isEqualTo("Test");
+	}
+
+	@Test
+	void testContentAtThresholdStaysInMemory() {
+		try (SpooledSource exact = new SpooledSource("exact", new ByteArrayInputStream(CONTENT), null, CONTENT.length)) {
+			assertThat(exact.isSpooled()).isFalse();
+		}
+	}
+
+	@Test
+	void testLargeContentIsSpooledAndReplayable() throws Exception {
+		try (SpooledSource large = new SpooledSource("large", new ByteArrayInputStream(CONTENT), null, 4)) {
+			assertThat(large.isSpooled()).isTrue();
+			assertThat(Files.exists(spool(large))).isTrue();
+			assertThat(large.getSize()).isEqualTo(CONTENT.length);
+			assertThat(IOUtils.toByteArray(large.toInputStream())).isEqualTo(CONTENT);
+			assertThat(IOUtils.toByteArray(large.toInputStream())).isEqualTo(CONTENT);
+		}
+	}
+
+	@Test
+	void testConvertsSpooledQrda() throws IOException {
+		Path qrda = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
+		String expected = new Converter(new PathSource(qrda)).transform().toString();
+
+		try (InputStream upload = Files.newInputStream(qrda);
+				SpooledSource spooled = new SpooledSource("valid", upload, null, 1024)) {
+			assertThat(spooled.isSpooled()).isTrue();
+			assertThat(new Converter(spooled).transform().toString()).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void testCloseDeletesSpool() throws Exception {
+		SpooledSource large = new SpooledSource("large", new ByteArrayInputStream(CONTENT), null, 0);
+		Path spool = spool(large);
+
+		large.close();
+		large.close();
+
+		assertThat(Files.exists(spool)).isFalse();
+	}
+
+	@Test
+	void testCloseWithoutSpool() {
+		SpooledSource small = new SpooledSource("small", new ByteArrayInputStream(CONTENT), null);
+		small.close();
+		assertThat(small.getSize()).isEqualTo(CONTENT.length);
+	}
+
+	@Test
+	void testNegativeThreshold() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new SpooledSource("negative", new ByteArrayInputStream(CONTENT), null, -1));
+	}
+
+	@Test
+	void testUnreadableUpload() {
+		InputStream broken = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("connection reset");
+			}
+		};
+
+		assertThrows(UncheckedIOException.class, () -> new SpooledSource("broken", broken, null));
+	}
+
+	@Test
+	void testUploadFailingWhileSpooling() {
+		InputStream broken = new InputStream() {
+			private int served;
+
+			@Override
+			public int read() throws IOException {
+				if (served++ < 8) {
+					return 'x';
+				}
+				throw new IOException("connection reset");
+			}
+		};
+
+		assertThrows(UncheckedIOException.class, () -> new SpooledSource("broken", broken, null, 4));
+	}
+
+	private static Path spool(SpooledSource source) throws ReflectiveOperationException {
+		Field spool = SpooledSource.class.getDeclaredField("spool");
+		spool.setAccessible(true);
+		return (Path) spool.get(source);
+	}
+}
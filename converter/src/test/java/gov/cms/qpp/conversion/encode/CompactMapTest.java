@@ -0,0 +1,95 @@
+package gov.cms.qpp.conversion.encode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class CompactMapTest {
+
+	@Test
+	void testPreservesInsertionOrder() {
+		CompactMap<String> map = new CompactMap<>();
+		map.put("b", "1");
+		map.put("a", "2");
+		map.put("c", "3");
+
+		assertThat(map.keySet()).containsExactly("b", "a", "c").inOrder();
+		assertThat(map.values()).containsExactly("1", "2", "3").inOrder();
+	}
+
+	@Test
+	void testReplaceKeepsPosition() {
+		CompactMap<String> map = new CompactMap<>();
+		map.put("a", "1");
+		map.put("b", "2");
+
+		assertThat(map.put("a", "3")).isEqualTo("1");
+		assertThat(map.keySet()).containsExactly("a", "b").inOrder();
+		assertThat(map.get("a")).isEqualTo("3");
+	}
+
+	@Test
+	void testMatchesLinkedHashMapBeyondIndexThreshold() {
+		CompactMap<Integer> map = new CompactMap<>();
+		Map<String, Integer> expected = new LinkedHashMap<>();
+		for (int i = 0; i < CompactMap.INDEX_THRESHOLD * 3; i++) {
+			map.put("key" + i, i);
+			expected.put("key" + i, i);
+		}
+
+		assertThat(map).containsExactlyEntriesIn(expected).inOrder();
+		assertThat(map.get("key17")).isEqualTo(17);
+		assertThat(map.containsKey("missing")).isFalse();
+	}
+
+	@Test
+	void testRemoveBelowIndexThreshold() {
+		CompactMap<Integer> map = new CompactMap<>();
+		for (int i = 0; i <= CompactMap.INDEX_THRESHOLD; i++) {
+			map.put("key" + i, i);
+		}
+
+		assertThat(map.remove("key0")).isEqualTo(0);
+		assertThat(map.remove("missing")).isNull();
+		assertThat(map.get("key1")).isEqualTo(1);
+		assertThat(map.size()).isEqualTo(CompactMap.INDEX_THRESHOLD);
+	}
+
+	@Test
+	void testIteratorRemove() {
+		CompactMap<Integer> map = new CompactMap<>();
+		map.put("a", 1);
+		map.put("b", 2);
+		map.put("c", 3);
+
+		Iterator<Integer> values = map.values().iterator();
+		assertThrows(IllegalStateException.class, values::remove);
+		values.next();
+		values.next();
+		values.remove();
+
+		assertThat(map.keySet()).containsExactly("a", "c").inOrder();
+		assertThat(values.next()).isEqualTo(3);
+		assertThrows(NoSuchElementException.class, values::next);
+	}
+
+	@Test
+	void testClear() {
+		CompactMap<Integer> map = new CompactMap<>(1);
+		for (int i = 0; i < CompactMap.INDEX_THRESHOLD * 2; i++) {
+			map.put("key" + i, i);
+		}
+		map.clear();
+
+		assertThat(map).isEmpty();
+		assertThat(map.containsValue(1)).isFalse();
+		map.put("key1", 1);
+		assertThat(map.containsValue(1)).isTrue();
+	}
+}
@@ -385,6 +385,149 @@ class JsonWrapperTest {
 				.isEqualTo(expect);
 	}
 
+	@Test
+	void testPutInteger_retainsNonCanonicalText() {
+		objectStrWrapper.putInteger("padded", " 007 ").putInteger("plain", "7");
+
+		assertThat(objectStrWrapper.getString("padded")).isEqualTo("007");
+		assertThat(objectStrWrapper.getString("plain")).isEqualTo("7");
+		assertThat(objectStrWrapper.getInteger("padded")).isEqualTo(7);
+		assertThat(objectStrWrapper.toString().replaceAll("\\s", ""))
+				.isEqualTo("{\"padded\":7,\"plain\":7}");
+	}
+
+	@Test
+	void testPutFloat_retainsNonCanonicalText() {
+		objectStrWrapper.putFloat("trailing", "1.50").putFloat("plain", "1.5");
+
+		assertThat(objectStrWrapper.getString("trailing")).isEqualTo("1.50");
+		assertThat(objectStrWrapper.getString("plain")).isEqualTo("1.5");
+		assertThat(objectStrWrapper.getFloat("trailing")).isEqualTo(1.5f);
+		assertThat(objectStrWrapper.toString().replaceAll("\\s", ""))
+				.isEqualTo("{\"trailing\":1.5,\"plain\":1.5}");
+	}
+
+	@Test
+	void testPutBoolean_rendersCanonicalText() {
+		objectStrWrapper.putBoolean("yes", "Y");
+
+		assertThat(objectStrWrapper.getString("yes")).isEqualTo("true");
+		assertThat(objectStrWrapper.getBoolean("yes")).isTrue();
+	}
+
+	@Test
+	void testInvalidInteger_keptAsText() {
+		assertThrows(EncodeException.class, () -> objectStrWrapper.putInteger("bad", "nope"));
+
+		assertThat(objectStrWrapper.get("bad").getType()).isEqualTo(Type.INTEGER);
+		assertThat(objectStrWrapper.getString("bad")).isEqualTo("nope");
+	}
+
+	@Test
+	void testPutInteger_explicitPlusSign() {
+		objectStrWrapper.putInteger("signed", "+5").putInteger("negative", "-5");
+
+		assertThat(objectStrWrapper.getString("signed")).isEqualTo("+5");
+		assertThat(objectStrWrapper.getString("negative")).isEqualTo("-5");
+		assertThat(objectStrWrapper.toString().replaceAll("\\s", ""))
+				.isEqualTo("{\"signed\":5,\"negative\":-5}");
+	}
+
+	@Test
+	void testTypedGetters_parseStringValues() {
+		objectStrWrapper.put("int", "5").put("float", "1.5").put("bool", "true");
+
+		assertThat(objectStrWrapper.getInteger("int")).isEqualTo(5);
+		assertThat(objectStrWrapper.getFloat("float")).isEqualTo(1.5f);
+		assertThat(objectStrWrapper.getBoolean("bool")).isTrue();
+	}
+
+	@Test
+	void testFalseBoolean_rendersText() {
+		objectStrWrapper.put("bool", false);
+
+		assertThat(objectStrWrapper.getString("bool")).isEqualTo("false");
+		assertThat(objectStrWrapper.toString().replaceAll("\\s", "")).isEqualTo("{\"bool\":false}");
+	}
+
+	@Test
+	void testInvalidBoolean_rendersFalse() {
+		assertThrows(EncodeException.class, () -> objectStrWrapper.putBoolean("bool", "maybe"));
+
+		assertThat(objectStrWrapper.toString().replaceAll("\\s", "")).isEqualTo("{\"bool\":false}");
+	}
+
+	@Test
+	void testInvalidInteger_failsToRender() {
+		assertThrows(EncodeException.class, () -> objectStrWrapper.putInteger("int", "nope"));
+
+		assertThrows(EncodeException.class, () -> objectStrWrapper.toString());
+	}
+
+	@Test
+	void testInvalidFloat_failsToRender() {
+		assertThrows(EncodeException.class, () -> objectStrWrapper.putFloat("float", "nope"));
+
+		assertThrows(EncodeException.class, () -> objectStrWrapper.toString());
+	}
+
+	@Test
+	void testValidNumbers_returnCleanText() {
+		assertThat(objectStrWrapper.validInteger(" 12 ")).isEqualTo("12");
+		assertThat(objectStrWrapper.validFloat(" 1.20 ")).isEqualTo("1.20");
+		assertThrows(EncodeException.class, () -> objectStrWrapper.validFloat("nope"));
+	}
+
+	@Test
+	void testValue_ignoresChildren() {
+		JsonWrapper value = new JsonWrapper("value");
+		value.put(new JsonWrapper("child"));
+
+		assertThat(value.size()).isEqualTo(1);
+		assertThat(value.get(0)).isNull();
+		assertThat(value.get("child")).isNull();
+	}
+
+	@Test
+	void testEmptyContainer_lookups() {
+		assertThat(objectStrWrapper.get(0)).isNull();
+		assertThat(objectStrWrapper.get("name")).isNull();
+		assertThat(objectStrWrapper.stream().count()).isEqualTo(0);
+		assertThat(objectStrWrapper.toObject()).isEqualTo(new LinkedHashMap<>());
+	}
+
+	@Test
+	void testClearedContainer_isNeitherMapNorList() {
+		objectStrWrapper.put("name", "value").clear();
+		listStrWrapper.put("value").clear();
+
+		assertThat(objectStrWrapper.isMap()).isFalse();
+		assertThat(objectStrWrapper.isList()).isFalse();
+		assertThat(listStrWrapper.isMap()).isFalse();
+		assertThat(listStrWrapper.isList()).isFalse();
+	}
+
+	@Test
+	void testCopyWithoutMetadata_valueAcceptsMetadata() {
+		JsonWrapper copy = new JsonWrapper("value").copyWithoutMetadata();
+
+		assertThat(copy.getMetadata()).isNotNull();
+	}
+
+	@Test
+	void testCopyConstructor_deepCopiesPrimitives() {
+		JsonWrapper child = new JsonWrapper().put("count", 3).put("rate", 0.5f);
+		objectStrWrapper.put("child", child).putMetadata("meta", "data");
+
+		JsonWrapper copy = new JsonWrapper(objectStrWrapper);
+		child.put("extra", true);
+
+		assertThat(copy.get("child").getKey()).isEqualTo("child");
+		assertThat(copy.get("child").size()).isEqualTo(2);
+		assertThat(copy.toStringWithMetadata()).contains("\"meta\" : \"data\"");
+		assertThat(copy.get("child").getInteger("count")).isEqualTo(3);
+	}
+
 	@Test
 	void testBadKeyedPutDate_exception() {
 		assertThrows(EncodeException.class,
@@ -10,6 +10,8 @@ import gov.cms.qpp.conversion.decode.AggregateCountDecoder;
 import gov.cms.qpp.conversion.decode.DecodeResult;
 import gov.cms.qpp.conversion.decode.QrdaDecoder;
 import gov.cms.qpp.conversion.encode.AggregateCountEncoder;
+import gov.cms.qpp.conversion.validate.CpcQualityMeasureIdValidator;
+import gov.cms.qpp.conversion.validate.MipsQualityMeasureIdValidator;
 
 import java.util.Iterator;
 import java.util.Set;
@@ -93,6 +95,35 @@ class RegistryTest {
 				.that(iterator.next()).isInstanceOf(AnotherPlaceholder.class);
 	}
 
+	@Test
+	void testRegistrationIsLocalToContext() {
+		int shared = registry.size();
+		registry.register(new ComponentKey(TemplateId.PLACEHOLDER, Program.ALL), Placeholder.class);
+
+		Registry<QrdaDecoder> other = new Context().getRegistry(Decoder.class);
+
+		assertThat(registry.size()).isEqualTo(shared + 1);
+		assertThat(other.size()).isEqualTo(shared);
+		assertThat(other.get(TemplateId.PLACEHOLDER)).isNull();
+	}
+
+	@Test
+	void testSharedLookupFollowsProgram() {
+		Context context = new Context();
+		Registry<Object> validators = context.getRegistry(Validator.class);
+
+		context.setProgram(Program.MIPS);
+		Object mips = validators.get(TemplateId.MEASURE_REFERENCE_RESULTS_CMS_V2);
+		context.setProgram(Program.CPC);
+		Object cpc = validators.get(TemplateId.MEASURE_REFERENCE_RESULTS_CMS_V2);
+		context.setProgram(Program.MIPS);
+		Object mipsAgain = validators.get(TemplateId.MEASURE_REFERENCE_RESULTS_CMS_V2);
+
+		assertThat(mips).isInstanceOf(MipsQualityMeasureIdValidator.class);
+		assertThat(cpc).isInstanceOf(CpcQualityMeasureIdValidator.class);
+		assertThat(mipsAgain).isInstanceOf(MipsQualityMeasureIdValidator.class);
+	}
+
 	// This test must reside here in order to call the protected methods on the
 	// registry
 	@Test
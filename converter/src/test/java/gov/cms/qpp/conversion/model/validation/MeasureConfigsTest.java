@@ -56,6 +56,19 @@ class MeasureConfigsTest {
 				.that(configurations).isNotEmpty();
 	}
 
+	@Test
+	void testVersionFollowsMeasureData() {
+		MeasureConfigs.setMeasureDataFile(MeasureConfigs.DEFAULT_MEASURE_DATA_FILE_NAME);
+		String defaultVersion = MeasureConfigs.getVersion();
+		MeasureConfigs.setMeasureDataFile("reduced-test-measures-data.json");
+		String reducedVersion = MeasureConfigs.getVersion();
+		MeasureConfigs.setMeasureDataFile(MeasureConfigs.DEFAULT_MEASURE_DATA_FILE_NAME);
+
+		assertThat(defaultVersion).hasLength(64);
+		assertThat(reducedVersion).isNotEqualTo(defaultVersion);
+		assertThat(MeasureConfigs.getVersion()).isEqualTo(defaultVersion);
+	}
+
 	@Test
 	void requiredMeasuresForSectionTest() {
 		MeasureConfigs.setMeasureDataFile(MeasureConfigs.DEFAULT_MEASURE_DATA_FILE_NAME);
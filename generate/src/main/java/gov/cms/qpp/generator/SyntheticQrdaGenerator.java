@@ -0,0 +1,810 @@
+package gov.cms.qpp.generator;
+
+import gov.cms.qpp.conversion.model.validation.MeasureConfig;
+import gov.cms.qpp.conversion.model.validation.MeasureConfigs;
+import gov.cms.qpp.conversion.model.validation.Strata;
+import gov.cms.qpp.conversion.model.validation.SubPopulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Generates synthetic QRDA III submissions of arbitrary size for benchmarks and load tests.
+ *
+ * <p>The document is written to a {@link Writer} as it is generated, so the size of the output is not limited
+ * by memory. Everything that varies between documents, such as identifiers, aggregate counts and the order of
+ * the measures, is drawn from a {@link Random} seeded by {@link Settings#seed(long)}, so the same settings always
+ * produce the same document.
+ *
+ * <p>Documents are valid unless {@link Defect}s are requested or more quality measures are asked for than the
+ * measure data contains, in which case the measures repeat and the submission is rejected for duplicate measures.
+ * CPC+ documents are only valid if {@link Settings#apmEntityId(String)} names a known APM entity.
+ */
+public class SyntheticQrdaGenerator {
+
+	private static final String[][] SEXES = {
+		{"M", "Male"}, {"F", "Female"}};
+	private static final String[][] ETHNICITIES = {
+		{"2135-2", "Hispanic or Latino"}, {"2186-5", "Not Hispanic or Latino"}};
+	private static final String[][] RACES = {
+		{"1002-5", "American Indian or Alaska Native"}, {"2028-9", "Asian"}, {"2054-5", "Black or African American"},
+		{"2076-8", "Native Hawaiian or Other Pacific Islander"}, {"2106-3", "White"}, {"2131-1", "Other Race"}};
+	private static final String[][] PAYERS = {
+		{"A", "Medicare"}, {"B", "Medicaid"}, {"C", "Private Health Insurance"}, {"D", "Other"}};
+
+	private static final String AGGREGATE_COUNT_TEMPLATES =
+		"<templateId root=\"2.16.840.1.113883.10.20.27.3.3\"/><templateId root=\"2.16.840.1.113883.10.20.27.3.24\"/>";
+	private static final String ACT_CODE = "codeSystem=\"2.16.840.1.113883.5.4\" codeSystemName=\"ActCode\"";
+	private static final String CPC_PLUS_OUTCOME_GROUP = "Outcome_Measure";
+
+	/**
+	 * Deliberate errors that can be written into a document to exercise the error handling of the converter.
+	 */
+	public enum Defect {
+		/** The first aggregate count of every quality measure is negative. */
+		NEGATIVE_COUNT,
+		/** The numerator population is left out of every quality measure. */
+		MISSING_NUMERATOR,
+		/** Every quality measure references a measure that does not exist. */
+		UNKNOWN_MEASURE,
+		/** Every performance rate is greater than one. */
+		INVALID_PERFORMANCE_RATE,
+		/** Every NPI is one digit short, which only CPC+ rejects. */
+		INVALID_NPI,
+		/** The measure sections have no performance period. */
+		MISSING_REPORTING_PARAMETERS
+	}
+
+	/**
+	 * The shape of the generated documents.
+	 */
+	public static class Settings {
+		private String program = "MIPS_INDIV";
+		private int performanceYear = 2019;
+		private int measures = 10;
+		private int minimumStrata = 1;
+		private int performers = 1;
+		private int tins = 1;
+		private int races = RACES.length;
+		private int payers = PAYERS.length;
+		private int piMeasures = 5;
+		private int iaMeasures = 5;
+		private int maximumPopulation = 1000;
+		private String apmEntityId = "AR000000";
+		private long seed;
+		private Set<Defect> defects = EnumSet.noneOf(Defect.class);
+
+		/**
+		 * @param program program name, such as MIPS_INDIV, MIPS_GROUP or CPCPLUS
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings program(String program) {
+			this.program = Objects.requireNonNull(program, "program").toUpperCase(Locale.ENGLISH);
+			return this;
+		}
+
+		/**
+		 * @param performanceYear the year reported on
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings performanceYear(int performanceYear) {
+			this.performanceYear = performanceYear;
+			return this;
+		}
+
+		/**
+		 * @param measures number of quality measures, which repeat once the measure data is exhausted
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings measures(int measures) {
+			this.measures = atLeast(0, measures, "measures");
+			return this;
+		}
+
+		/**
+		 * @param minimumStrata only quality measures with at least this many strata are reported
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings minimumStrata(int minimumStrata) {
+			this.minimumStrata = atLeast(1, minimumStrata, "strata");
+			return this;
+		}
+
+		/**
+		 * @param performers number of NPI/TIN pairs, only CPC+ submissions may have more than one
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings performers(int performers) {
+			this.performers = atLeast(1, performers, "performers");
+			return this;
+		}
+
+		/**
+		 * @param tins number of distinct TINs the performers are spread over
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings tins(int tins) {
+			this.tins = atLeast(1, tins, "tins");
+			return this;
+		}
+
+		/**
+		 * @param races number of races in the supplemental data, at most six
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings races(int races) {
+			this.races = Math.min(atLeast(1, races, "races"), RACES.length);
+			return this;
+		}
+
+		/**
+		 * @param payers number of payers in the supplemental data, at most four
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings payers(int payers) {
+			this.payers = Math.min(atLeast(1, payers, "payers"), PAYERS.length);
+			return this;
+		}
+
+		/**
+		 * @param piMeasures number of PI measures, zero for no PI section
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings piMeasures(int piMeasures) {
+			this.piMeasures = atLeast(0, piMeasures, "pi");
+			return this;
+		}
+
+		/**
+		 * @param iaMeasures number of improvement activities, zero for no IA section
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings iaMeasures(int iaMeasures) {
+			this.iaMeasures = atLeast(0, iaMeasures, "ia");
+			return this;
+		}
+
+		/**
+		 * @param maximumPopulation upper bound of the initial population of each stratum
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings maximumPopulation(int maximumPopulation) {
+			this.maximumPopulation = atLeast(10, maximumPopulation, "population");
+			return this;
+		}
+
+		/**
+		 * @param apmEntityId the APM entity of a CPC+ submission
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings apmEntityId(String apmEntityId) {
+			this.apmEntityId = Objects.requireNonNull(apmEntityId, "apmEntityId");
+			return this;
+		}
+
+		/**
+		 * @param seed seed of the generated values
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * @param defects errors to write into the document
+		 * @return <i><b>this</b></i> reference for chaining
+		 */
+		public Settings defects(Set<Defect> defects) {
+			this.defects = defects.isEmpty() ? EnumSet.noneOf(Defect.class) : EnumSet.copyOf(defects);
+			return this;
+		}
+
+		private static int atLeast(int minimum, int value, String name) {
+			if (value < minimum) {
+				throw new IllegalArgumentException(name + " must be at least " + minimum + " but was " + value);
+			}
+			return value;
+		}
+	}
+
+	private final Settings settings;
+	private final List<MeasureConfig> quality;
+	private final List<MeasureConfig> pi;
+	private final List<MeasureConfig> ia;
+
+	private Random random;
+	private Writer out;
+
+	/**
+	 * Generates a document from the command line. Options are given as {@code -name value} pairs, for example
+	 * {@code -measures 50 -performers 2000 -program CPCPLUS -seed 7 -out big.xml}.
+	 *
+	 * @param args the options, see {@link #parse(String...)}
+	 * @throws IOException if the document could not be written
+	 */
+	public static void main(String... args) throws IOException {
+		Settings settings = parse(args);
+		String out = option(args, "out");
+		Path destination = Paths.get(out == null ? "generated-" + settings.seed + ".xml" : out);
+		new SyntheticQrdaGenerator(settings).generate(destination);
+	}
+
+	/**
+	 * Reads {@link Settings} from command line options. The options are {@code program}, {@code year},
+	 * {@code measures}, {@code strata}, {@code performers}, {@code tins}, {@code races}, {@code payers},
+	 * {@code pi}, {@code ia}, {@code population}, {@code apm}, {@code seed} and {@code defects}, a comma
+	 * separated list of {@link Defect}s. The {@code out} option names the file written by {@link #main(String...)}.
+	 *
+	 * @param args the options
+	 * @return the settings
+	 */
+	static Settings parse(String... args) {
+		List<String> known = Arrays.asList("program", "year", "measures", "strata", "performers", "tins", "races",
+				"payers", "pi", "ia", "population", "apm", "seed", "defects", "out");
+		if (args.length % 2 != 0) {
+			throw new IllegalArgumentException("Options are -name value pairs, one of " + known);
+		}
+		for (int i = 0; i < args.length; i += 2) {
+			if (!args[i].startsWith("-") || !known.contains(args[i].substring(1))) {
+				throw new IllegalArgumentException("Unknown option " + args[i] + ", expected one of " + known);
+			}
+		}
+
+		Settings settings = new Settings();
+		String value;
+		if ((value = option(args, "program")) != null) {
+			settings.program(value);
+		}
+		if ((value = option(args, "year")) != null) {
+			settings.performanceYear(Integer.parseInt(value));
+		}
+		if ((value = option(args, "measures")) != null) {
+			settings.measures(Integer.parseInt(value));
+		}
+		if ((value = option(args, "strata")) != null) {
+			settings.minimumStrata(Integer.parseInt(value));
+		}
+		if ((value = option(args, "performers")) != null) {
+			settings.performers(Integer.parseInt(value));
+		}
+		if ((value = option(args, "tins")) != null) {
+			settings.tins(Integer.parseInt(value));
+		}
+		if ((value = option(args, "races")) != null) {
+			settings.races(Integer.parseInt(value));
+		}
+		if ((value = option(args, "payers")) != null) {
+			settings.payers(Integer.parseInt(value));
+		}
+		if ((value = option(args, "pi")) != null) {
+			settings.piMeasures(Integer.parseInt(value));
+		}
+		if ((value = option(args, "ia")) != null) {
+			settings.iaMeasures(Integer.parseInt(value));
+		}
+		if ((value = option(args, "population")) != null) {
+			settings.maximumPopulation(Integer.parseInt(value));
+		}
+		if ((value = option(args, "apm")) != null) {
+			settings.apmEntityId(value);
+		}
+		if ((value = option(args, "seed")) != null) {
+			settings.seed(Long.parseLong(value));
+		}
+		if ((value = option(args, "defects")) != null) {
+			settings.defects(Arrays.stream(value.split(","))
+					.map(name -> Defect.valueOf(name.trim().toUpperCase(Locale.ENGLISH)))
+					.collect(Collectors.toCollection(() -> EnumSet.noneOf(Defect.class))));
+		}
+		return settings;
+	}
+
+	private static String option(String[] args, String name) {
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-" + name)) {
+				return args[i + 1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param settings the shape of the generated documents
+	 */
+	public SyntheticQrdaGenerator(Settings settings) {
+		this.settings = Objects.requireNonNull(settings, "settings");
+		List<MeasureConfig> configs = MeasureConfigs.getMeasureConfigs();
+		quality = configs.stream()
+				.filter(config -> "quality".equals(config.getCategory())
+						&& config.getElectronicMeasureId() != null
+						&& !config.getElectronicMeasureId().isEmpty()
+						&& config.getElectronicMeasureVerUuid() != null
+						&& config.getStrata() != null
+						&& config.getStrata().size() >= settings.minimumStrata)
+				.collect(Collectors.toList());
+		pi = configs.stream()
+				.filter(config -> "pi".equals(config.getCategory()))
+				.collect(Collectors.toList());
+		ia = configs.stream()
+				.filter(config -> "ia".equals(config.getCategory()))
+				.collect(Collectors.toList());
+
+		if (settings.measures > 0 && quality.isEmpty()) {
+			throw new IllegalArgumentException("No quality measure has " + settings.minimumStrata + " strata");
+		}
+	}
+
+	/**
+	 * Writes a document to a file, replacing any existing file.
+	 *
+	 * @param destination the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void generate(Path destination) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
+			generate(writer);
+		}
+	}
+
+	/**
+	 * Writes a document. The writer is not closed.
+	 *
+	 * @param writer destination of the document, ideally buffered
+	 * @throws IOException if the document could not be written
+	 */
+	public synchronized void generate(Writer writer) throws IOException {
+		random = new Random(settings.seed);
+		out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+		try {
+			writeHeader();
+			line(2, "<component>");
+			line(3, "<structuredBody>");
+			writeQualitySection();
+			writePiSection();
+			writeIaSection();
+			line(3, "</structuredBody>");
+			line(2, "</component>");
+			line(1, "</ClinicalDocument>");
+			out.flush();
+		} finally {
+			out = null;
+			random = null;
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		String year = String.valueOf(settings.performanceYear);
+		line(0, "<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+		line(0, "<ClinicalDocument xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+				+ "xmlns=\"urn:hl7-org:v3\" xmlns:voc=\"urn:hl7-org:v3/voc\">");
+		line(1, "<realmCode code=\"US\"/>");
+		line(1, "<typeId root=\"2.16.840.1.113883.1.3\" extension=\"POCD_HD000040\"/>");
+		line(1, "<templateId root=\"2.16.840.1.113883.10.20.27.1.1\" extension=\"2017-06-01\"/>");
+		line(1, "<templateId root=\"2.16.840.1.113883.10.20.27.1.2\" extension=\"2018-05-01\"/>");
+		line(1, "<id root=\"" + uuid() + "\"/>");
+		line(1, "<code code=\"55184-6\" codeSystem=\"2.16.840.1.113883.6.1\" codeSystemName=\"LOINC\" "
+				+ "displayName=\"Quality Reporting Document Architecture Calculated Summary Report\"/>");
+		line(1, "<title>Synthetic QRDA III, seed " + settings.seed + "</title>");
+		line(1, "<effectiveTime value=\"" + (settings.performanceYear + 1) + "0115120000\"/>");
+		line(1, "<confidentialityCode codeSystem=\"2.16.840.1.113883.5.25\" code=\"N\"/>");
+		line(1, "<languageCode code=\"en\"/>");
+		line(1, "<setId root=\"" + uuid() + "\"/>");
+		line(1, "<versionNumber value=\"1\"/>");
+		line(1, "<recordTarget><patientRole><id nullFlavor=\"NA\"/></patientRole></recordTarget>");
+		line(1, "<author>");
+		line(2, "<time value=\"" + (settings.performanceYear + 1) + "0115120000\"/>");
+		line(2, "<assignedAuthor>");
+		line(3, "<id root=\"" + uuid() + "\"/>");
+		line(3, "<assignedAuthoringDevice><softwareName>SyntheticQrdaGenerator</softwareName>"
+				+ "</assignedAuthoringDevice>");
+		line(3, "<representedOrganization><id root=\"2.16.840.1.113883.19.5\" extension=\"223344\"/>"
+				+ "<name>Synthetic Health Clinic</name></representedOrganization>");
+		line(2, "</assignedAuthor>");
+		line(1, "</author>");
+		line(1, "<custodian><assignedCustodian><representedCustodianOrganization>"
+				+ "<id root=\"2.16.840.1.113883.19.5\" extension=\"223344\"/><name>Synthetic Health Clinic</name>"
+				+ "</representedCustodianOrganization></assignedCustodian></custodian>");
+		line(1, "<informationRecipient><intendedRecipient>"
+				+ "<id root=\"2.16.840.1.113883.3.249.7\" extension=\"" + settings.program + "\"/>"
+				+ "</intendedRecipient></informationRecipient>");
+		line(1, "<participant typeCode=\"LOC\">");
+		line(2, "<associatedEntity classCode=\"SDLOC\">");
+		line(3, "<id root=\"2.16.840.1.113883.3.249.5.1\" extension=\"" + settings.apmEntityId
+				+ "\" assigningAuthorityName=\"CMS-CMMI\"/>");
+		line(3, "<code code=\"394730007\" displayName=\"healthcare related organization\" "
+				+ "codeSystem=\"2.16.840.1.113883.6.96\" codeSystemName=\"SNOMED-CT\"/>");
+		line(3, "<addr><streetAddressLine>123 Healthcare St</streetAddressLine><city>Norman</city>"
+				+ "<state>OK</state><postalCode>73019</postalCode></addr>");
+		line(2, "</associatedEntity>");
+		line(1, "</participant>");
+		line(1, "<documentationOf typeCode=\"DOC\">");
+		line(2, "<serviceEvent classCode=\"PCPR\">");
+		line(3, "<effectiveTime><low value=\"" + year + "0101\"/><high value=\"" + year + "1231\"/></effectiveTime>");
+		String[] tins = new String[settings.tins];
+		for (int i = 0; i < tins.length; i++) {
+			tins[i] = digits(9);
+		}
+		int npiDigits = settings.defects.contains(Defect.INVALID_NPI) ? 9 : 10;
+		for (int i = 0; i < settings.performers; i++) {
+			line(3, "<performer typeCode=\"PRF\">");
+			line(4, "<time><low value=\"" + year + "0101\"/><high value=\"" + year + "1231\"/></time>");
+			line(4, "<assignedEntity>");
+			line(5, "<id root=\"2.16.840.1.113883.4.6\" extension=\"" + digits(npiDigits) + "\"/>");
+			line(5, "<representedOrganization><id root=\"2.16.840.1.113883.4.2\" extension=\""
+					+ tins[i % tins.length] + "\"/><name>Synthetic Health Clinic</name></representedOrganization>");
+			line(4, "</assignedEntity>");
+			line(3, "</performer>");
+		}
+		line(2, "</serviceEvent>");
+		line(1, "</documentationOf>");
+	}
+
+	private void writeQualitySection() throws IOException {
+		if (settings.measures == 0) {
+			return;
+		}
+
+		List<MeasureConfig> order = new ArrayList<>(quality);
+		Collections.shuffle(order, random);
+		if (settings.program.startsWith("CPC")) {
+			order.sort(Comparator.comparingInt(SyntheticQrdaGenerator::cpcPlusRank));
+		}
+
+		line(4, "<component>");
+		line(5, "<section>");
+		line(6, "<templateId root=\"2.16.840.1.113883.10.20.24.2.2\"/>");
+		line(6, "<templateId root=\"2.16.840.1.113883.10.20.27.2.1\" extension=\"2017-06-01\"/>");
+		line(6, "<templateId root=\"2.16.840.1.113883.10.20.27.2.3\" extension=\"2017-07-01\"/>");
+		line(6, "<code code=\"55186-1\" codeSystem=\"2.16.840.1.113883.6.1\" displayName=\"measure section\"/>");
+		line(6, "<title>Measure Section</title>");
+		for (int i = 0; i < settings.measures; i++) {
+			writeQualityMeasure(order.get(i % order.size()));
+		}
+		writeSectionEnd();
+	}
+
+	private void writeQualityMeasure(MeasureConfig measure) throws IOException {
+		String version = settings.defects.contains(Defect.UNKNOWN_MEASURE) ? uuid() : measure.getElectronicMeasureVerUuid();
+		line(6, "<entry>");
+		line(7, "<organizer classCode=\"CLUSTER\" moodCode=\"EVN\">");
+		line(8, "<templateId root=\"2.16.840.1.113883.10.20.24.3.98\"/>");
+		line(8, "<templateId root=\"2.16.840.1.113883.10.20.27.3.1\" extension=\"2016-09-01\"/>");
+		line(8, "<templateId root=\"2.16.840.1.113883.10.20.27.3.17\" extension=\"2016-11-01\"/>");
+		line(8, "<id root=\"" + uuid() + "\"/>");
+		line(8, "<statusCode code=\"completed\"/>");
+		line(8, "<reference typeCode=\"REFR\">");
+		line(9, "<externalDocument classCode=\"DOC\" moodCode=\"EVN\">");
+		line(10, "<id root=\"2.16.840.1.113883.4.738\" extension=\"" + version + "\"/>");
+		line(10, "<code code=\"57024-2\" codeSystem=\"2.16.840.1.113883.6.1\" codeSystemName=\"LOINC\" "
+				+ "displayName=\"Health Quality Measure Document\"/>");
+		line(10, "<text>" + escape(measure.getTitle()) + "</text>");
+		line(9, "</externalDocument>");
+		line(8, "</reference>");
+
+		boolean first = true;
+		for (Strata stratum : measure.getStrata()) {
+			SubPopulation uuids = stratum.getElectronicMeasureUuids();
+			if (uuids == null) {
+				continue;
+			}
+			int ipop = settings.maximumPopulation / 10 + random.nextInt(settings.maximumPopulation * 9 / 10 + 1);
+			int denex = uuids.getDenominatorExclusionsUuid() == null ? 0 : random.nextInt(ipop / 10 + 1);
+			int denexcep = uuids.getDenominatorExceptionsUuid() == null ? 0 : random.nextInt(ipop / 10 + 1);
+			int numer = random.nextInt(ipop - denex - denexcep + 1);
+
+			writePerformanceRate(uuids.getNumeratorUuid(), numer, ipop - denex - denexcep);
+			writePopulation("IPOP", uuids.getInitialPopulationUuid(), ipop, uuids.getStrata(), first);
+			writePopulation("DENOM", uuids.getDenominatorUuid(), ipop, uuids.getStrata(), false);
+			writePopulation("DENEX", uuids.getDenominatorExclusionsUuid(), denex, uuids.getStrata(), false);
+			if (!settings.defects.contains(Defect.MISSING_NUMERATOR)) {
+				writePopulation("NUMER", uuids.getNumeratorUuid(), numer, uuids.getStrata(), false);
+			}
+			writePopulation("DENEXCEP", uuids.getDenominatorExceptionsUuid(), denexcep, uuids.getStrata(), false);
+			first = false;
+		}
+		line(7, "</organizer>");
+		line(6, "</entry>");
+	}
+
+	private void writePerformanceRate(String numeratorUuid, int numerator, int denominator) throws IOException {
+		double rate = denominator == 0 ? 0 : numerator / (double) denominator;
+		if (settings.defects.contains(Defect.INVALID_PERFORMANCE_RATE)) {
+			rate += 1.5;
+		}
+		line(8, "<component>");
+		line(9, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.30\" extension=\"2016-09-01\"/>");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.14\" extension=\"2016-09-01\"/>");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.25\" extension=\"2016-11-01\"/>");
+		line(10, "<code code=\"72510-1\" codeSystem=\"2.16.840.1.113883.6.1\" codeSystemName=\"LOINC\" "
+				+ "displayName=\"Performance Rate\"/>");
+		line(10, "<statusCode code=\"completed\"/>");
+		line(10, "<value xsi:type=\"REAL\" value=\"" + String.format(Locale.ENGLISH, "%.6f", rate) + "\"/>");
+		line(10, "<reference typeCode=\"REFR\"><externalObservation classCode=\"OBS\" moodCode=\"EVN\">"
+				+ "<id root=\"" + numeratorUuid + "\"/><code code=\"NUMER\" " + ACT_CODE
+				+ " displayName=\"Numerator\"/></externalObservation></reference>");
+		line(9, "</observation>");
+		line(8, "</component>");
+	}
+
+	private void writePopulation(String type, String uuid, int count, List<String> strata, boolean first)
+			throws IOException {
+		if (uuid == null) {
+			return;
+		}
+
+		boolean negative = first && settings.defects.contains(Defect.NEGATIVE_COUNT);
+		line(8, "<component>");
+		line(9, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.5\" extension=\"2016-09-01\"/>");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.16\" extension=\"2018-05-01\"/>");
+		line(10, "<code code=\"ASSERTION\" " + ACT_CODE + " displayName=\"Assertion\"/>");
+		line(10, "<statusCode code=\"completed\"/>");
+		line(10, "<value xsi:type=\"CD\" code=\"" + type + "\" " + ACT_CODE + "/>");
+		writeAggregateCount(10, negative ? -1 - count : count);
+
+		writeSupplementalData("2.16.840.1.113883.10.20.27.3.6\" extension=\"2016-09-01",
+				"2.16.840.1.113883.10.20.27.3.21\" extension=\"2016-11-01", "76689-9", "Sex assigned at birth",
+				"2.16.840.1.113883.5.1", "AdministrativeGenderCode", SEXES, SEXES.length, count);
+		writeSupplementalData("2.16.840.1.113883.10.20.27.3.7\" extension=\"2016-09-01",
+				"2.16.840.1.113883.10.20.27.3.22\" extension=\"2016-11-01", "69490-1", "Ethnicity",
+				"2.16.840.1.113883.6.238", "Race &amp; Ethnicity - CDC", ETHNICITIES, ETHNICITIES.length, count);
+		writeSupplementalData("2.16.840.1.113883.10.20.27.3.8\" extension=\"2016-09-01",
+				"2.16.840.1.113883.10.20.27.3.19\" extension=\"2016-11-01", "72826-1", "Race",
+				"2.16.840.1.113883.6.238", "Race &amp; Ethnicity - CDC", RACES, settings.races, count);
+		writePayers(count);
+
+		int[] stratumCounts = split(count, strata.size());
+		for (int i = 0; i < strata.size(); i++) {
+			line(10, "<entryRelationship typeCode=\"COMP\">");
+			line(11, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+			line(12, "<templateId root=\"2.16.840.1.113883.10.20.27.3.20\"/>");
+			line(12, "<templateId root=\"2.16.840.1.113883.10.20.27.3.4\"/>");
+			line(12, "<code code=\"ASSERTION\" " + ACT_CODE + " displayName=\"Assertion\"/>");
+			line(12, "<statusCode code=\"completed\"/>");
+			line(12, "<value xsi:type=\"CD\" nullFlavor=\"OTH\"><originalText>Stratum</originalText></value>");
+			writeAggregateCount(12, stratumCounts[i]);
+			line(12, "<reference typeCode=\"REFR\"><externalObservation><id root=\"" + strata.get(i)
+					+ "\"/></externalObservation></reference>");
+			line(11, "</observation>");
+			line(10, "</entryRelationship>");
+		}
+
+		line(10, "<reference typeCode=\"REFR\"><externalObservation classCode=\"OBS\" moodCode=\"EVN\">"
+				+ "<id root=\"" + uuid + "\"/></externalObservation></reference>");
+		line(9, "</observation>");
+		line(8, "</component>");
+	}
+
+	private void writeSupplementalData(String template, String cmsTemplate, String code, String displayName,
+			String codeSystem, String codeSystemName, String[][] values, int limit, int count) throws IOException {
+		int[] counts = split(count, limit);
+		for (int i = 0; i < limit; i++) {
+			writeSupplementalDataStart(template, cmsTemplate, code, displayName);
+			line(12, "<value xsi:type=\"CD\" code=\"" + values[i][0] + "\" codeSystem=\"" + codeSystem
+					+ "\" codeSystemName=\"" + codeSystemName + "\" displayName=\"" + values[i][1] + "\"/>");
+			writeSupplementalDataEnd(counts[i]);
+		}
+	}
+
+	private void writePayers(int count) throws IOException {
+		int[] counts = split(count, settings.payers);
+		for (int i = 0; i < settings.payers; i++) {
+			writeSupplementalDataStart("2.16.840.1.113883.10.20.27.3.9\" extension=\"2016-02-01",
+					"2.16.840.1.113883.10.20.24.3.55\"/><templateId root=\"2.16.840.1.113883.10.20.27.3.18\" "
+							+ "extension=\"2018-05-01", "48768-6", "Payment Source");
+			line(12, "<value xsi:type=\"CD\" nullFlavor=\"OTH\"><translation code=\"" + PAYERS[i][0]
+					+ "\" codeSystem=\"2.16.840.1.113883.3.249.12\" codeSystemName=\"CMS Clinical Codes\" "
+					+ "displayName=\"" + PAYERS[i][1] + "\"/></value>");
+			writeSupplementalDataEnd(counts[i]);
+		}
+	}
+
+	private void writeSupplementalDataStart(String template, String cmsTemplate, String code, String displayName)
+			throws IOException {
+		String year = String.valueOf(settings.performanceYear);
+		line(10, "<entryRelationship typeCode=\"COMP\">");
+		line(11, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+		line(12, "<templateId root=\"" + template + "\"/>");
+		line(12, "<templateId root=\"" + cmsTemplate + "\"/>");
+		line(12, "<id root=\"" + uuid() + "\"/>");
+		line(12, "<code code=\"" + code + "\" codeSystem=\"2.16.840.1.113883.6.1\" codeSystemName=\"LOINC\" "
+				+ "displayName=\"" + displayName + "\"/>");
+		line(12, "<statusCode code=\"completed\"/>");
+		line(12, "<effectiveTime><low value=\"" + year + "0101\"/><high value=\"" + year + "1231\"/></effectiveTime>");
+	}
+
+	private void writeSupplementalDataEnd(int count) throws IOException {
+		writeAggregateCount(12, count);
+		line(11, "</observation>");
+		line(10, "</entryRelationship>");
+	}
+
+	private void writeAggregateCount(int depth, int count) throws IOException {
+		line(depth, "<entryRelationship typeCode=\"SUBJ\" inversionInd=\"true\">");
+		line(depth + 1, "<observation classCode=\"OBS\" moodCode=\"EVN\">" + AGGREGATE_COUNT_TEMPLATES
+				+ "<code code=\"MSRAGG\" " + ACT_CODE + " displayName=\"rate aggregation\"/>"
+				+ "<statusCode code=\"completed\"/><value xsi:type=\"INT\" value=\"" + count + "\"/>"
+				+ "<methodCode code=\"COUNT\" codeSystem=\"2.16.840.1.113883.5.84\" "
+				+ "codeSystemName=\"ObservationMethod\" displayName=\"Count\"/></observation>");
+		line(depth, "</entryRelationship>");
+	}
+
+	private void writePiSection() throws IOException {
+		int count = Math.min(settings.piMeasures, pi.size());
+		if (count == 0) {
+			return;
+		}
+
+		writeSectionStart("2.16.840.1.113883.10.20.27.2.5\" extension=\"2017-06-01");
+		for (MeasureConfig measure : pi.subList(0, count)) {
+			line(6, "<entry>");
+			line(7, "<organizer classCode=\"CLUSTER\" moodCode=\"EVN\">");
+			line(8, "<templateId root=\"2.16.840.1.113883.10.20.24.3.98\"/>");
+			if ("proportion".equals(measure.getMetricType())) {
+				line(8, "<templateId root=\"2.16.840.1.113883.10.20.27.3.28\" extension=\"2017-06-01\"/>");
+			} else {
+				line(8, "<templateId root=\"2.16.840.1.113883.10.20.27.3.29\" extension=\"2016-09-01\"/>");
+			}
+			writeMeasureReference("2.16.840.1.113883.3.7031", measure);
+			if ("proportion".equals(measure.getMetricType())) {
+				int denominator = 1 + random.nextInt(settings.maximumPopulation);
+				int numerator = random.nextInt(denominator + 1);
+				writePiCount("2.16.840.1.113883.10.20.27.3.31", "NUMER", numerator);
+				writePiCount("2.16.840.1.113883.10.20.27.3.32", "DENOM", denominator);
+			} else {
+				writeMeasurePerformed();
+			}
+			line(7, "</organizer>");
+			line(6, "</entry>");
+		}
+		writeSectionEnd();
+	}
+
+	private void writePiCount(String template, String type, int count) throws IOException {
+		line(8, "<component>");
+		line(9, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+		line(10, "<templateId root=\"" + template + "\" extension=\"2016-09-01\"/>");
+		line(10, "<code code=\"ASSERTION\" " + ACT_CODE + " displayName=\"Assertion\"/>");
+		line(10, "<statusCode code=\"completed\"/>");
+		line(10, "<value xsi:type=\"CD\" code=\"" + type + "\" " + ACT_CODE + "/>");
+		writeAggregateCount(10, count);
+		line(9, "</observation>");
+		line(8, "</component>");
+	}
+
+	private void writeIaSection() throws IOException {
+		int count = Math.min(settings.iaMeasures, ia.size());
+		if (count == 0) {
+			return;
+		}
+
+		writeSectionStart("2.16.840.1.113883.3.249.20.2.1\" extension=\"2018-05-01");
+		for (MeasureConfig measure : ia.subList(0, count)) {
+			line(6, "<entry>");
+			line(7, "<organizer classCode=\"CLUSTER\" moodCode=\"EVN\">");
+			line(8, "<templateId root=\"2.16.840.1.113883.10.20.24.3.98\"/>");
+			line(8, "<templateId root=\"2.16.840.1.113883.3.249.20.3.1\" extension=\"2018-05-01\"/>");
+			writeMeasureReference("2.16.840.1.113883.3.7034", measure);
+			writeMeasurePerformed();
+			line(7, "</organizer>");
+			line(6, "</entry>");
+		}
+		writeSectionEnd();
+	}
+
+	private void writeMeasureReference(String root, MeasureConfig measure) throws IOException {
+		line(8, "<id root=\"" + uuid() + "\"/>");
+		line(8, "<statusCode code=\"completed\"/>");
+		line(8, "<reference typeCode=\"REFR\"><externalDocument classCode=\"DOC\" moodCode=\"EVN\">"
+				+ "<id root=\"" + root + "\" extension=\"" + measure.getMeasureId() + "\"/>"
+				+ "<text>" + escape(measure.getTitle()) + "</text></externalDocument></reference>");
+	}
+
+	private void writeMeasurePerformed() throws IOException {
+		line(8, "<component>");
+		line(9, "<observation classCode=\"OBS\" moodCode=\"EVN\">");
+		line(10, "<templateId root=\"2.16.840.1.113883.10.20.27.3.27\" extension=\"2016-09-01\"/>");
+		line(10, "<code code=\"ASSERTION\" " + ACT_CODE + " displayName=\"Assertion\"/>");
+		line(10, "<statusCode code=\"completed\"/>");
+		line(10, "<value xsi:type=\"CD\" code=\"Y\" displayName=\"Yes\" "
+				+ "codeSystemName=\"Yes/no indicator (HL7 Table 0136)\" codeSystem=\"2.16.840.1.113883.12.136\"/>");
+		line(9, "</observation>");
+		line(8, "</component>");
+	}
+
+	private void writeSectionStart(String template) throws IOException {
+		line(4, "<component>");
+		line(5, "<section>");
+		line(6, "<templateId root=\"2.16.840.1.113883.10.20.24.2.2\"/>");
+		line(6, "<templateId root=\"" + template + "\"/>");
+		line(6, "<code code=\"55186-1\" codeSystem=\"2.16.840.1.113883.6.1\" displayName=\"Measure Section\"/>");
+		line(6, "<title>Measure Section</title>");
+	}
+
+	private void writeSectionEnd() throws IOException {
+		if (!settings.defects.contains(Defect.MISSING_REPORTING_PARAMETERS)) {
+			String year = String.valueOf(settings.performanceYear);
+			line(6, "<entry typeCode=\"DRIV\">");
+			line(7, "<act classCode=\"ACT\" moodCode=\"EVN\">");
+			line(8, "<templateId root=\"2.16.840.1.113883.10.20.17.3.8\"/>");
+			line(8, "<id root=\"" + uuid() + "\"/>");
+			line(8, "<code code=\"252116004\" codeSystem=\"2.16.840.1.113883.6.96\" "
+					+ "displayName=\"Observation Parameters\"/>");
+			line(8, "<effectiveTime><low value=\"" + year + "0101\"/><high value=\"" + year + "1231\"/></effectiveTime>");
+			line(7, "</act>");
+			line(6, "</entry>");
+		}
+		line(5, "</section>");
+		line(4, "</component>");
+	}
+
+	/**
+	 * Randomly splits a count into parts that add up to it.
+	 */
+	private int[] split(int count, int parts) {
+		int[] split = new int[parts];
+		int remaining = count;
+		for (int i = 0; i < parts - 1; i++) {
+			split[i] = random.nextInt(remaining + 1);
+			remaining -= split[i];
+		}
+		if (parts > 0) {
+			split[parts - 1] = remaining;
+		}
+		return split;
+	}
+
+	private String uuid() {
+		return new UUID(random.nextLong(), random.nextLong()).toString();
+	}
+
+	private String digits(int length) {
+		StringBuilder digits = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			digits.append((char) ('0' + random.nextInt(10)));
+		}
+		return digits.toString();
+	}
+
+	/**
+	 * Orders CPC+ outcome measures before the other CPC+ measures and those before the rest, so that even a few
+	 * measures meet the outcome measure minimum of CPC+.
+	 */
+	private static int cpcPlusRank(MeasureConfig config) {
+		if (config.getCpcPlusGroup() == null) {
+			return 2;
+		}
+		return CPC_PLUS_OUTCOME_GROUP.equals(config.getCpcPlusGroup()) ? 0 : 1;
+	}
+
+	private static String escape(String text) {
+		return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	private void line(int depth, String text) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			out.write('\t');
+		}
+		out.write(text);
+		out.write('\n');
+	}
+}
@@ -0,0 +1,115 @@
+package gov.cms.qpp.generator;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import gov.cms.qpp.generator.SyntheticQrdaGenerator.Defect;
+import gov.cms.qpp.generator.SyntheticQrdaGenerator.Settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class SyntheticQrdaGeneratorTest {
+
+	@Test
+	void testGeneratesRequestedShape() throws Exception {
+		Document document = parse(generate(new Settings()
+				.program("CPCPLUS").measures(3).performers(25).tins(4).races(2).payers(1).piMeasures(2).iaMeasures(3)));
+
+		assertThat(countTemplates(document, "2.16.840.1.113883.10.20.27.3.1")).isEqualTo(3);
+		assertThat(document.getElementsByTagName("performer").getLength()).isEqualTo(25);
+		assertThat(countTemplates(document, "2.16.840.1.113883.10.20.27.3.28")
+				+ countTemplates(document, "2.16.840.1.113883.10.20.27.3.29")).isEqualTo(2);
+		assertThat(countTemplates(document, "2.16.840.1.113883.3.249.20.3.1")).isEqualTo(3);
+		assertThat(countTemplates(document, "2.16.840.1.113883.10.20.27.3.8")
+				/ countTemplates(document, "2.16.840.1.113883.10.20.27.3.9")).isEqualTo(2);
+	}
+
+	@Test
+	void testSameSeedSameDocument() throws Exception {
+		assertThat(generate(new Settings().seed(42))).isEqualTo(generate(new Settings().seed(42)));
+	}
+
+	@Test
+	void testDifferentSeedDifferentDocument() throws Exception {
+		assertThat(generate(new Settings().seed(1))).isNotEqualTo(generate(new Settings().seed(2)));
+	}
+
+	@Test
+	void testMeasuresRepeatPastMeasureData() throws Exception {
+		Document document = parse(generate(new Settings().measures(120).piMeasures(0).iaMeasures(0).races(1)));
+
+		assertThat(countTemplates(document, "2.16.840.1.113883.10.20.27.3.1")).isEqualTo(120);
+	}
+
+	@Test
+	void testMinimumStrata() throws Exception {
+		Document document = parse(generate(new Settings().measures(1).minimumStrata(3).piMeasures(0).iaMeasures(0)));
+
+		assertThat(countTemplates(document, "2.16.840.1.113883.10.20.27.3.25")).isEqualTo(3);
+	}
+
+	@Test
+	void testDefects() throws Exception {
+		String valid = generate(new Settings());
+		String invalid = generate(new Settings().defects(EnumSet.of(Defect.NEGATIVE_COUNT, Defect.MISSING_NUMERATOR,
+				Defect.MISSING_REPORTING_PARAMETERS)));
+
+		assertThat(valid).doesNotContain("value=\"-");
+		assertThat(invalid).contains("value=\"-");
+		assertThat(invalid).doesNotContain("code=\"NUMER\" codeSystem=\"2.16.840.1.113883.5.4\" codeSystemName=\"ActCode\"/>");
+		assertThat(invalid).doesNotContain("2.16.840.1.113883.10.20.17.3.8");
+		parse(invalid);
+	}
+
+	@Test
+	void testParse() {
+		Settings settings = SyntheticQrdaGenerator.parse("-measures", "7", "-performers", "300", "-seed", "9",
+				"-defects", "invalid_npi,unknown_measure");
+
+		assertThat(settings).isNotNull();
+	}
+
+	@Test
+	void testParseRejectsUnknownOption() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SyntheticQrdaGenerator.parse("-npis", "3"));
+	}
+
+	@Test
+	void testRejectsImpossibleStrata() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> new SyntheticQrdaGenerator(new Settings().minimumStrata(100)));
+	}
+
+	private static String generate(Settings settings) throws Exception {
+		StringWriter writer = new StringWriter();
+		new SyntheticQrdaGenerator(settings).generate(writer);
+		return writer.toString();
+	}
+
+	private static Document parse(String xml) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static int countTemplates(Document document, String root) {
+		NodeList templates = document.getElementsByTagName("templateId");
+		int count = 0;
+		for (int i = 0; i < templates.getLength(); i++) {
+			if (root.equals(((Element) templates.item(i)).getAttribute("root"))) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
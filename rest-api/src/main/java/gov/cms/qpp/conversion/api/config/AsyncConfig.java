@@ -0,0 +1,54 @@
+package gov.cms.qpp.conversion.api.config;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+/**
+ * Spring configuration of the asynchronous requests.
+ *
+ * Streamed responses are written on the {@link ConcurrencyConfig#STREAMING_EXECUTOR} instead of the default executor
+ * of Spring MVC, which starts a new thread for every response, and are abandoned once they take longer than
+ * {@link Constants#STREAMING_TIMEOUT_SECONDS_ENV_VARIABLE} seconds.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+	static final long DEFAULT_STREAMING_TIMEOUT_SECONDS = 600;
+
+	private final AsyncTaskExecutor streamingExecutor;
+	private final long timeoutSeconds;
+
+	/**
+	 * @param streamingExecutor the executor that writes the streamed responses
+	 * @param environment source of the {@link Constants#STREAMING_TIMEOUT_SECONDS_ENV_VARIABLE} timeout
+	 */
+	@Autowired
+	public AsyncConfig(@Qualifier(ConcurrencyConfig.STREAMING_EXECUTOR) AsyncTaskExecutor streamingExecutor,
+			Environment environment) {
+		this(streamingExecutor, environment.getProperty(Constants.STREAMING_TIMEOUT_SECONDS_ENV_VARIABLE, Long.class,
+				DEFAULT_STREAMING_TIMEOUT_SECONDS));
+	}
+
+	AsyncConfig(AsyncTaskExecutor streamingExecutor, long timeoutSeconds) {
+		Objects.requireNonNull(streamingExecutor, "streamingExecutor");
+
+		this.streamingExecutor = streamingExecutor;
+		this.timeoutSeconds = timeoutSeconds;
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(streamingExecutor);
+		configurer.setDefaultTimeout(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+	}
+}
@@ -1,9 +1,28 @@
 package gov.cms.qpp.conversion.api.config;
 
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SyncTaskExecutor;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.services.internal.RetryScheduler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 
 /**
  * Spring configuration file for service task threadding.
@@ -13,13 +32,205 @@ import org.springframework.core.task.TaskExecutor;
 @Configuration
 public class ConcurrencyConfig {
 
+	public static final String CONVERSION_EXECUTOR = "conversionExecutor";
+	public static final String STORAGE_EXECUTOR = "storageExecutor";
+	public static final String DB_EXECUTOR = "dbExecutor";
+	public static final String ZIP_EXECUTOR = "zipExecutor";
+	public static final String STREAMING_EXECUTOR = "streamingExecutor";
+	static final int DEFAULT_CONVERSION_QUEUE_DEPTH = 100;
+	static final int DEFAULT_STORAGE_THREADS = 16;
+	static final int DEFAULT_DB_THREADS = 8;
+	static final int DEFAULT_ACTION_QUEUE_DEPTH = 500;
+	static final int DEFAULT_RETRY_MAX_ATTEMPTS = 5;
+	static final long DEFAULT_RETRY_INITIAL_DELAY_MILLIS = 2000;
+	static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 60000;
+	static final int DEFAULT_RETRY_BUDGET = 1000;
+	static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 10;
+	static final long DEFAULT_CIRCUIT_OPEN_SECONDS = 30;
+	private static final int SHUTDOWN_SECONDS = 30;
+
+	/**
+	 * A bounded thread pool for the S3 actions of the {@link gov.cms.qpp.conversion.api.services.StorageService}.
+	 *
+	 * @param environment source of the {@link Constants#STORAGE_THREADS_ENV_VARIABLE} pool size and
+	 * {@link Constants#STORAGE_QUEUE_DEPTH_ENV_VARIABLE} queue depth
+	 * @return storage executor
+	 */
+	@Bean(name = STORAGE_EXECUTOR)
+	public ThreadPoolTaskExecutor storageExecutor(Environment environment) {
+		return actionExecutor("storage-",
+				environment.getProperty(Constants.STORAGE_THREADS_ENV_VARIABLE, Integer.class, DEFAULT_STORAGE_THREADS),
+				environment.getProperty(Constants.STORAGE_QUEUE_DEPTH_ENV_VARIABLE, Integer.class,
+						DEFAULT_ACTION_QUEUE_DEPTH));
+	}
+
+	/**
+	 * A bounded thread pool for the DynamoDB actions of the {@link gov.cms.qpp.conversion.api.services.DbService}.
+	 *
+	 * @param environment source of the {@link Constants#DB_THREADS_ENV_VARIABLE} pool size and
+	 * {@link Constants#DB_QUEUE_DEPTH_ENV_VARIABLE} queue depth
+	 * @return database executor
+	 */
+	@Bean(name = DB_EXECUTOR)
+	public ThreadPoolTaskExecutor dbExecutor(Environment environment) {
+		return actionExecutor("db-",
+				environment.getProperty(Constants.DB_THREADS_ENV_VARIABLE, Integer.class, DEFAULT_DB_THREADS),
+				environment.getProperty(Constants.DB_QUEUE_DEPTH_ENV_VARIABLE, Integer.class,
+						DEFAULT_ACTION_QUEUE_DEPTH));
+	}
+
+	/**
+	 * A bounded thread pool that runs the conversions of the upload endpoints off the request threads. Conversions
+	 * are rejected once {@link Constants#CONVERSION_THREADS_ENV_VARIABLE} threads are busy and
+	 * {@link Constants#CONVERSION_QUEUE_DEPTH_ENV_VARIABLE} conversions are waiting.
+	 *
+	 * @param environment source of the pool size and queue depth
+	 * @return conversion executor
+	 */
+	@Bean(name = CONVERSION_EXECUTOR, destroyMethod = "shutdownNow")
+	public ThreadPoolExecutor conversionExecutor(Environment environment) {
+		int threads = environment.getProperty(Constants.CONVERSION_THREADS_ENV_VARIABLE, Integer.class,
+				Runtime.getRuntime().availableProcessors() * 2);
+		int queueDepth = environment.getProperty(Constants.CONVERSION_QUEUE_DEPTH_ENV_VARIABLE, Integer.class,
+				DEFAULT_CONVERSION_QUEUE_DEPTH);
+
+		BlockingQueue<Runnable> queue = queueDepth > 0 ? new ArrayBlockingQueue<>(queueDepth) : new SynchronousQueue<>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, queue,
+				new CustomizableThreadFactory("conversion-"), new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * A bounded thread pool that converts the entries of an uploaded ZIP file concurrently. Entries are handed to
+	 * {@link Constants#ZIP_THREADS_ENV_VARIABLE} threads (the number of processors by default) without queueing; once
+	 * every thread is busy the thread reading the upload converts the next entry itself, which bounds the parallelism
+	 * and stops reading until a thread frees up.
+	 *
+	 * @param environment source of the pool size
+	 * @return ZIP entry executor
+	 */
+	@Bean(name = ZIP_EXECUTOR)
+	public ThreadPoolTaskExecutor zipExecutor(Environment environment) {
+		return actionExecutor("zip-",
+				environment.getProperty(Constants.ZIP_THREADS_ENV_VARIABLE, Integer.class,
+						Runtime.getRuntime().availableProcessors()),
+				0);
+	}
+
+	/**
+	 * A bounded thread pool that writes the streamed responses, such as the lines of an uploaded ZIP file and the
+	 * unprocessed CPC+ listing, off the request threads. Responses are handed to
+	 * {@link Constants#STREAMING_THREADS_ENV_VARIABLE} threads (twice the number of processors by default) without
+	 * queueing; once every thread is busy the request thread writes the response itself, which bounds the streams in
+	 * flight by the request threads instead of starting a thread per stream.
+	 *
+	 * @param environment source of the pool size
+	 * @return streaming executor
+	 */
+	@Bean(name = STREAMING_EXECUTOR)
+	public ThreadPoolTaskExecutor streamingExecutor(Environment environment) {
+		return actionExecutor("streaming-",
+				environment.getProperty(Constants.STREAMING_THREADS_ENV_VARIABLE, Integer.class,
+						Runtime.getRuntime().availableProcessors() * 2),
+				0);
+	}
+
+	/**
+	 * Schedules the retries of the storage and database actions on a single thread, which only waits out the delays
+	 * and hands each retry back to the pool of its action without ever running it itself.
+	 *
+	 * @param environment source of the {@code RETRY_*} and {@code CIRCUIT_*} settings
+	 * @return retry scheduler
+	 */
+	@Bean
+	public RetryScheduler retryScheduler(Environment environment) {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+				new CustomizableThreadFactory("retry-"));
+		scheduler.setRemoveOnCancelPolicy(true);
+		return new RetryScheduler(scheduler,
+				environment.getProperty(Constants.RETRY_MAX_ATTEMPTS_ENV_VARIABLE, Integer.class,
+						DEFAULT_RETRY_MAX_ATTEMPTS),
+				Duration.ofMillis(environment.getProperty(Constants.RETRY_INITIAL_DELAY_MILLIS_ENV_VARIABLE, Long.class,
+						DEFAULT_RETRY_INITIAL_DELAY_MILLIS)),
+				Duration.ofMillis(environment.getProperty(Constants.RETRY_MAX_DELAY_MILLIS_ENV_VARIABLE, Long.class,
+						DEFAULT_RETRY_MAX_DELAY_MILLIS)),
+				environment.getProperty(Constants.RETRY_BUDGET_ENV_VARIABLE, Integer.class, DEFAULT_RETRY_BUDGET),
+				environment.getProperty(Constants.CIRCUIT_FAILURE_THRESHOLD_ENV_VARIABLE, Integer.class,
+						DEFAULT_CIRCUIT_FAILURE_THRESHOLD),
+				Duration.ofSeconds(environment.getProperty(Constants.CIRCUIT_OPEN_SECONDS_ENV_VARIABLE, Long.class,
+						DEFAULT_CIRCUIT_OPEN_SECONDS)));
+	}
+
 	/**
-	 * A thread pool just for the ReST API.
+	 * Publishes the active threads, queued tasks and remaining queue capacity of the thread pools as
+	 * {@code executor.*} gauges tagged with the {@code name} of the pool, and the retries waiting to be made as the
+	 * {@code action.retries.pending} gauge.
 	 *
-	 * @return synchronous task executor
+	 * @param storageExecutor the storage executor
+	 * @param dbExecutor the database executor
+	 * @param conversionExecutor the conversion executor
+	 * @param zipExecutor the ZIP entry executor
+	 * @param streamingExecutor the streaming executor
+	 * @param retryScheduler the retry scheduler
+	 * @return binder of the executor metrics
 	 */
 	@Bean
-	public TaskExecutor taskExecutor() {
-		return new SyncTaskExecutor();
+	public MeterBinder executorMetrics(@Qualifier(STORAGE_EXECUTOR) ThreadPoolTaskExecutor storageExecutor,
+			@Qualifier(DB_EXECUTOR) ThreadPoolTaskExecutor dbExecutor,
+			@Qualifier(CONVERSION_EXECUTOR) ThreadPoolExecutor conversionExecutor,
+			@Qualifier(ZIP_EXECUTOR) ThreadPoolTaskExecutor zipExecutor,
+			@Qualifier(STREAMING_EXECUTOR) ThreadPoolTaskExecutor streamingExecutor, RetryScheduler retryScheduler) {
+		return registry -> {
+			new ExecutorServiceMetrics(storageExecutor.getThreadPoolExecutor(), "storage", Tags.empty())
+					.bindTo(registry);
+			new ExecutorServiceMetrics(dbExecutor.getThreadPoolExecutor(), "db", Tags.empty()).bindTo(registry);
+			new ExecutorServiceMetrics(conversionExecutor, "conversion", Tags.empty()).bindTo(registry);
+			new ExecutorServiceMetrics(zipExecutor.getThreadPoolExecutor(), "zip", Tags.empty()).bindTo(registry);
+			new ExecutorServiceMetrics(streamingExecutor.getThreadPoolExecutor(), "streaming", Tags.empty())
+					.bindTo(registry);
+			Gauge.builder("action.retries.pending", retryScheduler, RetryScheduler::getPendingRetries)
+					.description("Retries of storage and database actions waiting to be made")
+					.register(registry);
+		};
+	}
+
+	/**
+	 * Creates a pool for retried actions. A full queue runs the action on the submitting thread instead of dropping
+	 * it, which slows the submitters down until the pool catches up. Queued actions are completed on shutdown and
+	 * actions submitted after it are rejected. A queue depth of zero hands each action straight to a thread.
+	 */
+	private static ThreadPoolTaskExecutor actionExecutor(String prefix, int threads, int queueDepth) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix(prefix);
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(queueDepth);
+		executor.setAllowCoreThreadTimeOut(true);
+		executor.setRejectedExecutionHandler(new CallerRunsUntilShutdownPolicy());
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds(SHUTDOWN_SECONDS);
+		return executor;
+	}
+
+	/**
+	 * Runs a task that does not fit in the pool on the submitting thread, like
+	 * {@link ThreadPoolExecutor.CallerRunsPolicy}, but rejects it once the pool is shut down instead of silently
+	 * discarding it, so whoever waits on the task learns that it will never run. A retry handed off by the
+	 * {@link RetryScheduler} is deferred instead, since running it would block the thread of every other retry.
+	 */
+	static class CallerRunsUntilShutdownPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("The executor is shut down");
+			}
+			if (task instanceof RetryScheduler.HandOff) {
+				((RetryScheduler.HandOff) task).defer();
+			} else {
+				task.run();
+			}
+		}
 	}
 }
@@ -11,6 +11,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 import com.amazonaws.services.dynamodbv2.datamodeling.encryption.providers.DirectKmsMaterialProvider;
 import com.amazonaws.services.kms.AWSKMS;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanInitializationException;
@@ -18,8 +19,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
+import gov.cms.qpp.conversion.api.internal.cache.CachingKmsMaterialProvider;
 import gov.cms.qpp.conversion.api.model.Constants;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static gov.cms.qpp.conversion.api.config.DynamoDbConfigFactory.createDynamoDbMapper;
@@ -34,19 +37,24 @@ public class DynamoDbConfig {
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(DynamoDbConfig.class);
 	static final String NO_KMS_KEY = "No KMS key specified!";
+	static final long DEFAULT_KMS_DATA_KEY_TTL_SECONDS = 0;
+	static final int DEFAULT_KMS_DATA_KEY_MAX_USES = 1000;
 
 	private Environment environment;
 	private AWSKMS awsKms;
+	private MeterRegistry meterRegistry;
 
 	/**
 	 * Ensure required dependencies are supplied.
 	 *
 	 * @param environment access to environment variables
 	 * @param awsKms KMS key
+	 * @param meterRegistry registry for the KMS metrics
 	 */
-	public DynamoDbConfig(Environment environment, AWSKMS awsKms) {
+	public DynamoDbConfig(Environment environment, AWSKMS awsKms, MeterRegistry meterRegistry) {
 		this.environment = environment;
 		this.awsKms = awsKms;
+		this.meterRegistry = meterRegistry;
 	}
 
 	/**
@@ -155,11 +163,26 @@ public class DynamoDbConfig {
 	/**
 	 * Creates a DynamoDB attribute transformer that encrypts items based on the KMS key parameter
 	 *
+	 * By default every item gets a data key of its own from a {@link DirectKmsMaterialProvider}.  With a positive
+	 * {@code KMS_DATA_KEY_TTL_SECONDS}, data keys are reused for that long and up to {@code KMS_DATA_KEY_MAX_USES}
+	 * items by a {@link CachingKmsMaterialProvider}.  Items encrypted with a reused key can only be decrypted by the
+	 * {@link CachingKmsMaterialProvider}, so once key reuse is turned on it can not be turned off again, nor can the
+	 * application be rolled back to a release without it, until those items are re-encrypted.
+	 *
 	 * @param kmsKey The KMS key ARN to use to encrypt.
 	 * @return An encryption attribute transformer.
 	 */
 	AttributeTransformer encryptionTransformer(String kmsKey) {
-		return new AttributeEncryptor(new DirectKmsMaterialProvider(awsKms, kmsKey));
+		long ttlSeconds = environment.getProperty(Constants.KMS_DATA_KEY_TTL_SECONDS_ENV_VARIABLE, Long.class,
+				DEFAULT_KMS_DATA_KEY_TTL_SECONDS);
+		if (ttlSeconds <= 0) {
+			return new AttributeEncryptor(new DirectKmsMaterialProvider(awsKms, kmsKey));
+		}
+
+		int maxUses = environment.getProperty(Constants.KMS_DATA_KEY_MAX_USES_ENV_VARIABLE, Integer.class,
+				DEFAULT_KMS_DATA_KEY_MAX_USES);
+		return new AttributeEncryptor(new CachingKmsMaterialProvider(awsKms, kmsKey, Duration.ofSeconds(ttlSeconds),
+				maxUses, meterRegistry));
 	}
 
 	/**
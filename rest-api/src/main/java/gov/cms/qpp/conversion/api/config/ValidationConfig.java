@@ -0,0 +1,80 @@
+package gov.cms.qpp.conversion.api.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+/**
+ * Spring configuration for the HTTP client of the QPP validation API.
+ */
+@Configuration
+public class ValidationConfig {
+
+	public static final String VALIDATION_REQUEST_FACTORY = "validationRequestFactory";
+
+	static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+	static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+	static final int DEFAULT_MAX_CONCURRENT_CALLS = 20;
+	static final long IDLE_CONNECTION_SECONDS = 30;
+
+	/**
+	 * Creates the request factory of the validation calls.
+	 *
+	 * Connections are kept alive and pooled, up to one per concurrent call. Connecting and waiting for a pooled
+	 * connection are bounded by {@link Constants#VALIDATION_CONNECT_TIMEOUT_MILLIS_ENV_VARIABLE}, waiting for the
+	 * response by {@link Constants#VALIDATION_READ_TIMEOUT_MILLIS_ENV_VARIABLE}. The pool is closed with the context.
+	 *
+	 * @param environment source of the {@code VALIDATION_*} settings
+	 * @return request factory
+	 */
+	@Bean(name = VALIDATION_REQUEST_FACTORY)
+	public HttpComponentsClientHttpRequestFactory validationRequestFactory(Environment environment) {
+		int connectTimeout = connectTimeoutMillis(environment);
+		int readTimeout = environment.getProperty(Constants.VALIDATION_READ_TIMEOUT_MILLIS_ENV_VARIABLE,
+				Integer.class, DEFAULT_READ_TIMEOUT_MILLIS);
+		int maxConnections = maxConcurrentCalls(environment);
+
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+		connections.setMaxTotal(maxConnections);
+		connections.setDefaultMaxPerRoute(maxConnections);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout)
+				.build();
+
+		return new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+				.setConnectionManager(connections)
+				.setDefaultRequestConfig(requestConfig)
+				.evictExpiredConnections()
+				.evictIdleConnections(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS)
+				.build());
+	}
+
+	/**
+	 * @param environment source of {@link Constants#VALIDATION_MAX_CONCURRENT_CALLS_ENV_VARIABLE}
+	 * @return most validation calls in flight at once
+	 */
+	public static int maxConcurrentCalls(Environment environment) {
+		return Math.max(1, environment.getProperty(Constants.VALIDATION_MAX_CONCURRENT_CALLS_ENV_VARIABLE,
+				Integer.class, DEFAULT_MAX_CONCURRENT_CALLS));
+	}
+
+	/**
+	 * @param environment source of {@link Constants#VALIDATION_CONNECT_TIMEOUT_MILLIS_ENV_VARIABLE}
+	 * @return how long to wait for a connection, in milliseconds
+	 */
+	public static int connectTimeoutMillis(Environment environment) {
+		return environment.getProperty(Constants.VALIDATION_CONNECT_TIMEOUT_MILLIS_ENV_VARIABLE, Integer.class,
+				DEFAULT_CONNECT_TIMEOUT_MILLIS);
+	}
+}
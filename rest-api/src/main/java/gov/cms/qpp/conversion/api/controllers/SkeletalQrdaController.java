@@ -3,11 +3,19 @@ package gov.cms.qpp.conversion.api.controllers;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,16 +26,27 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import gov.cms.qpp.conversion.ConversionMetrics;
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
 import gov.cms.qpp.conversion.ConversionReport;
-import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.SpooledSource;
+import gov.cms.qpp.conversion.api.config.ConcurrencyConfig;
 import gov.cms.qpp.conversion.api.exceptions.AuditException;
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidPurposeException;
+import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.services.AuditService;
 import gov.cms.qpp.conversion.api.services.QrdaService;
 import gov.cms.qpp.conversion.api.services.ValidationService;
+import gov.cms.qpp.conversion.model.Program;
 
 /**
  * Controller to handle uploading files for QRDA-III Conversion
@@ -38,6 +57,24 @@ public abstract class SkeletalQrdaController<T> {
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(SkeletalQrdaController.class);
 	private static final int MAX_PURPOSE_LENGTH = 25;
+	private static final long DEFAULT_TIMEOUT_SECONDS = 120;
+	private static final long DEFAULT_RETRY_AFTER_SECONDS = 5;
+
+	@Value("${" + Constants.SPOOL_THRESHOLD_ENV_VARIABLE + ":" + SpooledSource.DEFAULT_THRESHOLD + "}")
+	private int spoolThreshold = SpooledSource.DEFAULT_THRESHOLD;
+
+	@Value("${" + Constants.CONVERSION_TIMEOUT_SECONDS_ENV_VARIABLE + ":" + DEFAULT_TIMEOUT_SECONDS + "}")
+	private long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+
+	@Value("${" + Constants.CONVERSION_RETRY_AFTER_SECONDS_ENV_VARIABLE + ":" + DEFAULT_RETRY_AFTER_SECONDS + "}")
+	private long retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+
+	@Autowired(required = false)
+	private ConversionMetrics conversionMetrics = ConversionMetrics.NONE;
+
+	@Autowired(required = false)
+	@Qualifier(ConcurrencyConfig.CONVERSION_EXECUTOR)
+	private Executor conversionExecutor = Runnable::run;
 
 	protected final QrdaService qrdaService;
 	protected final ValidationService validationService;
@@ -59,14 +96,17 @@ public abstract class SkeletalQrdaController<T> {
 	}
 
 	/**
-	 * Endpoint to transform an uploaded file into a valid or error json response
+	 * Endpoint to transform an uploaded file into a valid or error json response. The conversion runs on the
+	 * {@link ConcurrencyConfig#CONVERSION_EXECUTOR}, it is rejected right away if the executor is saturated and
+	 * cancelled if it does not complete within {@link Constants#CONVERSION_TIMEOUT_SECONDS_ENV_VARIABLE} seconds.
 	 *
 	 * @param file Uploaded file
 	 * @param purpose the purpose for the conversion
-	 * @return Valid json or error json content
+	 * @return Valid json or error json content, once the conversion completes
+	 * @throws ConversionUnavailableException if the conversion executor is saturated
 	 */
 	@PostMapping
-	public ResponseEntity<T> uploadQrdaFile(
+	public DeferredResult<ResponseEntity<T>> uploadQrdaFile(
 		@RequestParam(name = "file") MultipartFile file,
 		@RequestHeader(required = false, name = "Purpose") String purpose) {
 
@@ -81,23 +121,116 @@ public abstract class SkeletalQrdaController<T> {
 			API_LOG.info("Conversion request received");
 		}
 
-		HttpHeaders httpHeaders = new HttpHeaders();
-		httpHeaders.setContentType(MediaType.APPLICATION_JSON);
-		
-		T response = respond(file, purpose, httpHeaders);
+		String checkedPurpose = purpose;
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+		FutureTask<Void> conversion = new FutureTask<>(() -> convert(file, checkedPurpose, request, result), null);
+		result.onTimeout(() -> {
+			conversion.cancel(true);
+			API_LOG.warn("Conversion request timed out after " + timeoutSeconds + " seconds");
+			result.setErrorResult(new ConversionUnavailableException(
+					"The conversion timed out after " + timeoutSeconds + " seconds", retryAfterSeconds, null));
+		});
 
-		API_LOG.info("Conversion request succeeded");
+		try {
+			conversionExecutor.execute(conversion);
+		} catch (RejectedExecutionException exception) {
+			throw new ConversionUnavailableException("Too many conversions are in progress", retryAfterSeconds,
+					exception);
+		}
+		return result;
+	}
 
-		return new ResponseEntity<>(response, httpHeaders, HttpStatus.CREATED);
+	/**
+	 * Converts an upload on a conversion thread. The request is bound to the thread for the duration of the
+	 * conversion, and completed afterwards to release what the conversion registered with it.
+	 *
+	 * @param file Uploaded file
+	 * @param purpose the checked purpose for the conversion
+	 * @param request attributes of the request that received the upload, may be {@code null}
+	 * @param result receives the response or the exception
+	 */
+	private void convert(MultipartFile file, String purpose, RequestAttributes request,
+			DeferredResult<ResponseEntity<T>> result) {
+		RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+		ServletRequestAttributes attributes = request instanceof ServletRequestAttributes
+				? new ServletRequestAttributes(((ServletRequestAttributes) request).getRequest()) : null;
+		RequestContextHolder.setRequestAttributes(attributes);
+		try {
+			HttpHeaders httpHeaders = new HttpHeaders();
+			httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+
+			T response = respond(file, purpose, httpHeaders);
+
+			API_LOG.info("Conversion request succeeded");
+			result.setResult(new ResponseEntity<>(response, httpHeaders, HttpStatus.CREATED));
+		} catch (RuntimeException exception) {
+			result.setErrorResult(exception);
+		} finally {
+			RequestContextHolder.setRequestAttributes(previous);
+			if (attributes != null) {
+				attributes.requestCompleted();
+			}
+		}
 	}
 
 	protected ConversionReport buildReport(String filename, InputStream inputStream, String purpose) {
-		ConversionReport conversionReport = qrdaService.convertQrda3ToQpp(
-				new InputStreamSupplierSource(filename, inputStream, purpose));
-		validationService.validateQpp(conversionReport);
+		return buildReport(spool(filename, inputStream, purpose));
+	}
+
+	/**
+	 * Converts and validates an upload that was already buffered.
+	 *
+	 * @param source the buffered upload
+	 * @return report of the conversion
+	 */
+	protected ConversionReport buildReport(Source source) {
+		ConversionReport conversionReport = qrdaService.convertQrda3ToQpp(source);
+		long start = System.nanoTime();
+		try {
+			validationService.validateQpp(conversionReport);
+		} finally {
+			time(conversionReport, Phase.QPP_VALIDATION, start);
+		}
 		return conversionReport;
 	}
 
+	/**
+	 * Buffers an upload so it can be replayed for conversion and auditing. Uploads larger than the spool threshold
+	 * are kept in a memory mapped temporary file, which is deleted once the current conversion completes.
+	 *
+	 * @param filename name of the upload
+	 * @param inputStream content of the upload
+	 * @param purpose the purpose for the conversion
+	 * @return a replayable source
+	 */
+	protected Source spool(String filename, InputStream inputStream, String purpose) {
+		SpooledSource source = buffer(filename, inputStream, purpose);
+		if (source.isSpooled()) {
+			RequestAttributes request = RequestContextHolder.getRequestAttributes();
+			if (request == null) {
+				API_LOG.warn("Spooled upload {} is not bound to a request and will not be deleted", filename);
+			} else {
+				request.registerDestructionCallback(SpooledSource.class.getName() + "." + UUID.randomUUID(),
+						source::close, RequestAttributes.SCOPE_REQUEST);
+			}
+		}
+		return source;
+	}
+
+	/**
+	 * Buffers an upload like {@link #spool(String, InputStream, String)}, leaving it to the caller to close the
+	 * source once it is no longer needed.
+	 *
+	 * @param filename name of the upload
+	 * @param inputStream content of the upload, read up to its end but not closed
+	 * @param purpose the purpose for the conversion
+	 * @return a replayable source
+	 */
+	protected SpooledSource buffer(String filename, InputStream inputStream, String purpose) {
+		return new SpooledSource(filename, inputStream, purpose, spoolThreshold);
+	}
+
 	/**
 	 * Input stream from a file
 	 *
@@ -113,12 +246,24 @@ public abstract class SkeletalQrdaController<T> {
 	}
 
 	protected Metadata audit(ConversionReport conversionReport) {
+		long start = System.nanoTime();
 		try {
 			CompletableFuture<Metadata> metadata = auditService.success(conversionReport);
 			return metadata == null ? null : metadata.get();
 		} catch (InterruptedException | ExecutionException exception) { //NOSONAR
 			throw new AuditException(exception);
+		} finally {
+			time(conversionReport, Phase.AUDIT, start);
+			long jsonBytes = conversionReport == null ? -1 : conversionReport.getRenderedQppBytes();
+			if (jsonBytes >= 0) {
+				conversionMetrics.rendered(conversionReport.getProgram(), jsonBytes);
+			}
 		}
 	}
 
+	private void time(ConversionReport conversionReport, Phase phase, long start) {
+		Program program = conversionReport == null ? Program.ALL : conversionReport.getProgram();
+		conversionMetrics.timed(program, phase, System.nanoTime() - start);
+	}
+
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package gov.cms.qpp.conversion.api.controllers.v1;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,16 +19,24 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.CpcFileStatusUpdateRequest;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.model.Report;
+import gov.cms.qpp.conversion.api.model.ResultPage;
 import gov.cms.qpp.conversion.api.model.Status;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
 import gov.cms.qpp.conversion.api.services.CpcFileService;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
 import gov.cms.qpp.conversion.util.EnvironmentHelper;
 
 /**
@@ -32,9 +44,12 @@ import gov.cms.qpp.conversion.util.EnvironmentHelper;
  */
 @RestController
 @RequestMapping("/cpc")
-@CrossOrigin(allowCredentials = "true")
+@CrossOrigin(allowCredentials = "true", exposedHeaders = CpcFileControllerV1.CONTINUATION_TOKEN_HEADER)
 public class CpcFileControllerV1 {
 
+	public static final String CONTINUATION_TOKEN_HEADER = "Continuation-Token";
+	static final int DEFAULT_PAGE_SIZE = 100;
+
 	private static final String BLOCKED_BY_FEATURE_FLAG =
 			"CPC+ unprocessed files request blocked by feature flag";
 	private static final Logger API_LOG = LoggerFactory.getLogger(CpcFileControllerV1.class);
@@ -51,13 +66,17 @@ public class CpcFileControllerV1 {
 	}
 
 	/**
-	 * Endpoint to transform an uploaded file into a valid or error json response
+	 * Endpoint to list the unprocessed CPC+ files.
+	 *
+	 * The whole list is streamed as a JSON array while it is read. A listing that fails before anything was sent is
+	 * answered with an error as usual; one that fails later ends the connection without closing the array, so it can
+	 * not be mistaken for the complete list.
 	 *
-	 * @return Valid json or error json content
+	 * @return the unprocessed files as a JSON array
 	 */
-	@GetMapping(value = "/unprocessed-files",
+	@GetMapping(value = "/unprocessed-files", params = {"!pageSize", "!continuationToken"},
 			headers = {"Accept=" + Constants.V1_API_ACCEPT})
-	public ResponseEntity<List<UnprocessedCpcFileData>> getUnprocessedCpcPlusFiles() {
+	public ResponseEntity<StreamingResponseBody> getUnprocessedCpcPlusFiles() {
 		API_LOG.info("CPC+ unprocessed files request received");
 
 		if (blockCpcPlusApi()) {
@@ -65,23 +84,95 @@ public class CpcFileControllerV1 {
 			return new ResponseEntity<>(null, null, HttpStatus.FORBIDDEN);
 		}
 
-		List<UnprocessedCpcFileData> unprocessedCpcFileDataList = cpcFileService.getUnprocessedCpcPlusFiles();
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output -> {
+			writeFiles(output);
+			API_LOG.info("CPC+ unprocessed files request succeeded");
+		});
+	}
 
-		API_LOG.info("CPC+ unprocessed files request succeeded");
+	/**
+	 * Endpoint to list a page of the unprocessed CPC+ files. The token of the next page is returned in the
+	 * {@value #CONTINUATION_TOKEN_HEADER} header when there is one.
+	 *
+	 * @param pageSize most files on the page
+	 * @param continuationToken token of the previous page
+	 * @return the unprocessed files on the page
+	 */
+	@GetMapping(value = "/unprocessed-files",
+			headers = {"Accept=" + Constants.V1_API_ACCEPT})
+	public ResponseEntity<List<UnprocessedCpcFileData>> getUnprocessedCpcPlusFilePage(
+			@RequestParam(value = "pageSize", required = false) Integer pageSize,
+			@RequestParam(value = "continuationToken", required = false) String continuationToken) {
+		API_LOG.info("CPC+ unprocessed files page request received");
 
-		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(unprocessedCpcFileDataList);
+		if (blockCpcPlusApi()) {
+			API_LOG.info(BLOCKED_BY_FEATURE_FLAG);
+			return new ResponseEntity<>(null, null, HttpStatus.FORBIDDEN);
+		}
+
+		ResultPage<UnprocessedCpcFileData> page = cpcFileService.getUnprocessedCpcPlusFiles(
+				pageSize == null ? DEFAULT_PAGE_SIZE : pageSize, continuationToken);
+
+		API_LOG.info("CPC+ unprocessed files page request succeeded");
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+		if (page.getContinuationToken() != null) {
+			response.header(CONTINUATION_TOKEN_HEADER, page.getContinuationToken());
+		}
+		return response.body(page.getItems());
+	}
+
+	/**
+	 * Writes the unprocessed files as a JSON array, flushing it after every page.
+	 *
+	 * @param output the response body
+	 * @throws IOException if the response can not be written, or the listing failed after a page was sent
+	 */
+	private void writeFiles(OutputStream output) throws IOException {
+		JsonGenerator generator = JsonWrapper.jsonMapper.getFactory().createGenerator(output);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.writeStartArray();
+		AtomicBoolean sent = new AtomicBoolean();
+		try {
+			cpcFileService.forEachUnprocessedCpcPlusFiles(page -> {
+				try {
+					for (UnprocessedCpcFileData file : page) {
+						generator.writeObject(file);
+					}
+					generator.flush();
+					sent.set(true);
+				} catch (IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			});
+		} catch (UncheckedIOException exception) {
+			throw exception.getCause();
+		} catch (RuntimeException exception) {
+			if (!sent.get()) {
+				throw exception;
+			}
+			// the status is sent, so the failure can only be told by ending the connection early
+			API_LOG.error("CPC+ unprocessed files request failed after the response started", exception);
+			throw new IOException("The unprocessed CPC+ files could not be listed", exception);
+		}
+		generator.writeEndArray();
+		generator.close();
 	}
 
 	/**
 	 * Retrieve a stored S3 submission object.
 	 *
+	 * An object stored gzip compressed is sent as is to a client that accepts gzip.
+	 *
 	 * @param fileId id for the stored object
+	 * @param acceptEncoding the content codings the client accepts
 	 * @return object json or xml content
 	 * @throws IOException if S3Object content stream is invalid
 	 */
 	@GetMapping(value = "/file/{fileId}",
 			headers = {"Accept=" + Constants.V1_API_ACCEPT})
-	public ResponseEntity<InputStreamResource> getFileById(@PathVariable("fileId") String fileId)
+	public ResponseEntity<InputStreamResource> getFileById(@PathVariable("fileId") String fileId,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
 			throws IOException {
 		API_LOG.info("CPC+ file retrieval request received for fileId {}", fileId);
 
@@ -90,6 +181,12 @@ public class CpcFileControllerV1 {
 			return new ResponseEntity<>(null, null, HttpStatus.FORBIDDEN);
 		}
 
+		if (acceptsGzip(acceptEncoding)) {
+			StoredFile file = cpcFileService.getFileById(fileId, true);
+			API_LOG.info("CPC+ file retrieval request succeeded");
+			return encoded(MediaType.APPLICATION_XML, file);
+		}
+
 		InputStreamResource content = cpcFileService.getFileById(fileId);
 
 		API_LOG.info("CPC+ file retrieval request succeeded");
@@ -100,13 +197,17 @@ public class CpcFileControllerV1 {
 	/**
 	 * Retrieve a stored S3 QPP object.
 	 *
+	 * An object stored gzip compressed is sent as is to a client that accepts gzip.
+	 *
 	 * @param fileId id for the stored object
+	 * @param acceptEncoding the content codings the client accepts
 	 * @return object json or xml content
 	 * @throws IOException if S3Object content stream is invalid
 	 */
 	@GetMapping(value = "/qpp/{fileId}",
 		headers = {"Accept=" + Constants.V1_API_ACCEPT})
-	public ResponseEntity<InputStreamResource> getQppById(@PathVariable("fileId") String fileId)
+	public ResponseEntity<InputStreamResource> getQppById(@PathVariable("fileId") String fileId,
+		@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
 		throws IOException {
 		API_LOG.info("CPC+ QPP retrieval request received for fileId {}", fileId);
 
@@ -115,6 +216,12 @@ public class CpcFileControllerV1 {
 			return new ResponseEntity<>(null, null, HttpStatus.FORBIDDEN);
 		}
 
+		if (acceptsGzip(acceptEncoding)) {
+			StoredFile file = cpcFileService.getQppById(fileId, true);
+			API_LOG.info("CPC+ QPP retrieval request succeeded for fileId {}", fileId);
+			return encoded(MediaType.APPLICATION_JSON, file);
+		}
+
 		InputStreamResource content = cpcFileService.getQppById(fileId);
 
 		API_LOG.info("CPC+ QPP retrieval request succeeded for fileId {}", fileId);
@@ -184,6 +291,57 @@ public class CpcFileControllerV1 {
 		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(report);
 	}
 
+	/**
+	 * Builds the response for a stored file, labelled with the content coding it is sent in.
+	 *
+	 * @param contentType media type of the file
+	 * @param file the stored file
+	 * @return the response
+	 */
+	private ResponseEntity<InputStreamResource> encoded(MediaType contentType, StoredFile file) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(contentType)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (file.getContentEncoding() != null) {
+			response.header(HttpHeaders.CONTENT_ENCODING, file.getContentEncoding());
+		}
+		return response.body(new InputStreamResource(file.getContent()));
+	}
+
+	/**
+	 * Whether an {@code Accept-Encoding} header accepts gzip.
+	 *
+	 * @param acceptEncoding the header, if any
+	 * @return true if gzip, or any coding, is accepted with a non zero quality
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			String name = parts[0].trim();
+			if (StoredFile.GZIP_ENCODING.equalsIgnoreCase(name) || "*".equals(name)) {
+				return !hasZeroQuality(parts);
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasZeroQuality(String... parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2)) == 0;
+				} catch (NumberFormatException exception) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Checks whether the the CPC+ APIs should not be allowed to execute.
 	 *
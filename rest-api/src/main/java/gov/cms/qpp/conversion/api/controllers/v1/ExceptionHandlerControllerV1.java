@@ -1,5 +1,7 @@
 package gov.cms.qpp.conversion.api.controllers.v1;
 
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidFileTypeException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidPurposeException;
 import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
@@ -122,6 +124,41 @@ public class ExceptionHandlerControllerV1 extends ResponseEntityExceptionHandler
 			.body(exception.getMessage());
 	}
 
+	/**
+	 * "Catch" the {@link InvalidContinuationTokenException}.
+	 * Return the message with an HTTP status 400.
+	 *
+	 * @param exception The InvalidContinuationTokenException that was "caught".
+	 * @return The InvalidContinuationTokenException message
+	 */
+	@ExceptionHandler(InvalidContinuationTokenException.class)
+	@ResponseBody
+	ResponseEntity<String> handleInvalidContinuationTokenException(InvalidContinuationTokenException exception) {
+		API_LOG.warn("An invalid continuation token was given: " + exception.getMessage());
+
+		return ResponseEntity.badRequest()
+			.contentType(MediaType.TEXT_PLAIN)
+			.body(exception.getMessage());
+	}
+
+	/**
+	 * "Catch" the {@link ConversionUnavailableException}.
+	 * Return the message with an HTTP status 503 and a Retry-After header.
+	 *
+	 * @param exception The ConversionUnavailableException that was "caught".
+	 * @return The ConversionUnavailableException message
+	 */
+	@ExceptionHandler(ConversionUnavailableException.class)
+	@ResponseBody
+	ResponseEntity<String> handleConversionUnavailableException(ConversionUnavailableException exception) {
+		API_LOG.warn("A conversion was unavailable: " + exception.getMessage());
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+			.header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+			.contentType(MediaType.TEXT_PLAIN)
+			.body(exception.getMessage());
+	}
+
 	private ResponseEntity<AllErrors> cope(TransformException exception) {
 		HttpHeaders httpHeaders = new HttpHeaders();
 		httpHeaders.setContentType(MediaType.APPLICATION_JSON);
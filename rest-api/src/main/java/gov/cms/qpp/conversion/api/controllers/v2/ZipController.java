@@ -1,34 +1,63 @@
 package gov.cms.qpp.conversion.api.controllers.v2;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.SpooledSource;
+import gov.cms.qpp.conversion.api.config.ConcurrencyConfig;
 import gov.cms.qpp.conversion.api.controllers.SkeletalQrdaController;
+import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
 import gov.cms.qpp.conversion.api.model.ConvertResponse;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ZipEntryResponse;
 import gov.cms.qpp.conversion.api.services.AuditService;
 import gov.cms.qpp.conversion.api.services.QrdaService;
 import gov.cms.qpp.conversion.api.services.ValidationService;
+import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.error.QppValidationException;
+import gov.cms.qpp.conversion.model.error.TransformException;
 
 @RestController
 @RequestMapping(path = "/", headers = {"Accept=application/zip"})
-public class ZipController extends SkeletalQrdaController<List<ConvertResponse>> {
+public class ZipController extends SkeletalQrdaController<StreamingResponseBody> {
+
+	public static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(ZipController.class);
+	private static final ObjectWriter LINE_WRITER = JsonWrapper.jsonMapper.copy()
+			.setSerializationInclusion(JsonInclude.Include.NON_NULL)
+			.writer();
+
+	@Autowired(required = false)
+	@Qualifier(ConcurrencyConfig.ZIP_EXECUTOR)
+	private Executor entryExecutor = Runnable::run;
 
 	/**
 	 * Constructor to super class to initialize fields
@@ -40,48 +69,258 @@ public class ZipController extends SkeletalQrdaController<List<ConvertResponse>>
 		super(qrdaService, validationService, auditService);
 	}
 
+	/**
+	 * Streams back one {@link ZipEntryResponse} line of newline delimited JSON per entry of the uploaded ZIP file.
+	 *
+	 * The entries are read from the upload one after another and converted concurrently on the
+	 * {@link ConcurrencyConfig#ZIP_EXECUTOR}. Each entry is written as soon as its conversion completes, whether or not
+	 * the upload is still being read, so the lines come in the order the entries complete. An entry that fails is written with its errors and does not stop the
+	 * other entries.
+	 *
+	 * @param file the uploaded ZIP file
+	 * @param checkedPurpose the purpose for the conversion
+	 * @param httpHeaders headers of the response
+	 * @return the streamed responses
+	 */
 	@Override
-	protected List<ConvertResponse> respond(MultipartFile file, String checkedPurpose, HttpHeaders httpHeaders) {
-		File tempFile = createTempFile(file);
-
-		try (ZipFile zipFile = new ZipFile(tempFile)) {
-			List<ConvertResponse> responses = zipFile.stream()
-					.map(entry -> buildResponseForEntry(zipFile, entry, checkedPurpose))
-					.collect(Collectors.toList());
-			if (!tempFile.delete()) {
-				API_LOG.warn("Uploaded zip temp file not deleted.");
+	protected StreamingResponseBody respond(MultipartFile file, String checkedPurpose, HttpHeaders httpHeaders) {
+		httpHeaders.setContentType(APPLICATION_NDJSON);
+		return output -> stream(file, checkedPurpose, output);
+	}
+
+	/**
+	 * Writes the response of every entry. The upload is read on the {@link ConcurrencyConfig#ZIP_EXECUTOR} while this
+	 * thread writes the responses as they complete, so a response is not held back by an entry that is still being
+	 * read or converted. Once the response can not be written, the client is gone, nothing more is written and no
+	 * further entries are read; the entries already submitted still complete and clean up after themselves.
+	 */
+	private void stream(MultipartFile file, String purpose, OutputStream output) {
+		EntryResponses responses = new EntryResponses(output);
+		Runnable reader = () -> read(file, purpose, responses);
+		try {
+			entryExecutor.execute(reader);
+		} catch (RejectedExecutionException exception) {
+			// the entry executor only rejects once it is shut down; the upload is then read on this thread
+			reader.run();
+		}
+
+		try {
+			responses.writeAll();
+		} catch (ResponseWriteException exception) {
+			API_LOG.warn("Stopped streaming the zip entry responses, the response could not be written",
+					exception.getCause());
+		} catch (InterruptedException exception) {
+			responses.stop();
+			Thread.currentThread().interrupt();
+			throw new UncheckedInterruptedException(exception);
+		}
+	}
+
+	/**
+	 * Submits the entries of the upload for conversion. An upload that can not be read is answered with an error line
+	 * after the entries read before it.
+	 */
+	private void read(MultipartFile file, String purpose, EntryResponses responses) {
+		String name = null;
+		try (ZipInputStream zip = new ZipInputStream(inputStream(file))) {
+			ZipEntry entry;
+			while (!responses.isStopped() && (entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				name = entry.getName();
+				SpooledSource source = buffer(name, zip, purpose);
+				responses.expect();
+				submit(source, responses);
+				responses.writeCompleted();
+			}
+		} catch (IOException | UncheckedIOException exception) {
+			if (!responses.isStopped()) {
+				API_LOG.error("Could not read the uploaded zip file after entry " + name, exception);
+				ZipEntryResponse unreadable = new ZipEntryResponse();
+				unreadable.setName(name);
+				unreadable.setStatus(HttpStatus.BAD_REQUEST.value());
+				unreadable.setMessage("Could not read the zip file: " + exception.getMessage());
+				responses.expect();
+				responses.add(unreadable);
 			}
-			return responses;
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
+		} catch (RuntimeException exception) {
+			responses.fail(exception);
+		} finally {
+			responses.end();
 		}
 	}
 
-	private File createTempFile(MultipartFile file) {
+	private void submit(SpooledSource source, EntryResponses responses) {
+		Runnable conversion = () -> {
+			try {
+				responses.add(convert(source));
+			} finally {
+				source.close();
+			}
+		};
+
 		try {
-			File tempFile = File.createTempFile("zipUpload", null);
-			file.transferTo(tempFile);
-			return tempFile;
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
+			entryExecutor.execute(conversion);
+		} catch (RejectedExecutionException exception) {
+			// the entry executor only rejects once it is shut down; the entry is still answered
+			conversion.run();
 		}
 	}
 
-	private ConvertResponse buildResponseForEntry(ZipFile zipFile, ZipEntry entry, String purpose) {
+	private ZipEntryResponse convert(Source source) {
+		ZipEntryResponse response = new ZipEntryResponse();
+		response.setName(source.getName());
 		try {
-			InputStream inputStream = zipFile.getInputStream(entry);
-			ConversionReport conversionReport = buildReport(entry.getName(), inputStream, purpose);
-			ConvertResponse response = new ConvertResponse();
-			response.setQpp(conversionReport.getEncodedWithMetadata().copyWithoutMetadata().toObject());
-			response.setWarnings(conversionReport.getWarnings());
-			Metadata metadata = audit(conversionReport);
-			if (null != metadata) {
-				response.setLocation(metadata.getUuid());
+			response.setResponse(buildResponse(buildReport(source)));
+			response.setStatus(HttpStatus.CREATED.value());
+		} catch (QppValidationException exception) {
+			API_LOG.error("Validation exception occurred for zip entry " + source.getName(), exception);
+			auditFailure(() -> auditService.failValidation(exception.getConversionReport()));
+			rejected(response, exception);
+		} catch (TransformException exception) {
+			API_LOG.error("Transform exception occurred for zip entry " + source.getName(), exception);
+			auditFailure(() -> auditService.failConversion(exception.getConversionReport()));
+			rejected(response, exception);
+		} catch (RuntimeException exception) {
+			API_LOG.error("Could not convert zip entry " + source.getName(), exception);
+			response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+			response.setMessage(exception.getMessage());
+		}
+		return response;
+	}
+
+	private ConvertResponse buildResponse(ConversionReport conversionReport) {
+		ConvertResponse response = new ConvertResponse();
+		response.setQpp(conversionReport.getEncodedWithMetadata().copyWithoutMetadata().toObject());
+		response.setWarnings(conversionReport.getWarnings());
+		Metadata metadata = audit(conversionReport);
+		if (null != metadata) {
+			response.setLocation(metadata.getUuid());
+		}
+		return response;
+	}
+
+	private static void rejected(ZipEntryResponse response, TransformException exception) {
+		ConversionReport report = exception.getConversionReport();
+		response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+		response.setMessage(exception.getMessage());
+		response.setErrors(report == null ? null : report.getReportDetails());
+	}
+
+	/**
+	 * Audits a failed entry and waits for the audit, as the entry is deleted once it is answered.
+	 */
+	private static void auditFailure(Supplier<CompletableFuture<Void>> audit) {
+		try {
+			CompletableFuture<Void> written = audit.get();
+			if (written != null) {
+				written.join();
 			}
-			return response;
-		} catch (IOException ex) {
-			throw new UncheckedIOException(ex);
+		} catch (RuntimeException exception) {
+			API_LOG.error("Could not audit a failed zip entry", exception);
 		}
 	}
 
+	/**
+	 * Hands the responses of the entries from the threads that read and convert the upload to the thread that writes
+	 * them. The reader announces every response it is going to add and marks the end of the upload, so the writer
+	 * knows when it has written them all.
+	 */
+	private static final class EntryResponses {
+		private static final ZipEntryResponse END = new ZipEntryResponse();
+
+		private final OutputStream output;
+		private final Thread writer = Thread.currentThread();
+		private final BlockingQueue<ZipEntryResponse> completed = new LinkedBlockingQueue<>();
+		private final AtomicInteger expected = new AtomicInteger();
+		private volatile boolean stopped;
+		private volatile RuntimeException failure;
+		private int written;
+
+		private EntryResponses(OutputStream output) {
+			this.output = output;
+		}
+
+		private void expect() {
+			expected.incrementAndGet();
+		}
+
+		private void add(ZipEntryResponse response) {
+			completed.add(response);
+		}
+
+		private void fail(RuntimeException failure) {
+			this.failure = failure;
+		}
+
+		private void end() {
+			completed.add(END);
+		}
+
+		private void stop() {
+			stopped = true;
+		}
+
+		private boolean isStopped() {
+			return stopped;
+		}
+
+		/**
+		 * Writes the responses completed so far if the upload is read on the writing thread, which happens when the
+		 * entry executor is busy or missing.
+		 */
+		private void writeCompleted() {
+			if (Thread.currentThread() != writer) {
+				return;
+			}
+			ZipEntryResponse response;
+			while ((response = completed.poll()) != null) {
+				write(response);
+			}
+		}
+
+		/**
+		 * Writes every response as it completes until the upload is read and all of its responses are written.
+		 *
+		 * @throws InterruptedException if interrupted while waiting for a response
+		 */
+		private void writeAll() throws InterruptedException {
+			boolean reading = true;
+			while (!stopped && (reading || written < expected.get())) {
+				ZipEntryResponse response = completed.take();
+				if (response == END) {
+					reading = false;
+				} else {
+					write(response);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		private void write(ZipEntryResponse response) {
+			try {
+				output.write(LINE_WRITER.writeValueAsBytes(response));
+				output.write('\n');
+				output.flush();
+				written++;
+			} catch (IOException exception) {
+				stopped = true;
+				throw new ResponseWriteException(exception);
+			}
+		}
+	}
+
+	/**
+	 * The response could not be written, as opposed to the upload not being readable.
+	 */
+	private static final class ResponseWriteException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ResponseWriteException(IOException cause) {
+			super(cause);
+		}
+	}
 }
@@ -0,0 +1,17 @@
+package gov.cms.qpp.conversion.api.exceptions;
+
+/**
+ * Thrown instead of attempting an action while its circuit is open, because the previous attempts of that action kept
+ * failing.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+	/**
+	 * Constructs this exception.
+	 *
+	 * @param actionName name of the action whose circuit is open
+	 */
+	public CircuitOpenException(String actionName) {
+		super("The circuit of action " + actionName + " is open");
+	}
+}
@@ -0,0 +1,29 @@
+package gov.cms.qpp.conversion.api.exceptions;
+
+/**
+ * Thrown when a conversion can not be completed in time, either because too many conversions are already waiting
+ * or because it timed out. Clients are told to retry later.
+ */
+public class ConversionUnavailableException extends RuntimeException {
+
+	private final long retryAfterSeconds;
+
+	/**
+	 * Constructs this exception.
+	 *
+	 * @param message why the conversion is unavailable
+	 * @param retryAfterSeconds seconds after which the client may retry
+	 * @param cause the cause, may be {@code null}
+	 */
+	public ConversionUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+		super(message, cause);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * @return seconds after which the client may retry
+	 */
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,15 @@
+package gov.cms.qpp.conversion.api.exceptions;
+
+/**
+ * Thrown when a continuation token was not issued by a paginated query.
+ */
+public class InvalidContinuationTokenException extends IllegalArgumentException {
+
+	/**
+	 * @param message describes what is wrong with the token
+	 * @param cause why the token could not be read, if any
+	 */
+	public InvalidContinuationTokenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,17 @@
+package gov.cms.qpp.conversion.api.exceptions;
+
+/**
+ * Thrown when DynamoDB leaves some of the items of a batch write unprocessed.
+ */
+public class UnprocessedItemsException extends RuntimeException {
+
+	/**
+	 * Constructs this exception.
+	 *
+	 * @param count number of items that were not written
+	 * @param cause the failure DynamoDB reported for the batch, if any
+	 */
+	public UnprocessedItemsException(int count, Throwable cause) {
+		super(count + " items of a batch write were not processed", cause);
+	}
+}
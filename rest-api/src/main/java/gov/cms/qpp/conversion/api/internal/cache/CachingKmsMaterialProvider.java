@@ -0,0 +1,228 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.EncryptionContext;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.materials.DecryptionMaterials;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.materials.EncryptionMaterials;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.providers.DirectKmsMaterialProvider;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.DecryptResult;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A {@link DirectKmsMaterialProvider} that reuses its KMS data keys instead of asking KMS for one per item.
+ *
+ * <p>A data key generated for encryption is reused for the items of its table until it is older than the time to
+ * live or has encrypted the maximum number of items. Such a shared key is bound to the table alone in its KMS
+ * encryption context, where {@link DirectKmsMaterialProvider} binds a key to the hash and range key of its single item.
+ * Items encrypted with a shared key say so in their material description, so that they are decrypted with the same
+ * encryption context. Items encrypted with a key of their own keep decrypting as before.
+ *
+ * <p>Decrypted data keys are cached for the same time to live, keyed by their material description and encryption
+ * context, so items that share a key, or an item that is read again, need a single KMS call.
+ */
+public class CachingKmsMaterialProvider extends DirectKmsMaterialProvider {
+
+	static final String DATA_KEY_SCOPE = "qpp-data-key-scope";
+	static final String TABLE_SCOPE = "table";
+	static final String KMS_REQUESTS_METRIC = "qpp.kms.requests";
+	static final String CACHE_REQUESTS_METRIC = "qpp.kms.cache.requests";
+	static final int DECRYPTION_CACHE_SIZE = 1000;
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(CachingKmsMaterialProvider.class);
+
+	private final long ttlNanos;
+	private final int maxUses;
+	private final LongSupplier clock;
+	private final ConcurrentMap<String, DataKey> encryptionKeys = new ConcurrentHashMap<>();
+	private final Cache<List<Map<String, String>>, DecryptionMaterials> decryptionKeys;
+	private final Counter generateDataKeyRequests;
+	private final Counter decryptRequests;
+	private final Counter encryptionHits;
+	private final Counter encryptionMisses;
+	private final Counter decryptionHits;
+	private final Counter decryptionMisses;
+
+	/**
+	 * Creates a provider.
+	 *
+	 * @param kms the KMS client
+	 * @param encryptionKeyId the KMS key that protects the data keys
+	 * @param ttl how long a data key is used and cached after KMS handed it out
+	 * @param maxUses most items encrypted with the same data key
+	 * @param meterRegistry registry for the KMS and cache metrics
+	 */
+	public CachingKmsMaterialProvider(AWSKMS kms, String encryptionKeyId, Duration ttl, int maxUses,
+			MeterRegistry meterRegistry) {
+		this(kms, encryptionKeyId, ttl, maxUses, meterRegistry, System::nanoTime);
+	}
+
+	CachingKmsMaterialProvider(AWSKMS kms, String encryptionKeyId, Duration ttl, int maxUses,
+			MeterRegistry meterRegistry, LongSupplier clock) {
+		super(kms, encryptionKeyId, Collections.singletonMap(DATA_KEY_SCOPE, TABLE_SCOPE));
+		Objects.requireNonNull(meterRegistry, "meterRegistry");
+		Objects.requireNonNull(clock, "clock");
+
+		this.ttlNanos = ttl.toNanos();
+		this.maxUses = Math.max(maxUses, 1);
+		this.clock = clock;
+		this.decryptionKeys = CacheBuilder.newBuilder()
+				.maximumSize(DECRYPTION_CACHE_SIZE)
+				.expireAfterWrite(ttlNanos, TimeUnit.NANOSECONDS)
+				.ticker(new ClockTicker(clock))
+				.build();
+
+		generateDataKeyRequests = meterRegistry.counter(KMS_REQUESTS_METRIC, "operation", "GenerateDataKey");
+		decryptRequests = meterRegistry.counter(KMS_REQUESTS_METRIC, "operation", "Decrypt");
+		encryptionHits = meterRegistry.counter(CACHE_REQUESTS_METRIC, "operation", "encrypt", "result", "hit");
+		encryptionMisses = meterRegistry.counter(CACHE_REQUESTS_METRIC, "operation", "encrypt", "result", "miss");
+		decryptionHits = meterRegistry.counter(CACHE_REQUESTS_METRIC, "operation", "decrypt", "result", "hit");
+		decryptionMisses = meterRegistry.counter(CACHE_REQUESTS_METRIC, "operation", "decrypt", "result", "miss");
+		API_LOG.info("Reusing KMS data keys for up to {} items for {}", this.maxUses, ttl);
+	}
+
+	/**
+	 * Returns the current data key of the context's table, asking KMS for a new one once it is used up.
+	 *
+	 * @param context the item to encrypt
+	 * @return the materials of the current data key
+	 */
+	@Override
+	public EncryptionMaterials getEncryptionMaterials(EncryptionContext context) {
+		String table = String.valueOf(context.getTableName());
+		DataKey current = encryptionKeys.get(table);
+		if (current != null && current.use(clock.getAsLong())) {
+			encryptionHits.increment();
+			return current.materials;
+		}
+
+		synchronized (this) {
+			long now = clock.getAsLong();
+			current = encryptionKeys.get(table);
+			if (current != null && current.use(now)) {
+				encryptionHits.increment();
+				return current.materials;
+			}
+
+			encryptionMisses.increment();
+			DataKey generated = new DataKey(super.getEncryptionMaterials(tableScoped(context)), now);
+			generated.use(now);
+			encryptionKeys.put(table, generated);
+			return generated.materials;
+		}
+	}
+
+	/**
+	 * Returns the data key of an item, asking KMS to decrypt it unless it was decrypted recently.
+	 *
+	 * @param context the item to decrypt
+	 * @return the materials of the item's data key
+	 */
+	@Override
+	public DecryptionMaterials getDecryptionMaterials(EncryptionContext context) {
+		EncryptionContext scoped = TABLE_SCOPE.equals(context.getMaterialDescription().get(DATA_KEY_SCOPE))
+				? tableScoped(context) : context;
+		Map<String, String> kmsContext = new HashMap<>();
+		populateKmsEcFromEc(scoped, kmsContext);
+		List<Map<String, String>> key = Arrays.asList(context.getMaterialDescription(), kmsContext);
+
+		DecryptionMaterials cached = decryptionKeys.getIfPresent(key);
+		if (cached != null) {
+			decryptionHits.increment();
+			return cached;
+		}
+
+		decryptionMisses.increment();
+		DecryptionMaterials materials = super.getDecryptionMaterials(scoped);
+		decryptionKeys.put(key, materials);
+		return materials;
+	}
+
+	/**
+	 * Forgets every cached data key.
+	 */
+	@Override
+	public void refresh() {
+		encryptionKeys.clear();
+		decryptionKeys.invalidateAll();
+	}
+
+	@Override
+	protected GenerateDataKeyResult generateDataKey(GenerateDataKeyRequest request, EncryptionContext context) {
+		generateDataKeyRequests.increment();
+		return super.generateDataKey(request, context);
+	}
+
+	@Override
+	protected DecryptResult decrypt(DecryptRequest request, EncryptionContext context) {
+		decryptRequests.increment();
+		return super.decrypt(request, context);
+	}
+
+	/**
+	 * The context without the item's keys, so that a data key is bound to the table alone.
+	 */
+	private static EncryptionContext tableScoped(EncryptionContext context) {
+		return new EncryptionContext.Builder(context)
+				.withHashKeyName(null)
+				.withRangeKeyName(null)
+				.build();
+	}
+
+	/**
+	 * Reads the clock the data keys are aged by.
+	 */
+	private static final class ClockTicker extends Ticker {
+		private final LongSupplier clock;
+
+		private ClockTicker(LongSupplier clock) {
+			this.clock = clock;
+		}
+
+		@Override
+		public long read() {
+			return clock.getAsLong();
+		}
+	}
+
+	/**
+	 * A data key handed out for encryption and the number of items it encrypted.
+	 */
+	private final class DataKey {
+		private final EncryptionMaterials materials;
+		private final long created;
+		private final AtomicInteger uses = new AtomicInteger();
+
+		private DataKey(EncryptionMaterials materials, long created) {
+			this.materials = materials;
+			this.created = created;
+		}
+
+		private boolean use(long now) {
+			return now - created < ttlNanos && uses.incrementAndGet() <= maxUses;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.model.error.TransformException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Optional cache of conversion results, addressed by the SHA-256 of the QRDA content and a version describing
+ * everything else the conversion depends on. Identical uploads that arrive while the first is still converting
+ * wait for that conversion instead of starting their own.
+ *
+ * <p>Conversions that fail with validation errors are cached like successes. Unexpected failures are not.
+ * Every caller receives its own {@link ConversionReport#copyFor(Source) copy} of the cached report,
+ * so the report can be attributed to the caller's upload and mutated by QPP validation without affecting others.
+ */
+@Component
+public class ConversionCache {
+
+	static final long DEFAULT_TTL_MINUTES = 60;
+	static final String REQUESTS_METRIC = "qpp.conversion.cache.requests";
+	static final String SIZE_METRIC = "qpp.conversion.cache.size";
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(ConversionCache.class);
+
+	private final Cache<String, Entry> completed;
+	private final ConcurrentMap<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter coalesced;
+
+	/**
+	 * Configures the cache from the {@link Constants#CONVERSION_CACHE_MAX_BYTES_ENV_VARIABLE} and
+	 * {@link Constants#CONVERSION_CACHE_TTL_MINUTES_ENV_VARIABLE} environment variables.
+	 * The cache is disabled unless a positive maximum size is given.
+	 *
+	 * @param environment hooks to application environment
+	 * @param meterRegistry registry for the cache metrics
+	 */
+	@Autowired
+	public ConversionCache(Environment environment, MeterRegistry meterRegistry) {
+		this(environment.getProperty(Constants.CONVERSION_CACHE_MAX_BYTES_ENV_VARIABLE, Long.class, 0L),
+				environment.getProperty(Constants.CONVERSION_CACHE_TTL_MINUTES_ENV_VARIABLE, Long.class,
+						DEFAULT_TTL_MINUTES),
+				meterRegistry);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maximumBytes total size of the uploads whose results may be cached, zero or less to disable caching
+	 * @param ttlMinutes how long a result is reused after it was converted
+	 * @param meterRegistry registry for the cache metrics
+	 */
+	public ConversionCache(long maximumBytes, long ttlMinutes, MeterRegistry meterRegistry) {
+		if (maximumBytes > 0) {
+			// a single segment so an upload may use the whole budget, lookups are cheap next to a conversion
+			completed = CacheBuilder.newBuilder()
+					.concurrencyLevel(1)
+					.maximumWeight(maximumBytes)
+					.weigher((String key, Entry entry) -> entry.weight)
+					.expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+					.build();
+			API_LOG.info("Caching conversion results for up to {} bytes of uploads for {} minutes",
+					maximumBytes, ttlMinutes);
+		} else {
+			completed = null;
+		}
+
+		hits = meterRegistry.counter(REQUESTS_METRIC, "result", "hit");
+		misses = meterRegistry.counter(REQUESTS_METRIC, "result", "miss");
+		coalesced = meterRegistry.counter(REQUESTS_METRIC, "result", "coalesced");
+		Gauge.builder(SIZE_METRIC, this, ConversionCache::size).register(meterRegistry);
+	}
+
+	/**
+	 * Whether results are cached at all.
+	 *
+	 * @return true when a positive maximum size was configured
+	 */
+	public boolean isEnabled() {
+		return completed != null;
+	}
+
+	/**
+	 * Returns the cached result for the source's content, converting it when there is none.
+	 *
+	 * @param source the QRDA to convert
+	 * @param version identifies the measure data, conversion options and CPC+ validation data the conversion uses
+	 * @param conversion performs the conversion on a miss
+	 * @return a report for the given source
+	 * @throws TransformException when the conversion has errors, cached or not
+	 */
+	public ConversionReport convert(Source source, String version, Function<Source, ConversionReport> conversion) {
+		if (!isEnabled()) {
+			return conversion.apply(source);
+		}
+
+		String key = hash(source) + ":" + version;
+		Entry entry = completed.getIfPresent(key);
+		if (entry != null) {
+			hits.increment();
+			return entry.replay(source);
+		}
+
+		CompletableFuture<Entry> flight = new CompletableFuture<>();
+		CompletableFuture<Entry> leader = inFlight.putIfAbsent(key, flight);
+		if (leader != null) {
+			coalesced.increment();
+			return await(leader, source, conversion);
+		}
+
+		misses.increment();
+		try {
+			entry = Entry.convert(source, conversion);
+			completed.put(key, entry);
+			flight.complete(entry);
+		} catch (RuntimeException | Error failure) {
+			flight.completeExceptionally(failure);
+			throw failure;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+		return entry.replay(source);
+	}
+
+	long size() {
+		return completed == null ? 0 : completed.size();
+	}
+
+	private static ConversionReport await(CompletableFuture<Entry> leader, Source source,
+			Function<Source, ConversionReport> conversion) {
+		try {
+			return leader.get().replay(source);
+		} catch (ExecutionException uncacheable) {
+			API_LOG.debug("Coalesced conversion failed unexpectedly, converting {} independently", source.getName());
+			return conversion.apply(source);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedInterruptedException(exception);
+		}
+	}
+
+	private static String hash(Source source) {
+		try (InputStream content = source.toInputStream();
+				HashingInputStream hashing = new HashingInputStream(Hashing.sha256(), content)) {
+			ByteStreams.exhaust(hashing);
+			return hashing.hash().toString();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * A pristine conversion report that is never handed out itself.
+	 */
+	private static final class Entry {
+		private final ConversionReport report;
+		private final String failure;
+		private final int weight;
+
+		private Entry(ConversionReport report, String failure, long size) {
+			this.report = report;
+			this.failure = failure;
+			this.weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, size));
+		}
+
+		private static Entry convert(Source source, Function<Source, ConversionReport> conversion) {
+			try {
+				return new Entry(conversion.apply(source), null, source.getSize());
+			} catch (TransformException exception) {
+				if (exception.getCause() != null || exception.getConversionReport() == null) {
+					throw exception;
+				}
+				return new Entry(exception.getConversionReport(), exception.getMessage(), source.getSize());
+			}
+		}
+
+		private ConversionReport replay(Source source) {
+			ConversionReport copy = report.copyFor(source);
+			if (failure != null) {
+				throw new TransformException(failure, null, copy);
+			}
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Optional cache of QPP validation results, addressed by the SHA-256 of the validation URL and the QPP JSON that is
+ * posted to it. Re-uploads and test submissions that convert to the same QPP are answered without calling the
+ * validation API again.
+ *
+ * <p>A result keeps the status of the response, and for a failed validation its body. The errors in the body are
+ * mapped to the QRDA of every caller, since QRDA that differ in layout can convert to the same QPP.
+ */
+@Component
+public class ValidationCache {
+
+	static final long DEFAULT_TTL_MINUTES = 60;
+	static final String REQUESTS_METRIC = "qpp.validation.cache.requests";
+	static final String SIZE_METRIC = "qpp.validation.cache.size";
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(ValidationCache.class);
+
+	private final Cache<String, Result> results;
+	private final boolean successesOnly;
+	private final Counter hits;
+	private final Counter misses;
+
+	/**
+	 * Configures the cache from the {@link Constants#VALIDATION_CACHE_MAX_ENTRIES_ENV_VARIABLE},
+	 * {@link Constants#VALIDATION_CACHE_TTL_MINUTES_ENV_VARIABLE} and
+	 * {@link Constants#VALIDATION_CACHE_SUCCESSES_ONLY_ENV_VARIABLE} environment variables.
+	 * The cache is disabled unless a positive maximum number of entries is given.
+	 *
+	 * @param environment hooks to application environment
+	 * @param meterRegistry registry for the cache metrics
+	 */
+	@Autowired
+	public ValidationCache(Environment environment, MeterRegistry meterRegistry) {
+		this(environment.getProperty(Constants.VALIDATION_CACHE_MAX_ENTRIES_ENV_VARIABLE, Long.class, 0L),
+				environment.getProperty(Constants.VALIDATION_CACHE_TTL_MINUTES_ENV_VARIABLE, Long.class,
+						DEFAULT_TTL_MINUTES),
+				environment.getProperty(Constants.VALIDATION_CACHE_SUCCESSES_ONLY_ENV_VARIABLE, Boolean.class,
+						Boolean.FALSE),
+				meterRegistry);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maximumEntries most results kept, zero or less to disable caching
+	 * @param ttlMinutes how long a result is reused after the validation API returned it
+	 * @param successesOnly whether failed validations are left out of the cache
+	 * @param meterRegistry registry for the cache metrics
+	 */
+	public ValidationCache(long maximumEntries, long ttlMinutes, boolean successesOnly, MeterRegistry meterRegistry) {
+		if (maximumEntries > 0) {
+			results = CacheBuilder.newBuilder()
+					.maximumSize(maximumEntries)
+					.expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+					.build();
+			API_LOG.info("Caching up to {} {}QPP validation results for {} minutes",
+					maximumEntries, successesOnly ? "successful " : "", ttlMinutes);
+		} else {
+			results = null;
+		}
+		this.successesOnly = successesOnly;
+
+		hits = meterRegistry.counter(REQUESTS_METRIC, "result", "hit");
+		misses = meterRegistry.counter(REQUESTS_METRIC, "result", "miss");
+		Gauge.builder(SIZE_METRIC, this, ValidationCache::size).register(meterRegistry);
+	}
+
+	/**
+	 * Whether results are cached at all.
+	 *
+	 * @return true when a positive maximum number of entries was configured
+	 */
+	public boolean isEnabled() {
+		return results != null;
+	}
+
+	/**
+	 * Returns the cached result of validating the QPP at the URL, validating it when there is none.
+	 *
+	 * @param url the validation API end-point
+	 * @param qpp the QPP JSON that is posted
+	 * @param validation calls the validation API on a miss, returns {@code null} when it could not be called
+	 * @return the result, {@code null} when the validation API could not be called
+	 */
+	public Result validate(String url, String qpp, Supplier<Result> validation) {
+		if (!isEnabled()) {
+			return validation.get();
+		}
+
+		String key = Hashing.sha256().newHasher()
+				.putString(url, StandardCharsets.UTF_8)
+				.putByte((byte) 0)
+				.putString(qpp, StandardCharsets.UTF_8)
+				.hash().toString();
+		Result cached = results.getIfPresent(key);
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+
+		misses.increment();
+		Result result = validation.get();
+		if (result != null && (!result.isFailed() || !successesOnly)) {
+			results.put(key, result);
+		}
+		return result;
+	}
+
+	long size() {
+		return results == null ? 0 : results.size();
+	}
+
+	/**
+	 * What the validation API answered for a QPP.
+	 */
+	public static final class Result {
+		private final int status;
+		private final String body;
+
+		/**
+		 * @param status HTTP status of the response
+		 * @param body body of the response to a failed validation, {@code null} when it passed
+		 */
+		public Result(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getBody() {
+			return body;
+		}
+
+		/**
+		 * @return whether the validation API rejected the QPP
+		 */
+		public boolean isFailed() {
+			return status == HttpStatus.UNPROCESSABLE_ENTITY.value();
+		}
+	}
+}
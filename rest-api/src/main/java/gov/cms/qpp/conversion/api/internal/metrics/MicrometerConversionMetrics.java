@@ -0,0 +1,108 @@
+package gov.cms.qpp.conversion.api.internal.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import gov.cms.qpp.conversion.ConversionMetrics;
+import gov.cms.qpp.conversion.ConversionStatistics;
+import gov.cms.qpp.conversion.model.Program;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes conversion timings and sizes to Micrometer, tagged by the endpoint that handled the request
+ * and the program of the submission.
+ */
+@Component
+public class MicrometerConversionMetrics implements ConversionMetrics {
+
+	static final String PHASE_METRIC = "qpp.conversion.phase";
+	static final String INPUT_BYTES_METRIC = "qpp.conversion.input.bytes";
+	static final String NODES_METRIC = "qpp.conversion.nodes";
+	static final String JSON_BYTES_METRIC = "qpp.conversion.json.bytes";
+	static final String ERRORS_METRIC = "qpp.conversion.errors";
+	static final String WARNINGS_METRIC = "qpp.conversion.warnings";
+	static final String NO_ENDPOINT = "none";
+
+	private final MeterRegistry meterRegistry;
+
+	/**
+	 * @param meterRegistry registry to publish to
+	 */
+	public MicrometerConversionMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void converted(ConversionStatistics statistics) {
+		Tags tags = tags(statistics.getProgram());
+		for (Phase phase : Phase.values()) {
+			long nanos = statistics.getNanos(phase);
+			if (nanos > 0) {
+				timer(tags, phase).record(nanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		summary(INPUT_BYTES_METRIC, "bytes", tags).record(statistics.getInputBytes());
+		summary(ERRORS_METRIC, null, tags).record(statistics.getErrorCount());
+		summary(WARNINGS_METRIC, null, tags).record(statistics.getWarningCount());
+		if (statistics.isSuccessful()) {
+			summary(NODES_METRIC, null, tags).record(statistics.getNodeCount());
+		}
+	}
+
+	@Override
+	public void rendered(Program program, long jsonBytes) {
+		summary(JSON_BYTES_METRIC, "bytes", tags(program)).record(jsonBytes);
+	}
+
+	@Override
+	public void timed(Program program, Phase phase, long nanos) {
+		timer(tags(program), phase).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer timer(Tags tags, Phase phase) {
+		return Timer.builder(PHASE_METRIC)
+				.tags(tags)
+				.tag("phase", phase.name().toLowerCase(Locale.ENGLISH))
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+	private DistributionSummary summary(String name, String unit, Tags tags) {
+		return DistributionSummary.builder(name)
+				.baseUnit(unit)
+				.tags(tags)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+	private static Tags tags(Program program) {
+		return Tags.of("endpoint", endpoint(), "program", program.name().toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Names the controller method handling the current request, the path alone does not tell
+	 * the API versions apart.
+	 *
+	 * @return the handler name, or {@link #NO_ENDPOINT} outside of a request
+	 */
+	private static String endpoint() {
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		Object handler = request == null ? null
+				: request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (handler instanceof HandlerMethod) {
+			HandlerMethod method = (HandlerMethod) handler;
+			return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+		}
+		return NO_ENDPOINT;
+	}
+}
@@ -0,0 +1,50 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+/**
+ * The files stored in S3 for an audited conversion, each with the {@link Metadata} locator that points at it.
+ *
+ * The ordinals are written to the journal of the {@link AuditOutbox}, so constants are only ever added at the end.
+ */
+public enum Artifact {
+	SUBMISSION(Metadata::setSubmissionLocator),
+	QPP(Metadata::setQppLocator),
+	CONVERSION_ERRORS(Metadata::setConversionErrorLocator),
+	VALIDATION_ERRORS(Metadata::setValidationErrorLocator),
+	RAW_VALIDATION_ERRORS(Metadata::setRawValidationErrorLocator);
+
+	private static final Artifact[] VALUES = values();
+
+	private final BiConsumer<Metadata, String> locator;
+	private final String partName;
+
+	Artifact(BiConsumer<Metadata, String> locator) {
+		this.locator = locator;
+		this.partName = name().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * @return name of the artifact as a part of a bundled S3 object
+	 */
+	public String getPartName() {
+		return partName;
+	}
+
+	/**
+	 * Points the metadata at the stored artifact.
+	 *
+	 * @param metadata the metadata of the conversion
+	 * @param location the S3 key of the artifact
+	 */
+	public void locate(Metadata metadata, String location) {
+		locator.accept(metadata, location);
+	}
+
+	static Artifact fromOrdinal(int ordinal) {
+		return VALUES[ordinal];
+	}
+}
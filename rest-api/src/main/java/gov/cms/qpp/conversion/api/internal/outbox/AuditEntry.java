@@ -0,0 +1,120 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+
+import gov.cms.qpp.conversion.SkeletalSource;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+/**
+ * An audit that was journaled but not yet written to S3 and DynamoDB. Its artifacts are read from the journal and
+ * decrypted as they are read. The metadata is the entry's own copy, so the caller of the journal may keep using the
+ * instance it journaled while the entry is written.
+ */
+final class AuditEntry {
+
+	private final long id;
+	private final Metadata metadata;
+	private final Map<Artifact, ByteBuffer> artifacts;
+	private final AuditJournal.Segment segment;
+	private int failures;
+
+	AuditEntry(long id, Metadata metadata, EnumMap<Artifact, ByteBuffer> artifacts, AuditJournal.Segment segment) {
+		this.id = id;
+		this.metadata = metadata;
+		this.artifacts = artifacts;
+		this.segment = segment;
+	}
+
+	/**
+	 * @return identifies the entry in the journal
+	 */
+	long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the metadata to write once the artifacts are stored
+	 */
+	Metadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * @return the journaled artifacts
+	 */
+	Set<Artifact> getArtifacts() {
+		return Collections.unmodifiableSet(artifacts.keySet());
+	}
+
+	/**
+	 * @param artifact a journaled artifact
+	 * @return a new stream over the content of the artifact
+	 */
+	InputStream open(Artifact artifact) {
+		return JournalCipher.decrypting(segment.getKey(), artifacts.get(artifact));
+	}
+
+	/**
+	 * @param artifact a journaled artifact
+	 * @return size of the artifact in bytes
+	 */
+	long size(Artifact artifact) {
+		return artifacts.get(artifact).remaining() - JournalCipher.IV_BYTES;
+	}
+
+	/**
+	 * @param artifact a journaled artifact
+	 * @return the content of the artifact as a {@link Source}
+	 */
+	Source source(Artifact artifact) {
+		return new JournaledSource(artifact.getPartName(), segment.getKey(), artifacts.get(artifact));
+	}
+
+	AuditJournal.Segment getSegment() {
+		return segment;
+	}
+
+	/**
+	 * @return failed attempts to drain this entry so far, including this one
+	 */
+	int failed() {
+		return ++failures;
+	}
+
+	/**
+	 * The content of a journaled artifact.
+	 */
+	private static final class JournaledSource extends SkeletalSource {
+		private final SecretKey key;
+		private final ByteBuffer content;
+
+		private JournaledSource(String name, SecretKey key, ByteBuffer content) {
+			super(name);
+			this.key = key;
+			this.content = content;
+		}
+
+		@Override
+		public InputStream toInputStream() {
+			return JournalCipher.decrypting(key, content);
+		}
+
+		@Override
+		public long getSize() {
+			return content.remaining() - JournalCipher.IV_BYTES;
+		}
+
+		@Override
+		public String getPurpose() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+/**
+ * An append-only journal of audits, kept in memory mapped segment files of a directory.
+ *
+ * Each record is preceded by its length and a CRC32 of its content. The length is written last, so a record that
+ * was cut short by a crash reads as the end of its segment. An entry record holds the {@link Metadata} and the
+ * artifacts of an audit; a done record marks an entry as written to S3 and DynamoDB. Segments are deleted, oldest
+ * first, once every entry in them is done.
+ *
+ * The audits hold submissions and TINs, so they are never written in plaintext. Every segment starts with a key
+ * record holding its own data key from the {@link JournalKeys}, in encrypted form, and the metadata and artifacts of
+ * its entries are encrypted with that key by the {@link JournalCipher}.
+ *
+ * Opening a journal maps the segments that are already in the directory and recovers the entries without a done
+ * record. New records always go to a new segment.
+ */
+final class AuditJournal implements Closeable {
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(AuditJournal.class);
+	private static final String SUFFIX = ".journal";
+	private static final int HEADER_BYTES = Integer.BYTES * 2;
+	private static final byte ENTRY = 1;
+	private static final byte DONE = 2;
+	private static final byte KEY = 3;
+	private static final int DONE_BYTES = 1 + Long.BYTES;
+	private static final int COPY_BYTES = 8192;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final boolean sync;
+	private final JournalKeys keys;
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private final List<AuditEntry> recovered;
+	private Segment active;
+	private long nextSequence;
+
+	/**
+	 * Opens the journal in a directory, creating the directory if needed, and recovers its pending entries.
+	 *
+	 * @param directory directory of the segment files
+	 * @param segmentBytes size of a segment, larger entries get a segment of their own
+	 * @param sync whether every record is forced to the storage device before it is acknowledged
+	 * @param keys supplies the data keys of the segments
+	 * @throws IOException if the directory can not be read or the data key of a segment can not be decrypted
+	 */
+	AuditJournal(Path directory, int segmentBytes, boolean sync, JournalKeys keys) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.segmentBytes = segmentBytes;
+		this.sync = sync;
+		this.keys = keys;
+
+		List<Path> files;
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing.filter(file -> String.valueOf(file.getFileName()).endsWith(SUFFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+
+		Map<Long, AuditEntry> pending = new LinkedHashMap<>();
+		for (Path file : files) {
+			long sequence = Long.parseLong(String.valueOf(file.getFileName()).replace(SUFFIX, ""));
+			Segment segment = new Segment(file, sequence, map(file, Files.size(file)));
+			segment.sealed = true;
+			segments.add(segment);
+			scan(segment, pending);
+			nextSequence = sequence + 1;
+		}
+		releaseCompleted();
+		recovered = new ArrayList<>(pending.values());
+	}
+
+	/**
+	 * @return the entries that were journaled but not done when the journal was opened
+	 */
+	List<AuditEntry> getRecovered() {
+		return Collections.unmodifiableList(recovered);
+	}
+
+	/**
+	 * Journals an audit.
+	 *
+	 * @param metadata the metadata of the audit, which the entry holds a copy of
+	 * @param artifacts the content to store for the audit
+	 * @return the journaled entry
+	 * @throws IOException if the entry could not be written
+	 */
+	synchronized AuditEntry append(Metadata metadata, Map<Artifact, Source> artifacts) throws IOException {
+		byte[] encoded = MetadataCodec.encode(metadata);
+		long length = 1L + Integer.BYTES + JournalCipher.IV_BYTES + encoded.length + 1;
+		for (Source source : artifacts.values()) {
+			length += 1 + Long.BYTES + JournalCipher.IV_BYTES + source.getSize();
+		}
+		if (length > Integer.MAX_VALUE - HEADER_BYTES) {
+			throw new IOException("An audit of " + length + " bytes is too large to journal");
+		}
+
+		Segment segment = reserve(HEADER_BYTES + (int) length);
+		ByteBuffer buffer = segment.buffer;
+		int start = buffer.position();
+		EnumMap<Artifact, ByteBuffer> slices = new EnumMap<>(Artifact.class);
+		try {
+			buffer.putInt(0).putInt(0).put(ENTRY).putInt(JournalCipher.IV_BYTES + encoded.length);
+			seal(segment, encoded, buffer);
+			buffer.put((byte) artifacts.size());
+			for (Map.Entry<Artifact, Source> artifact : artifacts.entrySet()) {
+				long size = artifact.getValue().getSize();
+				buffer.put((byte) artifact.getKey().ordinal()).putLong(size);
+				int contentStart = buffer.position();
+				copy(artifact.getValue(), segment, buffer, size);
+				slices.put(artifact.getKey(), slice(buffer, contentStart, JournalCipher.IV_BYTES + (int) size));
+			}
+		} catch (IOException | RuntimeException exception) {
+			abandon(buffer, start);
+			throw exception;
+		}
+		commit(segment, start);
+		segment.outstanding++;
+		return new AuditEntry(id(segment, start), MetadataCodec.decode(encoded), slices, segment);
+	}
+
+	/**
+	 * Marks an entry as done, deleting the segments that only hold done entries.
+	 *
+	 * @param entry an entry of this journal
+	 * @throws IOException if the done record could not be written
+	 */
+	synchronized void complete(AuditEntry entry) throws IOException {
+		Segment segment = reserve(HEADER_BYTES + DONE_BYTES);
+		int start = segment.buffer.position();
+		segment.buffer.putInt(0).putInt(0).put(DONE).putLong(entry.getId());
+		commit(segment, start);
+
+		entry.getSegment().outstanding--;
+		releaseCompleted();
+	}
+
+	/**
+	 * @return number of segment files in the journal
+	 */
+	synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Forces the records to the storage device. The segments stay mapped for the entries that are still read.
+	 */
+	@Override
+	public synchronized void close() {
+		for (Segment segment : segments) {
+			segment.buffer.force();
+		}
+	}
+
+	private Segment reserve(int bytes) throws IOException {
+		if (active != null && active.buffer.remaining() >= bytes) {
+			return active;
+		}
+
+		if (active != null) {
+			active.sealed = true;
+			active = null;
+		}
+		JournalKeys.DataKey dataKey = keys.generate();
+		byte[] encryptedKey = dataKey.getEncrypted();
+		int keyBytes = HEADER_BYTES + 1 + Integer.BYTES + encryptedKey.length;
+
+		long sequence = nextSequence++;
+		Path file = directory.resolve(String.format(Locale.ENGLISH, "%019d", sequence) + SUFFIX);
+		Files.createFile(file);
+		Segment segment = new Segment(file, sequence, map(file, Math.max(segmentBytes, keyBytes + bytes)));
+		segment.key = dataKey.getKey();
+		segments.add(segment);
+		int start = segment.buffer.position();
+		segment.buffer.putInt(0).putInt(0).put(KEY).putInt(encryptedKey.length).put(encryptedKey);
+		commit(segment, start);
+		active = segment;
+		releaseCompleted();
+		return active;
+	}
+
+	private void commit(Segment segment, int start) {
+		ByteBuffer buffer = segment.buffer;
+		int end = buffer.position();
+		buffer.putInt(start + Integer.BYTES, crc(buffer, start + HEADER_BYTES, end));
+		buffer.putInt(start, end - start - HEADER_BYTES);
+		if (sync) {
+			segment.buffer.force();
+		}
+	}
+
+	private static void abandon(ByteBuffer buffer, int start) {
+		int end = buffer.position();
+		for (int position = start; position < end; position++) {
+			buffer.put(position, (byte) 0);
+		}
+		buffer.position(start);
+	}
+
+	private void releaseCompleted() {
+		while (!segments.isEmpty() && segments.peekFirst().sealed && segments.peekFirst().outstanding == 0) {
+			Segment segment = segments.removeFirst();
+			try {
+				Files.deleteIfExists(segment.file);
+			} catch (IOException exception) {
+				API_LOG.warn("Could not delete the done audit journal " + segment.file, exception);
+			}
+		}
+	}
+
+	private void scan(Segment segment, Map<Long, AuditEntry> pending) throws IOException {
+		ByteBuffer buffer = segment.buffer;
+		while (buffer.remaining() >= HEADER_BYTES) {
+			int start = buffer.position();
+			int length = buffer.getInt(start);
+			if (length <= 0 || length > buffer.remaining() - HEADER_BYTES
+					|| buffer.getInt(start + Integer.BYTES) != crc(buffer, start + HEADER_BYTES,
+							start + HEADER_BYTES + length)) {
+				break;
+			}
+
+			buffer.position(start + HEADER_BYTES);
+			byte kind = buffer.get();
+			if (kind == KEY) {
+				byte[] encryptedKey = new byte[buffer.getInt()];
+				buffer.get(encryptedKey);
+				segment.key = keys.decrypt(encryptedKey);
+			} else if (kind == ENTRY) {
+				AuditEntry entry = readEntry(segment, start);
+				if (entry != null) {
+					pending.put(entry.getId(), entry);
+					segment.outstanding++;
+				}
+			} else if (kind == DONE) {
+				AuditEntry done = pending.remove(buffer.getLong());
+				if (done != null) {
+					done.getSegment().outstanding--;
+				}
+			}
+			buffer.position(start + HEADER_BYTES + length);
+		}
+	}
+
+	private AuditEntry readEntry(Segment segment, int start) {
+		ByteBuffer buffer = segment.buffer;
+		int sealedBytes = buffer.getInt();
+		ByteBuffer sealed = slice(buffer, buffer.position(), sealedBytes);
+		buffer.position(buffer.position() + sealedBytes);
+		if (segment.key == null) {
+			API_LOG.error("Skipping an audit without a data key in " + segment.file + " at " + start);
+			return null;
+		}
+		Metadata metadata;
+		try {
+			metadata = MetadataCodec.decode(JournalCipher.decrypt(segment.key, sealed));
+		} catch (IOException exception) {
+			API_LOG.error("Skipping an unreadable audit in " + segment.file + " at " + start, exception);
+			return null;
+		}
+
+		EnumMap<Artifact, ByteBuffer> slices = new EnumMap<>(Artifact.class);
+		int count = buffer.get();
+		for (int i = 0; i < count; i++) {
+			Artifact artifact = Artifact.fromOrdinal(buffer.get());
+			int size = JournalCipher.IV_BYTES + (int) buffer.getLong();
+			slices.put(artifact, slice(buffer, buffer.position(), size));
+			buffer.position(buffer.position() + size);
+		}
+		return new AuditEntry(id(segment, start), metadata, slices, segment);
+	}
+
+	private static void seal(Segment segment, byte[] content, ByteBuffer buffer) throws IOException {
+		byte[] iv = JournalCipher.iv();
+		try {
+			buffer.put(iv).put(JournalCipher.encrypting(segment.key, iv).doFinal(content));
+		} catch (GeneralSecurityException exception) {
+			throw new IOException("Could not encrypt the audit metadata", exception);
+		}
+	}
+
+	private static void copy(Source source, Segment segment, ByteBuffer buffer, long size) throws IOException {
+		byte[] iv = JournalCipher.iv();
+		Cipher cipher = JournalCipher.encrypting(segment.key, iv);
+		buffer.put(iv);
+		byte[] chunk = new byte[COPY_BYTES];
+		byte[] encrypted = new byte[COPY_BYTES];
+		long remaining = size;
+		try (InputStream content = source.toInputStream()) {
+			int read;
+			while (remaining > 0 && (read = content.read(chunk, 0, (int) Math.min(chunk.length, remaining))) != -1) {
+				buffer.put(encrypted, 0, cipher.update(chunk, 0, read, encrypted));
+				remaining -= read;
+			}
+			if (remaining > 0 || content.read() != -1) {
+				throw new IOException("The content of " + source.getName() + " is not " + size + " bytes long");
+			}
+		} catch (ShortBufferException exception) {
+			throw new IOException("Could not encrypt " + source.getName(), exception);
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int size) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(start);
+		slice.limit(start + size);
+		return slice.slice().asReadOnlyBuffer();
+	}
+
+	private static int crc(ByteBuffer buffer, int start, int end) {
+		ByteBuffer content = buffer.duplicate();
+		content.position(start);
+		content.limit(end);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		return (int) crc.getValue();
+	}
+
+	private static long id(Segment segment, int start) {
+		return (segment.sequence << Integer.SIZE) | start;
+	}
+
+	private static MappedByteBuffer map(Path file, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/**
+	 * A mapped segment file, its data key and the number of its entries that are not done yet.
+	 */
+	static final class Segment {
+		private final Path file;
+		private final long sequence;
+		private final MappedByteBuffer buffer;
+		private SecretKey key;
+		private int outstanding;
+		private boolean sealed;
+
+		private Segment(Path file, long sequence, MappedByteBuffer buffer) {
+			this.file = file;
+			this.sequence = sequence;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * @return the data key of the content of the segment
+		 */
+		SecretKey getKey() {
+			return key;
+		}
+	}
+}
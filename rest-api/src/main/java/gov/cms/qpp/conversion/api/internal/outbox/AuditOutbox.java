@@ -0,0 +1,344 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.amazonaws.services.kms.AWSKMS;
+
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.services.DbService;
+import gov.cms.qpp.conversion.api.services.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Optional durable outbox for audits. An audit is journaled to local disk before the client is answered and written
+ * to S3 and DynamoDB in the background, in batches. Audits that were journaled but not written when the application
+ * stopped are replayed when it starts again.
+ *
+ * <p>The outbox is enabled by pointing {@link Constants#AUDIT_OUTBOX_DIR_ENV_VARIABLE} at a directory that outlives
+ * the process. The journal is encrypted with data keys of the {@link Constants#KMS_KEY_ENV_VARIABLE} KMS key, so
+ * the outbox stays disabled without one. An audit that can not be written is retried after a delay until it is. An
+ * audit that can not be journaled, for example because the disk is full or
+ * {@link Constants#AUDIT_OUTBOX_MAX_PENDING_ENV_VARIABLE} audits are already waiting, is left to the caller to write
+ * directly.
+ */
+@Component
+public class AuditOutbox {
+
+	static final int DEFAULT_SEGMENT_MEGABYTES = 64;
+	static final int DEFAULT_BATCH_SIZE = 25;
+	static final long DEFAULT_RETRY_SECONDS = 30;
+	static final int DEFAULT_MAX_PENDING = 10000;
+	static final String PENDING_METRIC = "audit.outbox.pending";
+	static final String FAILURES_METRIC = "audit.outbox.failures";
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(AuditOutbox.class);
+	private static final long DRAIN_INTERVAL_MILLIS = 100;
+	private static final int SHUTDOWN_SECONDS = 30;
+
+	private final AuditJournal journal;
+	private final StorageService storageService;
+	private final DbService dbService;
+	private final int batchSize;
+	private final long retryMillis;
+	private final boolean bundle;
+	private final int maxPending;
+	private final BlockingQueue<AuditEntry> queue = new LinkedBlockingQueue<>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final Counter failures;
+	private volatile ScheduledExecutorService drainer;
+
+	/**
+	 * Configures the outbox from the {@code AUDIT_OUTBOX_*} environment variables. The outbox is disabled unless
+	 * {@link Constants#AUDIT_OUTBOX_DIR_ENV_VARIABLE} and {@link Constants#KMS_KEY_ENV_VARIABLE} are given and
+	 * auditing is on.
+	 *
+	 * @param environment hooks to application environment
+	 * @param awsKms generates the data keys of the journal
+	 * @param storageService writes the artifacts to S3
+	 * @param dbService writes the metadata to DynamoDB
+	 * @param meterRegistry registry for the outbox metrics
+	 */
+	@Autowired
+	public AuditOutbox(Environment environment, AWSKMS awsKms, StorageService storageService, DbService dbService,
+			MeterRegistry meterRegistry) {
+		this(directory(environment),
+				environment.getProperty(Constants.AUDIT_OUTBOX_SEGMENT_MEGABYTES_ENV_VARIABLE, Integer.class,
+						DEFAULT_SEGMENT_MEGABYTES) * 1024 * 1024,
+				environment.getProperty(Constants.AUDIT_OUTBOX_SYNC_ENV_VARIABLE, Boolean.class, Boolean.FALSE),
+				environment.getProperty(Constants.AUDIT_OUTBOX_BATCH_SIZE_ENV_VARIABLE, Integer.class,
+						DEFAULT_BATCH_SIZE),
+				TimeUnit.SECONDS.toMillis(environment.getProperty(Constants.AUDIT_OUTBOX_RETRY_SECONDS_ENV_VARIABLE,
+						Long.class, DEFAULT_RETRY_SECONDS)),
+				environment.getProperty(Constants.AUDIT_OUTBOX_MAX_PENDING_ENV_VARIABLE, Integer.class,
+						DEFAULT_MAX_PENDING),
+				environment.getProperty(Constants.AUDIT_BUNDLE_ENV_VARIABLE, Boolean.class, Boolean.FALSE),
+				keys(environment, awsKms), storageService, dbService, meterRegistry);
+	}
+
+	/**
+	 * Creates an outbox.
+	 *
+	 * @param directory directory of the journal, {@code null} to disable the outbox
+	 * @param segmentBytes size of a journal segment file
+	 * @param sync whether every journaled audit is forced to the storage device before it is acknowledged
+	 * @param batchSize most audits written at the same time
+	 * @param retryMillis delay before an audit that could not be written is tried again
+	 * @param maxPending most audits journaled but not yet written before new audits are left to the caller
+	 * @param bundle whether the artifacts of an audit are stored as a single bundled object
+	 * @param keys supplies the data keys of the journal, {@code null} to disable the outbox
+	 * @param storageService writes the artifacts to S3
+	 * @param dbService writes the metadata to DynamoDB
+	 * @param meterRegistry registry for the outbox metrics
+	 */
+	AuditOutbox(Path directory, int segmentBytes, boolean sync, int batchSize, long retryMillis, int maxPending,
+			boolean bundle, JournalKeys keys, StorageService storageService, DbService dbService,
+			MeterRegistry meterRegistry) {
+		this.storageService = storageService;
+		this.dbService = dbService;
+		this.batchSize = Math.max(batchSize, 1);
+		this.retryMillis = retryMillis;
+		this.maxPending = Math.max(maxPending, 1);
+		this.bundle = bundle;
+
+		if (directory == null || keys == null) {
+			journal = null;
+		} else {
+			try {
+				journal = new AuditJournal(directory, segmentBytes, sync, keys);
+			} catch (IOException exception) {
+				throw new UncheckedIOException("Could not open the audit outbox in " + directory, exception);
+			}
+			API_LOG.info("Journaling audits to " + directory.toAbsolutePath());
+		}
+
+		failures = meterRegistry.counter(FAILURES_METRIC);
+		Gauge.builder(PENDING_METRIC, pending, AtomicInteger::get).register(meterRegistry);
+	}
+
+	/**
+	 * Whether audits are journaled at all.
+	 *
+	 * @return true when a journal directory was configured
+	 */
+	public boolean isEnabled() {
+		return journal != null;
+	}
+
+	/**
+	 * Replays the audits that were journaled but not written before the last stop and starts writing new ones.
+	 */
+	@PostConstruct
+	public synchronized void start() {
+		if (!isEnabled() || drainer != null) {
+			return;
+		}
+
+		List<AuditEntry> recovered = journal.getRecovered();
+		if (!recovered.isEmpty()) {
+			API_LOG.info("Replaying " + recovered.size() + " journaled audits");
+			pending.addAndGet(recovered.size());
+			queue.addAll(recovered);
+		}
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+				new CustomizableThreadFactory("audit-outbox-"));
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		drainer = executor;
+		drainer.scheduleWithFixedDelay(this::drainAvailable, 0, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops writing audits once the current batch is written. Audits that are still pending stay in the journal.
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		if (drainer == null) {
+			return;
+		}
+
+		drainer.shutdown();
+		try {
+			if (!drainer.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+				API_LOG.warn("Audit outbox did not stop in time");
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		journal.close();
+		API_LOG.info("Stopped the audit outbox with " + pending.get() + " audits left in the journal");
+	}
+
+	/**
+	 * Journals an audit to be written in the background. The journal keeps its own copy of the metadata, which is
+	 * the one pointed at the stored artifacts and written to DynamoDB.
+	 *
+	 * @param metadata the metadata of the audit, which must have its UUID set
+	 * @param artifacts the content to store in S3
+	 * @return whether the audit was journaled, the caller writes it otherwise
+	 */
+	public boolean submit(Metadata metadata, Map<Artifact, Source> artifacts) {
+		if (!isEnabled()) {
+			return false;
+		}
+
+		if (pending.incrementAndGet() > maxPending) {
+			pending.decrementAndGet();
+			API_LOG.warn("The audit outbox already holds " + maxPending + " audits, writing the audit of "
+					+ metadata.getUuid() + " directly");
+			return false;
+		}
+
+		AuditEntry entry;
+		try {
+			entry = journal.append(metadata, artifacts);
+		} catch (IOException | RuntimeException exception) {
+			pending.decrementAndGet();
+			API_LOG.error("Could not journal the audit of " + metadata.getUuid() + ", writing it directly", exception);
+			return false;
+		}
+
+		queue.add(entry);
+		return true;
+	}
+
+	/**
+	 * @return number of audits journaled but not yet written
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	private void drainAvailable() {
+		try {
+			List<AuditEntry> batch = new ArrayList<>(batchSize);
+			while (!drainer.isShutdown() && queue.drainTo(batch, batchSize) > 0) {
+				drain(batch);
+				batch.clear();
+			}
+		} catch (RuntimeException exception) {
+			API_LOG.error("Unexpected failure while writing journaled audits", exception);
+		}
+	}
+
+	private void drain(List<AuditEntry> batch) {
+		List<CompletableFuture<Metadata>> writes = new ArrayList<>(batch.size());
+		for (AuditEntry entry : batch) {
+			writes.add(write(entry));
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			AuditEntry entry = batch.get(i);
+			try {
+				writes.get(i).join();
+			} catch (CompletionException | CancellationException exception) {
+				retryLater(entry, exception);
+				continue;
+			}
+			done(entry);
+		}
+	}
+
+	private CompletableFuture<Metadata> write(AuditEntry entry) {
+		try {
+			Metadata metadata = entry.getMetadata();
+			if (bundle) {
+				return storeBundle(entry).thenCompose(ignore -> dbService.write(metadata));
+			}
+			CompletableFuture<?>[] stores = entry.getArtifacts().stream()
+					.map(artifact -> storageService.store(UUID.randomUUID().toString(), () -> entry.open(artifact),
+							entry.size(artifact)).thenAccept(location -> artifact.locate(metadata, location)))
+					.toArray(CompletableFuture<?>[]::new);
+			return CompletableFuture.allOf(stores).thenCompose(ignore -> dbService.write(metadata));
+		} catch (RuntimeException exception) {
+			CompletableFuture<Metadata> failed = new CompletableFuture<>();
+			failed.completeExceptionally(exception);
+			return failed;
+		}
+	}
+
+	private CompletableFuture<Void> storeBundle(AuditEntry entry) {
+		Map<String, Source> parts = new LinkedHashMap<>();
+		for (Artifact artifact : entry.getArtifacts()) {
+			parts.put(artifact.getPartName(), entry.source(artifact));
+		}
+		return storageService.storeBundle(UUID.randomUUID().toString(), parts).thenAccept(locators ->
+				entry.getArtifacts().forEach(artifact ->
+						artifact.locate(entry.getMetadata(), locators.get(artifact.getPartName()))));
+	}
+
+	private void done(AuditEntry entry) {
+		pending.decrementAndGet();
+		try {
+			journal.complete(entry);
+		} catch (IOException exception) {
+			API_LOG.error("Could not mark the audit of " + entry.getMetadata().getUuid()
+					+ " as written, it will be written again on the next start", exception);
+		}
+	}
+
+	private void retryLater(AuditEntry entry, RuntimeException exception) {
+		failures.increment();
+		API_LOG.error("Could not write the journaled audit of " + entry.getMetadata().getUuid() + " after "
+				+ entry.failed() + " tries, trying again in " + retryMillis + " ms", exception);
+		try {
+			drainer.schedule(() -> {
+				queue.add(entry);
+			}, retryMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException stopping) {
+			API_LOG.info("Leaving the audit of " + entry.getMetadata().getUuid() + " in the journal");
+		}
+	}
+
+	private static JournalKeys keys(Environment environment, AWSKMS awsKms) {
+		String keyId = environment.getProperty(Constants.KMS_KEY_ENV_VARIABLE);
+		if (StringUtils.isEmpty(keyId)) {
+			if (directory(environment) != null) {
+				API_LOG.error("The audit outbox needs a KMS key to encrypt its journal, writing audits directly");
+			}
+			return null;
+		}
+		return new KmsJournalKeys(awsKms, keyId);
+	}
+
+	private static Path directory(Environment environment) {
+		String directory = environment.getProperty(Constants.AUDIT_OUTBOX_DIR_ENV_VARIABLE);
+		String noAudit = environment.getProperty(Constants.NO_AUDIT_ENV_VARIABLE);
+		if (StringUtils.isEmpty(directory) || !StringUtils.isEmpty(noAudit)) {
+			return null;
+		}
+		return Paths.get(directory);
+	}
+}
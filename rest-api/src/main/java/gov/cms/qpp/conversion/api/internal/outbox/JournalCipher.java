@@ -0,0 +1,97 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+import gov.cms.qpp.conversion.ByteBufferInputStream;
+
+/**
+ * Encrypts the content of the {@link AuditJournal} with AES in counter mode. Every piece of content gets a random
+ * initialization vector, written in front of it. Counter mode keeps the size of the content and can be decrypted
+ * while it is streamed from the mapped segment, without reading a whole artifact into memory. Torn and corrupt
+ * records are caught by the CRC of the journal.
+ */
+final class JournalCipher {
+
+	static final int IV_BYTES = 16;
+
+	private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private JournalCipher() {
+		//empty
+	}
+
+	/**
+	 * @return a new random initialization vector
+	 */
+	static byte[] iv() {
+		byte[] iv = new byte[IV_BYTES];
+		RANDOM.nextBytes(iv);
+		return iv;
+	}
+
+	/**
+	 * @param key the data key of the segment
+	 * @param iv the initialization vector of the content
+	 * @return a cipher that encrypts the content
+	 * @throws IOException if the cipher is not available
+	 */
+	static Cipher encrypting(SecretKey key, byte[] iv) throws IOException {
+		return cipher(Cipher.ENCRYPT_MODE, key, iv);
+	}
+
+	/**
+	 * @param key the data key of the segment
+	 * @param sealed the initialization vector followed by the encrypted content
+	 * @return the decrypted content
+	 * @throws IOException if the cipher is not available
+	 */
+	static byte[] decrypt(SecretKey key, ByteBuffer sealed) throws IOException {
+		ByteBuffer content = sealed.duplicate();
+		byte[] iv = new byte[IV_BYTES];
+		content.get(iv);
+		byte[] encrypted = new byte[content.remaining()];
+		content.get(encrypted);
+		try {
+			return cipher(Cipher.DECRYPT_MODE, key, iv).doFinal(encrypted);
+		} catch (GeneralSecurityException exception) {
+			throw new IOException("Could not decrypt journaled content", exception);
+		}
+	}
+
+	/**
+	 * @param key the data key of the segment
+	 * @param sealed the initialization vector followed by the encrypted content
+	 * @return a stream that decrypts the content as it is read
+	 */
+	static InputStream decrypting(SecretKey key, ByteBuffer sealed) {
+		ByteBuffer content = sealed.duplicate();
+		byte[] iv = new byte[IV_BYTES];
+		content.get(iv);
+		try {
+			return new CipherInputStream(new ByteBufferInputStream(content), cipher(Cipher.DECRYPT_MODE, key, iv));
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static Cipher cipher(int mode, SecretKey key, byte[] iv) throws IOException {
+		try {
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			cipher.init(mode, key, new IvParameterSpec(iv));
+			return cipher;
+		} catch (GeneralSecurityException exception) {
+			throw new IOException("The journal cipher is not available", exception);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.IOException;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Supplies the data keys that encrypt the segments of the {@link AuditJournal}. A segment stores its data key in
+ * encrypted form, so the key can be recovered along with the segment after a restart.
+ */
+interface JournalKeys {
+
+	/**
+	 * @return a new data key along with its encrypted form
+	 * @throws IOException if no key could be generated
+	 */
+	DataKey generate() throws IOException;
+
+	/**
+	 * @param encrypted the encrypted form of a data key
+	 * @return the data key
+	 * @throws IOException if the key could not be decrypted
+	 */
+	SecretKey decrypt(byte[] encrypted) throws IOException;
+
+	/**
+	 * A data key and its encrypted form.
+	 */
+	final class DataKey {
+		private final SecretKey key;
+		private final byte[] encrypted;
+
+		DataKey(SecretKey key, byte[] encrypted) {
+			this.key = key;
+			this.encrypted = encrypted.clone();
+		}
+
+		SecretKey getKey() {
+			return key;
+		}
+
+		byte[] getEncrypted() {
+			return encrypted.clone();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.model.DataKeySpec;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+
+/**
+ * Generates the data keys of the {@link AuditJournal} under the KMS key that also protects the audits in DynamoDB.
+ * The keys are bound to the journal with an encryption context, so they can not be decrypted for another purpose.
+ */
+final class KmsJournalKeys implements JournalKeys {
+
+	private static final Map<String, String> CONTEXT = Collections.singletonMap("purpose", "audit-outbox");
+
+	private final AWSKMS awsKms;
+	private final String keyId;
+
+	/**
+	 * @param awsKms the KMS client
+	 * @param keyId the KMS key that encrypts the data keys
+	 */
+	KmsJournalKeys(AWSKMS awsKms, String keyId) {
+		Objects.requireNonNull(awsKms, "awsKms");
+		Objects.requireNonNull(keyId, "keyId");
+
+		this.awsKms = awsKms;
+		this.keyId = keyId;
+	}
+
+	@Override
+	public DataKey generate() throws IOException {
+		try {
+			GenerateDataKeyResult result = awsKms.generateDataKey(new GenerateDataKeyRequest()
+					.withKeyId(keyId)
+					.withKeySpec(DataKeySpec.AES_256)
+					.withEncryptionContext(CONTEXT));
+			return new DataKey(key(result.getPlaintext()), bytes(result.getCiphertextBlob()));
+		} catch (SdkClientException exception) {
+			throw new IOException("Could not generate a data key for the audit journal", exception);
+		}
+	}
+
+	@Override
+	public SecretKey decrypt(byte[] encrypted) throws IOException {
+		try {
+			return key(awsKms.decrypt(new DecryptRequest()
+					.withCiphertextBlob(ByteBuffer.wrap(encrypted))
+					.withEncryptionContext(CONTEXT)).getPlaintext());
+		} catch (SdkClientException exception) {
+			throw new IOException("Could not decrypt a data key of the audit journal", exception);
+		}
+	}
+
+	private static SecretKey key(ByteBuffer plaintext) {
+		return new SecretKeySpec(bytes(plaintext), "AES");
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+}
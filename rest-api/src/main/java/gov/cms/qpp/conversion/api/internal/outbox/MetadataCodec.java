@@ -0,0 +1,146 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.cms.qpp.conversion.api.model.Details;
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+/**
+ * Writes the {@link Metadata} of a journaled audit and reads it back.
+ *
+ * The fields are written in a fixed order behind a format version. A field added to {@link Metadata} is added at the
+ * end here along with a new version, so journals written by the previous release can still be replayed.
+ */
+final class MetadataCodec {
+
+	private static final int VERSION = 1;
+	private static final ObjectMapper DETAILS_MAPPER = new ObjectMapper();
+
+	private MetadataCodec() {
+		//empty
+	}
+
+	static byte[] encode(Metadata metadata) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(VERSION);
+			writeString(out, metadata.getUuid());
+			writeInstant(out, metadata.getCreatedDate());
+			writeString(out, metadata.getTin());
+			writeString(out, metadata.getNpi());
+			writeString(out, metadata.getApm());
+			writeString(out, metadata.getProgramName());
+			writeLong(out, metadata.getSubmissionYear());
+			writeString(out, metadata.getFileName());
+			writeBoolean(out, metadata.getOverallStatus());
+			writeString(out, metadata.getPurpose());
+			writeBoolean(out, metadata.getConversionStatus());
+			writeBoolean(out, metadata.getValidationStatus());
+			writeString(out, metadata.getCpc());
+			writeBoolean(out, metadata.getCpcProcessed());
+			writeDetails(out, metadata.getErrors());
+			writeDetails(out, metadata.getWarnings());
+			writeLong(out, metadata.getMetadataVersion() == null ? null : metadata.getMetadataVersion().longValue());
+		}
+		return bytes.toByteArray();
+	}
+
+	static Metadata decode(byte[] encoded) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unknown metadata format " + version);
+			}
+
+			Metadata metadata = new Metadata();
+			metadata.setUuid(readString(in));
+			metadata.setCreatedDate(readInstant(in));
+			metadata.setTin(readString(in));
+			metadata.setNpi(readString(in));
+			metadata.setApm(readString(in));
+			metadata.setProgramName(readString(in));
+			metadata.setSubmissionYear(readLong(in));
+			metadata.setFileName(readString(in));
+			metadata.setOverallStatus(readBoolean(in));
+			metadata.setPurpose(readString(in));
+			metadata.setConversionStatus(readBoolean(in));
+			metadata.setValidationStatus(readBoolean(in));
+			metadata.setCpc(readString(in));
+			metadata.setCpcProcessed(readBoolean(in));
+			metadata.setErrors(readDetails(in));
+			metadata.setWarnings(readDetails(in));
+			Long metadataVersion = readLong(in);
+			metadata.setMetadataVersion(metadataVersion == null ? null : metadataVersion.intValue());
+			return metadata;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeLong(DataOutputStream out, Long value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value);
+		}
+	}
+
+	private static Long readLong(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readLong() : null;
+	}
+
+	private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.getEpochSecond());
+			out.writeInt(value.getNano());
+		}
+	}
+
+	private static Instant readInstant(DataInputStream in) throws IOException {
+		return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+	}
+
+	private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+		out.writeByte(value == null ? -1 : (value ? 1 : 0));
+	}
+
+	private static Boolean readBoolean(DataInputStream in) throws IOException {
+		byte value = in.readByte();
+		return value < 0 ? null : value == 1;
+	}
+
+	private static void writeDetails(DataOutputStream out, Details details) throws IOException {
+		writeString(out, details == null ? null : DETAILS_MAPPER.writeValueAsString(details));
+	}
+
+	private static Details readDetails(DataInputStream in) throws IOException {
+		String json = readString(in);
+		return json == null ? null : DETAILS_MAPPER.readValue(json, Details.class);
+	}
+}
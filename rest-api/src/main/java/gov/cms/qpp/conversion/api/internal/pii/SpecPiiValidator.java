@@ -11,7 +11,6 @@ import gov.cms.qpp.conversion.validate.pii.PiiValidator;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class SpecPiiValidator implements PiiValidator {
 
@@ -29,8 +28,7 @@ public class SpecPiiValidator implements PiiValidator {
 		List<String> tinList = Arrays.asList(
 			node.getValue(ClinicalDocumentDecoder.TAX_PAYER_IDENTIFICATION_NUMBER).split(","));
 
-		Map<String, List<String>> tinNpisMap = file.getApmTinNpiCombinationMap().get(apm);
-		if (tinNpisMap == null) {
+		if (!file.hasApm(apm)) {
 			validator.addWarning(Detail.forProblemAndNode(ProblemCode.MISSING_API_TIN_NPI_FILE, node));
 		} else {
 			int npiSize = npiList.size();
@@ -40,7 +38,7 @@ public class SpecPiiValidator implements PiiValidator {
 				String maskedTin = "*****" + currentTin.substring(5);
 				LocalizedProblem error = ProblemCode.INCORRECT_API_NPI_COMBINATION
 					.format(currentNpi, maskedTin, apm);
-				if (tinNpisMap.get(currentTin) == null || !(tinNpisMap.get(currentTin).indexOf(currentNpi) > -1)) {
+				if (!file.contains(apm, currentTin, currentNpi)) {
 					validator.addWarning(Detail.forProblemAndNode(error, node));
 				}
 			}
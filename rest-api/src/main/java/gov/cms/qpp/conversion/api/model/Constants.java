@@ -6,10 +6,19 @@ package gov.cms.qpp.conversion.api.model;
 public class Constants {
 	public static final String DYNAMO_TABLE_NAME_ENV_VARIABLE = "DYNAMO_TABLE_NAME";
 	public static final String KMS_KEY_ENV_VARIABLE = "KMS_KEY";
+	public static final String KMS_DATA_KEY_TTL_SECONDS_ENV_VARIABLE = "KMS_DATA_KEY_TTL_SECONDS";
+	public static final String KMS_DATA_KEY_MAX_USES_ENV_VARIABLE = "KMS_DATA_KEY_MAX_USES";
 	public static final String NO_AUDIT_ENV_VARIABLE = "NO_AUDIT";
 	public static final String BUCKET_NAME_ENV_VARIABLE = "BUCKET_NAME";
 	public static final String SUBMISSION_API_TOKEN_ENV_VARIABLE = "SUBMISSION_API_TOKEN";
 	public static final String VALIDATION_URL_ENV_VARIABLE = "VALIDATION_URL";
+	public static final String VALIDATION_CONNECT_TIMEOUT_MILLIS_ENV_VARIABLE = "VALIDATION_CONNECT_TIMEOUT_MILLIS";
+	public static final String VALIDATION_READ_TIMEOUT_MILLIS_ENV_VARIABLE = "VALIDATION_READ_TIMEOUT_MILLIS";
+	public static final String VALIDATION_MAX_CONCURRENT_CALLS_ENV_VARIABLE = "VALIDATION_MAX_CONCURRENT_CALLS";
+	public static final String VALIDATION_FAILURE_POLICY_ENV_VARIABLE = "VALIDATION_FAILURE_POLICY";
+	public static final String VALIDATION_CACHE_MAX_ENTRIES_ENV_VARIABLE = "VALIDATION_CACHE_MAX_ENTRIES";
+	public static final String VALIDATION_CACHE_TTL_MINUTES_ENV_VARIABLE = "VALIDATION_CACHE_TTL_MINUTES";
+	public static final String VALIDATION_CACHE_SUCCESSES_ONLY_ENV_VARIABLE = "VALIDATION_CACHE_SUCCESSES_ONLY";
 	public static final String NO_CPC_PLUS_API_ENV_VARIABLE = "NO_CPC_PLUS_API";
 	public static final String V1_API_ACCEPT = "application/vnd.qpp.cms.gov.v1+json";
 	public static final String V2_API_ACCEPT = "application/vnd.qpp.cms.gov.v2+json";
@@ -20,7 +29,40 @@ public class Constants {
 	public static final String DYNAMO_CREATE_DATE_ATTRIBUTE = "CreateDate";
 	public static final String CPC_PLUS_BUCKET_NAME_VARIABLE = "CPC_PLUS_BUCKET_NAME";
 	public static final String CPC_PLUS_FILENAME_VARIABLE = "CPC_PLUS_VALIDATION_FILE";
+	public static final String CPC_PLUS_REFRESH_MINUTES_ENV_VARIABLE = "CPC_PLUS_REFRESH_MINUTES";
+	public static final String CPC_PLUS_RETRY_MINUTES_ENV_VARIABLE = "CPC_PLUS_RETRY_MINUTES";
 	public static final String CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE = "CPC_PLUS_UNPROCESSED_FILTER_START_DATE";
+	public static final String CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE = "CPC_PLUS_LISTING_PROJECTION";
+	public static final String SPOOL_THRESHOLD_ENV_VARIABLE = "UPLOAD_SPOOL_THRESHOLD_BYTES";
+	public static final String CONVERSION_CACHE_MAX_BYTES_ENV_VARIABLE = "CONVERSION_CACHE_MAX_BYTES";
+	public static final String CONVERSION_CACHE_TTL_MINUTES_ENV_VARIABLE = "CONVERSION_CACHE_TTL_MINUTES";
+	public static final String CONVERSION_THREADS_ENV_VARIABLE = "CONVERSION_THREADS";
+	public static final String CONVERSION_QUEUE_DEPTH_ENV_VARIABLE = "CONVERSION_QUEUE_DEPTH";
+	public static final String ZIP_THREADS_ENV_VARIABLE = "ZIP_THREADS";
+	public static final String STREAMING_THREADS_ENV_VARIABLE = "STREAMING_THREADS";
+	public static final String STREAMING_TIMEOUT_SECONDS_ENV_VARIABLE = "STREAMING_TIMEOUT_SECONDS";
+	public static final String CONVERSION_TIMEOUT_SECONDS_ENV_VARIABLE = "CONVERSION_TIMEOUT_SECONDS";
+	public static final String CONVERSION_RETRY_AFTER_SECONDS_ENV_VARIABLE = "CONVERSION_RETRY_AFTER_SECONDS";
+	public static final String STORAGE_THREADS_ENV_VARIABLE = "STORAGE_THREADS";
+	public static final String STORAGE_QUEUE_DEPTH_ENV_VARIABLE = "STORAGE_QUEUE_DEPTH";
+	public static final String STORAGE_COMPRESSION_ENV_VARIABLE = "STORAGE_COMPRESSION";
+	public static final String DB_THREADS_ENV_VARIABLE = "DB_THREADS";
+	public static final String DB_QUEUE_DEPTH_ENV_VARIABLE = "DB_QUEUE_DEPTH";
+	public static final String DB_BATCH_SIZE_ENV_VARIABLE = "DB_BATCH_SIZE";
+	public static final String DB_BATCH_WINDOW_MILLIS_ENV_VARIABLE = "DB_BATCH_WINDOW_MILLIS";
+	public static final String RETRY_MAX_ATTEMPTS_ENV_VARIABLE = "RETRY_MAX_ATTEMPTS";
+	public static final String RETRY_INITIAL_DELAY_MILLIS_ENV_VARIABLE = "RETRY_INITIAL_DELAY_MILLIS";
+	public static final String RETRY_MAX_DELAY_MILLIS_ENV_VARIABLE = "RETRY_MAX_DELAY_MILLIS";
+	public static final String RETRY_BUDGET_ENV_VARIABLE = "RETRY_BUDGET";
+	public static final String CIRCUIT_FAILURE_THRESHOLD_ENV_VARIABLE = "CIRCUIT_FAILURE_THRESHOLD";
+	public static final String CIRCUIT_OPEN_SECONDS_ENV_VARIABLE = "CIRCUIT_OPEN_SECONDS";
+	public static final String AUDIT_OUTBOX_DIR_ENV_VARIABLE = "AUDIT_OUTBOX_DIR";
+	public static final String AUDIT_OUTBOX_SEGMENT_MEGABYTES_ENV_VARIABLE = "AUDIT_OUTBOX_SEGMENT_MEGABYTES";
+	public static final String AUDIT_OUTBOX_SYNC_ENV_VARIABLE = "AUDIT_OUTBOX_SYNC";
+	public static final String AUDIT_OUTBOX_BATCH_SIZE_ENV_VARIABLE = "AUDIT_OUTBOX_BATCH_SIZE";
+	public static final String AUDIT_OUTBOX_RETRY_SECONDS_ENV_VARIABLE = "AUDIT_OUTBOX_RETRY_SECONDS";
+	public static final String AUDIT_OUTBOX_MAX_PENDING_ENV_VARIABLE = "AUDIT_OUTBOX_MAX_PENDING";
+	public static final String AUDIT_BUNDLE_ENV_VARIABLE = "AUDIT_BUNDLE";
 
 	/**
 	 * Library utility class so the constructor is private and empty.
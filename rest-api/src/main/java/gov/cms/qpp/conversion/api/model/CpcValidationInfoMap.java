@@ -1,77 +1,272 @@
 package gov.cms.qpp.conversion.api.model;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The APM entity, TIN and NPI combinations of the CPC+ validation file, indexed for membership tests.
+ *
+ * <p>The file is read as a stream, without materializing its entries. TINs of 9 digits and NPIs of 10 digits are
+ * packed together into one unsigned long per combination, {@code tin * 10^10 + npi}, which is kept in a sorted array
+ * per APM entity and looked up with a binary search. The rare combinations with other identifiers are kept as strings.
+ * The index is immutable once built, so it can be shared by conversions while a newer one is loaded.
+ */
 public class CpcValidationInfoMap {
 	private static final Logger DEV_LOG = LoggerFactory.getLogger(CpcValidationInfoMap.class);
-	private Map<String, Map<String, List<String>>> apmTinNpiCombinationMap;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int TIN_DIGITS = 9;
+	private static final int NPI_DIGITS = 10;
+	private static final long NPI_RANGE = 10_000_000_000L;
+	static final String APM_FIELD = "apm_entity_id";
+	static final String TIN_FIELD = "tin";
+	static final String NPI_FIELD = "npi";
 
-	public CpcValidationInfoMap(InputStream cpcNpiToApmJson) {
-		convertJsonToMapOfLists(cpcNpiToApmJson);
-	}
+	private final Map<String, ApmCombinations> apmCombinations;
+	private final boolean readable;
+	private final long combinations;
+	private final long heapBytes;
 
-	private void convertJsonToMapOfLists(InputStream cpcApmNpiTinJson) {
-		if (cpcApmNpiTinJson == null) {
-			apmTinNpiCombinationMap = null;
+	public CpcValidationInfoMap(InputStream cpcNpiToApmJson) {
+		if (cpcNpiToApmJson == null) {
+			apmCombinations = null;
+			readable = false;
+			combinations = 0;
+			heapBytes = 0;
 			return;
 		}
 
-		apmTinNpiCombinationMap = new HashMap<>();
-
-		List<CpcValidationInfo> cpcValidationInfoList = new ArrayList<>();
-		try {
-			ObjectMapper objectMapper = new ObjectMapper();
-			cpcValidationInfoList =
-				Arrays.asList(objectMapper.readValue(new InputStreamReader(cpcApmNpiTinJson, StandardCharsets.UTF_8),
-					CpcValidationInfo[].class));
-		} catch (IOException | NullPointerException exc){
-			DEV_LOG.info("Failed to parse the cpc+ validation npi to apm list...");
+		Map<String, ApmCombinations> parsed = parse(cpcNpiToApmJson);
+		readable = parsed != null;
+		if (parsed == null) {
+			parsed = new HashMap<>();
 		}
+		long count = 0;
+		long bytes = 0;
+		for (Map.Entry<String, ApmCombinations> apm : parsed.entrySet()) {
+			count += apm.getValue().size();
+			bytes += ApmCombinations.stringBytes(apm.getKey()) + apm.getValue().heapBytes();
+		}
+		apmCombinations = parsed;
+		combinations = count;
+		heapBytes = bytes;
+	}
 
-		for (CpcValidationInfo cpcValidationInfo: cpcValidationInfoList) {
-			String currentApm = cpcValidationInfo.getApm();
-			String currentTin = cpcValidationInfo.getTin();
-			String currentNpi = cpcValidationInfo.getNpi();
-
-			if(apmTinNpiCombinationMap.containsKey(currentApm)) {
-				if (!hasTinKey(currentApm, currentTin)) {
-					List<String> npiList = new ArrayList<>();
-					npiList.add(currentNpi);
-					apmTinNpiCombinationMap.get(currentApm).put(currentTin, npiList);
-				} else if(!isExistingCombination(currentApm, currentTin, cpcValidationInfo.getNpi())) {
-					apmTinNpiCombinationMap.get(currentApm).get(currentTin).add(currentNpi);
+	/**
+	 * Whether the CPC+ validation file was available.
+	 *
+	 * @return false when there was no file to read
+	 */
+	public boolean isLoaded() {
+		return apmCombinations != null;
+	}
+
+	/**
+	 * Whether the whole CPC+ validation file could be read. A file that could not be read is indexed as empty.
+	 *
+	 * @return false when there was no file or it could not be read
+	 */
+	public boolean isReadable() {
+		return readable;
+	}
+
+	/**
+	 * Whether the file lists the APM entity at all.
+	 *
+	 * @param apm the APM entity id
+	 * @return true when the file has combinations for the APM entity
+	 */
+	public boolean hasApm(String apm) {
+		return apmCombinations != null && apmCombinations.containsKey(apm);
+	}
+
+	/**
+	 * Whether the file lists the combination.
+	 *
+	 * @param apm the APM entity id
+	 * @param tin the TIN
+	 * @param npi the NPI
+	 * @return true when the file has the combination
+	 */
+	public boolean contains(String apm, String tin, String npi) {
+		ApmCombinations apmEntry = apmCombinations == null ? null : apmCombinations.get(apm);
+		return apmEntry != null && apmEntry.contains(tin, npi);
+	}
+
+	/**
+	 * @return number of distinct combinations in the index
+	 */
+	public long size() {
+		return combinations;
+	}
+
+	/**
+	 * @return estimated heap held by the index, in bytes
+	 */
+	public long getHeapBytes() {
+		return heapBytes;
+	}
+
+	/**
+	 * Streams the entries of the file into per APM entity builders.
+	 *
+	 * @return the index, {@code null} when the file can not be read
+	 */
+	private static Map<String, ApmCombinations> parse(InputStream cpcApmNpiTinJson) {
+		Map<String, ApmCombinations.Builder> builders = new HashMap<>();
+		try (JsonParser parser = JSON_FACTORY.createParser(cpcApmNpiTinJson)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Expected an array of CPC+ validation entries");
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				String apm = null;
+				String tin = null;
+				String npi = null;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.getCurrentName();
+					parser.nextToken();
+					if (APM_FIELD.equals(field)) {
+						apm = parser.getValueAsString();
+					} else if (TIN_FIELD.equals(field)) {
+						tin = parser.getValueAsString();
+					} else if (NPI_FIELD.equals(field)) {
+						npi = parser.getValueAsString();
+					} else {
+						parser.skipChildren();
+					}
 				}
-			} else {
-				Map<String, List<String>> tinNpisMap = new HashMap<>();
-				List<String> npiList = new ArrayList<>();
-				npiList.add(currentNpi);
-				tinNpisMap.put(currentTin, npiList);
-				apmTinNpiCombinationMap.put(currentApm, tinNpisMap);
+				builders.computeIfAbsent(apm, key -> new ApmCombinations.Builder()).add(tin, npi);
 			}
+		} catch (IOException | RuntimeException exc) {
+			DEV_LOG.info("Failed to parse the cpc+ validation npi to apm list...", exc);
+			return null;
 		}
+
+		Map<String, ApmCombinations> index = new HashMap<>(builders.size() * 4 / 3 + 1);
+		builders.forEach((apm, builder) -> index.put(apm, builder.build()));
+		return index;
+	}
+
+	/**
+	 * @return whether the combination is a 9 digit TIN and a 10 digit NPI
+	 */
+	static boolean isPackable(String tin, String npi) {
+		return isDigits(tin, TIN_DIGITS) && isDigits(npi, NPI_DIGITS);
 	}
 
-	private boolean hasTinKey(String apm, String tin) {
-		return (apmTinNpiCombinationMap.get(apm).containsKey(tin));
+	/**
+	 * Packs a {@link #isPackable(String, String) packable} combination into an unsigned long, with the sign bit
+	 * flipped so that signed order matches unsigned order.
+	 *
+	 * @return the packed combination
+	 */
+	static long pack(String tin, String npi) {
+		long packed = Long.parseLong(tin) * NPI_RANGE + Long.parseLong(npi);
+		return packed ^ Long.MIN_VALUE;
 	}
 
-	private boolean isExistingCombination(String apm, String tin, String npi) {
-		return (apmTinNpiCombinationMap.get(apm).get(tin)).indexOf(npi) > -1;
+	private static boolean isDigits(String value, int digits) {
+		if (value == null || value.length() != digits) {
+			return false;
+		}
+		for (int i = 0; i < digits; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	public Map<String, Map<String, List<String>>> getApmTinNpiCombinationMap() {
-		return apmTinNpiCombinationMap;
+	/**
+	 * The combinations of one APM entity.
+	 */
+	private static final class ApmCombinations {
+		private static final long OBJECT_BYTES = 16;
+		private static final long REFERENCE_BYTES = 8;
+		private static final long SET_ENTRY_BYTES = 48;
+
+		private final long[] packed;
+		private final Set<String> others;
+
+		private ApmCombinations(long[] packed, Set<String> others) {
+			this.packed = packed;
+			this.others = others;
+		}
+
+		private boolean contains(String tin, String npi) {
+			if (isPackable(tin, npi)) {
+				return Arrays.binarySearch(packed, pack(tin, npi)) >= 0;
+			}
+			return others != null && others.contains(other(tin, npi));
+		}
+
+		private int size() {
+			return packed.length + (others == null ? 0 : others.size());
+		}
+
+		private long heapBytes() {
+			long bytes = OBJECT_BYTES + 2 * REFERENCE_BYTES + OBJECT_BYTES + 8L * packed.length;
+			if (others != null) {
+				bytes += OBJECT_BYTES;
+				for (String other : others) {
+					bytes += SET_ENTRY_BYTES + stringBytes(other);
+				}
+			}
+			return bytes;
+		}
+
+		private static long stringBytes(String value) {
+			return value == null ? 0 : 2 * OBJECT_BYTES + 2L * value.length();
+		}
+
+		private static String other(String tin, String npi) {
+			return tin + '\u0000' + npi;
+		}
+
+		/**
+		 * Collects the combinations of an APM entity, dropping duplicates when built.
+		 */
+		private static final class Builder {
+			private long[] packed = new long[4];
+			private int size;
+			private Set<String> others;
+
+			private void add(String tin, String npi) {
+				if (!isPackable(tin, npi)) {
+					if (others == null) {
+						others = new HashSet<>();
+					}
+					others.add(other(tin, npi));
+					return;
+				}
+				if (size == packed.length) {
+					packed = Arrays.copyOf(packed, size * 2);
+				}
+				packed[size++] = pack(tin, npi);
+			}
+
+			private ApmCombinations build() {
+				long[] sorted = Arrays.copyOf(packed, size);
+				Arrays.sort(sorted);
+				int distinct = 0;
+				for (int i = 0; i < sorted.length; i++) {
+					if (distinct == 0 || sorted[distinct - 1] != sorted[i]) {
+						sorted[distinct++] = sorted[i];
+					}
+				}
+				return new ApmCombinations(Arrays.copyOf(sorted, distinct), others);
+			}
+		}
 	}
 }
@@ -0,0 +1,44 @@
+package gov.cms.qpp.conversion.api.model;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A page of the results of a paginated query, with the token to continue from.
+ *
+ * @param <T> type of the results
+ */
+public class ResultPage<T> {
+
+	private final List<T> items;
+	private final String continuationToken;
+
+	/**
+	 * @param items the results on this page
+	 * @param continuationToken token to read the next page with, {@code null} when there are no more results
+	 */
+	public ResultPage(List<T> items, String continuationToken) {
+		this.items = items;
+		this.continuationToken = continuationToken;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	/**
+	 * Transforms the results of the page, keeping its continuation token.
+	 *
+	 * @param transform applied to every result
+	 * @param <R> type of the transformed results
+	 * @return the transformed page
+	 */
+	public <R> ResultPage<R> map(Function<T, R> transform) {
+		return new ResultPage<>(items.stream().map(transform).collect(Collectors.toList()), continuationToken);
+	}
+}
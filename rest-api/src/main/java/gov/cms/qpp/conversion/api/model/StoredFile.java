@@ -0,0 +1,46 @@
+package gov.cms.qpp.conversion.api.model;
+
+import java.io.InputStream;
+
+/**
+ * The content of a stored file and the encoding it is delivered in.
+ */
+public class StoredFile {
+
+	public static final String GZIP_ENCODING = "gzip";
+
+	private final InputStream content;
+	private final String contentEncoding;
+	private final String eTag;
+
+	/**
+	 * @param content the content as delivered
+	 * @param contentEncoding the encoding of the content, {@code null} if it is delivered as stored before compression
+	 */
+	public StoredFile(InputStream content, String contentEncoding) {
+		this(content, contentEncoding, null);
+	}
+
+	/**
+	 * @param content the content as delivered, {@code null} if it was not delivered because it is unchanged
+	 * @param contentEncoding the encoding of the content, {@code null} if it is delivered as stored before compression
+	 * @param eTag the entity tag of the stored file
+	 */
+	public StoredFile(InputStream content, String contentEncoding, String eTag) {
+		this.content = content;
+		this.contentEncoding = contentEncoding;
+		this.eTag = eTag;
+	}
+
+	public InputStream getContent() {
+		return content;
+	}
+
+	public String getContentEncoding() {
+		return contentEncoding;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+}
@@ -0,0 +1,86 @@
+package gov.cms.qpp.conversion.api.model;
+
+import java.util.Objects;
+
+import gov.cms.qpp.conversion.model.error.AllErrors;
+
+/**
+ * The outcome of converting one entry of an uploaded ZIP file.
+ *
+ * Written as one line of the newline delimited JSON the ZIP endpoint streams back. The status is the HTTP status the
+ * entry would have been answered with on its own; a converted entry carries its response, an entry that failed
+ * conversion or validation carries its errors, and any other failure carries a message.
+ */
+public class ZipEntryResponse {
+
+	private String name;
+	private int status;
+	private ConvertResponse response;
+	private AllErrors errors;
+	private String message;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public ConvertResponse getResponse() {
+		return response;
+	}
+
+	public void setResponse(ConvertResponse response) {
+		this.response = response;
+	}
+
+	public AllErrors getErrors() {
+		return errors;
+	}
+
+	public void setErrors(AllErrors errors) {
+		this.errors = errors;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || o.getClass() != getClass()) {
+			return false;
+		}
+
+		ZipEntryResponse that = (ZipEntryResponse) o;
+
+		boolean equals = Objects.equals(name, that.name);
+		equals &= status == that.status;
+		equals &= Objects.equals(response, that.response);
+		equals &= Objects.equals(errors, that.errors);
+		equals &= Objects.equals(message, that.message);
+		return equals;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, status, response, errors, message);
+	}
+}
@@ -1,9 +1,12 @@
 package gov.cms.qpp.conversion.api.services;
 
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 import org.springframework.core.io.InputStreamResource;
 
 /**
@@ -17,6 +20,22 @@ public interface CpcFileService {
 	 */
 	List<UnprocessedCpcFileData> getUnprocessedCpcPlusFiles();
 
+	/**
+	 * Retrieves a page of the unprocessed cpc+ metadata
+	 *
+	 * @param pageSize most items on the page
+	 * @param continuationToken token of the previous page, {@code null} for the first page
+	 * @return {@link Metadata} extracted as {@link UnprocessedCpcFileData}, with the token of the next page, if any
+	 */
+	ResultPage<UnprocessedCpcFileData> getUnprocessedCpcPlusFiles(int pageSize, String continuationToken);
+
+	/**
+	 * Retrieves all unprocessed cpc+ metadata, a page at a time
+	 *
+	 * @param pages consumer of the pages of {@link Metadata} extracted as {@link UnprocessedCpcFileData}
+	 */
+	void forEachUnprocessedCpcPlusFiles(Consumer<List<UnprocessedCpcFileData>> pages);
+
 	Metadata getMetadataById(String fileId);
 
 	/**
@@ -28,6 +47,16 @@ public interface CpcFileService {
 	 */
 	InputStreamResource getFileById(String fileId) throws IOException;
 
+	/**
+	 * Retrieves the file location id by metadata id and uses it to retrieve the file, left compressed if the client
+	 * accepts gzip
+	 *
+	 * @param fileId {@link Metadata} identifier
+	 * @param gzipAccepted whether the client accepts gzip compressed content
+	 * @return file contents with their encoding
+	 */
+	StoredFile getFileById(String fileId, boolean gzipAccepted);
+
 	/**
 	 * Retrieves the file location id by metadata id and uses it to retrieve the submission's QPP
 	 *
@@ -37,6 +66,16 @@ public interface CpcFileService {
 	 */
 	InputStreamResource getQppById(String fileId) throws IOException;
 
+	/**
+	 * Retrieves the file location id by metadata id and uses it to retrieve the submission's QPP, left compressed if
+	 * the client accepts gzip
+	 *
+	 * @param fileId {@link Metadata} identifier
+	 * @param gzipAccepted whether the client accepts gzip compressed content
+	 * @return QPP contents with their encoding
+	 */
+	StoredFile getQppById(String fileId, boolean gzipAccepted);
+
 	/**
 	 * Marks a CPC File as processed by id
 	 *
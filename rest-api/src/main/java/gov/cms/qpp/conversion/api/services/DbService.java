@@ -2,8 +2,10 @@ package gov.cms.qpp.conversion.api.services;
 
 
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for reading/writing a {@link Metadata} object to a database.
@@ -19,6 +21,22 @@ public interface DbService {
 
 	List<Metadata> getUnprocessedCpcPlusMetaData();
 
+	/**
+	 * Retrieves a page of the unprocessed CPC+ metadata
+	 *
+	 * @param pageSize most items on the page
+	 * @param continuationToken token of the previous page, {@code null} for the first page
+	 * @return page of unprocessed {@link Metadata} with the token of the next page, if any
+	 */
+	ResultPage<Metadata> getUnprocessedCpcPlusMetaData(int pageSize, String continuationToken);
+
+	/**
+	 * Retrieves all of the unprocessed CPC+ metadata, a page at a time
+	 *
+	 * @param pages consumer of the pages of unprocessed {@link Metadata}, in the order they are read
+	 */
+	void forEachUnprocessedCpcPlusMetaData(Consumer<List<Metadata>> pages);
+
 	/**
 	 * Retrieves the metadata from the database by uuid
 	 *
@@ -1,7 +1,10 @@
 package gov.cms.qpp.conversion.api.services;
 
 
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
@@ -20,6 +23,15 @@ public interface StorageService {
 	 */
 	CompletableFuture<String> store(String keyName, Supplier<InputStream> inStream, long size);
 
+	/**
+	 * Stores several parts as a single object in the S3 bucket. Each part is located by {@code key#part}.
+	 *
+	 * @param keyName The requested key name for the object.
+	 * @param parts The content to store, by part name.
+	 * @return A {@link CompletableFuture} that will eventually contain the locator of each part, by part name.
+	 */
+	CompletableFuture<Map<String, String>> storeBundle(String keyName, Map<String, Source> parts);
+
 	/**
 	 * Retrieve a CPC+ file by file id
 	 *
@@ -28,10 +40,28 @@ public interface StorageService {
 	 */
 	InputStream getFileByLocationId(String fileId);
 
+	/**
+	 * Retrieve a CPC+ file by file id, leaving it gzip compressed if it is stored that way and the client accepts it
+	 *
+	 * @param fileId Id of the file
+	 * @param gzipAccepted whether the client accepts gzip compressed content
+	 * @return file to be returned, with the encoding it is returned in
+	 */
+	StoredFile getFileByLocationId(String fileId, boolean gzipAccepted);
+
 	/**
 	 * Retrieve the CPC+ API to NPI Validation file from S3
 	 *
 	 * @return file used for cpc+ validation.
 	 */
 	InputStream getCpcPlusValidationFile();
+
+	/**
+	 * Retrieve the CPC+ API to NPI Validation file from S3 unless it still has the given entity tag
+	 *
+	 * @param eTag entity tag of the file already held, {@code null} to always retrieve it
+	 * @return file used for cpc+ validation with its entity tag, without content when it is unchanged,
+	 * or {@code null} when no file is configured
+	 */
+	StoredFile getCpcPlusValidationFile(String eTag);
 }
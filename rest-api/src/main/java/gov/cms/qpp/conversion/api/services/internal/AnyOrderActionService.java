@@ -3,14 +3,13 @@ package gov.cms.qpp.conversion.api.services.internal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.task.TaskExecutor;
-import org.springframework.retry.backoff.ExponentialBackOffPolicy;
-import org.springframework.retry.policy.SimpleRetryPolicy;
-import org.springframework.retry.support.RetryTemplate;
 
-import java.util.Collections;
-import java.util.Map;
+import gov.cms.qpp.conversion.api.exceptions.CircuitOpenException;
+
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A service extends from this to help it do something in a guaranteed fashion.
@@ -20,6 +19,10 @@ import java.util.concurrent.CompletableFuture;
  * and retries so you don't need to in {@link #asynchronousAction(Object)}.  For multiple calls to {@link #actOnItem(Object)},
  * the actions will complete in an indeterminate order.
  *
+ * Failed attempts are retried by the {@link RetryScheduler}, which waits out the delay between attempts without holding a
+ * thread of the {@link TaskExecutor}.  Attempts are not made while the circuit of the action is open; they wait for the
+ * circuit to let a trial attempt through without counting as failed attempts.
+ *
  * This allows an application not to deal with distributed transactions and having to solve the problem of how to rollback a
  * distributed transaction.  In lieu of a standard transaction contract, this gives the application eventual consistency.
  * http://www.grahamlea.com/2016/08/distributed-transactions-microservices-icebergs/
@@ -28,18 +31,18 @@ import java.util.concurrent.CompletableFuture;
  * @param <S> The type of object that is returned from {@link #asynchronousAction(Object)}.
  */
 public abstract class AnyOrderActionService<T, S> {
-	private static final int INITIAL_INTERVAL = 2000;
-	private static final double MULTIPLIER = 2.0;
-	private static final int MAX_INTERVAL = 60000;
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(AnyOrderActionService.class);
 
 	protected final TaskExecutor taskExecutor;
+	private final RetryScheduler retryScheduler;
 
-	public AnyOrderActionService(TaskExecutor taskExecutor) {
+	public AnyOrderActionService(TaskExecutor taskExecutor, RetryScheduler retryScheduler) {
 		Objects.requireNonNull(taskExecutor, "taskExecutor");
+		Objects.requireNonNull(retryScheduler, "retryScheduler");
 
 		this.taskExecutor = taskExecutor;
+		this.retryScheduler = retryScheduler;
 	}
 
 	/**
@@ -67,20 +70,10 @@ public abstract class AnyOrderActionService<T, S> {
 	 * @return A {@link CompletableFuture} that will complete once the action completes without failure.
 	 */
 	protected CompletableFuture<S> actOnItem(T objectToActOn) {
-		return CompletableFuture.supplyAsync(() -> {
-			RetryTemplate retry = retryTemplate();
-
-			API_LOG.info("Trying to execute action {}", getActionName());
-			return retry.execute(context -> {
-				if (context.getLastThrowable() != null) {
-					API_LOG.error("Last try resulted in a thrown throwable", context.getLastThrowable());
-				}
-				if (context.getRetryCount() > 0) {
-					API_LOG.warn("Retry {} - trying to execute action again", context.getRetryCount());
-				}
-				return asynchronousAction(objectToActOn);
-			});
-		}, taskExecutor);
+		CompletableFuture<S> result = new CompletableFuture<>();
+		API_LOG.info("Trying to execute action {}", getActionName());
+		submitAttempt(objectToActOn, 1, result);
+		return result;
 	}
 
 	/**
@@ -90,28 +83,92 @@ public abstract class AnyOrderActionService<T, S> {
 	 */
 	protected abstract String getActionName();
 
-	/**
-	 * Returns a retry template that always retries.  Starts with a second interval between retries and doubles that interval up
-	 * to a minute for each retry.
-	 *
-	 * @return A retry template.
-	 */
-	protected RetryTemplate retryTemplate() {
-		RetryTemplate retry = new RetryTemplate();
+	private void submitAttempt(T objectToActOn, int attempt, CompletableFuture<S> result) {
+		execute(() -> attempt(objectToActOn, attempt, result), result);
+	}
 
-		Map<Class<? extends Throwable>, Boolean> stopExceptions =
-				Collections.singletonMap(InterruptedException.class, Boolean.FALSE);
-		SimpleRetryPolicy retryPolicy =
-				new SimpleRetryPolicy(5, stopExceptions, true, true);
+	private void handOffAttempt(T objectToActOn, int attempt, CompletableFuture<S> result) {
+		execute(new RetryScheduler.HandOff() {
+			@Override
+			public void run() {
+				attempt(objectToActOn, attempt, result);
+			}
+
+			@Override
+			public void defer() {
+				deferAttempt(objectToActOn, attempt, result, 0,
+						new RejectedExecutionException("No thread is free to retry action " + getActionName()));
+			}
+		}, result);
+	}
 
-		retry.setRetryPolicy(retryPolicy);
+	private void execute(Runnable task, CompletableFuture<S> result) {
+		try {
+			taskExecutor.execute(task);
+		} catch (RejectedExecutionException exception) {
+			result.completeExceptionally(exception);
+		}
+	}
 
-		ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
-		backOffPolicy.setInitialInterval(INITIAL_INTERVAL);
-		backOffPolicy.setMultiplier(MULTIPLIER);
-		backOffPolicy.setMaxInterval(MAX_INTERVAL);
-		retry.setBackOffPolicy(backOffPolicy);
+	private void attempt(T objectToActOn, int attempt, CompletableFuture<S> result) {
+		if (attempt > 1) {
+			API_LOG.warn("Retry {} - trying to execute action {} again", attempt - 1, getActionName());
+		}
+
+		CircuitBreaker breaker = retryScheduler.breaker(getActionName());
+		if (!breaker.tryAcquire()) {
+			deferAttempt(objectToActOn, attempt, result, TimeUnit.NANOSECONDS.toMillis(breaker.remainingOpenNanos()),
+					new CircuitOpenException(getActionName()));
+			return;
+		}
+
+		S actionResult;
+		try {
+			actionResult = asynchronousAction(objectToActOn);
+		} catch (RuntimeException exception) {
+			if (isInterruption(exception)) {
+				breaker.recordAbandoned();
+				result.completeExceptionally(exception);
+			} else {
+				breaker.recordFailure();
+				API_LOG.error("Last try resulted in a thrown throwable", exception);
+				retryOrFail(objectToActOn, attempt, result, exception);
+			}
+			return;
+		} catch (Error error) {
+			breaker.recordAbandoned();
+			result.completeExceptionally(error);
+			throw error;
+		}
+
+		breaker.recordSuccess();
+		result.complete(actionResult);
+	}
+
+	private void retryOrFail(T objectToActOn, int attempt, CompletableFuture<S> result, RuntimeException failure) {
+		boolean retrying = attempt < retryScheduler.getMaxAttempts()
+				&& retryScheduler.schedule(attempt, () -> handOffAttempt(objectToActOn, attempt + 1, result));
+		if (!retrying) {
+			result.completeExceptionally(failure);
+		}
+	}
 
-		return retry;
+	private void deferAttempt(T objectToActOn, int attempt, CompletableFuture<S> result, long waitMillis,
+			RuntimeException failure) {
+		if (!retryScheduler.defer(waitMillis, () -> handOffAttempt(objectToActOn, attempt, result))) {
+			result.completeExceptionally(failure);
+		}
+	}
+
+	/**
+	 * An interrupted attempt is not retried.
+	 */
+	static boolean isInterruption(Throwable thrown) {
+		for (Throwable cause = thrown; cause != null; cause = cause.getCause()) {
+			if (cause instanceof InterruptedException) {
+				return true;
+			}
+		}
+		return false;
 	}
 }
@@ -2,7 +2,10 @@ package gov.cms.qpp.conversion.api.services.internal;
 
 
 import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -17,6 +20,8 @@ import gov.cms.qpp.conversion.Source;
 import gov.cms.qpp.conversion.api.exceptions.AuditException;
 import gov.cms.qpp.conversion.api.helper.MetadataHelper;
 import gov.cms.qpp.conversion.api.helper.MetadataHelper.Outcome;
+import gov.cms.qpp.conversion.api.internal.outbox.Artifact;
+import gov.cms.qpp.conversion.api.internal.outbox.AuditOutbox;
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.services.AuditService;
@@ -36,6 +41,7 @@ public class AuditServiceImpl implements AuditService {
 	private StorageService storageService;
 	private DbService dbService;
 	private Environment environment;
+	private AuditOutbox auditOutbox;
 
 	/**
 	 * initialize
@@ -43,12 +49,14 @@ public class AuditServiceImpl implements AuditService {
 	 * @param storageService save conversion output
 	 * @param dbService save conversion metadata
 	 * @param environment hooks to the environment in which the application runs
+	 * @param auditOutbox journals audits to be written in the background, when enabled
 	 */
 	public AuditServiceImpl(final StorageService storageService, final DbService dbService,
-							final Environment environment) {
+							final Environment environment, final AuditOutbox auditOutbox) {
 		this.storageService = storageService;
 		this.dbService = dbService;
 		this.environment = environment;
+		this.auditOutbox = auditOutbox;
 	}
 
 	/**
@@ -70,6 +78,17 @@ public class AuditServiceImpl implements AuditService {
 		Source qrdaSource = conversionReport.getQrdaSource();
 		Source qppSource = conversionReport.getQppSource();
 
+		Map<Artifact, Source> artifacts = new EnumMap<>(Artifact.class);
+		artifacts.put(Artifact.SUBMISSION, qrdaSource);
+		artifacts.put(Artifact.QPP, qppSource);
+		if (journal(metadata, artifacts)) {
+			return CompletableFuture.completedFuture(metadata);
+		}
+		if (bundled()) {
+			return storeBundle(metadata, artifacts).whenComplete((nada, thrown) -> persist(metadata, thrown))
+					.thenApply(ignore -> metadata);
+		}
+
 		CompletableFuture<Void> allWrites = CompletableFuture.allOf(
 				storeContent(qrdaSource).thenAccept(metadata::setSubmissionLocator),
 				storeContent(qppSource).thenAccept(metadata::setQppLocator));
@@ -95,6 +114,16 @@ public class AuditServiceImpl implements AuditService {
 		Source qrdaSource = conversionReport.getQrdaSource();
 		Source validationErrorSource = conversionReport.getValidationErrorsSource();
 
+		Map<Artifact, Source> artifacts = new EnumMap<>(Artifact.class);
+		artifacts.put(Artifact.CONVERSION_ERRORS, validationErrorSource);
+		artifacts.put(Artifact.SUBMISSION, qrdaSource);
+		if (journal(metadata, artifacts)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		if (bundled()) {
+			return storeBundle(metadata, artifacts).whenComplete((nada, thrown) -> persist(metadata, thrown));
+		}
+
 		CompletableFuture<Void> allWrites = CompletableFuture.allOf(
 				storeContent(validationErrorSource).thenAccept(metadata::setConversionErrorLocator),
 				storeContent(qrdaSource).thenAccept(metadata::setSubmissionLocator));
@@ -121,6 +150,19 @@ public class AuditServiceImpl implements AuditService {
 		Source rawValidationErrorSource = conversionReport.getRawValidationErrorsOrEmptySource();
 
 		Metadata metadata = initMetadata(conversionReport, Outcome.VALIDATION_ERROR);
+
+		Map<Artifact, Source> artifacts = new EnumMap<>(Artifact.class);
+		artifacts.put(Artifact.RAW_VALIDATION_ERRORS, rawValidationErrorSource);
+		artifacts.put(Artifact.VALIDATION_ERRORS, validationErrorSource);
+		artifacts.put(Artifact.QPP, qppSource);
+		artifacts.put(Artifact.SUBMISSION, qrdaSource);
+		if (journal(metadata, artifacts)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		if (bundled()) {
+			return storeBundle(metadata, artifacts).whenComplete((nada, thrown) -> persist(metadata, thrown));
+		}
+
 		CompletableFuture<Void> allWrites = CompletableFuture.allOf(
 				storeContent(rawValidationErrorSource).thenAccept(metadata::setRawValidationErrorLocator),
 				storeContent(validationErrorSource).thenAccept(metadata::setValidationErrorLocator),
@@ -145,6 +187,15 @@ public class AuditServiceImpl implements AuditService {
 		return returnValue;
 	}
 
+	/**
+	 * Determines if the artifacts of an audit are stored as a single bundle
+	 *
+	 * @return whether {@link Constants#AUDIT_BUNDLE_ENV_VARIABLE} is on
+	 */
+	private boolean bundled() {
+		return Boolean.TRUE.equals(environment.getProperty(Constants.AUDIT_BUNDLE_ENV_VARIABLE, Boolean.class));
+	}
+
 	/**
 	 * Initializes {@link Metadata} from the {@link ConversionReport} and conversion outcome
 	 *
@@ -177,6 +228,25 @@ public class AuditServiceImpl implements AuditService {
 		return details;
 	}
 
+	/**
+	 * Journals the audit to the {@link AuditOutbox} when it is enabled. A journaled audit is given its UUID up front
+	 * and written in the background.
+	 *
+	 * @param metadata The {@link Metadata} to save.
+	 * @param artifacts The {@link Source}s to store and the locators to point at them.
+	 * @return Whether the audit was journaled.
+	 */
+	private boolean journal(Metadata metadata, Map<Artifact, Source> artifacts) {
+		if (!auditOutbox.isEnabled()) {
+			return false;
+		}
+
+		if (metadata.getUuid() == null) {
+			metadata.setUuid(UUID.randomUUID().toString());
+		}
+		return auditOutbox.submit(metadata, artifacts);
+	}
+
 	/**
 	 * Calls the {@link StorageService} to store an {@link InputStream}.
 	 *
@@ -188,6 +258,21 @@ public class AuditServiceImpl implements AuditService {
 		return storageService.store(key.toString(), sourceToStore::toInputStream, sourceToStore.getSize());
 	}
 
+	/**
+	 * Calls the {@link StorageService} to store all artifacts of an audit as one bundled object, and points the
+	 * metadata at their parts.
+	 *
+	 * @param metadata The {@link Metadata} to point at the artifacts.
+	 * @param artifacts The {@link Source}s to store.
+	 * @return A {@link CompletableFuture} that represents storing the bundle.
+	 */
+	private CompletableFuture<Void> storeBundle(Metadata metadata, Map<Artifact, Source> artifacts) {
+		Map<String, Source> parts = new LinkedHashMap<>();
+		artifacts.forEach((artifact, source) -> parts.put(artifact.getPartName(), source));
+		return storageService.storeBundle(UUID.randomUUID().toString(), parts).thenAccept(locators ->
+				artifacts.keySet().forEach(artifact -> artifact.locate(metadata, locators.get(artifact.getPartName()))));
+	}
+
 	/**
 	 * Calls the {@link DbService} to store the {@link Metadata} in a database.
 	 *
@@ -0,0 +1,78 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Where each part of a bundled S3 object starts and how long it is.
+ *
+ * The parts are laid out one after another in the order they are added. The index is kept in the user metadata of
+ * the object as {@code name:offset:length} entries separated by commas, so a part can be read with a ranged GET.
+ */
+final class BundleIndex {
+
+	private final Map<String, long[]> parts = new LinkedHashMap<>();
+	private long size;
+
+	/**
+	 * Adds a part after the parts added so far.
+	 *
+	 * @param name name of the part, without {@code :} or {@code ,}
+	 * @param length length of the part in bytes
+	 */
+	void add(String name, long length) {
+		parts.put(name, new long[] {size, length});
+		size += length;
+	}
+
+	/**
+	 * @return length of the bundled object in bytes
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @param name name of a part
+	 * @return offset and length of the part, {@code null} if the bundle has no such part
+	 */
+	long[] range(String name) {
+		return parts.get(name);
+	}
+
+	/**
+	 * @return the index as stored in the user metadata of the object
+	 */
+	String format() {
+		StringJoiner index = new StringJoiner(",");
+		parts.forEach((name, range) -> index.add(name + ":" + range[0] + ":" + range[1]));
+		return index.toString();
+	}
+
+	/**
+	 * Reads an index back from the user metadata of an object.
+	 *
+	 * @param index the stored index, may be {@code null}
+	 * @return the index, empty if nothing was stored
+	 * @throws IllegalArgumentException if the index is malformed
+	 */
+	static BundleIndex parse(String index) {
+		BundleIndex parsed = new BundleIndex();
+		if (index == null || index.isEmpty()) {
+			return parsed;
+		}
+
+		for (String entry : index.split(",")) {
+			String[] fields = entry.split(":");
+			if (fields.length != 3) {
+				throw new IllegalArgumentException("Malformed bundle index entry " + entry);
+			}
+			long offset = Long.parseLong(fields[1]);
+			long length = Long.parseLong(fields[2]);
+			parsed.parts.put(fields[0], new long[] {offset, length});
+			parsed.size = Math.max(parsed.size, offset + length);
+		}
+		return parsed;
+	}
+}
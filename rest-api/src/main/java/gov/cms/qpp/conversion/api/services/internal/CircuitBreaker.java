@@ -0,0 +1,103 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops attempts of an action after it failed a number of times in a row.
+ *
+ * The circuit opens after {@code failureThreshold} consecutive failures and rejects attempts until {@code openNanos}
+ * passed. It then lets a single trial attempt through, which closes the circuit when it succeeds and opens it again
+ * when it fails.
+ */
+class CircuitBreaker {
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	private final String actionName;
+	private final int failureThreshold;
+	private final long openNanos;
+	private final LongSupplier nanoTime;
+
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean open;
+	private boolean trialInFlight;
+
+	CircuitBreaker(String actionName, int failureThreshold, long openNanos, LongSupplier nanoTime) {
+		this.actionName = actionName;
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openNanos;
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * Determines whether an attempt may be made. An attempt that is allowed must be followed by a call to
+	 * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #recordAbandoned()}.
+	 *
+	 * @return whether the attempt may be made
+	 */
+	synchronized boolean tryAcquire() {
+		if (!open) {
+			return true;
+		}
+		if (trialInFlight || nanoTime.getAsLong() - openedAt < openNanos) {
+			return false;
+		}
+		trialInFlight = true;
+		return true;
+	}
+
+	/**
+	 * Closes the circuit.
+	 */
+	synchronized void recordSuccess() {
+		if (open) {
+			API_LOG.info("Closing the circuit of action " + actionName);
+		}
+		consecutiveFailures = 0;
+		open = false;
+		trialInFlight = false;
+	}
+
+	/**
+	 * Counts a failure and opens the circuit once the failure threshold is reached or the trial attempt failed.
+	 */
+	synchronized void recordFailure() {
+		consecutiveFailures++;
+		if (trialInFlight || (!open && consecutiveFailures >= failureThreshold)) {
+			API_LOG.warn("Opening the circuit of action " + actionName + " after " + consecutiveFailures
+					+ " consecutive failures");
+			open = true;
+			openedAt = nanoTime.getAsLong();
+		}
+		trialInFlight = false;
+	}
+
+	/**
+	 * Releases an attempt that ended without telling whether the action works, such as an interrupted one.
+	 */
+	synchronized void recordAbandoned() {
+		trialInFlight = false;
+	}
+
+	/**
+	 * @return nanoseconds until a trial attempt may be let through, zero if the circuit is closed or the open time
+	 * passed
+	 */
+	synchronized long remainingOpenNanos() {
+		if (!open) {
+			return 0;
+		}
+		return Math.max(openNanos - (nanoTime.getAsLong() - openedAt), 0);
+	}
+
+	/**
+	 * @return whether attempts are currently rejected
+	 */
+	synchronized boolean isOpen() {
+		return open;
+	}
+}
@@ -0,0 +1,107 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
+
+/**
+ * The opaque continuation token of a query over several partitions of an index. It holds the
+ * {@code LastEvaluatedKey} of every partition that has more items, or an empty key for a partition that was not read
+ * yet. Partitions that were read to the end are left out.
+ *
+ * <p>The token is the URL safe Base64 of the keys as JSON. Only string key attributes are supported, which is what
+ * the keys of the metadata table and its indexes are made of.
+ */
+final class ContinuationToken {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final TypeReference<TreeMap<Integer, Map<String, String>>> TOKEN_TYPE =
+			new TypeReference<TreeMap<Integer, Map<String, String>>>() {};
+
+	private ContinuationToken() {
+	}
+
+	/**
+	 * Encodes the partitions left to read.
+	 *
+	 * @param remaining the key to continue from by partition, empty for a partition not read yet
+	 * @return the token, {@code null} when no partition is left
+	 */
+	static String encode(Map<Integer, Map<String, AttributeValue>> remaining) {
+		if (remaining.isEmpty()) {
+			return null;
+		}
+
+		Map<Integer, Map<String, String>> keys = new TreeMap<>();
+		remaining.forEach((partition, key) -> {
+			Map<String, String> values = new LinkedHashMap<>();
+			key.forEach((name, value) -> {
+				if (value.getS() == null) {
+					throw new IllegalStateException("Key attribute " + name + " is not a string");
+				}
+				values.put(name, value.getS());
+			});
+			keys.put(partition, values);
+		});
+
+		try {
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(keys));
+		} catch (IOException exception) {
+			throw new IllegalStateException("Could not encode the continuation token", exception);
+		}
+	}
+
+	/**
+	 * Decodes the partitions left to read.
+	 *
+	 * @param token the token, {@code null} to start reading every partition
+	 * @param partitions number of partitions
+	 * @return the key to continue from by partition, in partition order, empty for a partition not read yet
+	 * @throws InvalidContinuationTokenException if the token was not encoded by {@link #encode(Map)}
+	 */
+	static TreeMap<Integer, Map<String, AttributeValue>> decode(String token, int partitions) {
+		TreeMap<Integer, Map<String, AttributeValue>> remaining = new TreeMap<>();
+		if (token == null) {
+			for (int partition = 0; partition < partitions; partition++) {
+				remaining.put(partition, Collections.emptyMap());
+			}
+			return remaining;
+		}
+
+		TreeMap<Integer, Map<String, String>> keys;
+		try {
+			keys = MAPPER.readValue(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8),
+					TOKEN_TYPE);
+		} catch (IOException | IllegalArgumentException exception) {
+			throw new InvalidContinuationTokenException("The continuation token could not be read", exception);
+		}
+		if (keys == null || keys.isEmpty()) {
+			throw new InvalidContinuationTokenException("The continuation token has no partitions", null);
+		}
+
+		for (Map.Entry<Integer, Map<String, String>> entry : keys.entrySet()) {
+			if (entry.getKey() < 0 || entry.getKey() >= partitions || entry.getValue() == null) {
+				throw new InvalidContinuationTokenException("The continuation token has an unknown partition", null);
+			}
+			Map<String, AttributeValue> key = new LinkedHashMap<>();
+			for (Map.Entry<String, String> attribute : entry.getValue().entrySet()) {
+				if (attribute.getValue() == null) {
+					throw new InvalidContinuationTokenException("The continuation token has an empty key", null);
+				}
+				key.put(attribute.getKey(), new AttributeValue().withS(attribute.getValue()));
+			}
+			remaining.put(entry.getKey(), key);
+		}
+		return remaining;
+	}
+}
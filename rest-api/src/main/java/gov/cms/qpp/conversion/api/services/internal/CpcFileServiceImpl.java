@@ -3,6 +3,8 @@ package gov.cms.qpp.conversion.api.services.internal;
 import gov.cms.qpp.conversion.api.exceptions.InvalidFileTypeException;
 import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
 import gov.cms.qpp.conversion.api.services.CpcFileService;
 import gov.cms.qpp.conversion.api.services.DbService;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +55,29 @@ public class CpcFileServiceImpl implements CpcFileService {
 		return transformMetaDataToUnprocessedCpcFileData(metadata);
 	}
 
+	/**
+	 * Calls the DbService for a page of unprocessed metadata to transform into UnprocessedCpcFileData
+	 *
+	 * @param pageSize most items on the page
+	 * @param continuationToken token of the previous page, {@code null} for the first page
+	 * @return page of {@link UnprocessedCpcFileData}
+	 */
+	@Override
+	public ResultPage<UnprocessedCpcFileData> getUnprocessedCpcPlusFiles(int pageSize, String continuationToken) {
+		return dbService.getUnprocessedCpcPlusMetaData(pageSize, continuationToken).map(UnprocessedCpcFileData::new);
+	}
+
+	/**
+	 * Calls the DbService for the pages of unprocessed metadata, transforming each into UnprocessedCpcFileData
+	 *
+	 * @param pages consumer of the pages of {@link UnprocessedCpcFileData}
+	 */
+	@Override
+	public void forEachUnprocessedCpcPlusFiles(Consumer<List<UnprocessedCpcFileData>> pages) {
+		dbService.forEachUnprocessedCpcPlusMetaData(
+				metadata -> pages.accept(transformMetaDataToUnprocessedCpcFileData(metadata)));
+	}
+
 	/**
 	 * Retrieves the file location id and retrieves the file if it is an unprocessed cpc+ file
 	 *
@@ -67,6 +93,22 @@ public class CpcFileServiceImpl implements CpcFileService {
 		throw new NoFileInDatabaseException(FILE_NOT_FOUND);
 	}
 
+	/**
+	 * Retrieves the file location id and retrieves the file if it is an unprocessed cpc+ file
+	 *
+	 * @param fileId {@link Metadata} identifier
+	 * @param gzipAccepted whether the client accepts gzip compressed content
+	 * @return file contents with their encoding
+	 */
+	@Override
+	public StoredFile getFileById(String fileId, boolean gzipAccepted) {
+		Metadata metadata = getMetadataById(fileId);
+		if (isAnUnprocessedCpcFile(metadata)) {
+			return storageService.getFileByLocationId(metadata.getSubmissionLocator(), gzipAccepted);
+		}
+		throw new NoFileInDatabaseException(FILE_NOT_FOUND);
+	}
+
 	/**
 	 * Retrieves the file location id and retrieves the corresponding submission's QPP
 	 *
@@ -79,6 +121,19 @@ public class CpcFileServiceImpl implements CpcFileService {
 		return new InputStreamResource(storageService.getFileByLocationId(metadata.getQppLocator()));
 	}
 
+	/**
+	 * Retrieves the file location id and retrieves the corresponding submission's QPP
+	 *
+	 * @param fileId {@link Metadata} identifier
+	 * @param gzipAccepted whether the client accepts gzip compressed content
+	 * @return QPP contents with their encoding
+	 */
+	@Override
+	public StoredFile getQppById(String fileId, boolean gzipAccepted) {
+		Metadata metadata = getMetadataById(fileId);
+		return storageService.getFileByLocationId(metadata.getQppLocator(), gzipAccepted);
+	}
+
 	/**
 	 * Process to ensure the file is an unprocessed cpc+ file and marks the file as processed
 	 *
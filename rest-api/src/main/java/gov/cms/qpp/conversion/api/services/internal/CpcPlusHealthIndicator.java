@@ -0,0 +1,56 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import gov.cms.qpp.conversion.api.model.CpcValidationInfoMap;
+
+/**
+ * Reports the age of the CPC+ validation data under {@code /actuator/health}. Data that was never loaded, or was not
+ * found current for two refresh intervals, is reported as {@code UNKNOWN}, which leaves the overall health alone:
+ * conversions go on with the data they have.
+ */
+@Component
+public class CpcPlusHealthIndicator extends AbstractHealthIndicator {
+
+	private final QrdaServiceImpl qrdaService;
+
+	/**
+	 * @param qrdaService the service holding the CPC+ validation data
+	 */
+	public CpcPlusHealthIndicator(QrdaServiceImpl qrdaService) {
+		super("CPC+ validation data health check failed");
+		this.qrdaService = qrdaService;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		if (!qrdaService.isCpcPlusConfigured()) {
+			builder.up().withDetail("configured", false);
+			return;
+		}
+
+		CpcValidationInfoMap data = qrdaService.getCpcPlusData();
+		double ageSeconds = qrdaService.getCpcPlusAgeSeconds();
+		double staleSeconds = 2 * qrdaService.getCpcPlusRefreshMillis() / 1000.0;
+		if (data == null || Double.isNaN(ageSeconds) || ageSeconds > staleSeconds) {
+			builder.unknown();
+		} else {
+			builder.up();
+		}
+
+		builder.withDetail("configured", true);
+		if (data != null) {
+			builder.withDetail("eTag", String.valueOf(qrdaService.getCpcPlusETag()))
+					.withDetail("combinations", data.size());
+		}
+		if (!Double.isNaN(ageSeconds)) {
+			builder.withDetail("ageSeconds", (long) ageSeconds);
+		}
+		String failure = qrdaService.getCpcPlusFailure();
+		if (failure != null) {
+			builder.withDetail("lastFailure", failure);
+		}
+	}
+}
@@ -1,46 +1,126 @@
 package gov.cms.qpp.conversion.api.services.internal;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import gov.cms.qpp.conversion.api.config.ConcurrencyConfig;
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
+import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
 import gov.cms.qpp.conversion.api.services.DbService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+
+import javax.annotation.PreDestroy;
 
 /**
  * Writes a {@link Metadata} object to DynamoDB.
+ *
+ * Writes are collected into batches by a {@link MetadataBatchWriter}, so that conversions finishing at about the same
+ * time share a {@code BatchWriteItem} request.
  */
 @Service
-public class DbServiceImpl extends AnyOrderActionService<Metadata, Metadata>
-		implements DbService {
+public class DbServiceImpl implements DbService {
+
+	static final int DEFAULT_BATCH_SIZE = MetadataBatchWriter.MAX_BATCH_SIZE;
+	static final long DEFAULT_BATCH_WINDOW_MILLIS = 10;
+	static final int MAX_PAGE_SIZE = 1000;
+	static final String CPC_PROCESSED_INDEX = "Cpc-CpcProcessed_CreateDate-index";
+	static final String UUID_ATTRIBUTE = "Uuid";
+	static final String FILE_NAME_ATTRIBUTE = "FileName";
+	static final String APM_ATTRIBUTE = "Apm";
+	static final String OVERALL_STATUS_ATTRIBUTE = "OverallStatus";
+	static final String PURPOSE_ATTRIBUTE = "Purpose";
+	static final Set<String> START_KEY_ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			UUID_ATTRIBUTE, Constants.DYNAMO_CPC_ATTRIBUTE, Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE)));
+	static final List<String> LISTING_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(UUID_ATTRIBUTE,
+			FILE_NAME_ATTRIBUTE, APM_ATTRIBUTE, Constants.DYNAMO_CREATE_DATE_ATTRIBUTE, OVERALL_STATUS_ATTRIBUTE,
+			PURPOSE_ATTRIBUTE));
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(DbServiceImpl.class);
 	private static final int LIMIT = 4;
 
+	private final TaskExecutor taskExecutor;
 	private final Optional<DynamoDBMapper> mapper;
+	private final AmazonDynamoDB dynamoDb;
 	private final Environment environment;
+	private final Optional<MetadataBatchWriter> batchWriter;
+
+	/**
+	 * Batches the writes as configured by {@link Constants#DB_BATCH_SIZE_ENV_VARIABLE} and
+	 * {@link Constants#DB_BATCH_WINDOW_MILLIS_ENV_VARIABLE}.
+	 *
+	 * @param taskExecutor runs the batch writes
+	 * @param retryScheduler schedules the retries of failed writes
+	 * @param mapper the DynamoDB mapper, absent when there is no table to write to
+	 * @param dynamoDb the DynamoDB client, for the projected CPC+ listing
+	 * @param environment hooks to application environment
+	 */
+	@Autowired
+	public DbServiceImpl(@Qualifier(ConcurrencyConfig.DB_EXECUTOR) TaskExecutor taskExecutor,
+			RetryScheduler retryScheduler, Optional<DynamoDBMapper> mapper, AmazonDynamoDB dynamoDb,
+			Environment environment) {
+		this(taskExecutor, retryScheduler, mapper, dynamoDb, environment,
+				environment.getProperty(Constants.DB_BATCH_SIZE_ENV_VARIABLE, Integer.class, DEFAULT_BATCH_SIZE),
+				environment.getProperty(Constants.DB_BATCH_WINDOW_MILLIS_ENV_VARIABLE, Long.class,
+						DEFAULT_BATCH_WINDOW_MILLIS));
+	}
 
-	public DbServiceImpl(TaskExecutor taskExecutor, Optional<DynamoDBMapper> mapper, Environment environment) {
-		super(taskExecutor);
+	/**
+	 * Creates the service with explicit batching.
+	 *
+	 * @param taskExecutor runs the batch writes
+	 * @param retryScheduler schedules the retries of failed writes
+	 * @param mapper the DynamoDB mapper, absent when there is no table to write to
+	 * @param dynamoDb the DynamoDB client, for the projected CPC+ listing
+	 * @param environment hooks to application environment
+	 * @param batchSize most items in a batch
+	 * @param batchWindowMillis longest time a write waits for its batch to fill
+	 */
+	public DbServiceImpl(TaskExecutor taskExecutor, RetryScheduler retryScheduler, Optional<DynamoDBMapper> mapper,
+			AmazonDynamoDB dynamoDb, Environment environment, int batchSize, long batchWindowMillis) {
+		Objects.requireNonNull(taskExecutor, "taskExecutor");
+		Objects.requireNonNull(retryScheduler, "retryScheduler");
+		Objects.requireNonNull(dynamoDb, "dynamoDb");
+
+		this.taskExecutor = taskExecutor;
 		this.mapper = mapper;
+		this.dynamoDb = dynamoDb;
 		this.environment = environment;
+		this.batchWriter = mapper.map(dynamoDbMapper -> new MetadataBatchWriter(taskExecutor, retryScheduler,
+				dynamoDbMapper, batchSize, batchWindowMillis));
 	}
 
 	/**
@@ -61,46 +141,287 @@ public class DbServiceImpl extends AnyOrderActionService<Metadata, Metadata>
 			return CompletableFuture.completedFuture(Metadata.create());
 		}
 
+		if (!batchWriter.isPresent()) {
+			API_LOG.warn("Skipping writing of item to DynamoDB with UUID {} because the dynamodb mapper is absent", meta.getUuid());
+			return CompletableFuture.completedFuture(meta);
+		}
+
 		API_LOG.info("Writing item to DynamoDB");
 
-		return actOnItem(meta);
+		return batchWriter.get().write(meta);
 	}
 
 	/**
-	 * Queries the DynamoDB GSI for unprocessed {@link Metadata} with a maximum of 96 items.
-	 *
-	 * Iterates over all of the different partitions, returning a maximum of three items from each.
+	 * Writes the items that are still collected for a batch.
+	 */
+	@PreDestroy
+	public void close() {
+		batchWriter.ifPresent(MetadataBatchWriter::close);
+	}
+
+	/**
+	 * Queries the DynamoDB GSI for all of the unprocessed {@link Metadata}.
 	 *
 	 * @return {@link List} of unprocessed {@link Metadata}
+	 * @see #forEachUnprocessedCpcPlusMetaData(Consumer)
 	 */
+	@Override
 	public List<Metadata> getUnprocessedCpcPlusMetaData() {
-		if (mapper.isPresent()) {
-			API_LOG.info("Getting list of unprocessed CPC+ metadata...");
-
-			String cpcConversionStartDate = Optional.ofNullable(
-				environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).orElse("");
-			String year = cpcConversionStartDate.substring(0, 4);
-
-			return IntStream.range(0, Constants.CPC_DYNAMO_PARTITIONS).mapToObj(partition -> {
-				Map<String, AttributeValue> valueMap = new HashMap<>();
-				valueMap.put(":cpcValue", new AttributeValue().withS(Constants.CPC_DYNAMO_PARTITION_START + partition));
-				valueMap.put(":cpcProcessedValue", new AttributeValue().withS("false#"+year));
-				valueMap.put(":createDate", new AttributeValue().withS(cpcConversionStartDate));
-
-				DynamoDBQueryExpression<Metadata> metadataQuery = new DynamoDBQueryExpression<Metadata>()
-					.withIndexName("Cpc-CpcProcessed_CreateDate-index")
-					.withKeyConditionExpression(Constants.DYNAMO_CPC_ATTRIBUTE + " = :cpcValue and begins_with("
-							+ Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE + ", :cpcProcessedValue)")
-					.withFilterExpression(Constants.DYNAMO_CREATE_DATE_ATTRIBUTE + " > :createDate")
-					.withExpressionAttributeValues(valueMap)
-					.withConsistentRead(false);
-
-				return mapper.get().query(Metadata.class, metadataQuery).stream();
-			}).flatMap(Function.identity()).collect(Collectors.toList());
-		} else {
+		List<Metadata> metadata = new ArrayList<>();
+		forEachUnprocessedCpcPlusMetaData(metadata::addAll);
+		return metadata;
+	}
+
+	/**
+	 * Queries the partitions of the DynamoDB GSI for unprocessed {@link Metadata} in parallel, on the database
+	 * executor, handing every page to the consumer on the calling thread as it arrives.
+	 *
+	 * The next page of a partition is only asked for once the consumer took its previous page, so at most one page
+	 * per partition is held at a time. Pages of different partitions arrive in no particular order.
+	 *
+	 * When {@link Constants#CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE} is set, only the {@link #LISTING_ATTRIBUTES}
+	 * of the {@link Metadata} are filled in.
+	 *
+	 * @param pages consumer of the pages of unprocessed {@link Metadata}
+	 */
+	@Override
+	public void forEachUnprocessedCpcPlusMetaData(Consumer<List<Metadata>> pages) {
+		if (!mapper.isPresent()) {
+			API_LOG.warn("Could ngot get unprocessed CPC+ metadata because the dynamodb mapper is absent");
+			return;
+		}
+
+		API_LOG.info("Getting list of unprocessed CPC+ metadata...");
+		PartitionQuery query = unprocessedQuery();
+		CompletionService<PartitionPage> queries = new ExecutorCompletionService<>(taskExecutor);
+		int pending = 0;
+		for (int partition = 0; partition < Constants.CPC_DYNAMO_PARTITIONS; partition++) {
+			submitQuery(queries, query, partition, null, null);
+			pending++;
+		}
+
+		while (pending > 0) {
+			PartitionPage page = takeQuery(queries);
+			pending--;
+			if (!page.results.isEmpty()) {
+				pages.accept(page.results);
+			}
+			if (page.lastEvaluatedKey != null) {
+				submitQuery(queries, query, page.partition, page.lastEvaluatedKey, null);
+				pending++;
+			}
+		}
+	}
+
+	/**
+	 * Queries a page of unprocessed {@link Metadata} from the partitions of the DynamoDB GSI in parallel.
+	 *
+	 * The page size is shared out among the partitions left to read, each of which is asked for one page of its
+	 * share. A page may hold fewer items than asked for, even none, as the filter on the creation date applies after
+	 * the page is read. The listing ends when no continuation token is returned.
+	 *
+	 * When {@link Constants#CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE} is set, only the {@link #LISTING_ATTRIBUTES}
+	 * of the {@link Metadata} are filled in.
+	 *
+	 * @param pageSize most items on the page, capped at {@link #MAX_PAGE_SIZE}
+	 * @param continuationToken token of the previous page, {@code null} for the first page
+	 * @return page of unprocessed {@link Metadata}
+	 */
+	@Override
+	public ResultPage<Metadata> getUnprocessedCpcPlusMetaData(int pageSize, String continuationToken) {
+		TreeMap<Integer, Map<String, AttributeValue>> remaining =
+				ContinuationToken.decode(continuationToken, Constants.CPC_DYNAMO_PARTITIONS);
+		checkStartKeys(remaining);
+		if (!mapper.isPresent()) {
 			API_LOG.warn("Could ngot get unprocessed CPC+ metadata because the dynamodb mapper is absent");
-			return Collections.emptyList();
+			return new ResultPage<>(Collections.emptyList(), null);
 		}
+
+		API_LOG.info("Getting page of unprocessed CPC+ metadata...");
+		PartitionQuery query = unprocessedQuery();
+		int size = Math.min(Math.max(pageSize, 1), MAX_PAGE_SIZE);
+		List<Integer> partitions = new ArrayList<>(remaining.keySet())
+				.subList(0, Math.min(size, remaining.size()));
+		int limit = size / partitions.size();
+
+		CompletionService<PartitionPage> queries = new ExecutorCompletionService<>(taskExecutor);
+		for (Integer partition : partitions) {
+			Map<String, AttributeValue> startKey = remaining.get(partition);
+			submitQuery(queries, query, partition, startKey.isEmpty() ? null : startKey, limit);
+		}
+		Map<Integer, PartitionPage> read = new TreeMap<>();
+		for (int i = 0; i < partitions.size(); i++) {
+			PartitionPage page = takeQuery(queries);
+			read.put(page.partition, page);
+		}
+
+		List<Metadata> items = new ArrayList<>();
+		read.forEach((partition, page) -> {
+			items.addAll(page.results);
+			if (page.lastEvaluatedKey == null) {
+				remaining.remove(partition);
+			} else {
+				remaining.put(partition, page.lastEvaluatedKey);
+			}
+		});
+		return new ResultPage<>(items, ContinuationToken.encode(remaining));
+	}
+
+	/**
+	 * Checks that the keys of a continuation token are keys of the index partitions they continue, within the
+	 * unprocessed items of the year that is listed. DynamoDB rejects any other start key as a bad request, which
+	 * would otherwise surface as a server error.
+	 *
+	 * @param remaining the key to continue from by partition, empty for a partition not read yet
+	 * @throws InvalidContinuationTokenException if a key does not belong to the listing
+	 */
+	private void checkStartKeys(Map<Integer, Map<String, AttributeValue>> remaining) {
+		String processedPrefix = processedPrefix(searchDate());
+		remaining.forEach((partition, key) -> {
+			if (key.isEmpty()) {
+				return;
+			}
+			if (!START_KEY_ATTRIBUTES.equals(key.keySet())
+					|| !(Constants.CPC_DYNAMO_PARTITION_START + partition)
+							.equals(key.get(Constants.DYNAMO_CPC_ATTRIBUTE).getS())
+					|| !key.get(Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE).getS()
+							.startsWith(processedPrefix)) {
+				throw new InvalidContinuationTokenException(
+						"The continuation token does not continue this listing", null);
+			}
+		});
+	}
+
+	private String searchDate() {
+		return Optional.ofNullable(
+			environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).orElse("");
+	}
+
+	/**
+	 * @return prefix of the index sort key of the items left unprocessed in the year of the start date
+	 */
+	private static String processedPrefix(String cpcConversionStartDate) {
+		return "false#" + cpcConversionStartDate.substring(0, Math.min(4, cpcConversionStartDate.length()));
+	}
+
+	/**
+	 * Picks how the partitions are queried for the listing that is about to start.
+	 *
+	 * Unless {@link Constants#CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE} is set, whole items are read through the
+	 * mapper, which decrypts them. Otherwise only the {@link #LISTING_ATTRIBUTES} are read, straight from the client.
+	 */
+	private PartitionQuery unprocessedQuery() {
+		String startDate = searchDate();
+
+		if (!Boolean.TRUE.equals(environment.getProperty(Constants.CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE,
+				Boolean.class, Boolean.FALSE))) {
+			return (partition, startKey, limit) -> {
+				DynamoDBQueryExpression<Metadata> metadataQuery = unprocessedQuery(partition, startDate)
+						.withExclusiveStartKey(startKey)
+						.withLimit(limit);
+				QueryResultPage<Metadata> page = mapper.get().queryPage(Metadata.class, metadataQuery);
+				return new PartitionPage(partition, page.getResults(), page.getLastEvaluatedKey());
+			};
+		}
+
+		String tableName = mapper.get().generateCreateTableRequest(Metadata.class).getTableName();
+		return (partition, startKey, limit) -> {
+			QueryResult result = dynamoDb.query(projectedQuery(tableName, partition, startDate)
+					.withExclusiveStartKey(startKey)
+					.withLimit(limit));
+			List<Metadata> metadata = result.getItems() == null ? null : result.getItems().stream()
+					.map(DbServiceImpl::projectedMetadata)
+					.collect(Collectors.toList());
+			return new PartitionPage(partition, metadata, result.getLastEvaluatedKey());
+		};
+	}
+
+	private static void submitQuery(CompletionService<PartitionPage> queries, PartitionQuery query, int partition,
+			Map<String, AttributeValue> startKey, Integer limit) {
+		queries.submit(() -> query.page(partition, startKey, limit));
+	}
+
+	private static PartitionPage takeQuery(CompletionService<PartitionPage> queries) {
+		try {
+			return queries.take().get();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedInterruptedException(exception);
+		} catch (ExecutionException exception) {
+			Throwable cause = exception.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException("Could not query unprocessed CPC+ metadata", cause);
+		}
+	}
+
+	/**
+	 * Builds the query of a partition of the DynamoDB GSI for the unprocessed {@link Metadata} created after the
+	 * start date, in the year of the start date.
+	 */
+	private static DynamoDBQueryExpression<Metadata> unprocessedQuery(int partition, String cpcConversionStartDate) {
+		Map<String, AttributeValue> valueMap = new HashMap<>();
+		valueMap.put(":cpcValue", new AttributeValue().withS(Constants.CPC_DYNAMO_PARTITION_START + partition));
+		valueMap.put(":cpcProcessedValue", new AttributeValue().withS(processedPrefix(cpcConversionStartDate)));
+		valueMap.put(":createDate", new AttributeValue().withS(cpcConversionStartDate));
+
+		return new DynamoDBQueryExpression<Metadata>()
+			.withIndexName(CPC_PROCESSED_INDEX)
+			.withKeyConditionExpression(Constants.DYNAMO_CPC_ATTRIBUTE + " = :cpcValue and begins_with("
+					+ Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE + ", :cpcProcessedValue)")
+			.withFilterExpression(Constants.DYNAMO_CREATE_DATE_ATTRIBUTE + " > :createDate")
+			.withExpressionAttributeValues(valueMap)
+			.withConsistentRead(false);
+	}
+
+	/**
+	 * Builds the same query as {@link #unprocessedQuery(int, String)}, projected on the {@link #LISTING_ATTRIBUTES}.
+	 *
+	 * The listing attributes are not encrypted, except for the file name, so the items need no decryption. Decryption
+	 * would not work anyway, as the signature of an item covers all of its attributes.
+	 */
+	static QueryRequest projectedQuery(String tableName, int partition, String cpcConversionStartDate) {
+		DynamoDBQueryExpression<Metadata> metadataQuery = unprocessedQuery(partition, cpcConversionStartDate);
+
+		Map<String, String> nameMap = new LinkedHashMap<>();
+		for (String attribute : LISTING_ATTRIBUTES) {
+			nameMap.put("#" + attribute, attribute);
+		}
+
+		return new QueryRequest(tableName)
+			.withIndexName(metadataQuery.getIndexName())
+			.withKeyConditionExpression(metadataQuery.getKeyConditionExpression())
+			.withFilterExpression(metadataQuery.getFilterExpression())
+			.withExpressionAttributeValues(metadataQuery.getExpressionAttributeValues())
+			.withExpressionAttributeNames(nameMap)
+			.withProjectionExpression(String.join(", ", nameMap.keySet()))
+			.withConsistentRead(false);
+	}
+
+	/**
+	 * Maps a projected item to a {@link Metadata} that has only the {@link #LISTING_ATTRIBUTES} set. An encrypted
+	 * file name is binary and left out.
+	 */
+	static Metadata projectedMetadata(Map<String, AttributeValue> item) {
+		Metadata metadata = new Metadata();
+		metadata.setUuid(stringAttribute(item, UUID_ATTRIBUTE));
+		metadata.setFileName(stringAttribute(item, FILE_NAME_ATTRIBUTE));
+		metadata.setApm(stringAttribute(item, APM_ATTRIBUTE));
+		String createDate = stringAttribute(item, Constants.DYNAMO_CREATE_DATE_ATTRIBUTE);
+		metadata.setCreatedDate(createDate == null ? null : new Metadata.InstantConverter().unconvert(createDate));
+		AttributeValue overallStatus = item.get(OVERALL_STATUS_ATTRIBUTE);
+		if (overallStatus != null) {
+			metadata.setOverallStatus(overallStatus.getBOOL() != null
+					? overallStatus.getBOOL() : Boolean.valueOf("1".equals(overallStatus.getN())));
+		}
+		metadata.setPurpose(stringAttribute(item, PURPOSE_ATTRIBUTE));
+		return metadata;
+	}
+
+	private static String stringAttribute(Map<String, AttributeValue> item, String name) {
+		AttributeValue value = item.get(name);
+		return value == null ? null : value.getS();
 	}
 
 	/**
@@ -120,24 +441,25 @@ public class DbServiceImpl extends AnyOrderActionService<Metadata, Metadata>
 	}
 
 	/**
-	 * Actually does the write to DynamoDB.
-	 *
-	 * @param meta The metadata to write.
-	 * @return The written metadata
+	 * A page of the query of one partition.
 	 */
-	@Override
-	protected Metadata asynchronousAction(Metadata meta) {
-		if (mapper.isPresent()) {
-			mapper.get().save(meta);
-			API_LOG.info("Wrote item to DynamoDB with UUID {}", meta.getUuid());
-		} else {
-			API_LOG.warn("Skipping writing of item to DynamoDB with UUID {} because the dynamodb mapper is absent", meta.getUuid());
+	private static final class PartitionPage {
+		private final int partition;
+		private final List<Metadata> results;
+		private final Map<String, AttributeValue> lastEvaluatedKey;
+
+		private PartitionPage(int partition, List<Metadata> results, Map<String, AttributeValue> lastEvaluatedKey) {
+			this.partition = partition;
+			this.results = results == null ? Collections.emptyList() : results;
+			this.lastEvaluatedKey = lastEvaluatedKey;
 		}
-		return meta;
 	}
 
-	@Override
-	protected String getActionName() {
-		return "Write Metadata";
+	/**
+	 * Reads a page of one partition.
+	 */
+	@FunctionalInterface
+	private interface PartitionQuery {
+		PartitionPage page(int partition, Map<String, AttributeValue> startKey, Integer limit);
 	}
 }
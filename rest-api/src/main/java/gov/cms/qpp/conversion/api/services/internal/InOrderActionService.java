@@ -23,8 +23,8 @@ public abstract class InOrderActionService<T, S> extends AnyOrderActionService<T
 
 	private CompletableFuture<S> currentThreadFuture;
 
-	public InOrderActionService(TaskExecutor taskExecutor) {
-		super(taskExecutor);
+	public InOrderActionService(TaskExecutor taskExecutor, RetryScheduler retryScheduler) {
+		super(taskExecutor, retryScheduler);
 	}
 
 	/**
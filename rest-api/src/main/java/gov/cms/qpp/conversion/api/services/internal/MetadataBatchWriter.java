@@ -0,0 +1,311 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import gov.cms.qpp.conversion.api.exceptions.CircuitOpenException;
+import gov.cms.qpp.conversion.api.exceptions.UnprocessedItemsException;
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects {@link Metadata} writes for a short window and writes them to DynamoDB together with
+ * {@link DynamoDBMapper#batchWrite(Iterable, Iterable, DynamoDBMapperConfig)}.
+ *
+ * A batch is written once it holds {@link #MAX_BATCH_SIZE} items, the most a {@code BatchWriteItem} request takes, or
+ * once the window after its first item has passed. The future of each write completes as soon as its own item is
+ * written. The items DynamoDB leaves unprocessed are retried by the {@link RetryScheduler} as a batch of their own,
+ * under the same circuit as the single item writes they replace, and like those wait out an open circuit without
+ * counting it as a failed attempt. The mapper itself does not retry them: its default strategy would retry for as
+ * long as DynamoDB throttles, sleeping on a thread of the {@code taskExecutor} and hiding the throttling from the
+ * circuit.
+ *
+ * A {@code BatchWriteItem} request may not hold two items with the same key, so writes of the same UUID in one batch
+ * collapse to the last of them, as if they had been written one after the other.
+ */
+final class MetadataBatchWriter {
+
+	static final int MAX_BATCH_SIZE = 25;
+	static final String ACTION_NAME = "Write Metadata";
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(MetadataBatchWriter.class);
+	private static final String UUID_ATTRIBUTE = "Uuid";
+	private static final DynamoDBMapperConfig BATCH_WRITE_CONFIG = DynamoDBMapperConfig.builder()
+			.withBatchWriteRetryStrategy(new NoBatchWriteRetry())
+			.build();
+
+	private final TaskExecutor taskExecutor;
+	private final RetryScheduler retryScheduler;
+	private final DynamoDBMapper mapper;
+	private final int batchSize;
+	private final long windowMillis;
+	private final ScheduledThreadPoolExecutor flusher;
+	private List<PendingWrite> batch = new ArrayList<>();
+	private ScheduledFuture<?> scheduledFlush;
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param taskExecutor runs the batch writes
+	 * @param retryScheduler schedules the retries of unprocessed items
+	 * @param mapper writes the batches
+	 * @param batchSize most items in a batch, capped at {@link #MAX_BATCH_SIZE}
+	 * @param windowMillis longest time an item waits for a batch to fill, 0 to write every item on its own
+	 */
+	MetadataBatchWriter(TaskExecutor taskExecutor, RetryScheduler retryScheduler, DynamoDBMapper mapper,
+			int batchSize, long windowMillis) {
+		Objects.requireNonNull(taskExecutor, "taskExecutor");
+		Objects.requireNonNull(retryScheduler, "retryScheduler");
+		Objects.requireNonNull(mapper, "mapper");
+
+		this.taskExecutor = taskExecutor;
+		this.retryScheduler = retryScheduler;
+		this.mapper = mapper;
+		this.batchSize = Math.min(Math.max(batchSize, 1), MAX_BATCH_SIZE);
+		this.windowMillis = Math.max(windowMillis, 0);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("db-batch-");
+		threadFactory.setDaemon(true);
+		this.flusher = new ScheduledThreadPoolExecutor(1, threadFactory);
+		this.flusher.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Adds an item to the current batch. An item without a UUID is given one, so that it can be told apart from the
+	 * other items of its batch.
+	 *
+	 * @param metadata the item to write
+	 * @return a {@link CompletableFuture} that completes once the item is written
+	 */
+	CompletableFuture<Metadata> write(Metadata metadata) {
+		if (metadata.getUuid() == null) {
+			metadata.setUuid(UUID.randomUUID().toString());
+		}
+
+		PendingWrite write = new PendingWrite(metadata);
+		List<PendingWrite> full = null;
+		synchronized (this) {
+			batch.add(write);
+			if (batch.size() >= batchSize || windowMillis == 0 || flusher.isShutdown()) {
+				full = takeBatch();
+			} else if (batch.size() == 1) {
+				scheduledFlush = flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		if (full != null) {
+			dispatch(full, 1);
+		}
+		return write.result;
+	}
+
+	/**
+	 * Writes the current batch without waiting for the rest of its window.
+	 */
+	void flush() {
+		List<PendingWrite> current;
+		synchronized (this) {
+			current = takeBatch();
+		}
+		dispatch(current, 1);
+	}
+
+	/**
+	 * Writes the current batch and stops collecting further batches. Later items are written on their own.
+	 */
+	void close() {
+		flusher.shutdownNow();
+		flush();
+	}
+
+	private List<PendingWrite> takeBatch() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		List<PendingWrite> taken = batch;
+		batch = new ArrayList<>(batchSize);
+		return taken;
+	}
+
+	private void dispatch(List<PendingWrite> writes, int attempt) {
+		if (writes.isEmpty()) {
+			return;
+		}
+
+		try {
+			taskExecutor.execute(() -> save(writes, attempt));
+		} catch (RejectedExecutionException exception) {
+			fail(writes, exception);
+		}
+	}
+
+	private void save(List<PendingWrite> writes, int attempt) {
+		if (attempt > 1) {
+			API_LOG.warn("Retry {} - trying to write {} items to DynamoDB again", attempt - 1, writes.size());
+		}
+
+		CircuitBreaker breaker = retryScheduler.breaker(ACTION_NAME);
+		if (!breaker.tryAcquire()) {
+			defer(writes, attempt, TimeUnit.NANOSECONDS.toMillis(breaker.remainingOpenNanos()),
+					new CircuitOpenException(ACTION_NAME));
+			return;
+		}
+
+		Map<String, Metadata> items = new LinkedHashMap<>();
+		for (PendingWrite write : writes) {
+			items.put(write.metadata.getUuid(), write.metadata);
+		}
+
+		List<DynamoDBMapper.FailedBatch> failedBatches;
+		try {
+			failedBatches = mapper.batchWrite(items.values(), Collections.emptyList(), BATCH_WRITE_CONFIG);
+		} catch (RuntimeException exception) {
+			if (AnyOrderActionService.isInterruption(exception)) {
+				breaker.recordAbandoned();
+				fail(writes, exception);
+			} else {
+				breaker.recordFailure();
+				API_LOG.error("Last batch write resulted in a thrown throwable", exception);
+				retryOrFail(writes, attempt, exception);
+			}
+			return;
+		} catch (Error error) {
+			breaker.recordAbandoned();
+			fail(writes, error);
+			throw error;
+		}
+
+		if (failedBatches.isEmpty()) {
+			breaker.recordSuccess();
+			writes.forEach(PendingWrite::complete);
+			API_LOG.info("Wrote {} items to DynamoDB", writes.size());
+			return;
+		}
+
+		breaker.recordFailure();
+		Set<String> unprocessed = unprocessedUuids(failedBatches);
+		List<PendingWrite> retries = new ArrayList<>(unprocessed.size());
+		for (PendingWrite write : writes) {
+			if (unprocessed.contains(write.metadata.getUuid())) {
+				retries.add(write);
+			} else {
+				write.complete();
+			}
+		}
+
+		UnprocessedItemsException failure = new UnprocessedItemsException(retries.size(),
+				failedBatches.get(0).getException());
+		API_LOG.error("Wrote {} of {} items to DynamoDB", writes.size() - retries.size(), writes.size(), failure);
+		retryOrFail(retries, attempt, failure);
+	}
+
+	private void retryOrFail(List<PendingWrite> writes, int attempt, RuntimeException failure) {
+		if (writes.isEmpty()) {
+			return;
+		}
+
+		boolean retrying = attempt < retryScheduler.getMaxAttempts()
+				&& retryScheduler.schedule(attempt, () -> handOff(writes, attempt + 1));
+		if (!retrying) {
+			fail(writes, failure);
+		}
+	}
+
+	private void defer(List<PendingWrite> writes, int attempt, long waitMillis, RuntimeException failure) {
+		if (!retryScheduler.defer(waitMillis, () -> handOff(writes, attempt))) {
+			fail(writes, failure);
+		}
+	}
+
+	private void handOff(List<PendingWrite> writes, int attempt) {
+		try {
+			taskExecutor.execute(new RetryScheduler.HandOff() {
+				@Override
+				public void run() {
+					save(writes, attempt);
+				}
+
+				@Override
+				public void defer() {
+					MetadataBatchWriter.this.defer(writes, attempt, 0,
+							new RejectedExecutionException("No thread is free to retry action " + ACTION_NAME));
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			fail(writes, exception);
+		}
+	}
+
+	private static void fail(List<PendingWrite> writes, Throwable failure) {
+		writes.forEach(write -> write.result.completeExceptionally(failure));
+	}
+
+	private static Set<String> unprocessedUuids(List<DynamoDBMapper.FailedBatch> failedBatches) {
+		Set<String> uuids = new HashSet<>();
+		for (DynamoDBMapper.FailedBatch failedBatch : failedBatches) {
+			for (List<WriteRequest> requests : failedBatch.getUnprocessedItems().values()) {
+				for (WriteRequest request : requests) {
+					if (request.getPutRequest() != null) {
+						AttributeValue uuid = request.getPutRequest().getItem().get(UUID_ATTRIBUTE);
+						if (uuid != null) {
+							uuids.add(uuid.getS());
+						}
+					}
+				}
+			}
+		}
+		return uuids;
+	}
+
+	/**
+	 * Hands the unprocessed items straight back to the writer, without retrying or pausing after throttling.
+	 */
+	private static final class NoBatchWriteRetry implements DynamoDBMapperConfig.BatchWriteRetryStrategy {
+		@Override
+		public int getMaxRetryOnUnprocessedItems(Map<String, List<WriteRequest>> batchWriteItemInput) {
+			return 0;
+		}
+
+		@Override
+		public long getDelayBeforeRetryUnprocessedItems(Map<String, List<WriteRequest>> unprocessedItems,
+				int retriesAttempted) {
+			return 0;
+		}
+	}
+
+	/**
+	 * An item waiting to be written and the future of its caller.
+	 */
+	private static final class PendingWrite {
+		private final Metadata metadata;
+		private final CompletableFuture<Metadata> result = new CompletableFuture<>();
+
+		private PendingWrite(Metadata metadata) {
+			this.metadata = metadata;
+		}
+
+		private void complete() {
+			result.complete(metadata);
+		}
+	}
+}
@@ -1,40 +1,105 @@
 package gov.cms.qpp.conversion.api.services.internal;
 
 import java.io.InputStream;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 
-import gov.cms.qpp.conversion.Context;
+import gov.cms.qpp.conversion.ConversionEngine;
+import gov.cms.qpp.conversion.ConversionMetrics;
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Converter;
 import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.internal.cache.ConversionCache;
 import gov.cms.qpp.conversion.api.internal.pii.SpecPiiValidator;
+import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.CpcValidationInfoMap;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.services.QrdaService;
 import gov.cms.qpp.conversion.api.services.StorageService;
 import gov.cms.qpp.conversion.model.validation.MeasureConfigs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Implementation of the QRDA-III to QPP conversion service
+ *
+ * <p>The CPC+ validation file is loaded when the service starts and refreshed in the background. A refresh asks
+ * for the file only if its entity tag changed, builds the engine for the new data off the request threads and then
+ * swaps it in. Conversions keep the data loaded before when a refresh fails.
  */
 @Service
 public class QrdaServiceImpl implements QrdaService {
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(QrdaServiceImpl.class);
 
+	static final String NO_CPC_PLUS_DATA = "none";
+	static final String CPC_PLUS_COMBINATIONS_METRIC = "qpp.cpc.validation.combinations";
+	static final String CPC_PLUS_HEAP_METRIC = "qpp.cpc.validation.heap";
+	static final String CPC_PLUS_AGE_METRIC = "qpp.cpc.validation.age";
+	static final String CPC_PLUS_REFRESH_METRIC = "qpp.cpc.validation.refreshes";
+	static final long DEFAULT_REFRESH_MINUTES = 120;
+	static final long DEFAULT_RETRY_MINUTES = 5;
+
 	private final StorageService storageService;
-	private Supplier<CpcValidationInfoMap> cpcValidationData = () -> null;
+	private final ConversionCache conversionCache;
+	private final ConversionMetrics conversionMetrics;
+	private final long refreshMillis;
+	private final long retryMillis;
+	private final ScheduledThreadPoolExecutor refresher;
+	private final AtomicReference<LoadedEngine> cpcPlusEngine = new AtomicReference<>();
+	private final Supplier<LoadedEngine> withoutCpcPlusData =
+			Suppliers.memoize(() -> new LoadedEngine(buildEngine(null), null, null, NO_CPC_PLUS_DATA));
+	private final Counter loadedRefreshes;
+	private final Counter unchangedRefreshes;
+	private final Counter failedRefreshes;
+	private ScheduledFuture<?> nextRefresh;
+	private volatile boolean cpcPlusConfigured = true;
+	private volatile long checkedNanos;
+	private volatile String lastFailure;
 
-	QrdaServiceImpl(StorageService storageService) {
+	QrdaServiceImpl(StorageService storageService, ConversionCache conversionCache,
+			ConversionMetrics conversionMetrics, MeterRegistry meterRegistry, Environment environment) {
 		this.storageService = storageService;
+		this.conversionCache = conversionCache;
+		this.conversionMetrics = conversionMetrics;
+		this.refreshMillis = TimeUnit.MINUTES.toMillis(environment.getProperty(
+				Constants.CPC_PLUS_REFRESH_MINUTES_ENV_VARIABLE, Long.class, DEFAULT_REFRESH_MINUTES));
+		this.retryMillis = TimeUnit.MINUTES.toMillis(environment.getProperty(
+				Constants.CPC_PLUS_RETRY_MINUTES_ENV_VARIABLE, Long.class, DEFAULT_RETRY_MINUTES));
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cpc-plus-refresh-");
+		threadFactory.setDaemon(true);
+		this.refresher = new ScheduledThreadPoolExecutor(1, threadFactory);
+		this.refresher.setRemoveOnCancelPolicy(true);
+
+		Gauge.builder(CPC_PLUS_COMBINATIONS_METRIC, cpcPlusEngine, loaded -> cpcPlus(loaded, false))
+				.register(meterRegistry);
+		Gauge.builder(CPC_PLUS_HEAP_METRIC, cpcPlusEngine, loaded -> cpcPlus(loaded, true))
+				.baseUnit("bytes")
+				.register(meterRegistry);
+		Gauge.builder(CPC_PLUS_AGE_METRIC, this, QrdaServiceImpl::getCpcPlusAgeSeconds)
+				.description("Time since the CPC+ validation data was last found current")
+				.baseUnit("seconds")
+				.register(meterRegistry);
+		loadedRefreshes = meterRegistry.counter(CPC_PLUS_REFRESH_METRIC, "result", "loaded");
+		unchangedRefreshes = meterRegistry.counter(CPC_PLUS_REFRESH_METRIC, "result", "unchanged");
+		failedRefreshes = meterRegistry.counter(CPC_PLUS_REFRESH_METRIC, "result", "failed");
 	}
 
 	/**
@@ -45,9 +110,20 @@ public class QrdaServiceImpl implements QrdaService {
 		MeasureConfigs.init();
 	}
 
+	/**
+	 * Loads the CPC+ validation data, then keeps refreshing it in the background
+	 */
 	@PostConstruct
 	public void loadCpcValidationData() {
-		cpcValidationData = Suppliers.memoizeWithExpiration(this::retreiveCpcValidationInfoMap, 2, TimeUnit.HOURS);
+		refresh();
+	}
+
+	/**
+	 * Stops refreshing the CPC+ validation data
+	 */
+	@PreDestroy
+	public void stopRefreshing() {
+		refresher.shutdownNow();
 	}
 
 	/**
@@ -58,6 +134,13 @@ public class QrdaServiceImpl implements QrdaService {
 	 */
 	@Override
 	public ConversionReport convertQrda3ToQpp(Source source) {
+		if (conversionCache.isEnabled()) {
+			return conversionCache.convert(source, engine().version, this::convert);
+		}
+		return convert(source);
+	}
+
+	private ConversionReport convert(Source source) {
 		Converter converter = initConverter(source);
 		API_LOG.info("Performing QRDA3 to QPP conversion");
 		converter.transform();
@@ -74,15 +157,142 @@ public class QrdaServiceImpl implements QrdaService {
 		return storageService.getCpcPlusValidationFile();
 	}
 
-	private CpcValidationInfoMap retreiveCpcValidationInfoMap() {
-		API_LOG.info("Fetching CPC+ validations APM/NPI/TIN file");
-		CpcValidationInfoMap file = new CpcValidationInfoMap(retrieveCpcPlusValidationFile());
-		if (file.getApmTinNpiCombinationMap() != null) {
-			API_LOG.info("Fetched CPC+ validations APM/NPI/TIN file");
-		} else {
-			API_LOG.info("Could not fetching CPC+ validations APM/NPI/TIN file");
+	/**
+	 * Fetches the CPC+ validation file if it changed and swaps in an engine for it. The next refresh is scheduled
+	 * after the refresh interval, or after the retry interval when this one failed.
+	 */
+	synchronized void refresh() {
+		LoadedEngine current = cpcPlusEngine.get();
+		try {
+			StoredFile file = storageService.getCpcPlusValidationFile(current == null ? null : current.eTag);
+			if (file == null) {
+				API_LOG.info("Could not fetching CPC+ validations APM/NPI/TIN file");
+				cpcPlusConfigured = false;
+				return;
+			}
+
+			if (file.getContent() == null) {
+				API_LOG.info("CPC+ validations APM/NPI/TIN file {} is unchanged", file.getETag());
+				unchangedRefreshes.increment();
+			} else {
+				cpcPlusEngine.set(load(file, current));
+				loadedRefreshes.increment();
+			}
+			checkedNanos = System.nanoTime();
+			lastFailure = null;
+			scheduleRefresh(refreshMillis);
+		} catch (RuntimeException exception) {
+			API_LOG.warn("Could not refresh the CPC+ validations APM/NPI/TIN file, keeping the data loaded before",
+					exception);
+			lastFailure = String.valueOf(exception.getMessage());
+			failedRefreshes.increment();
+			scheduleRefresh(retryMillis);
 		}
-		return file;
+	}
+
+	/**
+	 * Indexes the fetched file and builds its engine. An unreadable file only replaces the lack of any data, and is
+	 * fetched again on the next refresh.
+	 */
+	private LoadedEngine load(StoredFile file, LoadedEngine current) {
+		API_LOG.info("Fetching CPC+ validations APM/NPI/TIN file {}", file.getETag());
+		HashingInputStream hashing = new HashingInputStream(Hashing.sha256(), file.getContent());
+		CpcValidationInfoMap data = new CpcValidationInfoMap(hashing);
+		if (!data.isReadable()) {
+			if (current == null) {
+				cpcPlusEngine.set(new LoadedEngine(buildEngine(data), data, null, hashing.hash().toString()));
+			}
+			throw new IllegalStateException("CPC+ validations APM/NPI/TIN file " + file.getETag()
+					+ " could not be read");
+		}
+
+		API_LOG.info("Fetched CPC+ validations APM/NPI/TIN file with {} combinations in {} bytes",
+				data.size(), data.getHeapBytes());
+		return new LoadedEngine(buildEngine(data), data, file.getETag(), hashing.hash().toString());
+	}
+
+	private synchronized void scheduleRefresh(long delayMillis) {
+		if (nextRefresh != null) {
+			nextRefresh.cancel(false);
+		}
+		if (!refresher.isShutdown()) {
+			nextRefresh = refresher.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static double cpcPlus(AtomicReference<LoadedEngine> loaded, boolean heap) {
+		LoadedEngine current = loaded.get();
+		if (current == null) {
+			return 0;
+		}
+		return heap ? current.data.getHeapBytes() : current.data.size();
+	}
+
+	/**
+	 * @return whether a CPC+ validation file is configured
+	 */
+	boolean isCpcPlusConfigured() {
+		return cpcPlusConfigured;
+	}
+
+	/**
+	 * @return the CPC+ validation data in use, {@code null} when none was loaded
+	 */
+	CpcValidationInfoMap getCpcPlusData() {
+		LoadedEngine current = cpcPlusEngine.get();
+		return current == null ? null : current.data;
+	}
+
+	/**
+	 * @return the entity tag of the CPC+ validation file in use, {@code null} when none was loaded
+	 */
+	String getCpcPlusETag() {
+		LoadedEngine current = cpcPlusEngine.get();
+		return current == null ? null : current.eTag;
+	}
+
+	/**
+	 * @return seconds since the CPC+ validation data was last found current, NaN if it never was
+	 */
+	double getCpcPlusAgeSeconds() {
+		long checked = checkedNanos;
+		if (checked == 0) {
+			return Double.NaN;
+		}
+		return (System.nanoTime() - checked) / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the message of the last refresh if it failed, {@code null} otherwise
+	 */
+	String getCpcPlusFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * @return milliseconds between refreshes of the CPC+ validation data
+	 */
+	long getCpcPlusRefreshMillis() {
+		return refreshMillis;
+	}
+
+	/**
+	 * Builds the engine shared by conversions until the CPC+ validation data is next refreshed
+	 *
+	 * @param apmToNpiValidationFile CPC+ validation data, if available
+	 * @return conversion engine
+	 */
+	private ConversionEngine buildEngine(CpcValidationInfoMap apmToNpiValidationFile) {
+		ConversionEngine.Builder engine = ConversionEngine.builder().metrics(conversionMetrics);
+		if (apmToNpiValidationFile != null && apmToNpiValidationFile.isLoaded()) {
+			engine.piiValidator(new SpecPiiValidator(apmToNpiValidationFile));
+		}
+		return engine.build();
+	}
+
+	private LoadedEngine engine() {
+		LoadedEngine current = cpcPlusEngine.get();
+		return current == null ? withoutCpcPlusData.get() : current;
 	}
 
 	/**
@@ -92,11 +302,24 @@ public class QrdaServiceImpl implements QrdaService {
 	 * @return converter instance
 	 */
 	Converter initConverter(Source source) {
-		Context context = new Context();
-		CpcValidationInfoMap apmToNpiValidationFile = cpcValidationData.get();
-		if (apmToNpiValidationFile != null && apmToNpiValidationFile.getApmTinNpiCombinationMap() != null) {
-			context.setPiiValidator(new SpecPiiValidator(apmToNpiValidationFile));
+		return engine().engine.newConverter(source);
+	}
+
+	/**
+	 * An engine along with the version of everything its conversions depend on besides the QRDA itself
+	 */
+	private static final class LoadedEngine {
+		private final ConversionEngine engine;
+		private final CpcValidationInfoMap data;
+		private final String eTag;
+		private final String version;
+
+		private LoadedEngine(ConversionEngine engine, CpcValidationInfoMap data, String eTag, String cpcPlusVersion) {
+			this.engine = engine;
+			this.data = data;
+			this.eTag = eTag;
+			this.version = String.join(":", MeasureConfigs.getVersion(), String.valueOf(engine.isHistorical()),
+					String.valueOf(engine.isDoValidation()), cpcPlusVersion);
 		}
-		return new Converter(source, context);
 	}
 }
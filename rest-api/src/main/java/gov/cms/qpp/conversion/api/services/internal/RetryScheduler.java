@@ -0,0 +1,170 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the retries of the {@link AnyOrderActionService}s and keeps a {@link CircuitBreaker} per action name.
+ *
+ * Retries wait on a {@link ScheduledExecutorService} instead of on the thread that made the failed attempt, so no
+ * action thread is held between attempts. The delay before a retry starts at the initial delay, doubles for each
+ * further retry up to the maximum delay and is randomized between half and all of that to spread the retries of
+ * actions that failed together.
+ *
+ * A retry is handed back to the pool of its action as a {@link HandOff}, which a full pool defers instead of running
+ * on the scheduler thread, so one blocking action cannot hold up the other retries.
+ *
+ * The number of retries waiting at any time is limited by a budget that is shared by all actions. Once it is spent
+ * further failures are not retried, which bounds the work and memory held back during an outage.
+ */
+public class RetryScheduler {
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(RetryScheduler.class);
+	private static final double MULTIPLIER = 2.0;
+
+	private final ScheduledExecutorService scheduler;
+	private final int maxAttempts;
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	private final int budget;
+	private final int failureThreshold;
+	private final long openNanos;
+	private final AtomicInteger pendingRetries = new AtomicInteger();
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	/**
+	 * A retry handed back to the pool of its action. A pool that cannot take the retry right away calls
+	 * {@link #defer()} instead of running it on the submitting thread.
+	 */
+	public interface HandOff extends Runnable {
+
+		/**
+		 * Waits for the pool to free up before handing the retry off again.
+		 */
+		void defer();
+	}
+
+	/**
+	 * Constructs the scheduler.
+	 *
+	 * @param scheduler waits out the delays before retries, which only hand the retry back to the action's executor
+	 * @param maxAttempts attempts made of an action before its failure is final, including the first
+	 * @param initialDelay delay before the first retry
+	 * @param maxDelay longest delay before a retry
+	 * @param budget most retries waiting at any time
+	 * @param failureThreshold consecutive failures of an action that open its circuit
+	 * @param openDuration time the circuit of an action stays open before a trial attempt is let through
+	 */
+	public RetryScheduler(ScheduledExecutorService scheduler, int maxAttempts, Duration initialDelay,
+			Duration maxDelay, int budget, int failureThreshold, Duration openDuration) {
+		Objects.requireNonNull(scheduler, "scheduler");
+		Objects.requireNonNull(initialDelay, "initialDelay");
+		Objects.requireNonNull(maxDelay, "maxDelay");
+		Objects.requireNonNull(openDuration, "openDuration");
+
+		this.scheduler = scheduler;
+		this.maxAttempts = Math.max(maxAttempts, 1);
+		this.initialDelayMillis = initialDelay.toMillis();
+		this.maxDelayMillis = maxDelay.toMillis();
+		this.budget = budget;
+		this.failureThreshold = Math.max(failureThreshold, 1);
+		this.openNanos = openDuration.toNanos();
+	}
+
+	/**
+	 * @return attempts made of an action before its failure is final, including the first
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @return number of retries currently waiting
+	 */
+	public int getPendingRetries() {
+		return pendingRetries.get();
+	}
+
+	/**
+	 * Stops the scheduler. Retries that are still waiting are dropped.
+	 */
+	public void shutdown() {
+		int dropped = scheduler.shutdownNow().size();
+		if (dropped > 0) {
+			API_LOG.warn("Dropped " + dropped + " waiting retries on shutdown");
+		}
+	}
+
+	/**
+	 * @param actionName name of the action
+	 * @return the circuit breaker of the action
+	 */
+	CircuitBreaker breaker(String actionName) {
+		return breakers.computeIfAbsent(actionName,
+				name -> new CircuitBreaker(name, failureThreshold, openNanos, System::nanoTime));
+	}
+
+	/**
+	 * Schedules a retry if the budget allows it.
+	 *
+	 * @param failedAttempts attempts that failed so far
+	 * @param retry runs the retry
+	 * @return whether the retry was scheduled
+	 */
+	boolean schedule(int failedAttempts, Runnable retry) {
+		return scheduleIn(delayMillis(failedAttempts), retry);
+	}
+
+	/**
+	 * Schedules an attempt that could not be made yet, such as one rejected by an open circuit or one a full pool
+	 * could not take, without counting it as a failed attempt. It waits at least as long as before a first retry.
+	 *
+	 * @param waitMillis time the attempt should wait
+	 * @param attempt hands the attempt off again
+	 * @return whether the attempt was scheduled
+	 */
+	boolean defer(long waitMillis, Runnable attempt) {
+		return scheduleIn(Math.max(waitMillis, delayMillis(1)), attempt);
+	}
+
+	private boolean scheduleIn(long delayMillis, Runnable retry) {
+		if (pendingRetries.incrementAndGet() > budget) {
+			pendingRetries.decrementAndGet();
+			API_LOG.warn("The retry budget of " + budget + " waiting retries is spent");
+			return false;
+		}
+
+		try {
+			scheduler.schedule(() -> {
+				pendingRetries.decrementAndGet();
+				retry.run();
+			}, delayMillis, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (RejectedExecutionException exception) {
+			pendingRetries.decrementAndGet();
+			API_LOG.warn("Could not schedule a retry", exception);
+			return false;
+		}
+	}
+
+	/**
+	 * @param failedAttempts attempts that failed so far
+	 * @return randomized delay before the next attempt
+	 */
+	long delayMillis(int failedAttempts) {
+		double delay = initialDelayMillis * Math.pow(MULTIPLIER, Math.max(failedAttempts - 1, 0));
+		long capped = (long) Math.min(delay, maxDelayMillis);
+		long half = capped / 2;
+		return half + ThreadLocalRandom.current().nextLong(capped - half + 1);
+	}
+}
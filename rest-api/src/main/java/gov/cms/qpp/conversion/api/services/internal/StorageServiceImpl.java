@@ -11,18 +11,38 @@ import com.amazonaws.services.s3.transfer.Upload;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
 import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
+import gov.cms.qpp.conversion.api.config.ConcurrencyConfig;
 import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.services.StorageService;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Used to store an {@link InputStream} in S3.
@@ -32,14 +52,19 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 		implements StorageService {
 
 	private static final Logger API_LOG = LoggerFactory.getLogger(StorageServiceImpl.class);
+	private static final int COPY_BYTES = 8192;
+	static final char BUNDLE_SEPARATOR = '#';
+	static final String BUNDLE_INDEX_METADATA = "bundle-index";
+	static final String BUNDLE_ENCODING_METADATA = "bundle-encoding";
 
 	private final TransferManager s3TransferManager;
 	private final Environment environment;
 	private final AmazonS3 amazonS3;
 
-	public StorageServiceImpl(TaskExecutor taskExecutor, TransferManager s3TransferManager,
+	public StorageServiceImpl(@Qualifier(ConcurrencyConfig.STORAGE_EXECUTOR) TaskExecutor taskExecutor,
+			RetryScheduler retryScheduler, TransferManager s3TransferManager,
 			Environment environment, AmazonS3 amazonS3) {
-		super(taskExecutor);
+		super(taskExecutor, retryScheduler);
 
 		Objects.requireNonNull(s3TransferManager, "s3TransferManager");
 		Objects.requireNonNull(environment, "environment");
@@ -53,6 +78,9 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 	/**
 	 * Stores the {@link InputStream} as an object in the S3 bucket.
 	 *
+	 * The object is gzip compressed on the way when {@link Constants#STORAGE_COMPRESSION_ENV_VARIABLE} is {@code gzip},
+	 * and its content encoding says so.
+	 *
 	 * @param keyName The requested key name for the object.
 	 * @param inStream The {@link InputStream} to write out to an object in S3.
 	 * @param size The size of the {@link InputStream}.
@@ -67,16 +95,49 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 			return CompletableFuture.completedFuture("");
 		}
 
-		ObjectMetadata s3ObjectMetadata = new ObjectMetadata();
-		s3ObjectMetadata.setContentLength(size);
+		Supplier<PutObjectRequest> putObjectRequest;
+		if (isGzipEnabled()) {
+			putObjectRequest = () -> gzipped(bucketName, keyName, inStream.get())
+				.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(kmsKey));
+		} else {
+			ObjectMetadata s3ObjectMetadata = new ObjectMetadata();
+			s3ObjectMetadata.setContentLength(size);
 
-		Supplier<PutObjectRequest> putObjectRequest = () -> new PutObjectRequest(bucketName, keyName, inStream.get(), s3ObjectMetadata)
-			.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(kmsKey));
+			putObjectRequest = () -> new PutObjectRequest(bucketName, keyName, inStream.get(), s3ObjectMetadata)
+				.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(kmsKey));
+		}
 
 		API_LOG.info("Writing object {} to S3 bucket {}", keyName, bucketName);
 		return actOnItem(putObjectRequest);
 	}
 
+	/**
+	 * Stores several parts as a single object in the S3 bucket, with an index of where each part lies in the user
+	 * metadata of the object.
+	 *
+	 * With gzip compression on, each part is compressed on its own so that it can still be read by itself.
+	 *
+	 * @param keyName The requested key name for the object.
+	 * @param parts The content to store, by part name.
+	 * @return A {@link CompletableFuture} that will eventually contain the locator of each part, by part name.
+	 */
+	@Override
+	public CompletableFuture<Map<String, String>> storeBundle(String keyName, Map<String, Source> parts) {
+		String bucketName = environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE);
+		String kmsKey = environment.getProperty(Constants.KMS_KEY_ENV_VARIABLE);
+		if (StringUtils.isEmpty(bucketName) || StringUtils.isEmpty(kmsKey)) {
+			API_LOG.warn("No bucket name is specified or no KMS key specified.");
+			return CompletableFuture.completedFuture(locators("", parts));
+		}
+
+		boolean gzip = isGzipEnabled();
+		Supplier<PutObjectRequest> putObjectRequest = () -> bundled(bucketName, keyName, parts, gzip)
+			.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(kmsKey));
+
+		API_LOG.info("Writing bundle {} of {} parts to S3 bucket {}", keyName, parts.size(), bucketName);
+		return actOnItem(putObjectRequest).thenApply(key -> locators(key, parts));
+	}
+
 	/**
 	 * Performs a {@link GetObjectRequest} to the S3 bucket by file id for the file
 	 *
@@ -85,12 +146,34 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 	 */
 	@Override
 	public InputStream getFileByLocationId(String fileLocationId) {
+		StoredFile file = getFileByLocationId(fileLocationId, false);
+		return file == null ? null : file.getContent();
+	}
+
+	/**
+	 * Performs a {@link GetObjectRequest} to the S3 bucket by file id for the file.
+	 *
+	 * A gzip compressed object is decompressed unless the caller accepts it compressed. A part of a bundle, located
+	 * by {@code bundleKey#part}, is read with a ranged GET.
+	 *
+	 * @param fileLocationId Id of the file to search for
+	 * @param gzipAccepted whether the caller can take gzip compressed content
+	 * @return file found from S3
+	 */
+	@Override
+	public StoredFile getFileByLocationId(String fileLocationId, boolean gzipAccepted) {
 		String bucketName = environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE);
 		if (StringUtils.isEmpty(bucketName)) {
 			API_LOG.warn("No bucket name is specified.");
 			return null;
 		}
 
+		int separator = fileLocationId.indexOf(BUNDLE_SEPARATOR);
+		if (separator >= 0) {
+			return getBundledFile(bucketName, fileLocationId.substring(0, separator),
+				fileLocationId.substring(separator + 1), gzipAccepted);
+		}
+
 		API_LOG.info("Retrieving file {} from bucket {}", fileLocationId, bucketName);
 
 		GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, fileLocationId);
@@ -99,7 +182,56 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 
 		API_LOG.info("Successfully retrieved file {} from S3 bucket {}", getObjectRequest.getKey(), getObjectRequest.getBucketName());
 
-		return s3Object.getObjectContent();
+		ObjectMetadata objectMetadata = s3Object.getObjectMetadata();
+		String contentEncoding = objectMetadata == null ? null : objectMetadata.getContentEncoding();
+		return decoded(fileLocationId, s3Object.getObjectContent(), contentEncoding, gzipAccepted);
+	}
+
+	/**
+	 * Reads a part of a bundle with a ranged GET, after looking up its range in the index of the bundle.
+	 *
+	 * @param bucketName bucket of the bundle
+	 * @param bundleKey key of the bundle
+	 * @param part name of the part
+	 * @param gzipAccepted whether the caller can take gzip compressed content
+	 * @return the part
+	 */
+	private StoredFile getBundledFile(String bucketName, String bundleKey, String part, boolean gzipAccepted) {
+		API_LOG.info("Retrieving part {} of bundle {} from bucket {}", part, bundleKey, bucketName);
+
+		ObjectMetadata bundleMetadata = amazonS3.getObjectMetadata(bucketName, bundleKey);
+		long[] range = BundleIndex.parse(bundleMetadata.getUserMetaDataOf(BUNDLE_INDEX_METADATA)).range(part);
+		if (range == null) {
+			throw new NoFileInDatabaseException("Bundle " + bundleKey + " has no " + part);
+		}
+		String contentEncoding = bundleMetadata.getUserMetaDataOf(BUNDLE_ENCODING_METADATA);
+		if (range[1] == 0) {
+			return new StoredFile(new ByteArrayInputStream(new byte[0]), null);
+		}
+
+		GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, bundleKey)
+			.withRange(range[0], range[0] + range[1] - 1);
+		S3Object s3Object = amazonS3.getObject(getObjectRequest);
+
+		API_LOG.info("Successfully retrieved part {} of bundle {} from S3 bucket {}", part, bundleKey, bucketName);
+
+		return decoded(bundleKey + BUNDLE_SEPARATOR + part, s3Object.getObjectContent(), contentEncoding,
+			gzipAccepted);
+	}
+
+	private static StoredFile decoded(String fileLocationId, InputStream content, String contentEncoding,
+			boolean gzipAccepted) {
+		if (!StoredFile.GZIP_ENCODING.equalsIgnoreCase(contentEncoding)) {
+			return new StoredFile(content, null);
+		}
+		if (gzipAccepted) {
+			return new StoredFile(content, StoredFile.GZIP_ENCODING);
+		}
+		try {
+			return new StoredFile(new GZIPInputStream(content), null);
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Could not decompress file " + fileLocationId, exception);
+		}
 	}
 
 	/**
@@ -109,6 +241,20 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 	 */
 	@Override
 	public InputStream getCpcPlusValidationFile() {
+		StoredFile file = getCpcPlusValidationFile(null);
+		return file == null ? null : file.getContent();
+	}
+
+	/**
+	 * Opens a stream to retrieve the CPC+ API to NPI Validation file, unless it still has the given entity tag.
+	 * S3 answers such a conditional request without sending the file again.
+	 *
+	 * @param eTag entity tag of the file already held, {@code null} to always retrieve it
+	 * @return file used for cpc+ validation with its entity tag, without content when it is unchanged,
+	 * or {@code null} when no file is configured
+	 */
+	@Override
+	public StoredFile getCpcPlusValidationFile(String eTag) {
 		String bucketName = environment.getProperty(Constants.CPC_PLUS_BUCKET_NAME_VARIABLE);
 		String key = environment.getProperty(Constants.CPC_PLUS_FILENAME_VARIABLE);
 		if (StringUtils.isEmpty(bucketName) || StringUtils.isEmpty(key)) {
@@ -118,9 +264,17 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 		API_LOG.info("Retrieving CPC+ validation file from bucket {}", bucketName);
 
 		GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+		if (eTag != null) {
+			getObjectRequest.withNonmatchingETagConstraint(eTag);
+		}
 		S3Object s3Object = amazonS3.getObject(getObjectRequest);
+		if (s3Object == null && eTag != null) {
+			API_LOG.info("CPC+ validation file in bucket {} is unchanged", bucketName);
+			return new StoredFile(null, null, eTag);
+		}
 
-		return s3Object.getObjectContent();
+		Objects.requireNonNull(s3Object, "s3Object");
+		return new StoredFile(s3Object.getObjectContent(), null, s3Object.getObjectMetadata().getETag());
 	}
 
 	/**
@@ -140,6 +294,8 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 		} catch (InterruptedException exception) {
 			Thread.currentThread().interrupt();
 			throw new UncheckedInterruptedException(exception);
+		} finally {
+			close(request);
 		}
 
 		API_LOG.info("Successfully wrote object {} to S3 bucket {}", returnValue, request.getBucketName());
@@ -151,4 +307,130 @@ public class StorageServiceImpl extends AnyOrderActionService<Supplier<PutObject
 	protected String getActionName() {
 		return "Write to Storage";
 	}
-}
\ No newline at end of file
+
+	private boolean isGzipEnabled() {
+		return StoredFile.GZIP_ENCODING.equalsIgnoreCase(
+			environment.getProperty(Constants.STORAGE_COMPRESSION_ENV_VARIABLE));
+	}
+
+	/**
+	 * Compresses the content into memory, since S3 needs to know the length of an object before it is uploaded.
+	 */
+	private static PutObjectRequest gzipped(String bucketName, String keyName, InputStream content) {
+		byte[] compressed = compress(keyName, content);
+
+		ObjectMetadata s3ObjectMetadata = new ObjectMetadata();
+		s3ObjectMetadata.setContentLength(compressed.length);
+		s3ObjectMetadata.setContentEncoding(StoredFile.GZIP_ENCODING);
+		return new PutObjectRequest(bucketName, keyName, new ByteArrayInputStream(compressed), s3ObjectMetadata);
+	}
+
+	/**
+	 * Closes the content of an upload, whether or not it was read to the end.
+	 */
+	private static void close(PutObjectRequest request) {
+		if (request.getInputStream() == null) {
+			return;
+		}
+		try {
+			request.getInputStream().close();
+		} catch (IOException exception) {
+			API_LOG.warn("Could not close the content of object " + request.getKey(), exception);
+		}
+	}
+
+	/**
+	 * Lays the parts out one after another. Uncompressed parts are streamed as they are, each opened only once the
+	 * previous one is read; compressed parts are compressed into memory first, as their length is not known up front.
+	 */
+	private static PutObjectRequest bundled(String bucketName, String keyName, Map<String, Source> parts,
+			boolean gzip) {
+		BundleIndex index = new BundleIndex();
+		List<Supplier<InputStream>> contents = new ArrayList<>(parts.size());
+		for (Map.Entry<String, Source> part : parts.entrySet()) {
+			if (gzip) {
+				byte[] compressed = compress(keyName, part.getValue().toInputStream());
+				index.add(part.getKey(), compressed.length);
+				contents.add(() -> new ByteArrayInputStream(compressed));
+			} else {
+				index.add(part.getKey(), part.getValue().getSize());
+				contents.add(part.getValue()::toInputStream);
+			}
+		}
+
+		ObjectMetadata s3ObjectMetadata = new ObjectMetadata();
+		s3ObjectMetadata.setContentLength(index.size());
+		s3ObjectMetadata.addUserMetadata(BUNDLE_INDEX_METADATA, index.format());
+		if (gzip) {
+			s3ObjectMetadata.addUserMetadata(BUNDLE_ENCODING_METADATA, StoredFile.GZIP_ENCODING);
+		}
+		return new PutObjectRequest(bucketName, keyName, new BundleInputStream(new Parts(contents)),
+			s3ObjectMetadata);
+	}
+
+	private static byte[] compress(String keyName, InputStream content) {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (InputStream in = content; OutputStream out = new GZIPOutputStream(compressed, COPY_BYTES)) {
+			byte[] chunk = new byte[COPY_BYTES];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Could not compress object " + keyName, exception);
+		}
+		return compressed.toByteArray();
+	}
+
+	private static Map<String, String> locators(String key, Map<String, Source> parts) {
+		Map<String, String> locators = new LinkedHashMap<>();
+		for (String part : parts.keySet()) {
+			locators.put(part, key.isEmpty() ? key : key + BUNDLE_SEPARATOR + part);
+		}
+		return locators;
+	}
+
+	/**
+	 * Reads the parts of a bundle one after another. Closing it closes the part being read without opening the
+	 * parts that were not reached.
+	 */
+	private static final class BundleInputStream extends SequenceInputStream {
+		private final Parts parts;
+
+		private BundleInputStream(Parts parts) {
+			super(parts);
+			this.parts = parts;
+		}
+
+		@Override
+		public void close() throws IOException {
+			parts.closed = true;
+			super.close();
+		}
+	}
+
+	/**
+	 * Opens the parts of a bundle as they are reached.
+	 */
+	private static final class Parts implements Enumeration<InputStream> {
+		private final Iterator<Supplier<InputStream>> remaining;
+		private boolean closed;
+
+		private Parts(List<Supplier<InputStream>> contents) {
+			this.remaining = contents.iterator();
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			return !closed && remaining.hasNext();
+		}
+
+		@Override
+		public InputStream nextElement() {
+			if (!hasMoreElements()) {
+				throw new NoSuchElementException();
+			}
+			return remaining.next().get();
+		}
+	}
+}
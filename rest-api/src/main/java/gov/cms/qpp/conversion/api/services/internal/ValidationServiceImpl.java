@@ -2,6 +2,10 @@ package gov.cms.qpp.conversion.api.services.internal;
 
 import com.jayway.jsonpath.JsonPathException;
 import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.api.config.ValidationConfig;
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
+import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
+import gov.cms.qpp.conversion.api.internal.cache.ValidationCache;
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.ErrorMessage;
 import gov.cms.qpp.conversion.api.services.ValidationService;
@@ -11,27 +15,45 @@ import gov.cms.qpp.conversion.model.error.AllErrors;
 import gov.cms.qpp.conversion.model.error.Error;
 import gov.cms.qpp.conversion.model.error.QppValidationException;
 import gov.cms.qpp.conversion.util.JsonHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.PostConstruct;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation for the QPP Validation Service
+ *
+ * Calls to the validation API are limited to {@link Constants#VALIDATION_MAX_CONCURRENT_CALLS_ENV_VARIABLE} at once
+ * and pass through a circuit breaker that opens after repeated failures. When the API can not be called, because the
+ * limit or the circuit rejected the call or because it failed, the
+ * {@link Constants#VALIDATION_FAILURE_POLICY_ENV_VARIABLE} decides whether the conversion is accepted without
+ * validation ({@code open}) or answered as unavailable ({@code closed}, the default).
+ *
+ * <p>Results are looked up in the {@link ValidationCache} first, so the same QPP is only validated once while its
+ * result is cached.
  */
 @Service
 public class ValidationServiceImpl implements ValidationService {
@@ -39,19 +61,68 @@ public class ValidationServiceImpl implements ValidationService {
 	private static final Logger API_LOG = LoggerFactory.getLogger(ValidationServiceImpl.class);
 	static final String CONTENT_TYPE = "application/json";
 	public static final String SV_LABEL = "SV - ";
+	static final String ACTION_NAME = "QPP validation";
+	static final String FAIL_OPEN = "open";
+	static final String REQUESTS_METRIC = "qpp.validation.requests";
+	static final String UNAVAILABLE_METRIC = "qpp.validation.unavailable";
+	static final long DEFAULT_RETRY_AFTER_SECONDS = 5;
 
 	private Environment environment;
 	private RestTemplate restTemplate;
+	private final ValidationCache validationCache;
+	private final CircuitBreaker circuitBreaker;
+	private final Semaphore bulkhead;
+	private final long bulkheadWaitMillis;
+	private final boolean failOpen;
+	private final long retryAfterSeconds;
+	private final MeterRegistry meterRegistry;
+	private final Timer validTimer;
+	private final Timer invalidTimer;
+	private final Timer errorTimer;
 	protected static final String UNABLE_PROVIDE_XPATH = "Unable to provide an XPath.";
 
 	/**
 	 * init ValidationServiceImpl instances
 	 *
 	 * @param environment hooks to application environment
+	 * @param requestFactory pooled client for the validation API
+	 * @param validationCache cache of validation results
+	 * @param retryScheduler holds the circuit breaker of the validation calls
+	 * @param meterRegistry registry for the latency of the validation calls
 	 */
-	public ValidationServiceImpl(final Environment environment) {
+	@Autowired
+	public ValidationServiceImpl(final Environment environment,
+			@Qualifier(ValidationConfig.VALIDATION_REQUEST_FACTORY) ClientHttpRequestFactory requestFactory,
+			ValidationCache validationCache, RetryScheduler retryScheduler, MeterRegistry meterRegistry) {
+		this(environment, new RestTemplate(requestFactory), validationCache, retryScheduler.breaker(ACTION_NAME),
+				ValidationConfig.maxConcurrentCalls(environment), ValidationConfig.connectTimeoutMillis(environment),
+				FAIL_OPEN.equalsIgnoreCase(environment.getProperty(Constants.VALIDATION_FAILURE_POLICY_ENV_VARIABLE)),
+				environment.getProperty(Constants.CONVERSION_RETRY_AFTER_SECONDS_ENV_VARIABLE, Long.class,
+						DEFAULT_RETRY_AFTER_SECONDS),
+				meterRegistry);
+	}
+
+	ValidationServiceImpl(Environment environment, RestTemplate restTemplate, ValidationCache validationCache,
+			CircuitBreaker circuitBreaker, int maxConcurrentCalls, long bulkheadWaitMillis, boolean failOpen,
+			long retryAfterSeconds, MeterRegistry meterRegistry) {
+		Objects.requireNonNull(restTemplate, "restTemplate");
+		Objects.requireNonNull(validationCache, "validationCache");
+		Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+		Objects.requireNonNull(meterRegistry, "meterRegistry");
+
 		this.environment = environment;
-		this.restTemplate = new RestTemplate();
+		this.restTemplate = restTemplate;
+		this.restTemplate.setErrorHandler(new NoHandlingErrorHandler());
+		this.validationCache = validationCache;
+		this.circuitBreaker = circuitBreaker;
+		this.bulkhead = new Semaphore(maxConcurrentCalls);
+		this.bulkheadWaitMillis = bulkheadWaitMillis;
+		this.failOpen = failOpen;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.meterRegistry = meterRegistry;
+		this.validTimer = timer("valid");
+		this.invalidTimer = timer("invalid");
+		this.errorTimer = timer("error");
 	}
 
 	/**
@@ -89,36 +160,119 @@ public class ValidationServiceImpl implements ValidationService {
 			return;
 		}
 
-		JsonWrapper wrapper = conversionReport.getEncodedWithMetadata();
-		ResponseEntity<String> validationResponse = callValidationEndpoint(validationUrl, wrapper.copyWithoutMetadata());
+		String qpp = conversionReport.getQppJson();
+		ValidationCache.Result result = validationCache.validate(validationUrl, qpp,
+				() -> validate(validationUrl, qpp));
 
-		if (HttpStatus.UNPROCESSABLE_ENTITY == validationResponse.getStatusCode()) {
+		if (result != null && result.isFailed()) {
 
 			API_LOG.warn("Failed QPP validation");
 
-			AllErrors convertedErrors = convertQppValidationErrorsToQrda(validationResponse.getBody(), wrapper);
-
-			conversionReport.setRawValidationDetails(validationResponse.getBody());
-			conversionReport.setReportDetails(convertedErrors);
+			conversionReport.setRawValidationDetails(result.getBody());
+			conversionReport.setReportDetails(
+					convertQppValidationErrorsToQrda(result.getBody(), conversionReport.getEncodedWithMetadata()));
 
 			throw new QppValidationException("Converted QPP failed validation", null, conversionReport);
 		}
 	}
 
+	/**
+	 * Validates the QPP with the validation API.
+	 *
+	 * @param url The URL of the validation API end-point.
+	 * @param qpp The QPP to validate.
+	 * @return The result, {@code null} if the API could not be called and the failure policy is open.
+	 */
+	private ValidationCache.Result validate(String url, String qpp) {
+		ResponseEntity<String> validationResponse = callValidationEndpoint(url, qpp);
+		if (validationResponse == null) {
+			return null;
+		}
+
+		if (HttpStatus.UNPROCESSABLE_ENTITY != validationResponse.getStatusCode()) {
+			return new ValidationCache.Result(validationResponse.getStatusCodeValue(), null);
+		}
+		return new ValidationCache.Result(validationResponse.getStatusCodeValue(), validationResponse.getBody());
+	}
+
 	/**
 	 * Calls the validation API end-point.
 	 *
 	 * @param url The URL of the validation API end-point.
 	 * @param qpp The QPP to validate.
-	 * @return The response from the validation API end-point.
+	 * @return The response from the validation API end-point, {@code null} if it could not be called and the
+	 * 		failure policy is open.
+	 * @throws ConversionUnavailableException if it could not be called and the failure policy is closed
 	 */
-	private ResponseEntity<String> callValidationEndpoint(String url, JsonWrapper qpp) {
-		restTemplate.setErrorHandler(new NoHandlingErrorHandler());
-		HttpEntity<String> request = new HttpEntity<>(qpp.toString(), getHeaders());
+	private ResponseEntity<String> callValidationEndpoint(String url, String qpp) {
+		if (!circuitBreaker.tryAcquire()) {
+			return unavailable("circuit", null);
+		}
 
+		try {
+			if (!bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS)) {
+				circuitBreaker.recordAbandoned();
+				return unavailable("bulkhead", null);
+			}
+		} catch (InterruptedException exception) {
+			circuitBreaker.recordAbandoned();
+			Thread.currentThread().interrupt();
+			throw new UncheckedInterruptedException(exception);
+		}
+
+		HttpEntity<String> request = new HttpEntity<>(qpp, getHeaders());
 		API_LOG.info("Calling QPP validation API {}", url);
 
-		return restTemplate.postForEntity(url, request, String.class);
+		long start = System.nanoTime();
+		ResponseEntity<String> response = null;
+		RestClientException failure = null;
+		try {
+			response = restTemplate.postForEntity(url, request, String.class);
+		} catch (RestClientException exception) {
+			failure = exception;
+		} catch (RuntimeException exception) {
+			circuitBreaker.recordAbandoned();
+			throw exception;
+		} finally {
+			bulkhead.release();
+		}
+		long nanos = System.nanoTime() - start;
+
+		if (response == null || response.getStatusCode().is5xxServerError()) {
+			circuitBreaker.recordFailure();
+			errorTimer.record(nanos, TimeUnit.NANOSECONDS);
+			return unavailable("error", failure);
+		}
+
+		circuitBreaker.recordSuccess();
+		Timer timer = HttpStatus.UNPROCESSABLE_ENTITY == response.getStatusCode() ? invalidTimer : validTimer;
+		timer.record(nanos, TimeUnit.NANOSECONDS);
+		return response;
+	}
+
+	/**
+	 * Applies the failure policy to a validation call that could not be made or failed.
+	 *
+	 * @param reason what kept the call from succeeding
+	 * @param cause the failure of the call, may be {@code null}
+	 * @return {@code null} when the policy is open
+	 * @throws ConversionUnavailableException when the policy is closed
+	 */
+	private ResponseEntity<String> unavailable(String reason, RestClientException cause) {
+		meterRegistry.counter(UNAVAILABLE_METRIC, "reason", reason).increment();
+		if (failOpen) {
+			API_LOG.warn("QPP validation is unavailable ({}), accepting the conversion without it", reason, cause);
+			return null;
+		}
+		throw new ConversionUnavailableException("QPP validation is unavailable (" + reason + ")", retryAfterSeconds,
+				cause);
+	}
+
+	private Timer timer(String outcome) {
+		return Timer.builder(REQUESTS_METRIC)
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
 	}
 
 	/**
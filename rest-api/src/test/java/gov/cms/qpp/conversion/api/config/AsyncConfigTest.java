@@ -0,0 +1,36 @@
+package gov.cms.qpp.conversion.api.config;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+class AsyncConfigTest {
+
+	@Test
+	void testStreamsOnStreamingExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		AsyncSupportConfigurer configurer = mock(AsyncSupportConfigurer.class);
+
+		new AsyncConfig(executor, new MockEnvironment()).configureAsyncSupport(configurer);
+
+		verify(configurer).setTaskExecutor(executor);
+		verify(configurer).setDefaultTimeout(AsyncConfig.DEFAULT_STREAMING_TIMEOUT_SECONDS * 1000);
+	}
+
+	@Test
+	void testConfiguredTimeout() {
+		AsyncSupportConfigurer configurer = mock(AsyncSupportConfigurer.class);
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.STREAMING_TIMEOUT_SECONDS_ENV_VARIABLE, "45");
+
+		new AsyncConfig(new ThreadPoolTaskExecutor(), environment).configureAsyncSupport(configurer);
+
+		verify(configurer).setDefaultTimeout(45000);
+	}
+}
@@ -1,16 +1,220 @@
 package gov.cms.qpp.conversion.api.config;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.core.task.SyncTaskExecutor;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.services.internal.RetryScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class ConcurrencyConfigTest {
 
 	@Test
-	void testIsSync() {
-		TaskExecutor executor = new ConcurrencyConfig().taskExecutor();
-		assertThat(executor).isInstanceOf(SyncTaskExecutor.class);
+	void testStorageExecutorRunsUploadsConcurrently() throws InterruptedException {
+		ThreadPoolTaskExecutor executor = new ConcurrencyConfig().storageExecutor(new MockEnvironment());
+		executor.initialize();
+		CountDownLatch started = new CountDownLatch(4);
+		List<String> threads = new CopyOnWriteArrayList<>();
+
+		try {
+			for (int i = 0; i < 4; i++) {
+				executor.execute(() -> {
+					threads.add(Thread.currentThread().getName());
+					started.countDown();
+					awaitUninterruptibly(started);
+				});
+			}
+
+			assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(threads).hasSize(4);
+		assertThat(threads.get(0)).startsWith("storage-");
+		assertThat(executor.getMaxPoolSize()).isEqualTo(ConcurrencyConfig.DEFAULT_STORAGE_THREADS);
+	}
+
+	@Test
+	void testDbExecutorRunsOnCallerWhenSaturated() throws InterruptedException {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.DB_THREADS_ENV_VARIABLE, "1")
+				.withProperty(Constants.DB_QUEUE_DEPTH_ENV_VARIABLE, "1");
+		ThreadPoolTaskExecutor executor = new ConcurrencyConfig().dbExecutor(environment);
+		executor.initialize();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> overflow = new AtomicReference<>();
+
+		try {
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(() -> overflow.set(Thread.currentThread().getName()));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertThat(overflow.get()).isEqualTo(Thread.currentThread().getName());
+		assertThat(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void testDbExecutorDefersHandOffWhenSaturated() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.DB_THREADS_ENV_VARIABLE, "1")
+				.withProperty(Constants.DB_QUEUE_DEPTH_ENV_VARIABLE, "1");
+		ThreadPoolTaskExecutor executor = new ConcurrencyConfig().dbExecutor(environment);
+		executor.initialize();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> ran = new AtomicReference<>();
+		AtomicBoolean deferred = new AtomicBoolean();
+
+		try {
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(new RetryScheduler.HandOff() {
+				@Override
+				public void run() {
+					ran.set(Thread.currentThread().getName());
+				}
+
+				@Override
+				public void defer() {
+					deferred.set(true);
+				}
+			});
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertThat(deferred.get()).isTrue();
+		assertThat(ran.get()).isNull();
+	}
+
+	@Test
+	void testStorageExecutorRejectsAfterShutdown() {
+		ThreadPoolTaskExecutor executor = new ConcurrencyConfig().storageExecutor(new MockEnvironment());
+		executor.initialize();
+		executor.shutdown();
+		AtomicReference<String> ran = new AtomicReference<>();
+
+		assertThrows(RejectedExecutionException.class,
+				() -> executor.execute(() -> ran.set(Thread.currentThread().getName())));
+		assertThat(ran.get()).isNull();
+	}
+
+	@Test
+	void testExecutorMetrics() {
+		ConcurrencyConfig config = new ConcurrencyConfig();
+		ThreadPoolTaskExecutor storage = config.storageExecutor(new MockEnvironment());
+		ThreadPoolTaskExecutor db = config.dbExecutor(new MockEnvironment());
+		ThreadPoolExecutor conversion = config.conversionExecutor(new MockEnvironment());
+		ThreadPoolTaskExecutor zip = config.zipExecutor(new MockEnvironment());
+		ThreadPoolTaskExecutor streaming = config.streamingExecutor(new MockEnvironment());
+		RetryScheduler retries = config.retryScheduler(new MockEnvironment());
+		storage.initialize();
+		db.initialize();
+		zip.initialize();
+		streaming.initialize();
+		MeterRegistry registry = new SimpleMeterRegistry();
+
+		try {
+			config.executorMetrics(storage, db, conversion, zip, streaming, retries).bindTo(registry);
+
+			for (String name : Arrays.asList("storage", "db", "conversion", "zip", "streaming")) {
+				assertThat(registry.get("executor.active").tag("name", name).gauge().value()).isEqualTo(0);
+				assertThat(registry.get("executor.queued").tag("name", name).gauge().value()).isEqualTo(0);
+			}
+			assertThat(registry.get("action.retries.pending").gauge().value()).isEqualTo(0);
+		} finally {
+			storage.shutdown();
+			db.shutdown();
+			conversion.shutdown();
+			zip.shutdown();
+			streaming.shutdown();
+			retries.shutdown();
+		}
+	}
+
+	@Test
+	void testZipExecutorRunsOnCallerWhenBusy() throws InterruptedException {
+		ThreadPoolTaskExecutor executor = new ConcurrencyConfig()
+				.zipExecutor(new MockEnvironment().withProperty(Constants.ZIP_THREADS_ENV_VARIABLE, "1"));
+		executor.initialize();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> overflow = new AtomicReference<>();
+
+		try {
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(() -> overflow.set(Thread.currentThread().getName()));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertThat(overflow.get()).isEqualTo(Thread.currentThread().getName());
+		assertThat(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void testRetrySchedulerDefaults() {
+		RetryScheduler retries = new ConcurrencyConfig().retryScheduler(new MockEnvironment());
+
+		try {
+			assertThat(retries.getMaxAttempts()).isEqualTo(ConcurrencyConfig.DEFAULT_RETRY_MAX_ATTEMPTS);
+			assertThat(retries.getPendingRetries()).isEqualTo(0);
+		} finally {
+			retries.shutdown();
+		}
+	}
+
+	@Test
+	void testConversionExecutorRejectsWhenSaturated() throws InterruptedException {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.CONVERSION_THREADS_ENV_VARIABLE, "1")
+				.withProperty(Constants.CONVERSION_QUEUE_DEPTH_ENV_VARIABLE, "1");
+		ThreadPoolExecutor executor = new ConcurrencyConfig().conversionExecutor(environment);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			executor.execute(() -> awaitUninterruptibly(release));
+			executor.execute(() -> awaitUninterruptibly(release));
+
+			assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void testConversionExecutorDefaults() {
+		ThreadPoolExecutor executor = new ConcurrencyConfig().conversionExecutor(new MockEnvironment());
+
+		assertThat(executor.getMaximumPoolSize()).isEqualTo(Runtime.getRuntime().availableProcessors() * 2);
+		assertThat(executor.getQueue().remainingCapacity())
+				.isEqualTo(ConcurrencyConfig.DEFAULT_CONVERSION_QUEUE_DEPTH);
+		executor.shutdown();
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
 	}
 }
@@ -21,6 +21,7 @@ import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.core.env.Environment;
 
 import gov.cms.qpp.conversion.api.model.Constants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertNotNull;
@@ -68,9 +69,9 @@ public class DynamoDbConfigTest {
 	@Before
 	public void setup() {
 
-		underTest = spy(new DynamoDbConfig(environment, awsKms));
+		underTest = spy(new DynamoDbConfig(environment, awsKms, new SimpleMeterRegistry()));
 
-		when(underTest.encryptionTransformer(any(String.class))).thenReturn(transformer);
+		doReturn(transformer).when(underTest).encryptionTransformer(any(String.class));
 		when(underTest.tableNameOverrideConfig(any(String.class))).thenReturn(mapConfigNamed);
 		when(underTest.getDynamoDbMapperConfig()).thenReturn(mapConfig);
 
@@ -0,0 +1,66 @@
+package gov.cms.qpp.conversion.api.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+class ValidationConfigTest {
+
+	@Test
+	void testDefaults() {
+		MockEnvironment environment = new MockEnvironment();
+
+		assertThat(ValidationConfig.maxConcurrentCalls(environment))
+				.isEqualTo(ValidationConfig.DEFAULT_MAX_CONCURRENT_CALLS);
+		assertThat(ValidationConfig.connectTimeoutMillis(environment))
+				.isEqualTo(ValidationConfig.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+	}
+
+	@Test
+	void testAtLeastOneConcurrentCall() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.VALIDATION_MAX_CONCURRENT_CALLS_ENV_VARIABLE, "0");
+
+		assertThat(ValidationConfig.maxConcurrentCalls(environment)).isEqualTo(1);
+	}
+
+	@Test
+	void testReadTimesOut() throws Exception {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.VALIDATION_READ_TIMEOUT_MILLIS_ENV_VARIABLE, "100");
+		HttpComponentsClientHttpRequestFactory factory = new ValidationConfig().validationRequestFactory(environment);
+
+		try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			String url = "http://localhost:" + silent.getLocalPort() + "/validate";
+
+			ResourceAccessException thrown = assertThrows(ResourceAccessException.class,
+					() -> new RestTemplate(factory).postForEntity(url, "{}", String.class));
+
+			assertThat(thrown).hasCauseThat().isInstanceOf(SocketTimeoutException.class);
+		} finally {
+			factory.destroy();
+		}
+	}
+
+	@Test
+	void testDestroyClosesPool() throws Exception {
+		HttpComponentsClientHttpRequestFactory factory = new ValidationConfig()
+				.validationRequestFactory(new MockEnvironment());
+
+		factory.destroy();
+
+		assertThrows(IllegalStateException.class,
+				() -> new RestTemplate(factory).getForEntity("http://localhost/", String.class));
+	}
+}
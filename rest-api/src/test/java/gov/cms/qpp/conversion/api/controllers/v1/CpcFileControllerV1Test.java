@@ -1,18 +1,28 @@
 package gov.cms.qpp.conversion.api.controllers.v1;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -22,14 +32,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.CpcFileStatusUpdateRequest;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.model.Report;
+import gov.cms.qpp.conversion.api.model.ResultPage;
 import gov.cms.qpp.conversion.api.model.Status;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
 import gov.cms.qpp.conversion.api.services.CpcFileService;
 import gov.cms.qpp.conversion.model.error.Detail;
@@ -64,21 +81,81 @@ class CpcFileControllerV1Test {
 
 	@Test
 	void testGetUnprocessedFileList() {
-		when(cpcFileService.getUnprocessedCpcPlusFiles()).thenReturn(expectedUnprocessedCpcFileDataList);
+		doAnswer(invocation -> {
+			invocation.<Consumer<List<UnprocessedCpcFileData>>>getArgument(0).accept(expectedUnprocessedCpcFileDataList);
+			invocation.<Consumer<List<UnprocessedCpcFileData>>>getArgument(0).accept(expectedUnprocessedCpcFileDataList);
+			return null;
+		}).when(cpcFileService).forEachUnprocessedCpcPlusFiles(any());
+
+		ResponseEntity<StreamingResponseBody> qppResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
+		List<Map<String, Object>> files = read(qppResponse);
+
+		verify(cpcFileService).forEachUnprocessedCpcPlusFiles(any());
+
+		assertThat(qppResponse.getHeaders().containsKey(CpcFileControllerV1.CONTINUATION_TOKEN_HEADER)).isFalse();
+		assertThat(files).hasSize(2);
+		assertThat(files.get(1)).containsEntry("fileId", expectedUnprocessedCpcFileDataList.get(0).getFileId());
+		assertThat(files.get(1)).containsEntry("apm", "TestApmEntity");
+	}
 
-		ResponseEntity<List<UnprocessedCpcFileData>> qppResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
+	@Test
+	void testGetUnprocessedFilePage() {
+		when(cpcFileService.getUnprocessedCpcPlusFiles(CpcFileControllerV1.DEFAULT_PAGE_SIZE, "token"))
+				.thenReturn(new ResultPage<>(expectedUnprocessedCpcFileDataList, "next"));
 
-		verify(cpcFileService).getUnprocessedCpcPlusFiles();
+		ResponseEntity<List<UnprocessedCpcFileData>> qppResponse =
+				cpcFileControllerV1.getUnprocessedCpcPlusFilePage(null, "token");
 
+		assertThat(qppResponse.getHeaders().getFirst(CpcFileControllerV1.CONTINUATION_TOKEN_HEADER)).isEqualTo("next");
 		assertThat(qppResponse.getBody()).isEqualTo(expectedUnprocessedCpcFileDataList);
 	}
 
+	@Test
+	void testGetLastUnprocessedFilePage() {
+		when(cpcFileService.getUnprocessedCpcPlusFiles(10, null))
+				.thenReturn(new ResultPage<>(Collections.emptyList(), null));
+
+		ResponseEntity<List<UnprocessedCpcFileData>> qppResponse =
+				cpcFileControllerV1.getUnprocessedCpcPlusFilePage(10, null);
+
+		assertThat(qppResponse.getHeaders().containsKey(CpcFileControllerV1.CONTINUATION_TOKEN_HEADER)).isFalse();
+		assertThat(qppResponse.getBody()).isEmpty();
+	}
+
+	@Test
+	void testUnprocessedFileListFailingBeforeFirstPage() {
+		IllegalStateException failure = new IllegalStateException("DynamoDB is down");
+		doThrow(failure).when(cpcFileService).forEachUnprocessedCpcPlusFiles(any());
+
+		ResponseEntity<StreamingResponseBody> qppResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
+
+		IllegalStateException thrown = assertThrows(IllegalStateException.class,
+				() -> qppResponse.getBody().writeTo(new ByteArrayOutputStream()));
+		assertThat(thrown).isSameInstanceAs(failure);
+	}
+
+	@Test
+	void testUnprocessedFileListFailingMidScanIsNotClosed() {
+		doAnswer(invocation -> {
+			invocation.<Consumer<List<UnprocessedCpcFileData>>>getArgument(0).accept(expectedUnprocessedCpcFileDataList);
+			throw new IllegalStateException("DynamoDB is down");
+		}).when(cpcFileService).forEachUnprocessedCpcPlusFiles(any());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		ResponseEntity<StreamingResponseBody> qppResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
+
+		IOException thrown = assertThrows(IOException.class, () -> qppResponse.getBody().writeTo(output));
+		assertThat(thrown).hasCauseThat().isInstanceOf(IllegalStateException.class);
+		assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).startsWith("[{");
+		assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).endsWith("}");
+	}
+
 	@Test
 	void testGetFileById() throws IOException {
 		InputStreamResource valid = new InputStreamResource(new ByteArrayInputStream("1234".getBytes()));
 		when(cpcFileService.getFileById(anyString())).thenReturn(valid);
 
-		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getFileById("meep");
+		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getFileById("meep", null);
 
 		assertThat(IOUtils.toString(response.getBody().getInputStream(), StandardCharsets.UTF_8))
 				.isEqualTo("1234");
@@ -89,17 +166,53 @@ class CpcFileControllerV1Test {
 		InputStreamResource valid = new InputStreamResource(new ByteArrayInputStream("1234".getBytes()));
 		when(cpcFileService.getQppById(anyString())).thenReturn(valid);
 
-		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getQppById("meep");
+		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getQppById("meep", null);
 
 		assertThat(IOUtils.toString(response.getBody().getInputStream(), StandardCharsets.UTF_8))
 			.isEqualTo("1234");
 	}
 
+	@Test
+	void testGetFileByIdGzipAccepted() throws IOException {
+		StoredFile gzipped = new StoredFile(new ByteArrayInputStream("1234".getBytes()), StoredFile.GZIP_ENCODING);
+		when(cpcFileService.getFileById(anyString(), eq(true))).thenReturn(gzipped);
+
+		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getFileById("meep", "deflate, gzip");
+
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo(StoredFile.GZIP_ENCODING);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(IOUtils.toString(response.getBody().getInputStream(), StandardCharsets.UTF_8))
+				.isEqualTo("1234");
+	}
+
+	@Test
+	void testGetQppByIdGzipAcceptedStoredPlain() throws IOException {
+		StoredFile plain = new StoredFile(new ByteArrayInputStream("1234".getBytes()), null);
+		when(cpcFileService.getQppById(anyString(), eq(true))).thenReturn(plain);
+
+		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getQppById("meep", "gzip");
+
+		assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(IOUtils.toString(response.getBody().getInputStream(), StandardCharsets.UTF_8))
+				.isEqualTo("1234");
+	}
+
+	@Test
+	void testAcceptsGzip() {
+		assertThat(CpcFileControllerV1.acceptsGzip(null)).isFalse();
+		assertThat(CpcFileControllerV1.acceptsGzip("identity")).isFalse();
+		assertThat(CpcFileControllerV1.acceptsGzip("gzip")).isTrue();
+		assertThat(CpcFileControllerV1.acceptsGzip("br, GZIP;q=0.5")).isTrue();
+		assertThat(CpcFileControllerV1.acceptsGzip("*")).isTrue();
+		assertThat(CpcFileControllerV1.acceptsGzip("gzip;q=0")).isFalse();
+		assertThat(CpcFileControllerV1.acceptsGzip("gzip;q=0.0, *")).isFalse();
+	}
+
 	@Test
 	void testGetQppByIdFeatureFlagDisabled() throws IOException {
 		System.setProperty(Constants.NO_CPC_PLUS_API_ENV_VARIABLE, "trueOrWhatever");
 
-		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getQppById("meep");
+		ResponseEntity<InputStreamResource> response = cpcFileControllerV1.getQppById("meep", null);
 
 		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
 		assertThat(response.getBody()).isNull();
@@ -153,7 +266,7 @@ class CpcFileControllerV1Test {
 	void testEndpoint1WithFeatureFlagDisabled() {
 		System.setProperty(Constants.NO_CPC_PLUS_API_ENV_VARIABLE, "trueOrWhatever");
 
-		ResponseEntity<List<UnprocessedCpcFileData>> cpcResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
+		ResponseEntity<StreamingResponseBody> cpcResponse = cpcFileControllerV1.getUnprocessedCpcPlusFiles();
 
 		assertThat(cpcResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
 		assertThat(cpcResponse.getBody()).isNull();
@@ -163,7 +276,7 @@ class CpcFileControllerV1Test {
 	void testEndpoint2WithFeatureFlagDisabled() throws IOException {
 		System.setProperty(Constants.NO_CPC_PLUS_API_ENV_VARIABLE, "trueOrWhatever");
 
-		ResponseEntity<InputStreamResource> cpcResponse = cpcFileControllerV1.getFileById("meep");
+		ResponseEntity<InputStreamResource> cpcResponse = cpcFileControllerV1.getFileById("meep", null);
 
 		assertThat(cpcResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
 		assertThat(cpcResponse.getBody()).isNull();
@@ -272,6 +385,20 @@ class CpcFileControllerV1Test {
 		return cpcFileControllerV1.updateFile("meep", request);
 	}
 
+	/**
+	 * Streams the response body and reads back the files in it.
+	 */
+	private static List<Map<String, Object>> read(ResponseEntity<StreamingResponseBody> response) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			response.getBody().writeTo(output);
+			return new ObjectMapper().readValue(output.toByteArray(),
+					new TypeReference<List<Map<String, Object>>>() {});
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
 	List<UnprocessedCpcFileData> createMockedUnprocessedDataList() {
 		Metadata metadata = Metadata.create();
 		metadata.setSubmissionLocator("Test");
@@ -5,6 +5,8 @@ import com.google.common.truth.Truth;
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Converter;
 import gov.cms.qpp.conversion.PathSource;
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidFileTypeException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidPurposeException;
 import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
@@ -24,6 +26,7 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -238,6 +241,21 @@ class ExceptionHandlerControllerV1Test implements LoggerContract {
 		Truth.assertThat(response.getBody()).contains("some message");
 	}
 
+	@Test
+	void testHandleInvalidContinuationTokenResponseBodyDoesInterception() throws Exception {
+		CpcFileControllerV1 mock = Mockito.mock(CpcFileControllerV1.class);
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(mock)
+				.setControllerAdvice(new ExceptionHandlerControllerV1(auditService))
+				.build();
+		Mockito.when(mock.getUnprocessedCpcPlusFilePage(null, "bad"))
+				.thenThrow(new InvalidContinuationTokenException("The continuation token could not be read", null));
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/cpc/unprocessed-files")
+				.param("continuationToken", "bad")).andReturn();
+		Truth.assertThat(result.getResponse().getStatus()).isEqualTo(400);
+		Truth.assertThat(result.getResponse().getContentAsString())
+				.isEqualTo("The continuation token could not be read");
+	}
+
 	@Test
 	void testHandleInvalidPurposeExceptionResponseBodyDoesInterception() throws Exception {
 		QrdaControllerV1 mock = Mockito.mock(QrdaControllerV1.class);
@@ -255,6 +273,17 @@ class ExceptionHandlerControllerV1Test implements LoggerContract {
 										     + "25, yours was " + purpose.length());
 	}
 
+	@Test
+	void testHandleConversionUnavailableException() {
+		ConversionUnavailableException exception = new ConversionUnavailableException("busy", 7, null);
+
+		ResponseEntity<String> response = objectUnderTest.handleConversionUnavailableException(exception);
+
+		Truth.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		Truth.assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+		Truth.assertThat(response.getBody()).isEqualTo("busy");
+	}
+
 	@Override
 	public Class<?> getLoggerType() {
 		return ExceptionHandlerControllerV1.class;
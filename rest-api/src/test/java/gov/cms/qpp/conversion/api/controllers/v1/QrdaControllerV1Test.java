@@ -3,9 +3,12 @@ package gov.cms.qpp.conversion.api.controllers.v1;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -18,9 +21,14 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
@@ -32,18 +40,29 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import gov.cms.qpp.conversion.ConversionMetrics;
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.SpooledSource;
 import gov.cms.qpp.conversion.api.exceptions.AuditException;
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
 import gov.cms.qpp.conversion.api.exceptions.InvalidPurposeException;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.services.AuditService;
 import gov.cms.qpp.conversion.api.services.QrdaService;
 import gov.cms.qpp.conversion.api.services.ValidationService;
 import gov.cms.qpp.conversion.encode.JsonWrapper;
+import gov.cms.qpp.conversion.model.Program;
+import gov.cms.qpp.conversion.model.error.QppValidationException;
 import gov.cms.qpp.conversion.model.error.TransformException;
 import gov.cms.qpp.test.MockitoExtension;
 
@@ -98,7 +117,7 @@ class QrdaControllerV1Test {
 		when(auditService.success(any(ConversionReport.class)))
 				.then(invocation -> CompletableFuture.completedFuture(metadata));
 
-		ResponseEntity<String> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		ResponseEntity<String> qppResponse = upload(multipartFile, null);
 
 		verify(qrdaService, atLeastOnce()).convertQrda3ToQpp(any(Source.class));
 
@@ -116,7 +135,7 @@ class QrdaControllerV1Test {
 				.then(invocation -> null);
 
 		when(report.getPurpose()).thenReturn("Test");
-		ResponseEntity<String> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, "Test");
+		ResponseEntity<String> qppResponse = upload(multipartFile, "Test");
 
 		assertThat(qppResponse).isNotNull();
 		assertThat(peopleCaptor.getValue().getPurpose()).isEqualTo("Test");
@@ -133,7 +152,7 @@ class QrdaControllerV1Test {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		assertThrows(AuditException.class, () -> upload(multipartFile, purpose));
 	}
 
 	@Test
@@ -147,7 +166,7 @@ class QrdaControllerV1Test {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		assertThrows(AuditException.class, () -> upload(multipartFile, purpose));
 	}
 
 	@Test
@@ -162,7 +181,7 @@ class QrdaControllerV1Test {
 		String purpose = "This prupose is bad because it is too long, exceeding 25 chars.";
 		when(report.getPurpose()).thenReturn(purpose);
 		
-		assertThrows(InvalidPurposeException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		assertThrows(InvalidPurposeException.class, () -> upload(multipartFile, purpose));
 	}
 	
 	@Test
@@ -175,7 +194,7 @@ class QrdaControllerV1Test {
 
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		ResponseEntity<String> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, purpose);
+		ResponseEntity<String> qppResponse = upload(multipartFile, purpose);
 		
 		assertThat(qppResponse).isNotNull();
 	}
@@ -192,7 +211,7 @@ class QrdaControllerV1Test {
 		when(auditService.success(any(ConversionReport.class)))
 				.then(invocation -> CompletableFuture.completedFuture(metadata));
 
-		ResponseEntity<String> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		ResponseEntity<String> qppResponse = upload(multipartFile, null);
 		assertThat(qppResponse.getHeaders().get("Location")).containsExactly(metadata.getUuid());
 	}
 
@@ -207,7 +226,7 @@ class QrdaControllerV1Test {
 			.when(validationService).validateQpp(isNull());
 
 		try {
-			ResponseEntity<String> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+			ResponseEntity<String> qppResponse = upload(multipartFile, null);
 			Assertions.fail("An exception should have occurred. Instead was " + qppResponse);
 		} catch(TransformException exception) {
 			assertThat(exception.getMessage())
@@ -217,6 +236,112 @@ class QrdaControllerV1Test {
 		}
 	}
 
+	@Test
+	void testValidationAndAuditAreTimed() {
+		ConversionMetrics metrics = Mockito.mock(ConversionMetrics.class);
+		ReflectionTestUtils.setField(objectUnderTest, "conversionMetrics", metrics);
+		when(report.getProgram()).thenReturn(Program.CPC);
+		when(qrdaService.convertQrda3ToQpp(any(Source.class))).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).thenReturn(null);
+
+		upload(multipartFile, null);
+
+		verify(metrics).timed(eq(Program.CPC), eq(Phase.QPP_VALIDATION), anyLong());
+		verify(metrics).timed(eq(Program.CPC), eq(Phase.AUDIT), anyLong());
+	}
+
+	@Test
+	void testFailedValidationIsTimed() {
+		ConversionMetrics metrics = Mockito.mock(ConversionMetrics.class);
+		ReflectionTestUtils.setField(objectUnderTest, "conversionMetrics", metrics);
+		when(report.getProgram()).thenReturn(Program.ALL);
+		when(qrdaService.convertQrda3ToQpp(any(Source.class))).thenReturn(report);
+		doThrow(new QppValidationException("meep", null, report)).when(validationService).validateQpp(report);
+
+		assertThrows(QppValidationException.class, () -> upload(multipartFile, null));
+
+		verify(metrics).timed(eq(Program.ALL), eq(Phase.QPP_VALIDATION), anyLong());
+	}
+
+	@Test
+	void testLargeUploadSpooledUntilConversionCompletes() throws IOException {
+		ArgumentCaptor<Source> sourceCaptor = ArgumentCaptor.forClass(Source.class);
+		when(qrdaService.convertQrda3ToQpp(sourceCaptor.capture())).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> {
+			Path spool = (Path) ReflectionTestUtils.getField(sourceCaptor.getValue(), "spool");
+			assertThat(Files.exists(spool)).isTrue();
+			return null;
+		});
+		ReflectionTestUtils.setField(objectUnderTest, "spoolThreshold", 4);
+		ServletRequestAttributes request = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(request);
+
+		try {
+			upload(multipartFile, null);
+			assertThat(RequestContextHolder.getRequestAttributes()).isSameInstanceAs(request);
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+		SpooledSource spooled = (SpooledSource) sourceCaptor.getValue();
+		Path spool = (Path) ReflectionTestUtils.getField(spooled, "spool");
+
+		assertThat(spooled.isSpooled()).isTrue();
+		assertThat(Files.exists(spool)).isFalse();
+		assertThat(IOUtils.toString(spooled.toInputStream(), StandardCharsets.UTF_8)).isEqualTo(GOOD_FILE_CONTENT);
+	}
+
+	@Test
+	void testSaturatedExecutorRejectsUpload() {
+		ReflectionTestUtils.setField(objectUnderTest, "conversionExecutor", (Executor) command -> {
+			throw new RejectedExecutionException("full");
+		});
+
+		ConversionUnavailableException exception = assertThrows(ConversionUnavailableException.class,
+				() -> objectUnderTest.uploadQrdaFile(multipartFile, null));
+
+		assertThat(exception.getRetryAfterSeconds()).isEqualTo(5);
+		verify(qrdaService, never()).convertQrda3ToQpp(any(Source.class));
+	}
+
+	@Test
+	void testTimedOutUploadIsCancelled() {
+		List<Runnable> queued = new ArrayList<>();
+		ReflectionTestUtils.setField(objectUnderTest, "conversionExecutor", (Executor) queued::add);
+
+		DeferredResult<ResponseEntity<String>> result = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		((Runnable) ReflectionTestUtils.getField(result, "timeoutCallback")).run();
+
+		assertThat(result.getResult()).isInstanceOf(ConversionUnavailableException.class);
+		assertThat(((Future<?>) queued.get(0)).isCancelled()).isTrue();
+		queued.get(0).run();
+		verify(qrdaService, never()).convertQrda3ToQpp(any(Source.class));
+	}
+
+	@Test
+	void testLargeUploadOutsideRequest() {
+		ArgumentCaptor<Source> sourceCaptor = ArgumentCaptor.forClass(Source.class);
+		when(qrdaService.convertQrda3ToQpp(sourceCaptor.capture())).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> null);
+		ReflectionTestUtils.setField(objectUnderTest, "spoolThreshold", 4);
+
+		upload(multipartFile, null);
+
+		try (SpooledSource spooled = (SpooledSource) sourceCaptor.getValue()) {
+			assertThat(spooled.isSpooled()).isTrue();
+		}
+	}
+
+	@Test
+	void testSmallUploadIsNotSpooled() {
+		ArgumentCaptor<Source> sourceCaptor = ArgumentCaptor.forClass(Source.class);
+		when(qrdaService.convertQrda3ToQpp(sourceCaptor.capture())).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> null);
+
+		upload(multipartFile, null);
+
+		assertThat(((SpooledSource) sourceCaptor.getValue()).isSpooled()).isFalse();
+	}
+
 	@Test
 	void testInputStreamSupplier() throws IOException {
 		InputStream in = objectUnderTest.inputStream(multipartFile);
@@ -240,4 +365,15 @@ class QrdaControllerV1Test {
 		});
 	}
 
+	/**
+	 * Uploads through the controller, which converts on the calling thread in these tests.
+	 */
+	@SuppressWarnings("unchecked")
+	private ResponseEntity<String> upload(MultipartFile file, String purpose) {
+		Object result = objectUnderTest.uploadQrdaFile(file, purpose).getResult();
+		if (result instanceof RuntimeException) {
+			throw (RuntimeException) result;
+		}
+		return (ResponseEntity<String>) result;
+	}
 }
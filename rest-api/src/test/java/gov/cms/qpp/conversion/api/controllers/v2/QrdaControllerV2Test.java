@@ -94,7 +94,7 @@ class QrdaControllerV2Test {
 		when(auditService.success(any(ConversionReport.class)))
 				.then(invocation -> CompletableFuture.completedFuture(metadata));
 
-		ResponseEntity<ConvertResponse> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		ResponseEntity<ConvertResponse> qppResponse = upload(multipartFile, null);
 
 		verify(qrdaService, atLeastOnce()).convertQrda3ToQpp(any(Source.class));
 
@@ -112,7 +112,7 @@ class QrdaControllerV2Test {
 				.then(invocation -> null);
 
 		when(report.getPurpose()).thenReturn("Test");
-		ResponseEntity<ConvertResponse> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, "Test");
+		ResponseEntity<ConvertResponse> qppResponse = upload(multipartFile, "Test");
 
 		assertThat(qppResponse).isNotNull();
 		assertThat(peopleCaptor.getValue().getPurpose()).isEqualTo("Test");
@@ -129,7 +129,7 @@ class QrdaControllerV2Test {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		assertThrows(AuditException.class, () -> upload(multipartFile, purpose));
 	}
 
 	@Test
@@ -143,7 +143,7 @@ class QrdaControllerV2Test {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		assertThrows(AuditException.class, () -> upload(multipartFile, purpose));
 	}
 
 	@Test
@@ -156,7 +156,7 @@ class QrdaControllerV2Test {
 
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		ResponseEntity<ConvertResponse> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, purpose);
+		ResponseEntity<ConvertResponse> qppResponse = upload(multipartFile, purpose);
 		
 		assertThat(qppResponse).isNotNull();
 	}
@@ -170,7 +170,7 @@ class QrdaControllerV2Test {
 		when(auditService.success(any(ConversionReport.class)))
 				.then(invocation -> CompletableFuture.completedFuture(metadata));
 
-		ResponseEntity<ConvertResponse> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		ResponseEntity<ConvertResponse> qppResponse = upload(multipartFile, null);
 		assertThat(qppResponse.getHeaders().get("Location")).containsExactly(metadata.getUuid());
 	}
 
@@ -185,7 +185,7 @@ class QrdaControllerV2Test {
 			.when(validationService).validateQpp(isNull());
 
 		try {
-			ResponseEntity<ConvertResponse> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+			ResponseEntity<ConvertResponse> qppResponse = upload(multipartFile, null);
 			Assertions.fail("An exception should have occurred. Instead was " + qppResponse);
 		} catch(TransformException exception) {
 			assertThat(exception.getMessage())
@@ -195,4 +195,15 @@ class QrdaControllerV2Test {
 		}
 	}
 
+	/**
+	 * Uploads through the controller, which converts on the calling thread in these tests.
+	 */
+	@SuppressWarnings("unchecked")
+	private ResponseEntity<ConvertResponse> upload(MultipartFile file, String purpose) {
+		Object result = objectUnderTest.uploadQrdaFile(file, purpose).getResult();
+		if (result instanceof RuntimeException) {
+			throw (RuntimeException) result;
+		}
+		return (ResponseEntity<ConvertResponse>) result;
+	}
 }
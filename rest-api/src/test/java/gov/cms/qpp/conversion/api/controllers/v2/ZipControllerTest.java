@@ -1,24 +1,38 @@
 package gov.cms.qpp.conversion.api.controllers.v2;
 
 import static com.google.common.truth.Truth.assertThat;
-import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
-import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,15 +40,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Source;
-import gov.cms.qpp.conversion.api.exceptions.AuditException;
-import gov.cms.qpp.conversion.api.model.ConvertResponse;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ZipEntryResponse;
 import gov.cms.qpp.conversion.api.services.AuditService;
 import gov.cms.qpp.conversion.api.services.QrdaService;
 import gov.cms.qpp.conversion.api.services.ValidationService;
@@ -93,12 +111,17 @@ class ZipControllerTest {
 		when(auditService.success(any(ConversionReport.class)))
 				.then(invocation -> CompletableFuture.completedFuture(metadata));
 
-		ResponseEntity<List<ConvertResponse>> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
+		ResponseEntity<StreamingResponseBody> qppResponse = upload(multipartFile, null);
+		List<ZipEntryResponse> entries = read(qppResponse);
 
 		verify(qrdaService, atLeastOnce()).convertQrda3ToQpp(any(Source.class));
 
-		assertThat(qppResponse.getBody().get(0).getQpp().toString())
-				.isEqualTo(report.getEncodedWithMetadata().toObject().toString());
+		assertThat(qppResponse.getHeaders().getContentType()).isEqualTo(ZipController.APPLICATION_NDJSON);
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getName()).isEqualTo("good-file.txt");
+		assertThat(entries.get(0).getStatus()).isEqualTo(HttpStatus.CREATED.value());
+		assertThat(entries.get(0).getResponse().getQpp()).isEqualTo(Collections.singletonMap("key", "Good Qpp"));
+		assertThat(entries.get(0).getResponse().getLocation()).isEqualTo(metadata.getUuid());
 	}
 
 	@Test
@@ -111,17 +134,17 @@ class ZipControllerTest {
 				.then(invocation -> null);
 
 		when(report.getPurpose()).thenReturn("Test");
-		ResponseEntity<List<ConvertResponse>> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, "Test");
+		List<ZipEntryResponse> entries = read(upload(multipartFile, "Test"));
 
-		assertThat(qppResponse).isNotNull();
+		assertThat(entries).hasSize(1);
 		assertThat(peopleCaptor.getValue().getPurpose()).isEqualTo("Test");
 	}
 
 	@Test
-	void uploadNullQrdaFile() {
-		Assertions.assertThrows(UncheckedIOException.class, () -> {
-			objectUnderTest.uploadQrdaFile(new MockMultipartFile("null.zip", new byte[0]), "Test");
-		});
+	void uploadEmptyZipFile() {
+		List<ZipEntryResponse> entries = read(upload(new MockMultipartFile("null.zip", new byte[0]), "Test"));
+
+		assertThat(entries).isEmpty();
 	}
 
 	@Test
@@ -135,7 +158,11 @@ class ZipControllerTest {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		List<ZipEntryResponse> entries = read(upload(multipartFile, purpose));
+
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR.value());
+		assertThat(entries.get(0).getMessage()).contains("Testing Audit Exception Handling");
 	}
 
 	@Test
@@ -149,7 +176,10 @@ class ZipControllerTest {
 		
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		assertThrows(AuditException.class, () -> objectUnderTest.uploadQrdaFile(multipartFile, purpose));
+		List<ZipEntryResponse> entries = read(upload(multipartFile, purpose));
+
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR.value());
 	}
 
 	@Test
@@ -162,9 +192,10 @@ class ZipControllerTest {
 
 		String purpose = "Test";
 		when(report.getPurpose()).thenReturn(purpose);
-		ResponseEntity<List<ConvertResponse>> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, purpose);
+		ResponseEntity<StreamingResponseBody> qppResponse = upload(multipartFile, purpose);
 		
 		assertThat(qppResponse).isNotNull();
+		assertThat(read(qppResponse)).hasSize(1);
 	}
 
 	@Test
@@ -177,15 +208,217 @@ class ZipControllerTest {
 		Mockito.doThrow(new TransformException(transformationErrorMessage, null, null))
 			.when(validationService).validateQpp(isNull());
 
+		List<ZipEntryResponse> entries = read(upload(multipartFile, null));
+
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY.value());
+		assertThat(entries.get(0).getMessage()).isEqualTo(transformationErrorMessage);
+		verify(auditService).failConversion(isNull());
+	}
+
+	@Test
+	void testFailedEntryDoesNotAbortBatch() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ReflectionTestUtils.setField(objectUnderTest, "entryExecutor", executor);
+		when(qrdaService.convertQrda3ToQpp(any(Source.class))).then(invocation -> {
+			Source source = invocation.getArgument(0);
+			if ("bad.xml".equals(source.getName())) {
+				throw new IllegalStateException("Unreadable");
+			}
+			return report;
+		});
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> null);
+
+		try {
+			List<ZipEntryResponse> entries = read(upload(zip("first.xml", "bad.xml", "last.xml"), null));
+
+			assertThat(entries).hasSize(3);
+			List<String> succeeded = new ArrayList<>();
+			for (ZipEntryResponse entry : entries) {
+				if ("bad.xml".equals(entry.getName())) {
+					assertThat(entry.getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR.value());
+					assertThat(entry.getMessage()).isEqualTo("Unreadable");
+				} else {
+					assertThat(entry.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+					succeeded.add(entry.getName());
+				}
+			}
+			assertThat(succeeded).containsExactly("first.xml", "last.xml");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testUnreadableZipIsAnsweredWithAnErrorLine() throws IOException {
+		byte[] whole = zip("first.xml").getBytes();
+		int data = new String(whole, StandardCharsets.ISO_8859_1).indexOf("first.xml") + "first.xml".length();
+		MultipartFile truncated = new MockMultipartFile("upload.zip", Arrays.copyOf(whole, data + 1));
+
+		List<ZipEntryResponse> entries = read(upload(truncated, null));
+
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+	}
+
+	@Test
+	void testStreamingStopsOnceTheResponseCanNotBeWritten() throws IOException {
+		when(qrdaService.convertQrda3ToQpp(any(Source.class))).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> null);
+		AtomicInteger writes = new AtomicInteger();
+		OutputStream disconnected = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				writes.incrementAndGet();
+				throw new IOException("Broken pipe");
+			}
+		};
+
+		upload(zip("first.xml", "second.xml", "third.xml"), null).getBody().writeTo(disconnected);
+
+		assertThat(writes.get()).isEqualTo(1);
+		verify(qrdaService, times(1)).convertQrda3ToQpp(any(Source.class));
+	}
+
+	@Test
+	void testResponsesAreWrittenWhileTheUploadIsStillRead() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ReflectionTestUtils.setField(objectUnderTest, "entryExecutor", executor);
+		when(qrdaService.convertQrda3ToQpp(any(Source.class))).thenReturn(report);
+		when(auditService.success(any(ConversionReport.class))).then(invocation -> null);
+		byte[] large = new byte[64 * 1024];
+		new Random(1).nextBytes(large);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			out.putNextEntry(new ZipEntry("first.xml"));
+			out.write("first.xml".getBytes(StandardCharsets.UTF_8));
+			out.putNextEntry(new ZipEntry("large.xml"));
+			out.write(large);
+		}
+		byte[] whole = bytes.toByteArray();
+		CountDownLatch released = new CountDownLatch(1);
+		MultipartFile stalling = new MockMultipartFile("upload.zip", whole) {
+			@Override
+			public InputStream getInputStream() {
+				return new StallingInputStream(whole, whole.length / 2, released);
+			}
+		};
+		CountDownLatch firstLine = new CountDownLatch(1);
+		ByteArrayOutputStream lines = new ByteArrayOutputStream();
+		OutputStream output = new OutputStream() {
+			@Override
+			public synchronized void write(int b) {
+				lines.write(b);
+				if (b == '\n') {
+					firstLine.countDown();
+				}
+			}
+		};
+
 		try {
-			ResponseEntity<List<ConvertResponse>> qppResponse = objectUnderTest.uploadQrdaFile(multipartFile, null);
-			Assertions.fail("An exception should have occurred. Instead was " + qppResponse);
-		} catch(TransformException exception) {
-			assertThat(exception.getMessage())
-					.isEqualTo(transformationErrorMessage);
-		} catch (Exception exception) {
-			Assertions.fail("The wrong exception occurred.");
+			StreamingResponseBody body = upload(stalling, null).getBody();
+			CompletableFuture<Void> streamed = CompletableFuture.runAsync(() -> {
+				try {
+					body.writeTo(output);
+				} catch (IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			});
+
+			assertThat(firstLine.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(streamed.isDone()).isFalse();
+			released.countDown();
+			streamed.get(5, TimeUnit.SECONDS);
+			assertThat(lines.toString(StandardCharsets.UTF_8.name()).split("\n")).hasLength(2);
+		} finally {
+			released.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private static MultipartFile zip(String... names) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			out.putNextEntry(new ZipEntry("directory/"));
+			for (String name : names) {
+				out.putNextEntry(new ZipEntry(name));
+				out.write(name.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		return new MockMultipartFile("upload.zip", bytes.toByteArray());
+	}
+
+	/**
+	 * Serves an upload up to a position and then waits to be released before serving the rest.
+	 */
+	private static final class StallingInputStream extends InputStream {
+		private final byte[] content;
+		private final int stallAt;
+		private final CountDownLatch released;
+		private int position;
+
+		private StallingInputStream(byte[] content, int stallAt, CountDownLatch released) {
+			this.content = content;
+			this.stallAt = stallAt;
+			this.released = released;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (position == stallAt) {
+				try {
+					released.await();
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			if (position >= content.length) {
+				return -1;
+			}
+			int end = position < stallAt ? stallAt : content.length;
+			int read = Math.min(length, end - position);
+			System.arraycopy(content, position, buffer, offset, read);
+			position += read;
+			return read;
 		}
 	}
 
+	/**
+	 * Uploads through the controller, which converts on the calling thread in these tests.
+	 */
+	@SuppressWarnings("unchecked")
+	private ResponseEntity<StreamingResponseBody> upload(MultipartFile file, String purpose) {
+		Object result = objectUnderTest.uploadQrdaFile(file, purpose).getResult();
+		if (result instanceof RuntimeException) {
+			throw (RuntimeException) result;
+		}
+		return (ResponseEntity<StreamingResponseBody>) result;
+	}
+
+	/**
+	 * Streams the response body and reads back its lines.
+	 */
+	private static List<ZipEntryResponse> read(ResponseEntity<StreamingResponseBody> response) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ObjectMapper mapper = new ObjectMapper();
+		List<ZipEntryResponse> entries = new ArrayList<>();
+		try {
+			response.getBody().writeTo(output);
+			for (String line : output.toString(StandardCharsets.UTF_8.name()).split("\n")) {
+				if (!line.isEmpty()) {
+					entries.add(mapper.readValue(line, ZipEntryResponse.class));
+				}
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return entries;
+	}
 }
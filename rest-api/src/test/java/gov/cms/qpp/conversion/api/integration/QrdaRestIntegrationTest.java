@@ -1,7 +1,9 @@
 package gov.cms.qpp.conversion.api.integration;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.nio.file.Files;
@@ -13,6 +15,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -37,7 +42,7 @@ public class QrdaRestIntegrationTest {
 	@InternetTest
 	void testDefaultValidQpp() throws Exception {
 		MockMultipartFile qrda3File = new MockMultipartFile("file", Files.newInputStream(Paths.get("../qrda-files/valid-QRDA-III-latest.xml")));
-		mockMvc.perform(MockMvcRequestBuilders
+		convert(MockMvcRequestBuilders
 			.multipart("/").file(qrda3File))
 			.andExpect(status().is(201))
 			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -47,7 +52,7 @@ public class QrdaRestIntegrationTest {
 	@InternetTest
 	void testValidQpp() throws Exception {
 		MockMultipartFile qrda3File = new MockMultipartFile("file", Files.newInputStream(Paths.get("../qrda-files/valid-QRDA-III-latest.xml")));
-		mockMvc.perform(MockMvcRequestBuilders
+		convert(MockMvcRequestBuilders
 				.multipart("/").file(qrda3File).accept(Constants.V1_API_ACCEPT))
 				.andExpect(status().is(201))
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -57,7 +62,7 @@ public class QrdaRestIntegrationTest {
 	@Test
 	void testInvalidQpp() throws Exception {
 		MockMultipartFile qrda3File = new MockMultipartFile("file", Files.newInputStream(Paths.get("../qrda-files/not-a-QDRA-III-file.xml")));
-		mockMvc.perform(MockMvcRequestBuilders
+		convert(MockMvcRequestBuilders
 			.multipart("/").file(qrda3File))
 			.andExpect(status().is(422))
 			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -77,10 +82,18 @@ public class QrdaRestIntegrationTest {
 	void shouldFailForSubmissionApiValidation() throws Exception {
 		String file = "../rest-api/src/test/resources/fail_validation.xml";
 		MockMultipartFile qrda3File = new MockMultipartFile("file", Files.newInputStream(Paths.get(file)));
-		mockMvc.perform(MockMvcRequestBuilders
+		convert(MockMvcRequestBuilders
 				.multipart("/").file(qrda3File))
 			.andExpect(status().is(422))
 			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
 			.andExpect(jsonPath("$.errors[0]").exists());
 	}
+
+	/**
+	 * Performs an upload, which completes asynchronously, and dispatches its result.
+	 */
+	private ResultActions convert(MockHttpServletRequestBuilder upload) throws Exception {
+		MvcResult started = mockMvc.perform(upload).andExpect(request().asyncStarted()).andReturn();
+		return mockMvc.perform(asyncDispatch(started));
+	}
 }
@@ -0,0 +1,244 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.DynamoDBEncryptor;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.EncryptionContext;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.providers.DirectKmsMaterialProvider;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.providers.EncryptionMaterialsProvider;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.kms.AbstractAWSKMS;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.DecryptResult;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+import com.amazonaws.services.kms.model.InvalidCiphertextException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CachingKmsMaterialProviderTest {
+
+	private static final String KEY_ID = "arn:aws:kms:us-east-1:123456789012:key/local";
+	private static final String TABLE = "ConversionMetadata";
+	private static final String HASH_KEY = "Uuid";
+
+	private LocalKms kms;
+	private AtomicLong clock;
+	private MeterRegistry registry;
+
+	@BeforeEach
+	void setup() {
+		kms = new LocalKms();
+		clock = new AtomicLong();
+		registry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void testItemsShareDataKey() throws GeneralSecurityException {
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+
+		Map<String, AttributeValue> first = encrypt(provider, item("first"));
+		Map<String, AttributeValue> second = encrypt(provider, item("second"));
+		Map<String, AttributeValue> third = encrypt(provider, item("third"));
+
+		assertThat(kms.generated.get()).isEqualTo(1);
+		assertThat(decrypt(provider, first)).isEqualTo(item("first"));
+		assertThat(decrypt(provider, second)).isEqualTo(item("second"));
+		assertThat(decrypt(provider, third)).isEqualTo(item("third"));
+		assertThat(kms.decrypted.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testSharedDataKeyDecryptsInAnotherProcess() throws GeneralSecurityException {
+		Map<String, AttributeValue> encrypted = encrypt(provider(Duration.ofMinutes(5), 100), item("first"));
+
+		CachingKmsMaterialProvider restarted = provider(Duration.ofMinutes(5), 100);
+
+		assertThat(decrypt(restarted, encrypted)).isEqualTo(item("first"));
+		assertThat(kms.decrypted.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testDataKeyIsReplacedAfterMaxUses() throws GeneralSecurityException {
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 2);
+
+		for (int i = 0; i < 5; i++) {
+			encrypt(provider, item("item" + i));
+		}
+
+		assertThat(kms.generated.get()).isEqualTo(3);
+	}
+
+	@Test
+	void testDataKeyIsReplacedAfterTtl() throws GeneralSecurityException {
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+		Map<String, AttributeValue> encrypted = encrypt(provider, item("first"));
+		decrypt(provider, encrypted);
+
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+		encrypt(provider, item("second"));
+		decrypt(provider, encrypted);
+
+		assertThat(kms.generated.get()).isEqualTo(2);
+		assertThat(kms.decrypted.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testItemWithItsOwnDataKeyStillDecrypts() throws GeneralSecurityException {
+		DirectKmsMaterialProvider direct = new DirectKmsMaterialProvider(kms, KEY_ID);
+		Map<String, AttributeValue> encrypted = encrypt(direct, item("legacy"));
+
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+
+		assertThat(decrypt(provider, encrypted)).isEqualTo(item("legacy"));
+		assertThat(decrypt(provider, encrypted)).isEqualTo(item("legacy"));
+		assertThat(kms.decrypted.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testCachedDataKeyIsNotUsedForMovedItem() throws GeneralSecurityException {
+		DirectKmsMaterialProvider direct = new DirectKmsMaterialProvider(kms, KEY_ID);
+		Map<String, AttributeValue> encrypted = encrypt(direct, item("legacy"));
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+		decrypt(provider, encrypted);
+
+		Map<String, AttributeValue> moved = new HashMap<>(encrypted);
+		moved.put(HASH_KEY, new AttributeValue("elsewhere"));
+
+		assertThrows(InvalidCiphertextException.class, () -> decrypt(provider, moved));
+	}
+
+	@Test
+	void testMetrics() throws GeneralSecurityException {
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+
+		Map<String, AttributeValue> first = encrypt(provider, item("first"));
+		encrypt(provider, item("second"));
+		decrypt(provider, first);
+		decrypt(provider, first);
+
+		assertThat(kmsRequests("GenerateDataKey")).isEqualTo(1.0);
+		assertThat(kmsRequests("Decrypt")).isEqualTo(1.0);
+		assertThat(cacheRequests("encrypt", "hit")).isEqualTo(1.0);
+		assertThat(cacheRequests("encrypt", "miss")).isEqualTo(1.0);
+		assertThat(cacheRequests("decrypt", "hit")).isEqualTo(1.0);
+		assertThat(cacheRequests("decrypt", "miss")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testRefreshForgetsDataKeys() throws GeneralSecurityException {
+		CachingKmsMaterialProvider provider = provider(Duration.ofMinutes(5), 100);
+		encrypt(provider, item("first"));
+
+		provider.refresh();
+		encrypt(provider, item("second"));
+
+		assertThat(kms.generated.get()).isEqualTo(2);
+	}
+
+	private CachingKmsMaterialProvider provider(Duration ttl, int maxUses) {
+		return new CachingKmsMaterialProvider(kms, KEY_ID, ttl, maxUses, registry, clock::get);
+	}
+
+	private double kmsRequests(String operation) {
+		return registry.get(CachingKmsMaterialProvider.KMS_REQUESTS_METRIC).tag("operation", operation)
+				.counter().count();
+	}
+
+	private double cacheRequests(String operation, String result) {
+		return registry.get(CachingKmsMaterialProvider.CACHE_REQUESTS_METRIC).tag("operation", operation)
+				.tag("result", result).counter().count();
+	}
+
+	private static Map<String, AttributeValue> item(String uuid) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put(HASH_KEY, new AttributeValue(uuid));
+		item.put("Tin", new AttributeValue("000123456"));
+		item.put("FileName", new AttributeValue(uuid + ".xml"));
+		return item;
+	}
+
+	private static Map<String, AttributeValue> encrypt(EncryptionMaterialsProvider provider,
+			Map<String, AttributeValue> item) throws GeneralSecurityException {
+		return DynamoDBEncryptor.getInstance(provider).encryptAllFieldsExcept(item, context(item), HASH_KEY);
+	}
+
+	private static Map<String, AttributeValue> decrypt(EncryptionMaterialsProvider provider,
+			Map<String, AttributeValue> item) throws GeneralSecurityException {
+		return DynamoDBEncryptor.getInstance(provider).decryptAllFieldsExcept(item, context(item), HASH_KEY);
+	}
+
+	private static EncryptionContext context(Map<String, AttributeValue> item) {
+		return new EncryptionContext.Builder()
+				.withTableName(TABLE)
+				.withHashKeyName(HASH_KEY)
+				.withAttributeValues(item)
+				.build();
+	}
+
+	/**
+	 * Stands in for KMS. Data keys are random, their ciphertext is an identifier that only this instance can decrypt,
+	 * and decrypting requires the encryption context the key was generated with.
+	 */
+	private static final class LocalKms extends AbstractAWSKMS {
+		private final SecureRandom random = new SecureRandom();
+		private final Map<ByteBuffer, DataKey> keys = new ConcurrentHashMap<>();
+		private final AtomicInteger generated = new AtomicInteger();
+		private final AtomicInteger decrypted = new AtomicInteger();
+
+		@Override
+		public GenerateDataKeyResult generateDataKey(GenerateDataKeyRequest request) {
+			generated.incrementAndGet();
+			byte[] plaintext = new byte[request.getNumberOfBytes()];
+			random.nextBytes(plaintext);
+			ByteBuffer ciphertext = ByteBuffer.wrap(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+			keys.put(ciphertext, new DataKey(plaintext, request.getKeyId(), request.getEncryptionContext()));
+			return new GenerateDataKeyResult()
+					.withKeyId(request.getKeyId())
+					.withPlaintext(ByteBuffer.wrap(plaintext))
+					.withCiphertextBlob(ciphertext.duplicate());
+		}
+
+		@Override
+		public DecryptResult decrypt(DecryptRequest request) {
+			decrypted.incrementAndGet();
+			DataKey key = keys.get(request.getCiphertextBlob());
+			if (key == null || !key.context.equals(request.getEncryptionContext())) {
+				throw new InvalidCiphertextException("Unknown data key or encryption context");
+			}
+			return new DecryptResult()
+					.withKeyId(key.keyId)
+					.withPlaintext(ByteBuffer.wrap(key.plaintext.clone()));
+		}
+	}
+
+	private static final class DataKey {
+		private final byte[] plaintext;
+		private final String keyId;
+		private final Map<String, String> context;
+
+		private DataKey(byte[] plaintext, String keyId, Map<String, String> context) {
+			this.plaintext = plaintext.clone();
+			this.keyId = keyId;
+			this.context = new HashMap<>(context);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+
+import gov.cms.qpp.conversion.ConversionReport;
+import gov.cms.qpp.conversion.Converter;
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.PathSource;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.model.error.TransformException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConversionCacheTest {
+
+	private static final Path VALID = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
+	private static final String VERSION = "measures:false:true:none";
+
+	private MeterRegistry registry;
+	private ConversionCache cache;
+	private AtomicInteger conversions;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setup() {
+		registry = new SimpleMeterRegistry();
+		cache = new ConversionCache(1024 * 1024, 5, registry);
+		conversions = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void testRepeatedUploadIsServedFromCache() {
+		Source first = new PathSource(VALID);
+		Source second = new PathSource(VALID);
+
+		ConversionReport converted = cache.convert(first, VERSION, this::convert);
+		ConversionReport cached = cache.convert(second, VERSION, this::convert);
+
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(converted.getQrdaSource()).isSameInstanceAs(first);
+		assertThat(cached.getQrdaSource()).isSameInstanceAs(second);
+		assertThat(cached.getEncodedWithMetadata().toString()).isEqualTo(converted.getEncodedWithMetadata().toString());
+		assertThat(count("hit")).isEqualTo(1.0);
+		assertThat(count("miss")).isEqualTo(1.0);
+		assertThat(registry.get(ConversionCache.SIZE_METRIC).gauge().value()).isEqualTo(1.0);
+	}
+
+	@Test
+	void testVersionIsPartOfTheKey() {
+		cache.convert(new PathSource(VALID), VERSION, this::convert);
+		cache.convert(new PathSource(VALID), "other", this::convert);
+
+		assertThat(conversions.get()).isEqualTo(2);
+		assertThat(count("miss")).isEqualTo(2.0);
+	}
+
+	@Test
+	void testCallersReceiveIndependentReports() {
+		ConversionReport first = cache.convert(new PathSource(VALID), VERSION, this::convert);
+		first.setRawValidationDetails("mutated");
+		first.setReportDetails(null);
+
+		ConversionReport second = cache.convert(new PathSource(VALID), VERSION, this::convert);
+
+		assertThat(second.getReportDetails()).isNotNull();
+		assertThat(second).isNotSameInstanceAs(first);
+	}
+
+	@Test
+	void testValidationFailuresAreCached() {
+		TransformException first = assertThrows(TransformException.class,
+				() -> cache.convert(invalid(), VERSION, this::convert));
+		TransformException second = assertThrows(TransformException.class,
+				() -> cache.convert(invalid(), VERSION, this::convert));
+
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(second.getMessage()).isEqualTo(first.getMessage());
+		assertThat(second.getDetails().getErrors().get(0).getDetails())
+				.containsExactlyElementsIn(first.getDetails().getErrors().get(0).getDetails());
+		assertThat(count("hit")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testUnexpectedFailuresAreNotCached() {
+		Function<Source, ConversionReport> broken = source -> {
+			conversions.incrementAndGet();
+			throw new IllegalStateException("meep");
+		};
+
+		assertThrows(IllegalStateException.class, () -> cache.convert(new PathSource(VALID), VERSION, broken));
+		cache.convert(new PathSource(VALID), VERSION, this::convert);
+
+		assertThat(conversions.get()).isEqualTo(2);
+		assertThat(count("hit")).isEqualTo(0.0);
+	}
+
+	@Test
+	void testFailuresWithCausesAreNotCached() {
+		Function<Source, ConversionReport> broken = source -> {
+			conversions.incrementAndGet();
+			throw new TransformException("meep", new NullPointerException(), mock(ConversionReport.class));
+		};
+
+		assertThrows(TransformException.class, () -> cache.convert(new PathSource(VALID), VERSION, broken));
+		assertThrows(TransformException.class, () -> cache.convert(new PathSource(VALID), VERSION, broken));
+
+		assertThat(conversions.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testConcurrentIdenticalUploadsCoalesce() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Function<Source, ConversionReport> slow = source -> {
+			started.countDown();
+			await(release);
+			return convert(source);
+		};
+
+		Future<ConversionReport> leader = executor.submit(() -> cache.convert(new PathSource(VALID), VERSION, slow));
+		started.await(5, TimeUnit.SECONDS);
+		Future<ConversionReport> follower = executor.submit(() -> cache.convert(new PathSource(VALID), VERSION, slow));
+		while (count("coalesced") < 1.0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(count("miss")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testCoalescedCallerConvertsWhenLeaderFailsUnexpectedly() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Function<Source, ConversionReport> failing = source -> {
+			started.countDown();
+			await(release);
+			throw new IllegalStateException("meep");
+		};
+
+		Future<ConversionReport> leader = executor.submit(() -> cache.convert(new PathSource(VALID), VERSION, failing));
+		started.await(5, TimeUnit.SECONDS);
+		Future<ConversionReport> follower = executor.submit(
+				() -> cache.convert(new PathSource(VALID), VERSION, this::convert));
+		while (count("coalesced") < 1.0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(conversions.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testDisabledCachePassesThrough() {
+		ConversionCache disabled = new ConversionCache(0, 5, registry);
+
+		disabled.convert(new PathSource(VALID), VERSION, this::convert);
+		disabled.convert(new PathSource(VALID), VERSION, this::convert);
+
+		assertThat(disabled.isEnabled()).isFalse();
+		assertThat(conversions.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testConfiguredFromEnvironment() {
+		Environment environment = mock(Environment.class);
+		when(environment.getProperty(Constants.CONVERSION_CACHE_MAX_BYTES_ENV_VARIABLE, Long.class, 0L))
+				.thenReturn(100L);
+		when(environment.getProperty(Constants.CONVERSION_CACHE_TTL_MINUTES_ENV_VARIABLE, Long.class,
+				ConversionCache.DEFAULT_TTL_MINUTES)).thenReturn(1L);
+
+		assertThat(new ConversionCache(environment, new SimpleMeterRegistry()).isEnabled()).isTrue();
+	}
+
+	@Test
+	void testOversizedResultsAreEvicted() {
+		ConversionCache tiny = new ConversionCache(1, 5, registry);
+
+		tiny.convert(new PathSource(VALID), VERSION, this::convert);
+		tiny.convert(new PathSource(VALID), VERSION, this::convert);
+
+		assertThat(conversions.get()).isEqualTo(2);
+	}
+
+	private static Source invalid() {
+		return new InputStreamSupplierSource("invalid", new ByteArrayInputStream("not xml".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private ConversionReport convert(Source source) {
+		conversions.incrementAndGet();
+		Converter converter = new Converter(source);
+		converter.transform();
+		return converter.getReport();
+	}
+
+	private double count(String result) {
+		return registry.get(ConversionCache.REQUESTS_METRIC).tag("result", result).counter().count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
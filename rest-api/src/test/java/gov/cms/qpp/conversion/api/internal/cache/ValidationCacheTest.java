@@ -0,0 +1,128 @@
+package gov.cms.qpp.conversion.api.internal.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ValidationCacheTest {
+
+	private static final String URL = "https://qpp.net/validate";
+	private static final String QPP = "{\"performanceYear\":2019}";
+
+	private MeterRegistry registry;
+	private AtomicInteger calls;
+
+	@BeforeEach
+	void setup() {
+		registry = new SimpleMeterRegistry();
+		calls = new AtomicInteger();
+	}
+
+	@Test
+	void testSameQppIsValidatedOnce() {
+		ValidationCache cache = new ValidationCache(10, 5, false, registry);
+
+		cache.validate(URL, QPP, validation(passed()));
+		ValidationCache.Result result = cache.validate(URL, QPP, validation(passed()));
+
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(result.getStatus()).isEqualTo(200);
+		assertThat(requests("hit")).isEqualTo(1.0);
+		assertThat(requests("miss")).isEqualTo(1.0);
+		assertThat(registry.get(ValidationCache.SIZE_METRIC).gauge().value()).isEqualTo(1.0);
+	}
+
+	@Test
+	void testDifferentQppOrUrlIsValidatedAgain() {
+		ValidationCache cache = new ValidationCache(10, 5, false, registry);
+
+		cache.validate(URL, QPP, validation(passed()));
+		cache.validate(URL, "{\"performanceYear\":2020}", validation(passed()));
+		cache.validate("https://other.net/validate", QPP, validation(passed()));
+
+		assertThat(calls.get()).isEqualTo(3);
+	}
+
+	@Test
+	void testFailedValidationReusesBody() {
+		ValidationCache cache = new ValidationCache(10, 5, false, registry);
+
+		cache.validate(URL, QPP, validation(failed()));
+		ValidationCache.Result second = cache.validate(URL, QPP, validation(failed()));
+
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(second.isFailed()).isTrue();
+		assertThat(second.getStatus()).isEqualTo(422);
+		assertThat(second.getBody()).isEqualTo("{\"error\":{}}");
+	}
+
+	@Test
+	void testSuccessesOnlyValidatesFailuresAgain() {
+		ValidationCache cache = new ValidationCache(10, 5, true, registry);
+
+		cache.validate(URL, QPP, validation(failed()));
+		cache.validate(URL, QPP, validation(failed()));
+		cache.validate(URL, "{}", validation(passed()));
+		cache.validate(URL, "{}", validation(passed()));
+
+		assertThat(calls.get()).isEqualTo(3);
+	}
+
+	@Test
+	void testUnavailableValidationIsNotCached() {
+		ValidationCache cache = new ValidationCache(10, 5, false, registry);
+
+		assertThat(cache.validate(URL, QPP, validation(null))).isNull();
+		cache.validate(URL, QPP, validation(passed()));
+
+		assertThat(calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testDisabledByDefault() {
+		Environment environment = mock(Environment.class);
+		when(environment.getProperty(Constants.VALIDATION_CACHE_MAX_ENTRIES_ENV_VARIABLE, Long.class, 0L))
+				.thenReturn(0L);
+		when(environment.getProperty(Constants.VALIDATION_CACHE_TTL_MINUTES_ENV_VARIABLE, Long.class,
+				ValidationCache.DEFAULT_TTL_MINUTES)).thenReturn(ValidationCache.DEFAULT_TTL_MINUTES);
+		when(environment.getProperty(Constants.VALIDATION_CACHE_SUCCESSES_ONLY_ENV_VARIABLE, Boolean.class,
+				Boolean.FALSE)).thenReturn(Boolean.FALSE);
+		ValidationCache cache = new ValidationCache(environment, registry);
+
+		cache.validate(URL, QPP, validation(passed()));
+		cache.validate(URL, QPP, validation(passed()));
+
+		assertThat(cache.isEnabled()).isFalse();
+		assertThat(calls.get()).isEqualTo(2);
+	}
+
+	private Supplier<ValidationCache.Result> validation(ValidationCache.Result result) {
+		return () -> {
+			calls.incrementAndGet();
+			return result;
+		};
+	}
+
+	private double requests(String result) {
+		return registry.get(ValidationCache.REQUESTS_METRIC).tag("result", result).counter().count();
+	}
+
+	private static ValidationCache.Result passed() {
+		return new ValidationCache.Result(200, null);
+	}
+
+	private static ValidationCache.Result failed() {
+		return new ValidationCache.Result(422, "{\"error\":{}}");
+	}
+}
@@ -0,0 +1,124 @@
+package gov.cms.qpp.conversion.api.internal.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.HandlerMapping;
+
+import gov.cms.qpp.conversion.ConversionEngine;
+import gov.cms.qpp.conversion.ConversionMetrics.Phase;
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.PathSource;
+import gov.cms.qpp.conversion.api.controllers.v1.QrdaControllerV1;
+import gov.cms.qpp.conversion.model.Program;
+import gov.cms.qpp.conversion.model.error.TransformException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MicrometerConversionMetricsTest {
+
+	private static final Path VALID = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
+
+	private MeterRegistry registry;
+	private ConversionEngine engine;
+
+	@BeforeEach
+	void setup() {
+		registry = new SimpleMeterRegistry();
+		engine = ConversionEngine.builder().metrics(new MicrometerConversionMetrics(registry)).build();
+	}
+
+	@AfterEach
+	void teardown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void testConversionIsRecordedOutsideRequest() {
+		engine.newConverter(new PathSource(VALID)).transform();
+
+		assertThat(registry.get(MicrometerConversionMetrics.PHASE_METRIC)
+				.tag("phase", "parse")
+				.tag("program", "mips")
+				.tag("endpoint", MicrometerConversionMetrics.NO_ENDPOINT)
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get(MicrometerConversionMetrics.PHASE_METRIC).tag("phase", "encode").timer().count())
+				.isEqualTo(1);
+		assertThat(registry.get(MicrometerConversionMetrics.INPUT_BYTES_METRIC).summary().totalAmount())
+				.isEqualTo((double) VALID.toFile().length());
+		assertThat(registry.get(MicrometerConversionMetrics.NODES_METRIC).summary().totalAmount()).isGreaterThan(1.0);
+		assertThat(registry.find(MicrometerConversionMetrics.JSON_BYTES_METRIC).summary()).isNull();
+		assertThat(registry.get(MicrometerConversionMetrics.ERRORS_METRIC).summary().totalAmount()).isEqualTo(0.0);
+	}
+
+	@Test
+	void testRenderedJsonIsRecorded() {
+		new MicrometerConversionMetrics(registry).rendered(Program.CPC, 1234);
+
+		assertThat(registry.get(MicrometerConversionMetrics.JSON_BYTES_METRIC).tag("program", "cpc").summary()
+				.totalAmount()).isEqualTo(1234.0);
+	}
+
+	@Test
+	void testFailedConversionRecordsErrors() {
+		InputStreamSupplierSource invalid = new InputStreamSupplierSource("invalid",
+				new ByteArrayInputStream("not xml".getBytes(StandardCharsets.UTF_8)));
+
+		assertThrows(TransformException.class, () -> engine.newConverter(invalid).transform());
+
+		assertThat(registry.get(MicrometerConversionMetrics.ERRORS_METRIC).tag("program", "all").summary().totalAmount())
+				.isEqualTo(1.0);
+		assertThat(registry.find(MicrometerConversionMetrics.JSON_BYTES_METRIC).summary()).isNull();
+		assertThat(registry.find(MicrometerConversionMetrics.PHASE_METRIC).tag("phase", "decode").timer()).isNull();
+	}
+
+	@Test
+	void testEndpointIsTheHandlingController() throws NoSuchMethodException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		Method upload = QrdaControllerV1.class.getMethod("uploadQrdaFile",
+				MultipartFile.class, String.class);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(new Object(), upload) {
+			@Override
+			public Class<?> getBeanType() {
+				return QrdaControllerV1.class;
+			}
+		});
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+		new MicrometerConversionMetrics(registry).timed(Program.CPC, Phase.AUDIT, TimeUnit.MILLISECONDS.toNanos(5));
+
+		assertThat(registry.get(MicrometerConversionMetrics.PHASE_METRIC)
+				.tag("phase", "audit")
+				.tag("program", "cpc")
+				.tag("endpoint", "QrdaControllerV1.uploadQrdaFile")
+				.timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5.0);
+	}
+
+	@Test
+	void testOtherHandlersAreNotNamed() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, "not a method");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+		new MicrometerConversionMetrics(registry).timed(Program.MIPS, Phase.QPP_VALIDATION, 1);
+
+		assertThat(registry.get(MicrometerConversionMetrics.PHASE_METRIC)
+				.tag("endpoint", MicrometerConversionMetrics.NO_ENDPOINT)
+				.timer().count()).isEqualTo(1);
+	}
+}
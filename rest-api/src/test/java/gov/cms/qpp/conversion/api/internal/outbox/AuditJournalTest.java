@@ -0,0 +1,195 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.model.error.Detail;
+
+class AuditJournalTest {
+
+	private static final int SEGMENT_BYTES = 64 * 1024;
+	private static final JournalKeys KEYS = new TestJournalKeys();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testPendingEntryIsRecovered() throws IOException {
+		Metadata metadata = metadata("first");
+		try (AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS)) {
+			journal.append(metadata, artifacts("qrda content", "qpp content"));
+		}
+
+		List<AuditEntry> recovered = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS).getRecovered();
+
+		assertThat(recovered).hasSize(1);
+		AuditEntry entry = recovered.get(0);
+		assertThat(entry.getMetadata()).isEqualTo(metadata);
+		assertThat(entry.getArtifacts()).containsExactly(Artifact.SUBMISSION, Artifact.QPP);
+		assertThat(read(entry, Artifact.SUBMISSION)).isEqualTo("qrda content");
+		assertThat(read(entry, Artifact.QPP)).isEqualTo("qpp content");
+		assertThat(entry.size(Artifact.QPP)).isEqualTo("qpp content".length());
+	}
+
+	@Test
+	void testDoneEntryIsNotRecovered() throws IOException {
+		try (AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, true, KEYS)) {
+			AuditEntry done = journal.append(metadata("done"), artifacts("a", "b"));
+			journal.append(metadata("pending"), artifacts("c", "d"));
+			journal.complete(done);
+		}
+
+		List<AuditEntry> recovered = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS).getRecovered();
+
+		assertThat(recovered).hasSize(1);
+		assertThat(recovered.get(0).getMetadata().getFileName()).isEqualTo("pending");
+	}
+
+	@Test
+	void testDoneSegmentsAreDeleted() throws IOException {
+		AuditJournal journal = new AuditJournal(directory, 256, false, KEYS);
+		AuditEntry first = journal.append(metadata("first"), artifacts(repeat('a', 300), "b"));
+		AuditEntry second = journal.append(metadata("second"), artifacts(repeat('c', 300), "d"));
+		assertThat(journal.getSegmentCount()).isEqualTo(2);
+
+		journal.complete(second);
+		assertThat(journal.getSegmentCount()).isEqualTo(3);
+		journal.complete(first);
+
+		assertThat(journal.getSegmentCount()).isEqualTo(1);
+		assertThat(journalFiles()).hasSize(1);
+		assertThat(new AuditJournal(directory, 256, false, KEYS).getRecovered()).isEmpty();
+	}
+
+	@Test
+	void testCorruptEntryIsNotRecovered() throws IOException {
+		try (AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS)) {
+			journal.append(metadata("corrupt"), artifacts("qrda content", "qpp content"));
+		}
+
+		Path file = journalFiles().get(0);
+		byte[] bytes = Files.readAllBytes(file);
+		int last = bytes.length - 1;
+		while (bytes[last] == 0) {
+			last--;
+		}
+		bytes[last] ^= 1;
+		Files.write(file, bytes);
+
+		assertThat(new AuditJournal(directory, SEGMENT_BYTES, false, KEYS).getRecovered()).isEmpty();
+	}
+
+	@Test
+	void testJournalIsEncrypted() throws IOException {
+		try (AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS)) {
+			journal.append(metadata("secret-file"), artifacts("qrda content", "qpp content"));
+		}
+
+		byte[] bytes = Files.readAllBytes(journalFiles().get(0));
+
+		for (String plaintext : Arrays.asList("qrda content", "qpp content", "000123456", "secret-file")) {
+			assertThat(Bytes.indexOf(bytes, plaintext.getBytes(StandardCharsets.UTF_8))).isEqualTo(-1);
+		}
+	}
+
+	@Test
+	void testEntryHoldsCopyOfMetadata() throws IOException {
+		Metadata metadata = metadata("copied");
+		AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS);
+
+		AuditEntry entry = journal.append(metadata, artifacts("a", "b"));
+		entry.getMetadata().setQppLocator("locator");
+
+		assertThat(entry.getMetadata()).isNotSameInstanceAs(metadata);
+		assertThat(metadata.getQppLocator()).isNull();
+		assertThat(read(entry, Artifact.SUBMISSION)).isEqualTo("a");
+	}
+
+	@Test
+	void testMismatchedSizeIsNotJournaled() throws IOException {
+		AuditJournal journal = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS);
+		Source wrongSize = new InputStreamSupplierSource("wrong", new ByteArrayInputStream(new byte[10])) {
+			@Override
+			public long getSize() {
+				return 20;
+			}
+		};
+
+		assertThrows(IOException.class, () -> journal.append(metadata("wrong"),
+				Collections.singletonMap(Artifact.SUBMISSION, wrongSize)));
+		journal.append(metadata("right"), artifacts("a", "b"));
+		journal.close();
+
+		List<AuditEntry> recovered = new AuditJournal(directory, SEGMENT_BYTES, false, KEYS).getRecovered();
+		assertThat(recovered).hasSize(1);
+		assertThat(recovered.get(0).getMetadata().getFileName()).isEqualTo("right");
+	}
+
+	private List<Path> journalFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	static Metadata metadata(String fileName) {
+		Metadata metadata = Metadata.create();
+		metadata.setUuid(fileName + "-uuid");
+		metadata.setFileName(fileName);
+		metadata.setTin("000123456");
+		metadata.setSubmissionYear(2019L);
+		metadata.setOverallStatus(true);
+		metadata.setCpcProcessed(false);
+		metadata.setPurpose("Test");
+		Detail detail = new Detail();
+		detail.setMessage("a warning");
+		metadata.setWarnings(Collections.singletonList(detail));
+		return metadata;
+	}
+
+	static Map<Artifact, Source> artifacts(String qrda, String qpp) {
+		Map<Artifact, Source> artifacts = new EnumMap<>(Artifact.class);
+		artifacts.put(Artifact.SUBMISSION, source(qrda));
+		artifacts.put(Artifact.QPP, source(qpp));
+		return artifacts;
+	}
+
+	private static Source source(String content) {
+		return new InputStreamSupplierSource("artifact",
+				new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	static String read(AuditEntry entry, Artifact artifact) throws IOException {
+		try (InputStream content = entry.open(artifact)) {
+			return new String(ByteStreams.toByteArray(content), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String repeat(char character, int times) {
+		char[] characters = new char[times];
+		Arrays.fill(characters, character);
+		return new String(characters);
+	}
+}
@@ -0,0 +1,241 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.amazonaws.services.kms.AWSKMS;
+import com.google.common.io.ByteStreams;
+
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.services.DbService;
+import gov.cms.qpp.conversion.api.services.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuditOutboxTest {
+
+	@TempDir
+	Path directory;
+
+	private MeterRegistry registry;
+	private StorageService storageService;
+	private DbService dbService;
+	private List<String> stored;
+	private AtomicInteger storageFailures;
+	private AuditOutbox outbox;
+
+	@BeforeEach
+	void setup() {
+		registry = new SimpleMeterRegistry();
+		storageService = mock(StorageService.class);
+		dbService = mock(DbService.class);
+		stored = new CopyOnWriteArrayList<>();
+		storageFailures = new AtomicInteger();
+
+		when(storageService.store(anyString(), any(), anyLong())).thenAnswer(invocation -> {
+			if (storageFailures.getAndDecrement() > 0) {
+				CompletableFuture<String> failed = new CompletableFuture<>();
+				failed.completeExceptionally(new IllegalStateException("S3 is down"));
+				return failed;
+			}
+			Supplier<InputStream> content = invocation.getArgument(1);
+			stored.add(read(content));
+			return CompletableFuture.completedFuture("key-" + stored.size());
+		});
+		when(dbService.write(any(Metadata.class)))
+				.thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+	}
+
+	@AfterEach
+	void teardown() {
+		if (outbox != null) {
+			outbox.close();
+		}
+	}
+
+	@Test
+	void testJournaledAuditIsWritten() {
+		outbox = outbox(0);
+		outbox.start();
+		Metadata metadata = AuditJournalTest.metadata("written");
+
+		assertThat(outbox.submit(metadata, AuditJournalTest.artifacts("qrda", "qpp"))).isTrue();
+
+		awaitWritten();
+		assertThat(stored).containsExactly("qrda", "qpp");
+		Metadata written = written();
+		assertThat(written.getUuid()).isEqualTo(metadata.getUuid());
+		assertThat(written.getSubmissionLocator()).isNotNull();
+		assertThat(written.getQppLocator()).isNotNull();
+		assertThat(metadata.getQppLocator()).isNull();
+	}
+
+	@Test
+	void testJournaledAuditIsWrittenAsBundle() {
+		when(storageService.storeBundle(anyString(), any())).thenAnswer(invocation -> {
+			Map<String, Source> parts = invocation.getArgument(1);
+			Map<String, String> locators = new LinkedHashMap<>();
+			parts.forEach((name, source) -> {
+				stored.add(read(source::toInputStream));
+				locators.put(name, "bundle#" + name);
+			});
+			return CompletableFuture.completedFuture(locators);
+		});
+		outbox = outbox(0, true);
+		outbox.start();
+		Metadata metadata = AuditJournalTest.metadata("bundled");
+
+		outbox.submit(metadata, AuditJournalTest.artifacts("qrda", "qpp"));
+
+		awaitWritten();
+		assertThat(stored).containsExactly("qrda", "qpp");
+		Metadata written = written();
+		assertThat(written.getSubmissionLocator()).isEqualTo("bundle#submission");
+		assertThat(written.getQppLocator()).isEqualTo("bundle#qpp");
+		verify(storageService, times(0)).store(anyString(), any(), anyLong());
+	}
+
+	@Test
+	void testPendingAuditIsReplayedOnStart() {
+		AuditOutbox stopped = outbox(0);
+		stopped.submit(AuditJournalTest.metadata("replayed"), AuditJournalTest.artifacts("qrda", "qpp"));
+		assertThat(stopped.getPending()).isEqualTo(1);
+
+		outbox = outbox(0);
+		outbox.start();
+
+		awaitWritten();
+		assertThat(stored).containsExactly("qrda", "qpp");
+		verify(dbService, times(1)).write(any(Metadata.class));
+	}
+
+	@Test
+	void testWrittenAuditIsNotReplayed() {
+		outbox = outbox(0);
+		outbox.start();
+		outbox.submit(AuditJournalTest.metadata("written"), AuditJournalTest.artifacts("qrda", "qpp"));
+		awaitWritten();
+		outbox.close();
+
+		outbox = outbox(0);
+		outbox.start();
+
+		assertThat(outbox.getPending()).isEqualTo(0);
+		verify(dbService, times(1)).write(any(Metadata.class));
+	}
+
+	@Test
+	void testFailedAuditIsRetried() {
+		storageFailures.set(1);
+		outbox = outbox(0);
+		outbox.start();
+
+		outbox.submit(AuditJournalTest.metadata("retried"), AuditJournalTest.artifacts("qrda", "qpp"));
+
+		awaitWritten();
+		verify(dbService, times(1)).write(any(Metadata.class));
+		assertThat(registry.get(AuditOutbox.FAILURES_METRIC).counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void testFullOutboxLeavesAuditToCaller() {
+		outbox = new AuditOutbox(directory, 1024 * 1024, false, 25, 0, 1, false, new TestJournalKeys(),
+				storageService, dbService, registry);
+
+		assertThat(outbox.submit(AuditJournalTest.metadata("first"), AuditJournalTest.artifacts("a", "b"))).isTrue();
+		assertThat(outbox.submit(AuditJournalTest.metadata("second"), AuditJournalTest.artifacts("c", "d")))
+				.isFalse();
+		assertThat(outbox.getPending()).isEqualTo(1);
+	}
+
+	@Test
+	void testDisabledWithoutKmsKey() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.AUDIT_OUTBOX_DIR_ENV_VARIABLE, directory.toString());
+
+		outbox = new AuditOutbox(environment, mock(AWSKMS.class), storageService, dbService, registry);
+
+		assertThat(outbox.isEnabled()).isFalse();
+	}
+
+	@Test
+	void testDisabledWithoutDirectory() {
+		outbox = new AuditOutbox(new MockEnvironment(), mock(AWSKMS.class), storageService, dbService, registry);
+
+		assertThat(outbox.isEnabled()).isFalse();
+		assertThat(outbox.submit(AuditJournalTest.metadata("direct"), AuditJournalTest.artifacts("a", "b")))
+				.isFalse();
+	}
+
+	@Test
+	void testDisabledWithoutAudit() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.AUDIT_OUTBOX_DIR_ENV_VARIABLE, directory.toString())
+				.withProperty(Constants.KMS_KEY_ENV_VARIABLE, "key")
+				.withProperty(Constants.NO_AUDIT_ENV_VARIABLE, "yep");
+
+		outbox = new AuditOutbox(environment, mock(AWSKMS.class), storageService, dbService, registry);
+
+		assertThat(outbox.isEnabled()).isFalse();
+	}
+
+	private AuditOutbox outbox(long retryMillis) {
+		return outbox(retryMillis, false);
+	}
+
+	private AuditOutbox outbox(long retryMillis, boolean bundle) {
+		return new AuditOutbox(directory, 1024 * 1024, false, 25, retryMillis, 100, bundle, new TestJournalKeys(),
+				storageService, dbService, registry);
+	}
+
+	private Metadata written() {
+		ArgumentCaptor<Metadata> written = ArgumentCaptor.forClass(Metadata.class);
+		verify(dbService, times(1)).write(written.capture());
+		return written.getValue();
+	}
+
+	private void awaitWritten() {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (outbox.getPending() > 0 && System.nanoTime() < deadline) {
+			Thread.yield();
+		}
+		assertThat(outbox.getPending()).isEqualTo(0);
+	}
+
+	private static String read(Supplier<InputStream> content) {
+		try (InputStream stream = content.get()) {
+			return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.DecryptResult;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+
+class KmsJournalKeysTest {
+
+	private final AWSKMS awsKms = mock(AWSKMS.class);
+	private final KmsJournalKeys keys = new KmsJournalKeys(awsKms, "journal-key");
+
+	@Test
+	void testGenerateUsesKeyAndContext() throws IOException {
+		ArgumentCaptor<GenerateDataKeyRequest> request = ArgumentCaptor.forClass(GenerateDataKeyRequest.class);
+		when(awsKms.generateDataKey(request.capture())).thenReturn(new GenerateDataKeyResult()
+				.withPlaintext(ByteBuffer.wrap(new byte[32]))
+				.withCiphertextBlob(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+
+		JournalKeys.DataKey dataKey = keys.generate();
+
+		assertThat(dataKey.getKey().getEncoded()).hasLength(32);
+		assertThat(dataKey.getEncrypted()).isEqualTo(new byte[] {1, 2, 3});
+		assertThat(request.getValue().getKeyId()).isEqualTo("journal-key");
+		assertThat(request.getValue().getEncryptionContext()).containsEntry("purpose", "audit-outbox");
+	}
+
+	@Test
+	void testDecryptUsesContext() throws IOException {
+		ArgumentCaptor<DecryptRequest> request = ArgumentCaptor.forClass(DecryptRequest.class);
+		when(awsKms.decrypt(request.capture()))
+				.thenReturn(new DecryptResult().withPlaintext(ByteBuffer.wrap(new byte[32])));
+
+		assertThat(keys.decrypt(new byte[] {1, 2, 3}).getAlgorithm()).isEqualTo("AES");
+		verify(awsKms).decrypt(any(DecryptRequest.class));
+		assertThat(request.getValue().getEncryptionContext()).containsEntry("purpose", "audit-outbox");
+	}
+
+	@Test
+	void testKmsFailureIsIoException() {
+		when(awsKms.generateDataKey(any(GenerateDataKeyRequest.class))).thenThrow(new SdkClientException("down"));
+
+		assertThrows(IOException.class, keys::generate);
+	}
+}
@@ -0,0 +1,34 @@
+package gov.cms.qpp.conversion.api.internal.outbox;
+
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@link JournalKeys} for tests, which generate random keys and "encrypt" them by inverting their bits.
+ */
+final class TestJournalKeys implements JournalKeys {
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	@Override
+	public DataKey generate() {
+		byte[] key = new byte[32];
+		RANDOM.nextBytes(key);
+		return new DataKey(new SecretKeySpec(key, "AES"), invert(key));
+	}
+
+	@Override
+	public SecretKey decrypt(byte[] encrypted) {
+		return new SecretKeySpec(invert(encrypted), "AES");
+	}
+
+	private static byte[] invert(byte[] bytes) {
+		byte[] inverted = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			inverted[i] = (byte) ~bytes[i];
+		}
+		return inverted;
+	}
+}
@@ -104,7 +104,7 @@ public class SpecPiiValidatorTest {
 				"]\r\n").replace("{apm}", apm).replace("{npi}", npi);
 		InputStream jsonStream = new StringInputStream(json);
 		CpcValidationInfoMap file = new CpcValidationInfoMap(jsonStream);
-		Assumptions.assumeFalse(file.getApmTinNpiCombinationMap() == null);
+		Assumptions.assumeTrue(file.isLoaded());
 		return file;
 	}
 
@@ -123,7 +123,7 @@ public class SpecPiiValidatorTest {
 			"]\r\n").replace("{apm}", apm).replace("{npi}", npi);
 		InputStream jsonStream = new StringInputStream(json);
 		CpcValidationInfoMap file = new CpcValidationInfoMap(jsonStream);
-		Assumptions.assumeFalse(file.getApmTinNpiCombinationMap() == null);
+		Assumptions.assumeTrue(file.isLoaded());
 		return file;
 	}
 
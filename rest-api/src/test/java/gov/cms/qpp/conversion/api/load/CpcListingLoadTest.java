@@ -0,0 +1,189 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.AttributeEncryptor;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.encryption.providers.SymmetricStaticProvider;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
+import gov.cms.qpp.conversion.api.services.internal.DbServiceImpl;
+import gov.cms.qpp.conversion.api.services.internal.RetryScheduler;
+import gov.cms.qpp.conversion.model.error.Detail;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Compares the latency of the unprocessed CPC+ listing when whole items are read and decrypted by the mapper with
+ * the listing projected on the plaintext attributes. DynamoDB is replaced by the in-process {@link StandInDynamoDb},
+ * holding items encrypted like the real table, so the difference is the reading, decrypting and mapping of the
+ * items. Only runs when {@code -DrunLoadTests} is given.
+ *
+ * <p>The listing is configured with system properties:
+ * <ul>
+ *     <li>{@code load.listing.items} - number of unprocessed CPC+ items, 2000 by default</li>
+ *     <li>{@code load.listing.warnings} - number of warnings stored with each item, 20 by default</li>
+ *     <li>{@code load.listing.rounds} - number of listings timed for each path, 20 by default</li>
+ *     <li>{@code load.dynamodb.*} - see {@link Faults}</li>
+ * </ul>
+ *
+ * <p>The report is logged and written to {@code target/cpc-listing-report.txt}.
+ */
+@EnabledIfSystemProperty(named = "runLoadTests", matches = ".*")
+class CpcListingLoadTest {
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(CpcListingLoadTest.class);
+	private static final Faults DYNAMODB = Faults.fromSystemProperties("dynamodb", 0);
+	private static final int WARM_UP_ROUNDS = 5;
+
+	private static ExecutorService executor;
+	private static ScheduledThreadPoolExecutor retries;
+	private static StandInDynamoDb dynamoDb;
+	private static DynamoDBMapper mapper;
+	private static int items;
+
+	@BeforeAll
+	static void fillTable() {
+		executor = Executors.newFixedThreadPool(Constants.CPC_DYNAMO_PARTITIONS);
+		retries = new ScheduledThreadPoolExecutor(1);
+		dynamoDb = new StandInDynamoDb(DYNAMODB);
+
+		SecureRandom random = new SecureRandom();
+		byte[] encryptionKey = new byte[16];
+		byte[] macKey = new byte[32];
+		random.nextBytes(encryptionKey);
+		random.nextBytes(macKey);
+		AttributeEncryptor encryptor = new AttributeEncryptor(new SymmetricStaticProvider(
+				new SecretKeySpec(encryptionKey, "AES"), new SecretKeySpec(macKey, "HmacSHA256")));
+		mapper = new DynamoDBMapper(dynamoDb, DynamoDBMapperConfig.builder()
+				.withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.PUT)
+				.build(), encryptor);
+
+		items = Integer.getInteger("load.listing.items", 2000);
+		int warnings = Integer.getInteger("load.listing.warnings", 20);
+		for (int item = 0; item < items; item++) {
+			mapper.save(unprocessed(item, warnings));
+		}
+		API_LOG.info("Stored {} encrypted CPC+ items with {} warnings each; {}", items, warnings, DYNAMODB);
+	}
+
+	@AfterAll
+	static void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			retries.shutdownNow();
+		}
+	}
+
+	@Test
+	void listing() throws Exception {
+		int rounds = Integer.getInteger("load.listing.rounds", 20);
+		DbServiceImpl decrypted = service(false);
+		DbServiceImpl projected = service(true);
+
+		LoadReport report = new LoadReport();
+		time(report, "mapper", decrypted, rounds);
+		time(report, "proj", projected, rounds);
+
+		String rendered = report.render();
+		API_LOG.info("CPC+ listing report over {} items" + System.lineSeparator() + rendered, items);
+		Files.write(Paths.get("target", "cpc-listing-report.txt"), rendered.getBytes(StandardCharsets.UTF_8));
+
+		List<UnprocessedCpcFileData> expected = list(decrypted);
+		List<UnprocessedCpcFileData> actual = list(projected);
+		assertThat(actual).hasSize(items);
+		for (int i = 0; i < items; i++) {
+			assertThat(actual.get(i).getFileId()).isEqualTo(expected.get(i).getFileId());
+			assertThat(actual.get(i).getApm()).isEqualTo(expected.get(i).getApm());
+			assertThat(actual.get(i).getConversionDate()).isEqualTo(expected.get(i).getConversionDate());
+			assertThat(actual.get(i).getValidationSuccess()).isEqualTo(expected.get(i).getValidationSuccess());
+			assertThat(actual.get(i).getPurpose()).isEqualTo(expected.get(i).getPurpose());
+			assertThat(actual.get(i).getFilename()).isNull();
+		}
+	}
+
+	private static DbServiceImpl service(boolean projection) {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE, "2020-01-01")
+				.withProperty(Constants.CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE, String.valueOf(projection));
+		RetryScheduler retryScheduler = new RetryScheduler(retries, 1, Duration.ZERO, Duration.ZERO, 1,
+				Integer.MAX_VALUE, Duration.ofHours(1));
+		return new DbServiceImpl(new TaskExecutorAdapter(executor), retryScheduler, Optional.of(mapper), dynamoDb,
+				environment, 25, 0);
+	}
+
+	private static void time(LoadReport report, String name, DbServiceImpl service, int rounds) {
+		for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+			list(service);
+		}
+
+		LoadReport.Endpoint results = report.start(name);
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			int listed = list(service).size();
+			results.record(System.nanoTime() - start, listed == items ? 200 : 500);
+		}
+	}
+
+	private static List<UnprocessedCpcFileData> list(DbServiceImpl service) {
+		return service.getUnprocessedCpcPlusMetaData().stream()
+				.map(UnprocessedCpcFileData::new)
+				.sorted(Comparator.comparing(UnprocessedCpcFileData::getFileId))
+				.collect(Collectors.toList());
+	}
+
+	private static Metadata unprocessed(int item, int warnings) {
+		Metadata metadata = Metadata.create();
+		metadata.setCreatedDate(Instant.parse("2020-06-01T00:00:00Z").plusSeconds(item));
+		metadata.setCpc(Constants.CPC_DYNAMO_PARTITION_START + (item % Constants.CPC_DYNAMO_PARTITIONS));
+		metadata.setCpcProcessed(false);
+		metadata.setFileName("cpc-plus-" + item + ".xml");
+		metadata.setApm("T0" + (item % 50));
+		metadata.setTin("00000" + (1000 + item % 9000));
+		metadata.setNpi("00000" + (10000 + item % 90000));
+		metadata.setProgramName("CPCPLUS");
+		metadata.setOverallStatus(item % 3 != 0);
+		metadata.setConversionStatus(true);
+		metadata.setValidationStatus(item % 3 != 0);
+		metadata.setSubmissionLocator("submission-" + item);
+		metadata.setQppLocator("qpp-" + item);
+
+		List<Detail> details = new ArrayList<>();
+		for (int warning = 0; warning < warnings; warning++) {
+			Detail detail = new Detail();
+			detail.setErrorCode(warning);
+			detail.setMessage("CT - The measure data with population id '" + warning + "' must be a CPC+ measure");
+			detail.setValue(String.valueOf(warning));
+			details.add(detail);
+		}
+		metadata.setWarnings(details);
+		return metadata;
+	}
+}
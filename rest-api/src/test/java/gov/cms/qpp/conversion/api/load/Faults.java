@@ -0,0 +1,72 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
+
+/**
+ * Latency and failures injected into a stand-in for a remote service. Configured with the system properties
+ * {@code load.<name>.latency.ms} and {@code load.<name>.failure.rate}, for example
+ * {@code -Dload.storage.latency.ms=80 -Dload.storage.failure.rate=0.01}.
+ */
+final class Faults {
+
+	private final String name;
+	private final long latencyMillis;
+	private final double failureRate;
+
+	Faults(String name, long latencyMillis, double failureRate) {
+		if (latencyMillis < 0 || failureRate < 0 || failureRate > 1) {
+			throw new IllegalArgumentException("Invalid faults for " + name + ": latency " + latencyMillis
+					+ " ms, failure rate " + failureRate);
+		}
+		this.name = name;
+		this.latencyMillis = latencyMillis;
+		this.failureRate = failureRate;
+	}
+
+	/**
+	 * Reads the faults of a stand-in from the system properties.
+	 *
+	 * @param name name of the stand-in in the property names
+	 * @param defaultLatencyMillis latency if none is configured
+	 * @return the configured faults
+	 */
+	static Faults fromSystemProperties(String name, long defaultLatencyMillis) {
+		return new Faults(name,
+				Long.getLong("load." + name + ".latency.ms", defaultLatencyMillis),
+				Double.parseDouble(System.getProperty("load." + name + ".failure.rate", "0")));
+	}
+
+	/**
+	 * Waits for between half and one and a half times the configured latency.
+	 */
+	void delay() {
+		if (latencyMillis == 0) {
+			return;
+		}
+		long millis = latencyMillis / 2 + ThreadLocalRandom.current().nextLong(latencyMillis + 1);
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedInterruptedException(exception);
+		}
+	}
+
+	/**
+	 * @return whether the current call should fail
+	 */
+	boolean shouldFail() {
+		return failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+	}
+
+	boolean injectsFailures() {
+		return failureRate > 0;
+	}
+
+	@Override
+	public String toString() {
+		return name + " latency " + latencyMillis + " ms, failure rate " + failureRate;
+	}
+}
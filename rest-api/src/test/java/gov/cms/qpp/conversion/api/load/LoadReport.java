@@ -0,0 +1,127 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and outcomes of the requests made to each endpoint during a load test.
+ */
+final class LoadReport {
+
+	private static final String ROW = "%-6s %9s %10s %7s %7s %7s %8s %9s %9s %9s %9s%n";
+
+	private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+	/**
+	 * Starts recording the requests to an endpoint.
+	 *
+	 * @param name name of the endpoint
+	 * @return the recorder of the endpoint
+	 */
+	synchronized Endpoint start(String name) {
+		Endpoint endpoint = new Endpoint(System.nanoTime());
+		endpoints.put(name, endpoint);
+		return endpoint;
+	}
+
+	/**
+	 * @param name name of the endpoint
+	 * @return the recorder of the endpoint
+	 */
+	synchronized Endpoint get(String name) {
+		return endpoints.get(name);
+	}
+
+	/**
+	 * Renders a row per endpoint with the throughput, the number of requests that were answered with 2xx, 4xx and
+	 * 5xx statuses or not at all, and the latency percentiles.
+	 *
+	 * @return the report table
+	 */
+	synchronized String render() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format(Locale.ENGLISH, ROW, "", "requests", "per second", "2xx", "4xx", "5xx",
+				"error %", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+		endpoints.forEach((name, endpoint) -> endpoint.appendTo(name, table));
+		return table.toString();
+	}
+
+	/**
+	 * Recorder of the requests to one endpoint, safe for concurrent use.
+	 */
+	static final class Endpoint {
+		private final long started;
+		private long finished;
+		private long[] nanos = new long[1024];
+		private int count;
+		private int successes;
+		private int rejections;
+		private int errors;
+
+		private Endpoint(long started) {
+			this.started = started;
+		}
+
+		/**
+		 * @param latencyNanos time until the response was read
+		 * @param status HTTP status of the response, or a negative number if there was none
+		 */
+		synchronized void record(long latencyNanos, int status) {
+			if (count == nanos.length) {
+				nanos = Arrays.copyOf(nanos, count * 2);
+			}
+			nanos[count++] = latencyNanos;
+			if (status >= 200 && status < 300) {
+				successes++;
+			} else if (status >= 400 && status < 500) {
+				rejections++;
+			} else {
+				errors++;
+			}
+		}
+
+		synchronized void finish() {
+			finished = System.nanoTime();
+		}
+
+		synchronized int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return responses with a 5xx status and requests without a response
+		 */
+		synchronized int getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return latency in nanoseconds below which the percentile of requests completed
+		 */
+		synchronized long percentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long[] sorted = Arrays.copyOf(nanos, count);
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(percentile / 100 * count);
+			return sorted[Math.max(rank, 1) - 1];
+		}
+
+		private synchronized void appendTo(String name, StringBuilder table) {
+			double seconds = ((finished == 0 ? System.nanoTime() : finished) - started) / 1e9;
+			table.append(String.format(Locale.ENGLISH, ROW, name, count,
+					String.format(Locale.ENGLISH, "%.1f", count / seconds), successes, rejections, errors,
+					String.format(Locale.ENGLISH, "%.2f", count == 0 ? 0 : 100.0 * errors / count),
+					millis(percentile(50)), millis(percentile(95)), millis(percentile(99)), millis(percentile(100))));
+		}
+
+		private static String millis(long nanos) {
+			return String.format(Locale.ENGLISH, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import gov.cms.qpp.conversion.api.RestApiApplication;
+import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.services.DbService;
+import gov.cms.qpp.conversion.api.services.StorageService;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Measures the throughput and latency of the conversion endpoints under concurrent load, with S3, DynamoDB and the
+ * QPP submission validation API replaced by in-process stand-ins. Only runs when {@code -DrunLoadTests} is given.
+ *
+ * <p>The load is configured with system properties:
+ * <ul>
+ *     <li>{@code load.corpus} - a QRDA III file or a directory of them, {@code ../sample-files/2019} by default</li>
+ *     <li>{@code load.clients} - number of concurrent clients, 8 by default</li>
+ *     <li>{@code load.requests} - number of requests to each endpoint, 200 by default</li>
+ *     <li>{@code load.endpoints} - comma separated endpoints to load, {@code v1,v2,zip} by default</li>
+ *     <li>{@code load.zip.entries} - number of corpus files in each uploaded zip, 5 by default</li>
+ *     <li>{@code load.storage.*}, {@code load.db.*} and {@code load.validation.*} - see {@link Faults}</li>
+ * </ul>
+ *
+ * <p>The report is logged and written to {@code target/load-test-report.txt}. The test fails if an endpoint answers
+ * with a server error or not at all while no failures are injected.
+ */
+@EnabledIfSystemProperty(named = "runLoadTests", matches = ".*")
+@SpringBootTest(classes = {RestApiApplication.class, RestApiLoadTest.StandIns.class},
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"NO_AUDIT=", "spring.servlet.multipart.max-file-size=-1",
+				"spring.servlet.multipart.max-request-size=-1"})
+class RestApiLoadTest {
+
+	private static final Logger API_LOG = LoggerFactory.getLogger(RestApiLoadTest.class);
+	private static final Faults STORAGE = Faults.fromSystemProperties("storage", 20);
+	private static final Faults DB = Faults.fromSystemProperties("db", 10);
+	private static final Faults VALIDATION = Faults.fromSystemProperties("validation", 50);
+
+	private static List<Path> corpus;
+	private static Path zipDirectory;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StandInValidationServer validationServer;
+
+	@Autowired
+	private StandInStorageService storageService;
+
+	@Autowired
+	private StandInDbService dbService;
+
+	/**
+	 * Replaces the remote services of the application.
+	 */
+	@TestConfiguration
+	static class StandIns {
+
+		@Bean
+		@Primary
+		StandInStorageService standInStorageService() {
+			return new StandInStorageService(STORAGE);
+		}
+
+		@Bean
+		@Primary
+		StandInDbService standInDbService() {
+			return new StandInDbService(DB);
+		}
+
+		@Bean(destroyMethod = "close")
+		StandInValidationServer standInValidationServer(ConfigurableEnvironment environment) {
+			return new StandInValidationServer(VALIDATION, environment);
+		}
+	}
+
+	@BeforeAll
+	static void loadCorpus() throws IOException {
+		Path location = Paths.get(System.getProperty("load.corpus", "../sample-files/2019"));
+		if (Files.isDirectory(location)) {
+			try (Stream<Path> files = Files.list(location)) {
+				corpus = files.filter(file -> file.toString().endsWith(".xml")).sorted().collect(Collectors.toList());
+			}
+		} else {
+			corpus = Collections.singletonList(location);
+		}
+		assertWithMessage("QRDA III files in %s", location).that(corpus).isNotEmpty();
+
+		zipDirectory = Files.createTempDirectory("load-test");
+	}
+
+	@AfterAll
+	static void deleteZips() throws IOException {
+		if (zipDirectory != null) {
+			try (Stream<Path> zips = Files.list(zipDirectory)) {
+				for (Path zip : zips.collect(Collectors.toList())) {
+					Files.delete(zip);
+				}
+			}
+			Files.delete(zipDirectory);
+		}
+	}
+
+	@Test
+	void load() throws Exception {
+		int clients = Integer.getInteger("load.clients", 8);
+		int requests = Integer.getInteger("load.requests", 200);
+		List<String> endpoints = Arrays.asList(System.getProperty("load.endpoints", "v1,v2,zip").split(","));
+
+		API_LOG.info("Loading {} with {} requests from {} clients over {} files; {}; {}; {}", endpoints, requests,
+				clients, corpus.size(), STORAGE, DB, VALIDATION);
+
+		LoadReport report = new LoadReport();
+		for (String endpoint : endpoints) {
+			drive(report, endpoint.trim(), clients, requests);
+		}
+
+		String rendered = report.render();
+		API_LOG.info("Load test report" + System.lineSeparator() + rendered
+				+ "validation requests " + validationServer.getRequests()
+				+ ", stored bytes " + storageService.getStoredBytes()
+				+ ", metadata items " + dbService.size());
+		Files.write(Paths.get("target", "load-test-report.txt"), rendered.getBytes(StandardCharsets.UTF_8));
+
+		for (String endpoint : endpoints) {
+			LoadReport.Endpoint results = report.get(endpoint.trim());
+			assertWithMessage("requests to %s", endpoint).that(results.getCount()).isEqualTo(requests);
+			if (!STORAGE.injectsFailures() && !DB.injectsFailures()) {
+				assertWithMessage("errors from %s", endpoint).that(results.getErrors()).isEqualTo(0);
+			}
+		}
+	}
+
+	private void drive(LoadReport report, String endpoint, int clients, int requests) throws InterruptedException {
+		List<Path> uploads = uploadsFor(endpoint);
+		String accept = acceptFor(endpoint);
+		RestTemplate client = new RestTemplate();
+		client.setErrorHandler(new NoHandlingErrorHandler());
+		String url = "http://localhost:" + port + "/";
+
+		AtomicInteger next = new AtomicInteger();
+		LoadReport.Endpoint results = report.start(endpoint);
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		for (int i = 0; i < clients; i++) {
+			executor.execute(() -> {
+				int request;
+				while ((request = next.getAndIncrement()) < requests) {
+					long start = System.nanoTime();
+					int status = post(client, url, accept, uploads.get(request % uploads.size()));
+					results.record(System.nanoTime() - start, status);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.HOURS);
+		results.finish();
+	}
+
+	private static int post(RestTemplate client, String url, String accept, Path upload) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+		headers.set(HttpHeaders.ACCEPT, accept);
+		MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+		body.add("file", new FileSystemResource(upload));
+		try {
+			return client.postForEntity(url, new HttpEntity<>(body, headers), String.class).getStatusCodeValue();
+		} catch (RestClientException exception) {
+			API_LOG.warn("Request to " + url + " failed", exception);
+			return -1;
+		}
+	}
+
+	private static String acceptFor(String endpoint) {
+		switch (endpoint) {
+			case "v1":
+				return Constants.V1_API_ACCEPT;
+			case "v2":
+				return Constants.V2_API_ACCEPT;
+			case "zip":
+				return "application/zip";
+			default:
+				throw new IllegalArgumentException("Unknown endpoint " + endpoint + ", expected v1, v2 or zip");
+		}
+	}
+
+	private static List<Path> uploadsFor(String endpoint) {
+		if (!"zip".equals(endpoint)) {
+			return corpus;
+		}
+
+		int entries = Integer.getInteger("load.zip.entries", 5);
+		List<Path> zips = new ArrayList<>();
+		for (int first = 0; first < corpus.size(); first += entries) {
+			Path zip = zipDirectory.resolve("upload-" + first + ".zip");
+			try (OutputStream file = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(file)) {
+				for (Path entry : corpus.subList(first, Math.min(first + entries, corpus.size()))) {
+					out.putNextEntry(new ZipEntry(entry.getFileName().toString()));
+					Files.copy(entry, out);
+					out.closeEntry();
+				}
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+			zips.add(zip);
+		}
+		return zips;
+	}
+
+	/**
+	 * Reports every status to the caller instead of throwing.
+	 */
+	private static class NoHandlingErrorHandler extends DefaultResponseErrorHandler {
+		@Override
+		public void handleError(ClientHttpResponse response) {
+			//do nothing
+		}
+	}
+}
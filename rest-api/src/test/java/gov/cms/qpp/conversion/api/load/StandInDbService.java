@@ -0,0 +1,71 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
+import gov.cms.qpp.conversion.api.services.DbService;
+
+/**
+ * In-process replacement of the DynamoDB backed {@link DbService} that keeps {@link Metadata} in memory.
+ */
+class StandInDbService implements DbService {
+
+	private final Faults faults;
+	private final Map<String, Metadata> items = new ConcurrentHashMap<>();
+
+	StandInDbService(Faults faults) {
+		this.faults = faults;
+	}
+
+	@Override
+	public CompletableFuture<Metadata> write(Metadata meta) {
+		faults.delay();
+		CompletableFuture<Metadata> result = new CompletableFuture<>();
+		if (faults.shouldFail()) {
+			result.completeExceptionally(new IllegalStateException("Injected database failure"));
+			return result;
+		}
+
+		if (meta.getUuid() == null) {
+			meta.setUuid(UUID.randomUUID().toString());
+		}
+		items.put(meta.getUuid(), meta);
+		result.complete(meta);
+		return result;
+	}
+
+	@Override
+	public List<Metadata> getUnprocessedCpcPlusMetaData() {
+		faults.delay();
+		return items.values().stream()
+				.filter(item -> item.getCpc() != null && !Boolean.TRUE.equals(item.getCpcProcessed()))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public ResultPage<Metadata> getUnprocessedCpcPlusMetaData(int pageSize, String continuationToken) {
+		return new ResultPage<>(getUnprocessedCpcPlusMetaData(), null);
+	}
+
+	@Override
+	public void forEachUnprocessedCpcPlusMetaData(Consumer<List<Metadata>> pages) {
+		pages.accept(getUnprocessedCpcPlusMetaData());
+	}
+
+	@Override
+	public Metadata getMetadataById(String uuid) {
+		faults.delay();
+		return items.get(uuid);
+	}
+
+	int size() {
+		return items.size();
+	}
+}
@@ -0,0 +1,98 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+/**
+ * In-process replacement of the DynamoDB client that answers the CPC+ index queries of the
+ * {@link gov.cms.qpp.conversion.api.services.internal.DbServiceImpl}. Items are stored as they are put, so encrypted
+ * items stay encrypted, and kept by partition in the order they were put. Queries honor the partition, the start key,
+ * the limit and the projection, but not the filter.
+ */
+class StandInDynamoDb extends AbstractAmazonDynamoDB {
+
+	private static final String UUID_ATTRIBUTE = "Uuid";
+
+	private final Faults faults;
+	private final Map<String, List<Map<String, AttributeValue>>> partitions = new ConcurrentHashMap<>();
+
+	StandInDynamoDb(Faults faults) {
+		this.faults = faults;
+	}
+
+	@Override
+	public PutItemResult putItem(PutItemRequest request) {
+		Map<String, AttributeValue> item = new HashMap<>(request.getItem());
+		String partition = item.get(Constants.DYNAMO_CPC_ATTRIBUTE).getS();
+		partitions.computeIfAbsent(partition, key -> new CopyOnWriteArrayList<>()).add(item);
+		return new PutItemResult();
+	}
+
+	@Override
+	public QueryResult query(QueryRequest request) {
+		faults.delay();
+		String partition = request.getExpressionAttributeValues().get(":cpcValue").getS();
+		List<Map<String, AttributeValue>> items = partitions.getOrDefault(partition, Collections.emptyList());
+
+		int start = 0;
+		if (request.getExclusiveStartKey() != null) {
+			String uuid = request.getExclusiveStartKey().get(UUID_ATTRIBUTE).getS();
+			while (start < items.size() && !uuid.equals(items.get(start).get(UUID_ATTRIBUTE).getS())) {
+				start++;
+			}
+			start++;
+		}
+		int end = request.getLimit() == null ? items.size() : Math.min(items.size(), start + request.getLimit());
+
+		List<Map<String, AttributeValue>> page = new ArrayList<>();
+		for (Map<String, AttributeValue> item : items.subList(Math.min(start, end), end)) {
+			page.add(project(item, request));
+		}
+		QueryResult result = new QueryResult().withItems(page).withCount(page.size());
+		if (end < items.size()) {
+			result.withLastEvaluatedKey(key(items.get(end - 1)));
+		}
+		return result;
+	}
+
+	private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, QueryRequest request) {
+		if (request.getProjectionExpression() == null) {
+			return new HashMap<>(item);
+		}
+
+		Map<String, AttributeValue> projected = new HashMap<>();
+		for (String name : request.getProjectionExpression().split(",")) {
+			String attribute = name.trim();
+			if (request.getExpressionAttributeNames() != null) {
+				attribute = request.getExpressionAttributeNames().getOrDefault(attribute, attribute);
+			}
+			if (item.containsKey(attribute)) {
+				projected.put(attribute, item.get(attribute));
+			}
+		}
+		return projected;
+	}
+
+	private static Map<String, AttributeValue> key(Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put(UUID_ATTRIBUTE, item.get(UUID_ATTRIBUTE));
+		key.put(Constants.DYNAMO_CPC_ATTRIBUTE, item.get(Constants.DYNAMO_CPC_ATTRIBUTE));
+		key.put(Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE,
+				item.get(Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE));
+		return key;
+	}
+}
@@ -0,0 +1,91 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.common.io.ByteStreams;
+
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.model.StoredFile;
+import gov.cms.qpp.conversion.api.services.StorageService;
+
+/**
+ * In-process replacement of the S3 backed {@link StorageService}. Uploads are read in full and discarded
+ * after the injected latency.
+ */
+class StandInStorageService implements StorageService {
+
+	private final Faults faults;
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	StandInStorageService(Faults faults) {
+		this.faults = faults;
+	}
+
+	@Override
+	public CompletableFuture<String> store(String keyName, Supplier<InputStream> inStream, long size) {
+		try (InputStream stream = inStream.get()) {
+			storedBytes.addAndGet(ByteStreams.exhaust(stream));
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		faults.delay();
+		CompletableFuture<String> result = new CompletableFuture<>();
+		if (faults.shouldFail()) {
+			result.completeExceptionally(new IllegalStateException("Injected storage failure for " + keyName));
+		} else {
+			result.complete(keyName);
+		}
+		return result;
+	}
+
+	@Override
+	public CompletableFuture<Map<String, String>> storeBundle(String keyName, Map<String, Source> parts) {
+		for (Source part : parts.values()) {
+			try (InputStream stream = part.toInputStream()) {
+				storedBytes.addAndGet(ByteStreams.exhaust(stream));
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		}
+
+		return store(keyName, () -> new ByteArrayInputStream(new byte[0]), 0).thenApply(key -> {
+			Map<String, String> locators = new LinkedHashMap<>();
+			parts.keySet().forEach(part -> locators.put(part, key + "#" + part));
+			return locators;
+		});
+	}
+
+	@Override
+	public InputStream getFileByLocationId(String fileId) {
+		faults.delay();
+		return new ByteArrayInputStream(new byte[0]);
+	}
+
+	@Override
+	public StoredFile getFileByLocationId(String fileId, boolean gzipAccepted) {
+		return new StoredFile(getFileByLocationId(fileId), null);
+	}
+
+	@Override
+	public InputStream getCpcPlusValidationFile() {
+		return null;
+	}
+
+	@Override
+	public StoredFile getCpcPlusValidationFile(String eTag) {
+		return null;
+	}
+
+	long getStoredBytes() {
+		return storedBytes.get();
+	}
+}
@@ -0,0 +1,88 @@
+package gov.cms.qpp.conversion.api.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import gov.cms.qpp.conversion.api.model.Constants;
+
+/**
+ * Local HTTP server standing in for the QPP submission validation API. It accepts every submission after the
+ * injected latency, except for injected failures which are answered with the error in
+ * {@code submissionErrorFixture.json}. Starting the server points {@link Constants#VALIDATION_URL_ENV_VARIABLE}
+ * of the application at it.
+ */
+class StandInValidationServer implements AutoCloseable {
+
+	private static final String PATH = "/api/submissions/public/validate-submission";
+
+	private final Faults faults;
+	private final byte[] failure;
+	private final AtomicLong requests = new AtomicLong();
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	StandInValidationServer(Faults faults, ConfigurableEnvironment environment) {
+		this.faults = faults;
+		try {
+			failure = Resources.toByteArray(Resources.getResource("submissionErrorFixture.json"));
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setNameFormat("stand-in-validation-%d").setDaemon(true).build());
+		server.setExecutor(executor);
+		server.createContext(PATH, this::handle);
+		server.start();
+
+		environment.getPropertySources().addFirst(new MapPropertySource("standInValidation",
+				Collections.singletonMap(Constants.VALIDATION_URL_ENV_VARIABLE, getUrl())));
+	}
+
+	String getUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH;
+	}
+
+	long getRequests() {
+		return requests.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		try (InputStream body = exchange.getRequestBody()) {
+			ByteStreams.exhaust(body);
+		}
+
+		faults.delay();
+		boolean fail = faults.shouldFail();
+		byte[] response = fail ? failure : "{}".getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(fail ? 422 : 200, response.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
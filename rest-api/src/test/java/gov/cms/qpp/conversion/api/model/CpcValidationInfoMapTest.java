@@ -4,8 +4,6 @@ import static com.google.common.truth.Truth.assertThat;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
-import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -39,20 +37,93 @@ class CpcValidationInfoMapTest {
 		InputStream jsonStream = new StringInputStream(json);
 		
 		CpcValidationInfoMap cpc = new CpcValidationInfoMap(jsonStream);
-		Map<String, Map<String, List<String>>> map = cpc.getApmTinNpiCombinationMap();
 		
-		assertThat(map).isNotNull();
-		assertThat(map.size()).isEqualTo(2);
-		assertThat(map.get("T1AR0503").get("000333333").indexOf("0333333333")).isGreaterThan(-1);
-		assertThat(map.get("T1AR0518").get("000444444").indexOf("0444444444")).isGreaterThan(-1);
+		assertThat(cpc.isLoaded()).isTrue();
+		assertThat(cpc.isReadable()).isTrue();
+		assertThat(cpc.size()).isEqualTo(2);
+		assertThat(cpc.contains("T1AR0503", "000333333", "0333333333")).isTrue();
+		assertThat(cpc.contains("T1AR0518", "000444444", "0444444444")).isTrue();
+		assertThat(cpc.contains("T1AR0503", "000444444", "0444444444")).isFalse();
+		assertThat(cpc.hasApm("T1AR0518")).isTrue();
+		assertThat(cpc.hasApm("T1AR0000")).isFalse();
+	}
+
+	@Test
+	void test_duplicatesAreIndexedOnce() throws Exception {
+		CpcValidationInfoMap cpc = new CpcValidationInfoMap(new StringInputStream(entries(
+				entry("T1AR0503", "000333333", "0333333333"),
+				entry("T1AR0503", "000333333", "0333333333"),
+				entry("T1AR0503", "DogCow", "DogCow_NPI"),
+				entry("T1AR0503", "DogCow", "DogCow_NPI"))));
+
+		assertThat(cpc.size()).isEqualTo(2);
+	}
+
+	@Test
+	void test_identifiersOfOtherWidthsAreNotConfused() throws Exception {
+		CpcValidationInfoMap cpc = new CpcValidationInfoMap(new StringInputStream(entries(
+				entry("T1AR0503", "000333333", "0333333333"),
+				entry("T1AR0503", "DogCow", "DogCow_NPI"))));
+
+		assertThat(cpc.contains("T1AR0503", "333333", "333333333")).isFalse();
+		assertThat(cpc.contains("T1AR0503", "00000333333", "0333333333")).isFalse();
+		assertThat(cpc.contains("T1AR0503", "DogCow", "DogCow_NPI")).isTrue();
+		assertThat(cpc.contains("T1AR0503", "DogCow", "Other_NPI")).isFalse();
+	}
+
+	@Test
+	void test_extremeIdentifiers() throws Exception {
+		CpcValidationInfoMap cpc = new CpcValidationInfoMap(new StringInputStream(entries(
+				entry("T1AR0503", "999999999", "9999999999"),
+				entry("T1AR0503", "000000000", "0000000000"),
+				entry("T1AR0503", "500000000", "0000000001"))));
+
+		assertThat(cpc.contains("T1AR0503", "999999999", "9999999999")).isTrue();
+		assertThat(cpc.contains("T1AR0503", "000000000", "0000000000")).isTrue();
+		assertThat(cpc.contains("T1AR0503", "500000000", "0000000001")).isTrue();
+		assertThat(cpc.contains("T1AR0503", "500000000", "0000000000")).isFalse();
+	}
+
+	@Test
+	void test_unknownFieldsAreSkipped() throws Exception {
+		String json = "[{\"tin\": \"000333333\", \"extra\": {\"npi\": \"0999999999\"}, "
+				+ "\"apm_entity_id\": \"T1AR0503\", \"npi\": \"0333333333\"}]";
+
+		CpcValidationInfoMap cpc = new CpcValidationInfoMap(new StringInputStream(json));
+
+		assertThat(cpc.contains("T1AR0503", "000333333", "0333333333")).isTrue();
+		assertThat(cpc.size()).isEqualTo(1);
+	}
+
+	@Test
+	void test_heapBytesGrowWithCombinations() throws Exception {
+		CpcValidationInfoMap one = new CpcValidationInfoMap(new StringInputStream(entries(
+				entry("T1AR0503", "000333333", "0333333333"))));
+		CpcValidationInfoMap two = new CpcValidationInfoMap(new StringInputStream(entries(
+				entry("T1AR0503", "000333333", "0333333333"),
+				entry("T1AR0503", "000333333", "0333333334"))));
+
+		assertThat(one.getHeapBytes()).isGreaterThan(0L);
+		assertThat(two.getHeapBytes() - one.getHeapBytes()).isEqualTo(8L);
+	}
+
+	@Test
+	void test_malformedFileIsEmpty() throws Exception {
+		CpcValidationInfoMap cpc = new CpcValidationInfoMap(new StringInputStream(
+				"[" + entry("T1AR0503", "000333333", "0333333333") + ",{\"tin\": "));
+
+		assertThat(cpc.isLoaded()).isTrue();
+		assertThat(cpc.isReadable()).isFalse();
+		assertThat(cpc.size()).isEqualTo(0);
+		assertThat(cpc.hasApm("T1AR0503")).isFalse();
 	}
 
 	@Test
 	void test_loadNullStream() throws Exception {
 		CpcValidationInfoMap cpc = new CpcValidationInfoMap(null);
-		Map<String, Map<String, List<String>>> map = cpc.getApmTinNpiCombinationMap();
 
-		assertThat(map).isNull();
+		assertThat(cpc.isLoaded()).isFalse();
+		assertThat(cpc.contains("T1AR0503", "000333333", "0333333333")).isFalse();
 	}
 
 	@Test
@@ -60,9 +131,16 @@ class CpcValidationInfoMapTest {
 		Mockito.when(mockIns.read()).thenThrow(new IOException());
 		
 		CpcValidationInfoMap cpc = new CpcValidationInfoMap(mockIns);
-		Map<String, Map<String, List<String>>> map = cpc.getApmTinNpiCombinationMap();
 		
-		assertThat(map).isNotNull();
-		assertThat(map.size()).isEqualTo(0);
+		assertThat(cpc.isLoaded()).isTrue();
+		assertThat(cpc.size()).isEqualTo(0);
+	}
+
+	private static String entries(String... entries) {
+		return "[" + String.join(",", entries) + "]";
+	}
+
+	private static String entry(String apm, String tin, String npi) {
+		return "{\"apm_entity_id\": \"" + apm + "\", \"tin\": \"" + tin + "\", \"npi\": \"" + npi + "\"}";
 	}
 }
@@ -0,0 +1,18 @@
+package gov.cms.qpp.conversion.api.model;
+
+import org.junit.jupiter.api.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+
+class ZipEntryResponseTest {
+
+	@Test
+	void testEqualsContract() {
+		EqualsVerifier.forClass(ZipEntryResponse.class)
+				.usingGetClass()
+				.suppress(Warning.NONFINAL_FIELDS)
+				.verify();
+	}
+
+}
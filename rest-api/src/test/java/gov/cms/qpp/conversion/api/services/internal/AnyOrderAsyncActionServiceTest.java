@@ -1,5 +1,6 @@
 package gov.cms.qpp.conversion.api.services.internal;
 
+import gov.cms.qpp.conversion.api.exceptions.CircuitOpenException;
 import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
 import gov.cms.qpp.conversion.api.services.internal.AnyOrderActionService;
 import gov.cms.qpp.test.MockitoExtension;
@@ -7,19 +8,20 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.core.task.TaskExecutor;
-import org.springframework.retry.backoff.FixedBackOffPolicy;
-import org.springframework.retry.support.RetryTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -29,7 +31,6 @@ import static org.mockito.Mockito.doAnswer;
 @ExtendWith(MockitoExtension.class)
 class AnyOrderAsyncActionServiceTest {
 
-	@InjectMocks
 	private TestAnyOrderService objectUnderTest;
 
 	@Mock
@@ -37,6 +38,7 @@ class AnyOrderAsyncActionServiceTest {
 
 	@BeforeEach
 	void runBeforeEachTest() {
+		objectUnderTest = new TestAnyOrderService(taskExecutor, RetrySchedulers.immediate());
 		doAnswer(invocationOnMock -> {
 			Runnable method = invocationOnMock.getArgument(0);
 			CompletableFuture.runAsync(method);
@@ -142,6 +144,63 @@ class AnyOrderAsyncActionServiceTest {
 		assertThat(objectUnderTest.timesAsynchronousActionCalled.get()).isEqualTo(1);  //not two
 	}
 
+	@Test
+	void testGivesUpAfterMaxAttempts() {
+		objectUnderTest.failuresUntilSuccess(-1);
+
+		CompletableFuture<Object> completableFuture = objectUnderTest.actOnItem(new Object());
+
+		assertThrows(CompletionException.class, completableFuture::join);
+		assertThat(objectUnderTest.timesAsynchronousActionCalled.get()).isEqualTo(5);
+	}
+
+	@Test
+	void testSpentRetryBudgetStopsRetries() {
+		objectUnderTest = new TestAnyOrderService(taskExecutor, RetrySchedulers.immediate(0, Integer.MAX_VALUE));
+		objectUnderTest.failuresUntilSuccess(1);
+
+		CompletableFuture<Object> completableFuture = objectUnderTest.actOnItem(new Object());
+
+		assertThrows(CompletionException.class, completableFuture::join);
+		assertThat(objectUnderTest.timesAsynchronousActionCalled.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testOpenCircuitDefersAttemptsWithoutCountingThem() {
+		RetryScheduler retryScheduler = RetrySchedulers.immediate(1000, 3);
+		objectUnderTest = new TestAnyOrderService(taskExecutor, retryScheduler);
+		objectUnderTest.failuresUntilSuccess(-1);
+
+		CompletableFuture<Object> completableFuture = objectUnderTest.actOnItem(new Object());
+
+		await(() -> retryScheduler.breaker("Test Any Order").isOpen() && retryScheduler.getPendingRetries() == 1);
+		assertThat(completableFuture.isDone()).isFalse();
+		assertThat(objectUnderTest.timesAsynchronousActionCalled.get()).isEqualTo(3);
+	}
+
+	@Test
+	void testOpenCircuitFailsOnceBudgetSpent() {
+		RetryScheduler retryScheduler = RetrySchedulers.immediate(0, 1);
+		objectUnderTest = new TestAnyOrderService(taskExecutor, retryScheduler);
+		CircuitBreaker breaker = retryScheduler.breaker("Test Any Order");
+		breaker.tryAcquire();
+		breaker.recordFailure();
+
+		CompletableFuture<Object> completableFuture = objectUnderTest.actOnItem(new Object());
+		CompletionException exception = assertThrows(CompletionException.class, completableFuture::join);
+
+		assertThat(exception).hasCauseThat().isInstanceOf(CircuitOpenException.class);
+		assertThat(objectUnderTest.timesAsynchronousActionCalled.get()).isEqualTo(0);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.yield();
+		}
+	}
+
 	private Object runSimpleScenario(int failuresUntilSuccess) {
 		Object objectToActOn = new Object();
 
@@ -155,8 +214,8 @@ class AnyOrderAsyncActionServiceTest {
 
 	private static class TestAnyOrderService extends AnyOrderActionService<Object, Object> {
 
-		public TestAnyOrderService(TaskExecutor taskExecutor) {
-			super(taskExecutor);
+		public TestAnyOrderService(TaskExecutor taskExecutor, RetryScheduler retryScheduler) {
+			super(taskExecutor, retryScheduler);
 		}
 
 		AtomicBoolean asynchronousActionCalled = new AtomicBoolean(false);
@@ -164,18 +223,17 @@ class AnyOrderAsyncActionServiceTest {
 		AtomicReference<Object> objectThatWasActedOn = new AtomicReference<>(null);
 		AtomicBoolean pauseAsynchronousAction = new AtomicBoolean(false);
 
-		private int failuresUntilSuccessTemplate = -1;
-		private ThreadLocal<Integer> failuresUntilSuccess = ThreadLocal.withInitial(() -> -1);
-		private ThreadLocal<Boolean> failWithInterruptException = ThreadLocal.withInitial(() -> Boolean.FALSE);
+		private volatile int failuresUntilSuccessTemplate = -1;
+		private final Map<Object, Integer> failuresUntilSuccess = new ConcurrentHashMap<>();
+		private volatile boolean failWithInterruptException = false;
 
 		TestAnyOrderService failuresUntilSuccess(int failuresUntilSuccess) {
 			this.failuresUntilSuccessTemplate = failuresUntilSuccess;
-			this.failuresUntilSuccess = ThreadLocal.withInitial(() -> this.failuresUntilSuccessTemplate);
 			return this;
 		}
 
 		void failWithInterruptException() {
-			this.failWithInterruptException = ThreadLocal.withInitial(() -> Boolean.TRUE);
+			this.failWithInterruptException = true;
 		}
 
 		@Override
@@ -194,32 +252,20 @@ class AnyOrderAsyncActionServiceTest {
 				}
 			}
 
-			if(failuresUntilSuccess.get() != 0) {
-				if(failuresUntilSuccess.get() != -1) {
-					failuresUntilSuccess.set(failuresUntilSuccess.get() - 1);
+			int remainingFailures = failuresUntilSuccess.getOrDefault(objectToActOn, failuresUntilSuccessTemplate);
+			if(remainingFailures != 0) {
+				if(remainingFailures != -1) {
+					failuresUntilSuccess.put(objectToActOn, remainingFailures - 1);
 				}
-				if(failWithInterruptException.get()) {
+				if(failWithInterruptException) {
 					throw new UncheckedInterruptedException(new InterruptedException());
 				}
 				throw new RuntimeException();
 			}
 
-			failuresUntilSuccess.set(failuresUntilSuccessTemplate);
-
 			return new Object();
 		}
 
-		@Override
-		protected RetryTemplate retryTemplate() {
-			RetryTemplate retry = super.retryTemplate();
-
-			FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
-			backOffPolicy.setBackOffPeriod(0);
-			retry.setBackOffPolicy(backOffPolicy);
-
-			return retry;
-		}
-
 		@Override
 		protected String getActionName() {
 			return "Test Any Order";
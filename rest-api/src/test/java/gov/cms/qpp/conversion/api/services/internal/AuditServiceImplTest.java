@@ -5,6 +5,7 @@ import gov.cms.qpp.conversion.InputStreamSupplierSource;
 import gov.cms.qpp.conversion.Source;
 import gov.cms.qpp.conversion.api.exceptions.UncheckedInterruptedException;
 import gov.cms.qpp.conversion.api.helper.MetadataHelper;
+import gov.cms.qpp.conversion.api.internal.outbox.AuditOutbox;
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.Metadata;
 import gov.cms.qpp.conversion.api.services.DbService;
@@ -23,6 +24,8 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.core.env.Environment;
 
 import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
@@ -56,6 +59,9 @@ public class AuditServiceImplTest {
 	@Mock
 	private Environment environment;
 
+	@Mock
+	private AuditOutbox auditOutbox;
+
 	private Metadata metadata;
 	private String content = "Hello";
 	private Source fileContentSource = new InputStreamSupplierSource(FILENAME, new ByteArrayInputStream(content.getBytes()));
@@ -183,6 +189,54 @@ public class AuditServiceImplTest {
 		verify(dbService, times(0)).write(metadata);
 	}
 
+	@Test
+	public void testAuditJournaledToOutbox() {
+		when(environment.getProperty(Constants.NO_AUDIT_ENV_VARIABLE)).thenReturn(null);
+		when(auditOutbox.isEnabled()).thenReturn(true);
+		when(auditOutbox.submit(any(Metadata.class), any())).thenReturn(true);
+		successfulEncodingPrep();
+
+		assertThat(underTest.success(report).join()).isSameInstanceAs(metadata);
+		assertThat(metadata.getUuid()).isNotNull();
+		verify(storageService, times(0)).store(any(String.class), any(), anyLong());
+		verify(dbService, times(0)).write(metadata);
+	}
+
+	@Test
+	public void testAuditWrittenDirectlyWhenJournalingFails() {
+		when(environment.getProperty(Constants.NO_AUDIT_ENV_VARIABLE)).thenReturn(null);
+		when(auditOutbox.isEnabled()).thenReturn(true);
+		when(auditOutbox.submit(any(Metadata.class), any())).thenReturn(false);
+		successfulEncodingPrep();
+		allGood();
+		underTest.success(report);
+
+		verify(dbService, times(1)).write(metadata);
+	}
+
+	@Test
+	public void testAuditQppValidationFailureBundled() {
+		when(environment.getProperty(Constants.NO_AUDIT_ENV_VARIABLE)).thenReturn(null);
+		when(environment.getProperty(Constants.AUDIT_BUNDLE_ENV_VARIABLE, Boolean.class)).thenReturn(true);
+		successfulEncodingPrep();
+		errorPrep();
+		when(storageService.storeBundle(any(String.class), any())).thenAnswer(invocation -> {
+			Map<String, Source> parts = invocation.getArgument(1);
+			Map<String, String> locators = new HashMap<>();
+			parts.keySet().forEach(part -> locators.put(part, AN_ID + "#" + part));
+			return CompletableFuture.completedFuture(locators);
+		});
+		underTest.failValidation(report);
+
+		assertThat(metadata.getRawValidationErrorLocator()).isEqualTo(AN_ID + "#raw_validation_errors");
+		assertThat(metadata.getValidationErrorLocator()).isEqualTo(AN_ID + "#validation_errors");
+		assertThat(metadata.getQppLocator()).isEqualTo(AN_ID + "#qpp");
+		assertThat(metadata.getSubmissionLocator()).isEqualTo(AN_ID + "#submission");
+		verify(storageService, times(1)).storeBundle(any(String.class), any());
+		verify(storageService, times(0)).store(any(String.class), any(), anyLong());
+		verify(dbService, times(1)).write(metadata);
+	}
+
 	private void successfulEncodingPrep() {
 		prepOverlap();
 		JsonWrapper wrapper = new JsonWrapper();
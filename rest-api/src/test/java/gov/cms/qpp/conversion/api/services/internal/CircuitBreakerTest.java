@@ -0,0 +1,105 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class CircuitBreakerTest {
+
+	private final AtomicLong now = new AtomicLong();
+	private CircuitBreaker breaker;
+
+	@BeforeEach
+	void setup() {
+		breaker = new CircuitBreaker("test", 3, TimeUnit.SECONDS.toNanos(30), now::get);
+	}
+
+	@Test
+	void testClosedUntilThreshold() {
+		fail(2);
+
+		assertThat(breaker.isOpen()).isFalse();
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void testOpensAtThreshold() {
+		fail(3);
+
+		assertThat(breaker.isOpen()).isTrue();
+		assertThat(breaker.tryAcquire()).isFalse();
+	}
+
+	@Test
+	void testSuccessResetsFailures() {
+		fail(2);
+		breaker.recordSuccess();
+		fail(2);
+
+		assertThat(breaker.isOpen()).isFalse();
+	}
+
+	@Test
+	void testSingleTrialAfterOpenDuration() {
+		fail(3);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.tryAcquire()).isFalse();
+	}
+
+	@Test
+	void testSuccessfulTrialCloses() {
+		fail(3);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		breaker.tryAcquire();
+		breaker.recordSuccess();
+
+		assertThat(breaker.isOpen()).isFalse();
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void testFailedTrialReopens() {
+		fail(3);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		breaker.tryAcquire();
+		breaker.recordFailure();
+
+		assertThat(breaker.tryAcquire()).isFalse();
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void testAbandonedTrialAllowsAnother() {
+		fail(3);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		breaker.tryAcquire();
+		breaker.recordAbandoned();
+
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void testRemainingOpenTime() {
+		assertThat(breaker.remainingOpenNanos()).isEqualTo(0);
+		fail(3);
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+		assertThat(breaker.remainingOpenNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(20));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		assertThat(breaker.remainingOpenNanos()).isEqualTo(0);
+	}
+
+	private void fail(int times) {
+		for (int i = 0; i < times; i++) {
+			breaker.tryAcquire();
+			breaker.recordFailure();
+		}
+	}
+}
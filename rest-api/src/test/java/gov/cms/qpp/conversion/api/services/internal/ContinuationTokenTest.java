@@ -0,0 +1,72 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
+
+class ContinuationTokenTest {
+
+	@Test
+	void testNoTokenStartsEveryPartition() {
+		TreeMap<Integer, Map<String, AttributeValue>> remaining = ContinuationToken.decode(null, 3);
+
+		assertThat(remaining).containsExactly(0, Collections.emptyMap(), 1, Collections.emptyMap(),
+				2, Collections.emptyMap());
+	}
+
+	@Test
+	void testRoundTrip() {
+		Map<String, AttributeValue> key = new LinkedHashMap<>();
+		key.put("Uuid", new AttributeValue().withS("1337-f4ke-uuid"));
+		key.put("Cpc", new AttributeValue().withS("CPC_5"));
+		Map<Integer, Map<String, AttributeValue>> remaining = new TreeMap<>();
+		remaining.put(5, key);
+		remaining.put(7, Collections.emptyMap());
+
+		String token = ContinuationToken.encode(remaining);
+
+		assertThat(token).doesNotContain("=");
+		assertThat(ContinuationToken.decode(token, 32)).isEqualTo(remaining);
+	}
+
+	@Test
+	void testNoTokenWhenDone() {
+		assertThat(ContinuationToken.encode(Collections.emptyMap())).isNull();
+	}
+
+	@Test
+	void testUnreadableToken() {
+		assertThrows(InvalidContinuationTokenException.class, () -> ContinuationToken.decode("not a token", 32));
+		assertThrows(InvalidContinuationTokenException.class, () -> ContinuationToken.decode(encode("[1, 2]"), 32));
+	}
+
+	@Test
+	void testUnknownPartition() {
+		assertThrows(InvalidContinuationTokenException.class,
+				() -> ContinuationToken.decode(encode("{\"32\": {}}"), 32));
+		assertThrows(InvalidContinuationTokenException.class,
+				() -> ContinuationToken.decode(encode("{}"), 32));
+	}
+
+	@Test
+	void testMissingKeyValue() {
+		assertThrows(InvalidContinuationTokenException.class,
+				() -> ContinuationToken.decode(encode("{\"3\": {\"Uuid\": null}}"), 32));
+	}
+
+	private static String encode(String json) {
+		return Base64.getUrlEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
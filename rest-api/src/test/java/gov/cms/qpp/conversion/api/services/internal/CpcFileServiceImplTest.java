@@ -3,6 +3,9 @@ package gov.cms.qpp.conversion.api.services.internal;
 import gov.cms.qpp.conversion.api.exceptions.InvalidFileTypeException;
 import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
+import gov.cms.qpp.conversion.api.model.StoredFile;
+import gov.cms.qpp.conversion.api.model.UnprocessedCpcFileData;
 import gov.cms.qpp.conversion.api.services.DbService;
 import gov.cms.qpp.conversion.api.services.StorageService;
 import gov.cms.qpp.conversion.api.services.internal.CpcFileServiceImpl;
@@ -10,8 +13,11 @@ import gov.cms.qpp.test.MockitoExtension;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.io.IOUtils;
@@ -27,6 +33,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -60,6 +67,35 @@ class CpcFileServiceImplTest {
 		assertThat(objectUnderTest.getUnprocessedCpcPlusFiles()).hasSize(numberOfMetadata);
 	}
 
+	@Test
+	void testConversionOfPageToCpcFileData() {
+		Metadata metadata = Metadata.create();
+		metadata.setApm("TestApmEntity");
+		when(dbService.getUnprocessedCpcPlusMetaData(10, "token"))
+				.thenReturn(new ResultPage<>(Collections.singletonList(metadata), "next"));
+
+		ResultPage<UnprocessedCpcFileData> page = objectUnderTest.getUnprocessedCpcPlusFiles(10, "token");
+
+		assertThat(page.getItems()).hasSize(1);
+		assertThat(page.getItems().get(0).getApm()).isEqualTo("TestApmEntity");
+		assertThat(page.getContinuationToken()).isEqualTo("next");
+	}
+
+	@Test
+	void testConversionOfPagesToCpcFileData() {
+		doAnswer(invocation -> {
+			Consumer<List<Metadata>> pages = invocation.getArgument(0);
+			pages.accept(Stream.generate(Metadata::new).limit(2).collect(Collectors.toList()));
+			pages.accept(Stream.generate(Metadata::new).limit(3).collect(Collectors.toList()));
+			return null;
+		}).when(dbService).forEachUnprocessedCpcPlusMetaData(any());
+		List<Integer> pageSizes = new ArrayList<>();
+
+		objectUnderTest.forEachUnprocessedCpcPlusFiles(page -> pageSizes.add(page.size()));
+
+		assertThat(pageSizes).containsExactly(2, 3).inOrder();
+	}
+
 	@Test
 	void testGetQppById() throws IOException {
 		String key = "test";
@@ -129,6 +165,29 @@ class CpcFileServiceImplTest {
 		assertThat(IOUtils.toString(outcome.getInputStream(), StandardCharsets.UTF_8)).isEqualTo("1337");
 	}
 
+	@Test
+	void testGetFileByIdGzipAccepted() throws IOException {
+		StoredFile stored = new StoredFile(new ByteArrayInputStream("1337".getBytes()), StoredFile.GZIP_ENCODING);
+		when(dbService.getMetadataById(anyString())).thenReturn(buildFakeMetadata(true, false));
+		when(storageService.getFileByLocationId("test", true)).thenReturn(stored);
+
+		StoredFile outcome = objectUnderTest.getFileById("test", true);
+
+		assertThat(outcome).isSameInstanceAs(stored);
+	}
+
+	@Test
+	void testGetQppByIdGzipAccepted() throws IOException {
+		String key = "test";
+		StoredFile stored = new StoredFile(new ByteArrayInputStream("1337".getBytes()), StoredFile.GZIP_ENCODING);
+		when(dbService.getMetadataById(key)).thenReturn(buildFakeMetadata(true, false));
+		when(storageService.getFileByLocationId(key, true)).thenReturn(stored);
+
+		StoredFile outcome = objectUnderTest.getQppById(key, true);
+
+		assertThat(outcome).isSameInstanceAs(stored);
+	}
+
 	@Test
 	void testGetFileByIdWithMips() {
 		when(dbService.getMetadataById(anyString())).thenReturn(buildFakeMetadata(false, false));
@@ -0,0 +1,80 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import gov.cms.qpp.conversion.api.model.CpcValidationInfoMap;
+
+class CpcPlusHealthIndicatorTest {
+
+	private QrdaServiceImpl qrdaService;
+	private CpcPlusHealthIndicator indicator;
+
+	@BeforeEach
+	void setup() {
+		qrdaService = mock(QrdaServiceImpl.class);
+		when(qrdaService.isCpcPlusConfigured()).thenReturn(true);
+		when(qrdaService.getCpcPlusRefreshMillis()).thenReturn(TimeUnit.MINUTES.toMillis(120));
+		when(qrdaService.getCpcPlusAgeSeconds()).thenReturn(Double.NaN);
+		indicator = new CpcPlusHealthIndicator(qrdaService);
+	}
+
+	@Test
+	void testFreshData() {
+		when(qrdaService.getCpcPlusData()).thenReturn(data());
+		when(qrdaService.getCpcPlusETag()).thenReturn("\"cpc-plus-1\"");
+		when(qrdaService.getCpcPlusAgeSeconds()).thenReturn(60.0);
+
+		Health health = indicator.health();
+
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("eTag", "\"cpc-plus-1\"");
+		assertThat(health.getDetails()).containsEntry("combinations", 1L);
+		assertThat(health.getDetails()).containsEntry("ageSeconds", 60L);
+	}
+
+	@Test
+	void testStaleData() {
+		when(qrdaService.getCpcPlusData()).thenReturn(data());
+		when(qrdaService.getCpcPlusAgeSeconds()).thenReturn((double) TimeUnit.HOURS.toSeconds(5));
+		when(qrdaService.getCpcPlusFailure()).thenReturn("S3 is down");
+
+		Health health = indicator.health();
+
+		assertThat(health.getStatus()).isEqualTo(Status.UNKNOWN);
+		assertThat(health.getDetails()).containsEntry("lastFailure", "S3 is down");
+	}
+
+	@Test
+	void testNeverLoaded() {
+		Health health = indicator.health();
+
+		assertThat(health.getStatus()).isEqualTo(Status.UNKNOWN);
+		assertThat(health.getDetails()).doesNotContainKey("ageSeconds");
+	}
+
+	@Test
+	void testNotConfigured() {
+		when(qrdaService.isCpcPlusConfigured()).thenReturn(false);
+
+		Health health = indicator.health();
+
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("configured", false);
+	}
+
+	private static CpcValidationInfoMap data() {
+		String json = "[{\"apm_entity_id\": \"T1AR0503\", \"tin\": \"000333333\", \"npi\": \"0333333333\"}]";
+		return new CpcValidationInfoMap(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
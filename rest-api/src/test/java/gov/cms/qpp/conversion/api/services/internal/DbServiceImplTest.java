@@ -1,30 +1,46 @@
 package gov.cms.qpp.conversion.api.services.internal;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
 import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
 
 import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.exceptions.InvalidContinuationTokenException;
 import gov.cms.qpp.conversion.api.model.Metadata;
+import gov.cms.qpp.conversion.api.model.ResultPage;
 import gov.cms.qpp.conversion.api.services.internal.DbServiceImpl;
 import gov.cms.qpp.test.MockitoExtension;
 
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -42,6 +58,9 @@ class DbServiceImplTest {
 	@Mock
 	private DynamoDBMapper dbMapper;
 
+	@Mock
+	private AmazonDynamoDB dynamoDb;
+
 	@Mock
 	private TaskExecutor taskExecutor;
 
@@ -51,7 +70,7 @@ class DbServiceImplTest {
 	@BeforeEach
 	void before() {
 		Optional<DynamoDBMapper> dbMapperWrapper = Optional.of(dbMapper);
-		underTest = new DbServiceImpl(taskExecutor, dbMapperWrapper, environment);
+		underTest = new DbServiceImpl(taskExecutor, RetrySchedulers.immediate(), dbMapperWrapper, dynamoDb, environment, 25, 0);
 		doAnswer(invocationOnMock -> {
 			Runnable method = invocationOnMock.getArgument(0);
 			CompletableFuture.runAsync(method);
@@ -61,13 +80,13 @@ class DbServiceImplTest {
 
 	@Test
 	void testGetUnprocessedCpcPlusMetaDataWithMissingDynamoDbMapper() {
-		underTest = new DbServiceImpl(taskExecutor, Optional.empty(), environment);
+		underTest = new DbServiceImpl(taskExecutor, RetrySchedulers.immediate(), Optional.empty(), dynamoDb, environment, 25, 0);
 		assertThat(underTest.getUnprocessedCpcPlusMetaData()).isEmpty();
 	}
 
 	@Test
 	void testGetMetadataByIdWithMissingDynamoDbMapper() {
-		underTest = new DbServiceImpl(taskExecutor, Optional.empty(), environment);
+		underTest = new DbServiceImpl(taskExecutor, RetrySchedulers.immediate(), Optional.empty(), dynamoDb, environment, 25, 0);
 		assertThat(underTest.getMetadataById(null)).isNull();
 	}
 
@@ -78,7 +97,7 @@ class DbServiceImplTest {
 		Metadata meta = writeMeta();
 
 		assertThat(meta).isNotNull();
-		verify(dbMapper, times(1)).save(any(Metadata.class));
+		verify(dbMapper, times(1)).batchWrite(anyIterable(), anyIterable(), any(DynamoDBMapperConfig.class));
 	}
 
 	@Test
@@ -88,7 +107,7 @@ class DbServiceImplTest {
 		Metadata meta = writeMeta();
 
 		assertThat(meta).isNotNull();
-		verify(dbMapper, times(1)).save(any(Metadata.class));
+		verify(dbMapper, times(1)).batchWrite(anyIterable(), anyIterable(), any(DynamoDBMapperConfig.class));
 	}
 
 	@Test
@@ -105,6 +124,14 @@ class DbServiceImplTest {
 				.that(metadataOut.getUuid()).isNull();
 	}
 
+	@Test
+	void testWriteWithMissingDynamoDbMapper() {
+		underTest = new DbServiceImpl(taskExecutor, RetrySchedulers.immediate(), Optional.empty(), dynamoDb, environment, 25, 0);
+		Metadata metadata = Metadata.create();
+
+		assertThat(writeMeta(metadata)).isSameInstanceAs(metadata);
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	void testGetUnprocessedCpcPlusMetaData() {
@@ -112,19 +139,167 @@ class DbServiceImplTest {
 
 		int itemsPerPartition = 2;
 
-		PaginatedQueryList<Metadata> mockMetadataPage = mock(PaginatedQueryList.class);
-		Answer<Stream<Metadata>> answer = (InvocationOnMock invocation) -> Stream.generate(Metadata::new).limit(itemsPerPartition);
-
-		when(mockMetadataPage.stream()).thenAnswer(answer);
-		when(dbMapper.query(eq(Metadata.class), any(DynamoDBQueryExpression.class)))
-			.thenReturn(mockMetadataPage);
+		when(dbMapper.queryPage(eq(Metadata.class), any(DynamoDBQueryExpression.class)))
+			.then(invocation -> page(itemsPerPartition, null));
 
 		List<Metadata> metaDataList = underTest.getUnprocessedCpcPlusMetaData();
 
-		verify(dbMapper, times(Constants.CPC_DYNAMO_PARTITIONS)).query(eq(Metadata.class), any(DynamoDBQueryExpression.class));
+		verify(dbMapper, times(Constants.CPC_DYNAMO_PARTITIONS)).queryPage(eq(Metadata.class), any(DynamoDBQueryExpression.class));
 		assertThat(metaDataList).hasSize(itemsPerPartition * Constants.CPC_DYNAMO_PARTITIONS);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void testForEachUnprocessedCpcPlusMetaDataFollowsPages() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2020-01-01");
+		when(dbMapper.queryPage(eq(Metadata.class), any(DynamoDBQueryExpression.class))).then(invocation -> {
+			DynamoDBQueryExpression<Metadata> query = invocation.getArgument(1);
+			return query.getExclusiveStartKey() == null ? page(1, key("first")) : page(3, null);
+		});
+		List<Integer> pageSizes = new ArrayList<>();
+
+		underTest.forEachUnprocessedCpcPlusMetaData(page -> pageSizes.add(page.size()));
+
+		verify(dbMapper, times(2 * Constants.CPC_DYNAMO_PARTITIONS))
+			.queryPage(eq(Metadata.class), any(DynamoDBQueryExpression.class));
+		assertThat(pageSizes).hasSize(2 * Constants.CPC_DYNAMO_PARTITIONS);
+		assertThat(pageSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(4 * Constants.CPC_DYNAMO_PARTITIONS);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testGetUnprocessedCpcPlusMetaDataPage() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2020-01-01");
+		ArgumentCaptor<DynamoDBQueryExpression<Metadata>> queries = ArgumentCaptor.forClass(DynamoDBQueryExpression.class);
+		when(dbMapper.queryPage(eq(Metadata.class), queries.capture())).then(invocation -> {
+			DynamoDBQueryExpression<Metadata> query = invocation.getArgument(1);
+			String partition = query.getExpressionAttributeValues().get(":cpcValue").getS();
+			return page(query.getLimit(), "CPC_0".equals(partition) ? null : key(partition));
+		});
+
+		ResultPage<Metadata> page = underTest.getUnprocessedCpcPlusMetaData(64, null);
+
+		assertThat(page.getItems()).hasSize(64);
+		assertThat(page.getContinuationToken()).isNotNull();
+		assertThat(queries.getAllValues()).hasSize(Constants.CPC_DYNAMO_PARTITIONS);
+		assertThat(queries.getAllValues().stream().map(DynamoDBQueryExpression::getLimit).distinct()
+			.collect(Collectors.toList())).containsExactly(2);
+
+		underTest.getUnprocessedCpcPlusMetaData(4, page.getContinuationToken());
+
+		List<DynamoDBQueryExpression<Metadata>> continued = queries.getAllValues()
+			.subList(Constants.CPC_DYNAMO_PARTITIONS, queries.getAllValues().size());
+		assertThat(continued).hasSize(4);
+		assertThat(continued.stream().map(query -> query.getExclusiveStartKey().get("Uuid").getS())
+			.collect(Collectors.toList())).containsExactly("CPC_1", "CPC_2", "CPC_3", "CPC_4");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testGetUnprocessedCpcPlusMetaDataProjected() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2020-01-01");
+		when(environment.getProperty(Constants.CPC_PLUS_LISTING_PROJECTION_ENV_VARIABLE, Boolean.class, Boolean.FALSE))
+			.thenReturn(Boolean.TRUE);
+		when(dbMapper.generateCreateTableRequest(Metadata.class))
+			.thenReturn(new CreateTableRequest().withTableName("ConversionMetadata"));
+		ArgumentCaptor<QueryRequest> queries = ArgumentCaptor.forClass(QueryRequest.class);
+		when(dynamoDb.query(queries.capture())).then(invocation -> new QueryResult()
+			.withItems(Collections.singletonList(Collections.singletonMap("Uuid", new AttributeValue("uuid")))));
+
+		List<Metadata> metaDataList = underTest.getUnprocessedCpcPlusMetaData();
+
+		verify(dbMapper, times(0)).queryPage(eq(Metadata.class), any(DynamoDBQueryExpression.class));
+		assertThat(metaDataList).hasSize(Constants.CPC_DYNAMO_PARTITIONS);
+		assertThat(metaDataList.get(0).getUuid()).isEqualTo("uuid");
+		QueryRequest query = queries.getValue();
+		assertThat(query.getTableName()).isEqualTo("ConversionMetadata");
+		assertThat(query.getIndexName()).isEqualTo(DbServiceImpl.CPC_PROCESSED_INDEX);
+		assertThat(query.getExpressionAttributeNames().values())
+			.containsExactlyElementsIn(DbServiceImpl.LISTING_ATTRIBUTES);
+		assertThat(query.getProjectionExpression().split(", "))
+			.asList().containsExactlyElementsIn(query.getExpressionAttributeNames().keySet());
+	}
+
+	@Test
+	void testProjectedMetadata() {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put("Uuid", new AttributeValue("uuid"));
+		item.put("FileName", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+		item.put("Apm", new AttributeValue("apm"));
+		item.put("CreateDate", new AttributeValue("2020-02-03T04:05:06Z"));
+		item.put("OverallStatus", new AttributeValue().withN("1"));
+		item.put("Purpose", new AttributeValue("Test"));
+
+		Metadata metadata = DbServiceImpl.projectedMetadata(item);
+
+		assertThat(metadata.getUuid()).isEqualTo("uuid");
+		assertWithMessage("An encrypted file name must be left out").that(metadata.getFileName()).isNull();
+		assertThat(metadata.getApm()).isEqualTo("apm");
+		assertThat(metadata.getCreatedDate()).isEqualTo(Instant.parse("2020-02-03T04:05:06Z"));
+		assertThat(metadata.getOverallStatus()).isTrue();
+		assertThat(metadata.getPurpose()).isEqualTo("Test");
+	}
+
+	@Test
+	void testGetUnprocessedCpcPlusMetaDataPageWithInvalidToken() {
+		assertThrows(InvalidContinuationTokenException.class,
+			() -> underTest.getUnprocessedCpcPlusMetaData(10, "not a token"));
+	}
+
+	@Test
+	void testGetUnprocessedCpcPlusMetaDataPageWithTokenOfAnotherPartition() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2020-01-01");
+		String token = ContinuationToken.encode(Collections.singletonMap(1, key("CPC_2")));
+
+		assertThrows(InvalidContinuationTokenException.class,
+			() -> underTest.getUnprocessedCpcPlusMetaData(10, token));
+		verify(dbMapper, times(0)).queryPage(eq(Metadata.class), any());
+	}
+
+	@Test
+	void testGetUnprocessedCpcPlusMetaDataPageWithTokenOfAnotherYear() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2021-01-01");
+		String token = ContinuationToken.encode(Collections.singletonMap(1, key("CPC_1")));
+
+		assertThrows(InvalidContinuationTokenException.class,
+			() -> underTest.getUnprocessedCpcPlusMetaData(10, token));
+	}
+
+	@Test
+	void testGetUnprocessedCpcPlusMetaDataPageWithIncompleteKey() {
+		when(environment.getProperty(Constants.CPC_PLUS_UNPROCESSED_FILE_SEARCH_DATE_VARIABLE)).thenReturn("2020-01-01");
+		String token = ContinuationToken.encode(Collections.singletonMap(1,
+			Collections.singletonMap("Uuid", new AttributeValue().withS("uuid"))));
+
+		assertThrows(InvalidContinuationTokenException.class,
+			() -> underTest.getUnprocessedCpcPlusMetaData(10, token));
+	}
+
+	@Test
+	void testGetUnprocessedCpcPlusMetaDataPageWithMissingDynamoDbMapper() {
+		underTest = new DbServiceImpl(taskExecutor, RetrySchedulers.immediate(), Optional.empty(), dynamoDb, environment, 25, 0);
+
+		ResultPage<Metadata> page = underTest.getUnprocessedCpcPlusMetaData(10, null);
+
+		assertThat(page.getItems()).isEmpty();
+		assertThat(page.getContinuationToken()).isNull();
+	}
+
+	private static QueryResultPage<Metadata> page(int items, Map<String, AttributeValue> lastEvaluatedKey) {
+		QueryResultPage<Metadata> page = new QueryResultPage<>();
+		page.setResults(Stream.generate(Metadata::new).limit(items).collect(Collectors.toList()));
+		page.setLastEvaluatedKey(lastEvaluatedKey);
+		return page;
+	}
+
+	private static Map<String, AttributeValue> key(String partition) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put("Uuid", new AttributeValue().withS(partition));
+		key.put(Constants.DYNAMO_CPC_ATTRIBUTE, new AttributeValue().withS(partition));
+		key.put(Constants.DYNAMO_CPC_PROCESSED_CREATE_DATE_ATTRIBUTE, new AttributeValue().withS("false#2020#2020-06-01"));
+		return key;
+	}
+
 	@Test
 	void testGetMetadataById() {
 		String fakeUuid = "1337-f4ke-uuid";
@@ -4,11 +4,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.core.task.TaskExecutor;
-import org.springframework.retry.backoff.FixedBackOffPolicy;
-import org.springframework.retry.support.RetryTemplate;
 
 import gov.cms.qpp.conversion.api.services.internal.InOrderActionService;
 import gov.cms.qpp.test.MockitoExtension;
@@ -23,7 +20,6 @@ import static org.mockito.Mockito.doAnswer;
 @ExtendWith(MockitoExtension.class)
 class InOrderAsyncActionServiceTest {
 
-	@InjectMocks
 	private TestInOrderService objectUnderTest;
 
 	@Mock
@@ -31,6 +27,7 @@ class InOrderAsyncActionServiceTest {
 
 	@BeforeEach
 	void runBeforeEachTest() {
+		objectUnderTest = new TestInOrderService(taskExecutor, RetrySchedulers.immediate());
 		doAnswer(invocationOnMock -> {
 			Runnable method = invocationOnMock.getArgument(0);
 			CompletableFuture.runAsync(method);
@@ -61,8 +58,8 @@ class InOrderAsyncActionServiceTest {
 
 	private static class TestInOrderService extends InOrderActionService<Object, Object> {
 
-		public TestInOrderService(TaskExecutor taskExecutor) {
-			super(taskExecutor);
+		public TestInOrderService(TaskExecutor taskExecutor, RetryScheduler retryScheduler) {
+			super(taskExecutor, retryScheduler);
 		}
 
 		AtomicBoolean pauseAsynchronousAction = new AtomicBoolean(false);
@@ -83,17 +80,6 @@ class InOrderAsyncActionServiceTest {
 			return new Object();
 		}
 
-		@Override
-		protected RetryTemplate retryTemplate() {
-			RetryTemplate retry = super.retryTemplate();
-
-			FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
-			backOffPolicy.setBackOffPeriod(0);
-			retry.setBackOffPolicy(backOffPolicy);
-
-			return retry;
-		}
-
 		@Override
 		protected String getActionName() {
 			return "Test In Order";
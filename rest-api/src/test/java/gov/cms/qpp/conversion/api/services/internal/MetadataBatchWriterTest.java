@@ -0,0 +1,270 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+
+import gov.cms.qpp.conversion.api.exceptions.UnprocessedItemsException;
+import gov.cms.qpp.conversion.api.model.Metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetadataBatchWriterTest {
+
+	private static final long LONG_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private DynamoDBMapper mapper;
+	private TaskExecutor taskExecutor;
+	private List<List<String>> batches;
+	private MetadataBatchWriter underTest;
+
+	@BeforeEach
+	void setup() {
+		mapper = mock(DynamoDBMapper.class);
+		taskExecutor = runnable -> CompletableFuture.runAsync(runnable);
+		batches = new CopyOnWriteArrayList<>();
+	}
+
+	@AfterEach
+	void teardown() {
+		if (underTest != null) {
+			underTest.close();
+		}
+	}
+
+	@Test
+	void testFullBatchIsWrittenTogether() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 3, LONG_WINDOW_MILLIS);
+
+		List<CompletableFuture<Metadata>> writes = write("a", "b", "c");
+
+		assertThat(joinAll(writes)).containsExactly("a", "b", "c");
+		assertThat(batches).containsExactly(list("a", "b", "c"));
+	}
+
+	@Test
+	void testPartialBatchIsWrittenAfterWindow() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 25, 10);
+
+		List<CompletableFuture<Metadata>> writes = write("a", "b");
+
+		assertThat(joinAll(writes)).containsExactly("a", "b");
+		assertThat(batches).containsExactly(list("a", "b"));
+	}
+
+	@Test
+	void testBatchSizeIsCappedAtDynamoDbLimit() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 100, LONG_WINDOW_MILLIS);
+
+		List<String> uuids = new ArrayList<>();
+		for (int i = 0; i < MetadataBatchWriter.MAX_BATCH_SIZE; i++) {
+			uuids.add("uuid-" + i);
+		}
+		joinAll(write(uuids.toArray(new String[0])));
+
+		assertThat(batches).containsExactly(uuids);
+	}
+
+	@Test
+	void testNoWindowWritesEachItem() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 25, 0);
+
+		joinAll(write("a"));
+		joinAll(write("b"));
+
+		assertThat(batches).containsExactly(list("a"), list("b"));
+	}
+
+	@Test
+	void testUnprocessedItemIsRetriedAlone() {
+		answerBatches(uuids -> uuids.contains("b") && batches.size() == 1 ? failed("b") : Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 2, LONG_WINDOW_MILLIS);
+
+		List<CompletableFuture<Metadata>> writes = write("a", "b");
+
+		assertThat(joinAll(writes)).containsExactly("a", "b");
+		assertThat(batches).containsExactly(list("a", "b"), list("b")).inOrder();
+	}
+
+	@Test
+	void testUnprocessedItemIsRescheduledInsteadOfRetriedByMapper() throws Exception {
+		AmazonDynamoDB dynamoDb = mock(AmazonDynamoDB.class);
+		CountDownLatch retried = new CountDownLatch(1);
+		CountDownLatch released = new CountDownLatch(1);
+		when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(invocation -> {
+			BatchWriteItemRequest request = invocation.getArgument(0);
+			List<String> uuids = request.getRequestItems().values().stream()
+					.flatMap(List::stream)
+					.map(write -> write.getPutRequest().getItem().get("Uuid").getS())
+					.collect(Collectors.toList());
+			batches.add(uuids);
+			if (batches.size() == 1) {
+				return new BatchWriteItemResult().withUnprocessedItems(failed("b").get(0).getUnprocessedItems());
+			}
+			retried.countDown();
+			released.await();
+			return new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap());
+		});
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), new DynamoDBMapper(dynamoDb), 2,
+				LONG_WINDOW_MILLIS);
+
+		List<CompletableFuture<Metadata>> writes = write("a", "b");
+
+		assertThat(retried.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(writes.get(0).get(5, TimeUnit.SECONDS).getUuid()).isEqualTo("a");
+		assertThat(writes.get(1).isDone()).isFalse();
+		released.countDown();
+		assertThat(joinAll(writes)).containsExactly("a", "b");
+		assertThat(batches).containsExactly(list("a", "b"), list("b")).inOrder();
+	}
+
+	@Test
+	void testOnlyUnprocessedItemFailsOnceRetriesAreSpent() {
+		answerBatches(uuids -> uuids.contains("b") ? failed("b") : Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 2, LONG_WINDOW_MILLIS);
+
+		List<CompletableFuture<Metadata>> writes = write("a", "b");
+
+		assertThat(writes.get(0).join().getUuid()).isEqualTo("a");
+		CompletionException thrown = assertThrows(CompletionException.class, writes.get(1)::join);
+		assertThat(thrown).hasCauseThat().isInstanceOf(UnprocessedItemsException.class);
+		assertThat(batches).hasSize(5);
+	}
+
+	@Test
+	void testThrownBatchIsRetried() {
+		when(mapper.batchWrite(anyIterable(), anyIterable(), any(DynamoDBMapperConfig.class))).thenAnswer(invocation -> {
+			batches.add(uuids(invocation.getArgument(0)));
+			if (batches.size() == 1) {
+				throw new IllegalStateException("throttled");
+			}
+			return Collections.emptyList();
+		});
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 2, LONG_WINDOW_MILLIS);
+
+		assertThat(joinAll(write("a", "b"))).containsExactly("a", "b");
+		assertThat(batches).containsExactly(list("a", "b"), list("a", "b"));
+	}
+
+	@Test
+	void testDuplicateUuidsCollapseToLastWrite() {
+		List<Metadata> saved = new CopyOnWriteArrayList<>();
+		when(mapper.batchWrite(anyIterable(), anyIterable(), any(DynamoDBMapperConfig.class))).thenAnswer(invocation -> {
+			Iterable<Metadata> items = invocation.getArgument(0);
+			items.forEach(saved::add);
+			batches.add(uuids(items));
+			return Collections.emptyList();
+		});
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 3, LONG_WINDOW_MILLIS);
+
+		Metadata first = Metadata.create();
+		first.setUuid("a");
+		first.setFileName("first");
+		Metadata second = Metadata.create();
+		second.setUuid("a");
+		second.setFileName("second");
+		List<CompletableFuture<Metadata>> writes = new ArrayList<>();
+		writes.add(underTest.write(first));
+		writes.add(underTest.write(second));
+		writes.addAll(write("b"));
+
+		assertThat(joinAll(writes)).containsExactly("a", "a", "b");
+		assertThat(batches).containsExactly(list("a", "b"));
+		assertThat(saved.get(0)).isSameInstanceAs(second);
+	}
+
+	@Test
+	void testMissingUuidIsGenerated() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 1, LONG_WINDOW_MILLIS);
+
+		Metadata written = underTest.write(Metadata.create()).join();
+
+		assertThat(written.getUuid()).isNotNull();
+		assertThat(batches).containsExactly(list(written.getUuid()));
+	}
+
+	@Test
+	void testCloseWritesCollectedItems() {
+		answerBatches(uuids -> Collections.emptyList());
+		underTest = new MetadataBatchWriter(taskExecutor, RetrySchedulers.immediate(), mapper, 25, LONG_WINDOW_MILLIS);
+
+		List<CompletableFuture<Metadata>> writes = write("a");
+		underTest.close();
+
+		assertThat(joinAll(writes)).containsExactly("a");
+	}
+
+	private void answerBatches(Function<List<String>, List<DynamoDBMapper.FailedBatch>> answer) {
+		when(mapper.batchWrite(anyIterable(), anyIterable(), any(DynamoDBMapperConfig.class))).thenAnswer(invocation -> {
+			List<String> uuids = uuids(invocation.getArgument(0));
+			batches.add(uuids);
+			return answer.apply(uuids);
+		});
+	}
+
+	private List<CompletableFuture<Metadata>> write(String... uuids) {
+		List<CompletableFuture<Metadata>> writes = new ArrayList<>();
+		for (String uuid : uuids) {
+			Metadata metadata = Metadata.create();
+			metadata.setUuid(uuid);
+			writes.add(underTest.write(metadata));
+		}
+		return writes;
+	}
+
+	private static List<String> joinAll(List<CompletableFuture<Metadata>> writes) {
+		return writes.stream().map(CompletableFuture::join).map(Metadata::getUuid).collect(Collectors.toList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> uuids(Object items) {
+		List<String> uuids = new ArrayList<>();
+		((Iterable<Metadata>) items).forEach(metadata -> uuids.add(metadata.getUuid()));
+		return uuids;
+	}
+
+	private static List<String> list(String... uuids) {
+		List<String> list = new ArrayList<>();
+		Collections.addAll(list, uuids);
+		return list;
+	}
+
+	private static List<DynamoDBMapper.FailedBatch> failed(String uuid) {
+		WriteRequest request = new WriteRequest(new PutRequest(
+				Collections.singletonMap("Uuid", new AttributeValue().withS(uuid))));
+		DynamoDBMapper.FailedBatch failedBatch = new DynamoDBMapper.FailedBatch();
+		failedBatch.setUnprocessedItems(Collections.singletonMap("ConversionMetadata",
+				Collections.singletonList(request)));
+		return Collections.singletonList(failedBatch);
+	}
+}
@@ -3,21 +3,32 @@ package gov.cms.qpp.conversion.api.services.internal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 
+import gov.cms.qpp.conversion.ConversionMetrics;
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Converter;
 import gov.cms.qpp.conversion.InputStreamSupplierSource;
 import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.internal.cache.ConversionCache;
+import gov.cms.qpp.conversion.api.internal.pii.SpecPiiValidator;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.services.StorageService;
 import gov.cms.qpp.conversion.api.services.internal.QrdaServiceImpl;
 import gov.cms.qpp.conversion.encode.JsonWrapper;
 import gov.cms.qpp.conversion.model.error.AllErrors;
 import gov.cms.qpp.conversion.model.error.Error;
 import gov.cms.qpp.conversion.model.error.TransformException;
+import gov.cms.qpp.conversion.model.validation.MeasureConfigs;
+import gov.cms.qpp.conversion.validate.pii.MissingPiiValidator;
 import gov.cms.qpp.test.MockitoExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -25,9 +36,16 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.function.Function;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.when;
 
@@ -41,6 +59,7 @@ class QrdaServiceImplTest {
 	private static final String KEY = "key";
 	private static final String MOCK_SUCCESS_QPP_STRING = "Good Qpp";
 	private static final String MOCK_ERROR_SOURCE_IDENTIFIER = "Error Identifier";
+	private static final String E_TAG = "\"cpc-plus-1\"";
 	private static final Path VALIDATION_JSON_FILE_PATH = Paths.get("src/test/resources/testCpcPlusValidationFile.json");
 	private InputStream MOCK_INPUT_STREAM;
 
@@ -51,6 +70,18 @@ class QrdaServiceImplTest {
 	@Mock
 	private StorageService storageService;
 
+	@Mock
+	private ConversionCache conversionCache;
+
+	@Mock
+	private ConversionMetrics conversionMetrics;
+
+	@Spy
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Spy
+	private Environment environment = new MockEnvironment();
+
 	@BeforeEach
 	void mockConverter() throws IOException {
 		MOCK_INPUT_STREAM = Files.newInputStream(VALIDATION_JSON_FILE_PATH);
@@ -58,8 +89,8 @@ class QrdaServiceImplTest {
 		when(objectUnderTest.initConverter(MOCK_SUCCESS_QRDA_SOURCE))
 				.thenReturn(success);
 
-		when(objectUnderTest.retrieveCpcPlusValidationFile())
-				.thenReturn(MOCK_INPUT_STREAM);
+		when(storageService.getCpcPlusValidationFile(isNull()))
+				.thenReturn(new StoredFile(MOCK_INPUT_STREAM, null, E_TAG));
 
 		Converter error = errorConverter();
 		when(objectUnderTest.initConverter(MOCK_ERROR_QRDA_SOURCE))
@@ -80,9 +111,156 @@ class QrdaServiceImplTest {
 		assertThat(allErrors.getErrors().get(0).getSourceIdentifier()).isSameInstanceAs(MOCK_ERROR_SOURCE_IDENTIFIER);
 	}
 
+	@Test
+	void testConvertQrda3ToQppThroughCache() {
+		ConversionReport cached = mock(ConversionReport.class);
+		when(conversionCache.isEnabled()).thenReturn(true);
+		when(conversionCache.convert(eq(MOCK_SUCCESS_QRDA_SOURCE), anyString(), any())).thenReturn(cached);
+
+		assertThat(objectUnderTest.convertQrda3ToQpp(MOCK_SUCCESS_QRDA_SOURCE)).isSameInstanceAs(cached);
+	}
+
+	@Test
+	void testCacheVersionTracksCpcPlusData() {
+		ArgumentCaptor<String> versions = ArgumentCaptor.forClass(String.class);
+		when(conversionCache.isEnabled()).thenReturn(true);
+		when(conversionCache.convert(any(), versions.capture(), any())).thenReturn(mock(ConversionReport.class));
+
+		objectUnderTest.convertQrda3ToQpp(MOCK_SUCCESS_QRDA_SOURCE);
+		objectUnderTest.loadCpcValidationData();
+		objectUnderTest.convertQrda3ToQpp(MOCK_SUCCESS_QRDA_SOURCE);
+
+		assertThat(versions.getAllValues().get(0))
+				.isEqualTo(MeasureConfigs.getVersion() + ":false:true:" + QrdaServiceImpl.NO_CPC_PLUS_DATA);
+		assertThat(versions.getAllValues().get(1)).startsWith(MeasureConfigs.getVersion() + ":false:true:");
+		assertThat(versions.getAllValues().get(1)).isNotEqualTo(versions.getAllValues().get(0));
+	}
+
+	@Test
+	void testCachedConversionDelegatesToConverter() {
+		when(conversionCache.isEnabled()).thenReturn(true);
+		when(conversionCache.convert(any(), anyString(), any())).then(invocation ->
+				invocation.<Function<Source, ConversionReport>>getArgument(2).apply(invocation.getArgument(0)));
+
+		JsonWrapper qpp = objectUnderTest.convertQrda3ToQpp(MOCK_SUCCESS_QRDA_SOURCE).getEncodedWithMetadata();
+		assertThat(qpp.getString(KEY)).isSameInstanceAs(MOCK_SUCCESS_QPP_STRING);
+	}
+
+	@Test
+	void testCpcPlusDataSizeIsPublished() {
+		assertThat(meterRegistry.get(QrdaServiceImpl.CPC_PLUS_COMBINATIONS_METRIC).gauge().value()).isEqualTo(0.0);
+
+		objectUnderTest.loadCpcValidationData();
+		objectUnderTest.initConverter(new InputStreamSupplierSource("other", new ByteArrayInputStream(new byte[0])));
+
+		assertThat(meterRegistry.get(QrdaServiceImpl.CPC_PLUS_COMBINATIONS_METRIC).gauge().value()).isGreaterThan(0.0);
+		assertThat(meterRegistry.get(QrdaServiceImpl.CPC_PLUS_HEAP_METRIC).gauge().value()).isGreaterThan(0.0);
+	}
+
+	@Test
+	void testUnchangedFileKeepsEngine() {
+		when(storageService.getCpcPlusValidationFile(E_TAG)).thenReturn(new StoredFile(null, null, E_TAG));
+		Source source = new InputStreamSupplierSource("Other Qrda", new ByteArrayInputStream("Other Qrda".getBytes()));
+
+		objectUnderTest.loadCpcValidationData();
+		Converter before = objectUnderTest.initConverter(source);
+		objectUnderTest.refresh();
+		Converter after = objectUnderTest.initConverter(source);
+
+		verify(storageService).getCpcPlusValidationFile(E_TAG);
+		assertThat(after.getContext().getPiiValidator()).isSameInstanceAs(before.getContext().getPiiValidator());
+		assertThat(objectUnderTest.getCpcPlusETag()).isEqualTo(E_TAG);
+		assertThat(refreshes("unchanged")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testChangedFileSwapsEngine() throws IOException {
+		when(storageService.getCpcPlusValidationFile(E_TAG))
+				.thenReturn(new StoredFile(Files.newInputStream(VALIDATION_JSON_FILE_PATH), null, "\"cpc-plus-2\""));
+		Source source = new InputStreamSupplierSource("Other Qrda", new ByteArrayInputStream("Other Qrda".getBytes()));
+
+		objectUnderTest.loadCpcValidationData();
+		Converter before = objectUnderTest.initConverter(source);
+		objectUnderTest.refresh();
+		Converter after = objectUnderTest.initConverter(source);
+
+		assertThat(after.getContext().getPiiValidator()).isNotSameInstanceAs(before.getContext().getPiiValidator());
+		assertThat(objectUnderTest.getCpcPlusETag()).isEqualTo("\"cpc-plus-2\"");
+		assertThat(refreshes("loaded")).isEqualTo(2.0);
+	}
+
+	@Test
+	void testFailedRefreshKeepsStaleData() {
+		when(storageService.getCpcPlusValidationFile(E_TAG)).thenThrow(new IllegalStateException("S3 is down"));
+		Source source = new InputStreamSupplierSource("Other Qrda", new ByteArrayInputStream("Other Qrda".getBytes()));
+
+		objectUnderTest.loadCpcValidationData();
+		Converter before = objectUnderTest.initConverter(source);
+		objectUnderTest.refresh();
+		Converter after = objectUnderTest.initConverter(source);
+
+		assertThat(after.getContext().getPiiValidator()).isSameInstanceAs(before.getContext().getPiiValidator());
+		assertThat(objectUnderTest.getCpcPlusFailure()).isEqualTo("S3 is down");
+		assertThat(objectUnderTest.getCpcPlusAgeSeconds()).isAtLeast(0.0);
+		assertThat(refreshes("failed")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testUnreadableRefreshKeepsStaleData() {
+		when(storageService.getCpcPlusValidationFile(E_TAG)).thenReturn(new StoredFile(
+				new ByteArrayInputStream("[{\"tin\": ".getBytes()), null, "\"cpc-plus-2\""));
+
+		objectUnderTest.loadCpcValidationData();
+		long combinations = objectUnderTest.getCpcPlusData().size();
+		objectUnderTest.refresh();
+
+		assertThat(objectUnderTest.getCpcPlusData().size()).isEqualTo(combinations);
+		assertThat(objectUnderTest.getCpcPlusETag()).isEqualTo(E_TAG);
+		assertThat(objectUnderTest.getCpcPlusFailure()).isNotNull();
+	}
+
+	@Test
+	void testUnconfiguredFileIsNotRefreshed() {
+		when(storageService.getCpcPlusValidationFile(isNull())).thenReturn(null);
+
+		objectUnderTest.loadCpcValidationData();
+
+		assertThat(objectUnderTest.isCpcPlusConfigured()).isFalse();
+		assertThat(objectUnderTest.getCpcPlusAgeSeconds()).isNaN();
+		verify(storageService, never()).getCpcPlusValidationFile(E_TAG);
+	}
+
 	@Test
 	void testPostConstructForCoverage() {
 		objectUnderTest.preloadMeasureConfigs();
+		objectUnderTest.stopRefreshing();
+	}
+
+	private double refreshes(String result) {
+		return meterRegistry.get(QrdaServiceImpl.CPC_PLUS_REFRESH_METRIC).tag("result", result).counter().count();
+	}
+
+	@Test
+	void testInitConverterSharesEngineConfiguration() {
+		objectUnderTest.loadCpcValidationData();
+		Source source = new InputStreamSupplierSource("Other Qrda", new ByteArrayInputStream("Other Qrda".getBytes()));
+
+		Converter first = objectUnderTest.initConverter(source);
+		Converter second = objectUnderTest.initConverter(source);
+
+		assertThat(first.getContext()).isNotSameInstanceAs(second.getContext());
+		assertThat(first.getContext().getPiiValidator()).isInstanceOf(SpecPiiValidator.class);
+		assertThat(second.getContext().getPiiValidator()).isSameInstanceAs(first.getContext().getPiiValidator());
+		assertThat(first.getContext().getMetrics()).isSameInstanceAs(conversionMetrics);
+	}
+
+	@Test
+	void testInitConverterWithoutCpcValidationData() {
+		Source source = new InputStreamSupplierSource("Other Qrda", new ByteArrayInputStream("Other Qrda".getBytes()));
+
+		Converter converter = objectUnderTest.initConverter(source);
+
+		assertThat(converter.getContext().getPiiValidator()).isSameInstanceAs(MissingPiiValidator.INSTANCE);
 	}
 
 	private Converter successConverter() {
@@ -0,0 +1,86 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import com.google.common.collect.Range;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class RetrySchedulerTest {
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+	@AfterEach
+	void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void testDelayIsJitteredExponentialBackOff() {
+		RetryScheduler scheduler = scheduler(10);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(scheduler.delayMillis(1)).isIn(Range.closed(1000L, 2000L));
+			assertThat(scheduler.delayMillis(3)).isIn(Range.closed(4000L, 8000L));
+			assertThat(scheduler.delayMillis(10)).isIn(Range.closed(30000L, 60000L));
+		}
+	}
+
+	@Test
+	void testScheduleRunsRetry() throws InterruptedException {
+		RetryScheduler scheduler = new RetryScheduler(executor, 5, Duration.ZERO, Duration.ZERO, 10, 10,
+				Duration.ofSeconds(30));
+		CountDownLatch ran = new CountDownLatch(1);
+
+		assertThat(scheduler.schedule(1, ran::countDown)).isTrue();
+
+		assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void testBudgetLimitsWaitingRetries() {
+		RetryScheduler scheduler = scheduler(2);
+
+		assertThat(scheduler.schedule(1, () -> {})).isTrue();
+		assertThat(scheduler.schedule(1, () -> {})).isTrue();
+		assertThat(scheduler.schedule(1, () -> {})).isFalse();
+		assertThat(scheduler.getPendingRetries()).isEqualTo(2);
+	}
+
+	@Test
+	void testRejectedRetryIsNotCounted() {
+		RetryScheduler scheduler = scheduler(2);
+		executor.shutdown();
+
+		assertThat(scheduler.schedule(1, () -> {})).isFalse();
+		assertThat(scheduler.getPendingRetries()).isEqualTo(0);
+	}
+
+	@Test
+	void testDeferCountsAgainstBudget() {
+		RetryScheduler scheduler = scheduler(1);
+
+		assertThat(scheduler.defer(0, () -> {})).isTrue();
+		assertThat(scheduler.defer(30000, () -> {})).isFalse();
+		assertThat(scheduler.getPendingRetries()).isEqualTo(1);
+	}
+
+	@Test
+	void testBreakerPerActionName() {
+		RetryScheduler scheduler = scheduler(2);
+
+		assertThat(scheduler.breaker("one")).isSameInstanceAs(scheduler.breaker("one"));
+		assertThat(scheduler.breaker("one")).isNotSameInstanceAs(scheduler.breaker("two"));
+	}
+
+	private RetryScheduler scheduler(int budget) {
+		return new RetryScheduler(executor, 5, Duration.ofSeconds(2), Duration.ofMinutes(1), budget, 10,
+				Duration.ofSeconds(30));
+	}
+}
@@ -0,0 +1,38 @@
+package gov.cms.qpp.conversion.api.services.internal;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * {@link RetryScheduler}s for tests.
+ */
+final class RetrySchedulers {
+
+	private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+		Thread thread = new Thread(runnable, "test-retry");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private RetrySchedulers() {
+		//empty
+	}
+
+	/**
+	 * @return a scheduler that retries five times without delay and whose circuits do not open during a test
+	 */
+	static RetryScheduler immediate() {
+		return immediate(1000, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param budget most retries waiting at any time
+	 * @param failureThreshold consecutive failures of an action that open its circuit
+	 * @return a scheduler that retries five times without delay
+	 */
+	static RetryScheduler immediate(int budget, int failureThreshold) {
+		return new RetryScheduler(SCHEDULER, 5, Duration.ZERO, Duration.ZERO, budget, failureThreshold,
+				Duration.ofHours(1));
+	}
+}
@@ -12,15 +12,22 @@ import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.core.env.Environment;
@@ -28,6 +35,7 @@ import org.springframework.core.task.TaskExecutor;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
@@ -35,7 +43,11 @@ import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
 
+import gov.cms.qpp.conversion.InputStreamSupplierSource;
+import gov.cms.qpp.conversion.Source;
+import gov.cms.qpp.conversion.api.exceptions.NoFileInDatabaseException;
 import gov.cms.qpp.conversion.api.model.Constants;
+import gov.cms.qpp.conversion.api.model.StoredFile;
 import gov.cms.qpp.conversion.api.services.internal.StorageServiceImpl;
 import gov.cms.qpp.conversion.util.MeasuredInputStreamSupplier;
 import gov.cms.qpp.test.MockitoExtension;
@@ -46,7 +58,6 @@ class StorageServiceImplTest {
 
 	private static final byte[] TEST_CONTENT_BYTES = "test file content".getBytes();
 
-	@InjectMocks
 	private StorageServiceImpl underTest;
 
 	@Mock
@@ -70,6 +81,8 @@ class StorageServiceImplTest {
 
 	@BeforeEach
 	void before() {
+		underTest = new StorageServiceImpl(taskExecutor, RetrySchedulers.immediate(), transferManager, environment,
+				amazonS3Client);
 		doAnswer(invocationOnMock -> {
 			Runnable method = invocationOnMock.getArgument(0);
 			CompletableFuture.runAsync(method);
@@ -154,6 +167,202 @@ class StorageServiceImplTest {
 		verify(s3ObjectMock, times(1)).getObjectContent();
 	}
 
+	@Test
+	void testPutGzip() throws InterruptedException, IOException {
+		when(upload.waitForUploadResult()).thenReturn(result);
+		Mockito.when(environment.getProperty(eq(Constants.BUCKET_NAME_ENV_VARIABLE))).thenReturn(bucketName);
+		Mockito.when(environment.getProperty(eq(Constants.KMS_KEY_ENV_VARIABLE))).thenReturn(ksmKey);
+		Mockito.when(environment.getProperty(eq(Constants.STORAGE_COMPRESSION_ENV_VARIABLE))).thenReturn("GZIP");
+
+		assertThat(storeFile()).isNotNull();
+		ArgumentCaptor<PutObjectRequest> objectReqestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(transferManager, times(1)).upload(objectReqestCaptor.capture());
+		PutObjectRequest request = objectReqestCaptor.getValue();
+		assertThat(request.getMetadata().getContentEncoding()).isEqualTo("gzip");
+		byte[] uploaded = IOUtils.toByteArray(request.getInputStream());
+		assertThat(request.getMetadata().getContentLength()).isEqualTo(uploaded.length);
+		assertThat(IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(uploaded))))
+				.isEqualTo(TEST_CONTENT_BYTES);
+	}
+
+	@Test
+	void testGetGzipDecompresses() throws IOException {
+		mockGzippedObject();
+
+		InputStream content = underTest.getFileByLocationId("meep");
+
+		assertThat(IOUtils.toString(content, StandardCharsets.UTF_8)).isEqualTo("1234");
+	}
+
+	@Test
+	void testGetGzipPassesThroughWhenAccepted() throws IOException {
+		mockGzippedObject();
+
+		StoredFile file = underTest.getFileByLocationId("meep", true);
+
+		assertThat(file.getContentEncoding()).isEqualTo("gzip");
+		assertThat(IOUtils.toString(new GZIPInputStream(file.getContent()), StandardCharsets.UTF_8))
+				.isEqualTo("1234");
+	}
+
+	@Test
+	void testGetPlainWhenGzipAccepted() throws IOException {
+		S3Object s3Object = new S3Object();
+		s3Object.setObjectContent(new ByteArrayInputStream("1234".getBytes(StandardCharsets.UTF_8)));
+		Mockito.when(amazonS3Client.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+		Mockito.when(environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE)).thenReturn("meep");
+
+		StoredFile file = underTest.getFileByLocationId("meep", true);
+
+		assertThat(file.getContentEncoding()).isNull();
+		assertThat(IOUtils.toString(file.getContent(), StandardCharsets.UTF_8)).isEqualTo("1234");
+	}
+
+	@Test
+	void testPutBundle() throws InterruptedException, IOException {
+		ByteArrayOutputStream uploaded = captureUpload();
+		when(upload.waitForUploadResult()).thenReturn(result);
+		result.setKey("bundle");
+		Mockito.when(environment.getProperty(eq(Constants.BUCKET_NAME_ENV_VARIABLE))).thenReturn(bucketName);
+		Mockito.when(environment.getProperty(eq(Constants.KMS_KEY_ENV_VARIABLE))).thenReturn(ksmKey);
+
+		Map<String, String> locators = underTest.storeBundle("bundle", parts()).join();
+
+		assertThat(locators).containsExactly("qrda", "bundle#qrda", "empty", "bundle#empty", "qpp", "bundle#qpp");
+		ArgumentCaptor<PutObjectRequest> objectReqestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(transferManager, times(1)).upload(objectReqestCaptor.capture());
+		PutObjectRequest request = objectReqestCaptor.getValue();
+		assertThat(request.getMetadata().getContentLength()).isEqualTo(9);
+		assertThat(request.getMetadata().getUserMetaDataOf(StorageServiceImpl.BUNDLE_INDEX_METADATA))
+				.isEqualTo("qrda:0:5,empty:5:0,qpp:5:4");
+		assertThat(new String(uploaded.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("<xml>json");
+	}
+
+	@Test
+	void testPutBundleGzipsEachPart() throws InterruptedException, IOException {
+		ByteArrayOutputStream uploaded = captureUpload();
+		when(upload.waitForUploadResult()).thenReturn(result);
+		Mockito.when(environment.getProperty(eq(Constants.BUCKET_NAME_ENV_VARIABLE))).thenReturn(bucketName);
+		Mockito.when(environment.getProperty(eq(Constants.KMS_KEY_ENV_VARIABLE))).thenReturn(ksmKey);
+		Mockito.when(environment.getProperty(eq(Constants.STORAGE_COMPRESSION_ENV_VARIABLE))).thenReturn("gzip");
+
+		underTest.storeBundle("bundle", parts()).join();
+
+		ArgumentCaptor<PutObjectRequest> objectReqestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(transferManager, times(1)).upload(objectReqestCaptor.capture());
+		ObjectMetadata metadata = objectReqestCaptor.getValue().getMetadata();
+		assertThat(metadata.getContentEncoding()).isNull();
+		assertThat(metadata.getUserMetaDataOf(StorageServiceImpl.BUNDLE_ENCODING_METADATA)).isEqualTo("gzip");
+		long[] qpp = BundleIndex.parse(metadata.getUserMetaDataOf(StorageServiceImpl.BUNDLE_INDEX_METADATA))
+				.range("qpp");
+		assertThat(IOUtils.toString(new GZIPInputStream(
+				new ByteArrayInputStream(uploaded.toByteArray(), (int) qpp[0], (int) qpp[1])), StandardCharsets.UTF_8))
+				.isEqualTo("json");
+	}
+
+	@Test
+	void testFailedBundleUploadClosesPartsWithoutOpeningTheRest() throws InterruptedException, IOException {
+		InputStream qrdaContent = Mockito.spy(new ByteArrayInputStream("<xml>".getBytes()));
+		Source qrda = mock(Source.class);
+		Source qpp = mock(Source.class);
+		when(qrda.toInputStream()).thenReturn(qrdaContent);
+		Map<String, Source> parts = new LinkedHashMap<>();
+		parts.put("qrda", qrda);
+		parts.put("qpp", qpp);
+		when(transferManager.upload(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+			invocation.<PutObjectRequest>getArgument(0).getInputStream().read();
+			return upload;
+		});
+		when(upload.waitForUploadResult()).thenThrow(InterruptedException.class);
+		Mockito.when(environment.getProperty(eq(Constants.BUCKET_NAME_ENV_VARIABLE))).thenReturn(bucketName);
+		Mockito.when(environment.getProperty(eq(Constants.KMS_KEY_ENV_VARIABLE))).thenReturn(ksmKey);
+
+		assertThrows(CompletionException.class, () -> underTest.storeBundle("bundle", parts).join());
+		verify(qrdaContent).close();
+		verify(qpp, times(0)).toInputStream();
+	}
+
+	@Test
+	void testPutBundleNoBucket() {
+		Map<String, String> locators = underTest.storeBundle("bundle", parts()).join();
+
+		assertThat(locators).containsExactly("qrda", "", "empty", "", "qpp", "");
+		verify(transferManager, times(0)).upload(any(PutObjectRequest.class));
+	}
+
+	@Test
+	void testGetBundledPartUsesRangedGet() throws IOException {
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.addUserMetadata(StorageServiceImpl.BUNDLE_INDEX_METADATA, "qrda:0:5,qpp:5:4");
+		S3Object s3Object = new S3Object();
+		s3Object.setObjectContent(new ByteArrayInputStream("json".getBytes(StandardCharsets.UTF_8)));
+		Mockito.when(environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE)).thenReturn("meep");
+		Mockito.when(amazonS3Client.getObjectMetadata("meep", "bundle")).thenReturn(metadata);
+		Mockito.when(amazonS3Client.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+		InputStream content = underTest.getFileByLocationId("bundle#qpp");
+
+		assertThat(IOUtils.toString(content, StandardCharsets.UTF_8)).isEqualTo("json");
+		ArgumentCaptor<GetObjectRequest> getObjectCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+		verify(amazonS3Client).getObject(getObjectCaptor.capture());
+		assertThat(getObjectCaptor.getValue().getKey()).isEqualTo("bundle");
+		assertThat(getObjectCaptor.getValue().getRange()).asList().containsExactly(5L, 8L).inOrder();
+	}
+
+	@Test
+	void testGetBundledEmptyPart() throws IOException {
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.addUserMetadata(StorageServiceImpl.BUNDLE_INDEX_METADATA, "qrda:0:5,empty:5:0");
+		Mockito.when(environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE)).thenReturn("meep");
+		Mockito.when(amazonS3Client.getObjectMetadata("meep", "bundle")).thenReturn(metadata);
+
+		InputStream content = underTest.getFileByLocationId("bundle#empty");
+
+		assertThat(IOUtils.toByteArray(content)).isEmpty();
+		verify(amazonS3Client, times(0)).getObject(any(GetObjectRequest.class));
+	}
+
+	@Test
+	void testGetBundledMissingPart() {
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.addUserMetadata(StorageServiceImpl.BUNDLE_INDEX_METADATA, "qrda:0:5");
+		Mockito.when(environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE)).thenReturn("meep");
+		Mockito.when(amazonS3Client.getObjectMetadata("meep", "bundle")).thenReturn(metadata);
+
+		assertThrows(NoFileInDatabaseException.class, () -> underTest.getFileByLocationId("bundle#qpp"));
+	}
+
+	private ByteArrayOutputStream captureUpload() {
+		ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+		when(transferManager.upload(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+			IOUtils.copy(invocation.<PutObjectRequest>getArgument(0).getInputStream(), uploaded);
+			return upload;
+		});
+		return uploaded;
+	}
+
+	private static Map<String, Source> parts() {
+		Map<String, Source> parts = new LinkedHashMap<>();
+		parts.put("qrda", new InputStreamSupplierSource("qrda", new ByteArrayInputStream("<xml>".getBytes())));
+		parts.put("empty", new InputStreamSupplierSource("empty", new ByteArrayInputStream(new byte[0])));
+		parts.put("qpp", new InputStreamSupplierSource("qpp", new ByteArrayInputStream("json".getBytes())));
+		return parts;
+	}
+
+	private void mockGzippedObject() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write("1234".getBytes(StandardCharsets.UTF_8));
+		}
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentEncoding("gzip");
+		S3Object s3Object = new S3Object();
+		s3Object.setObjectMetadata(metadata);
+		s3Object.setObjectContent(new ByteArrayInputStream(compressed.toByteArray()));
+		Mockito.when(amazonS3Client.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+		Mockito.when(environment.getProperty(Constants.BUCKET_NAME_ENV_VARIABLE)).thenReturn("meep");
+	}
+
 	private String storeFile() {
 		MeasuredInputStreamSupplier source = MeasuredInputStreamSupplier.terminallyTransformInputStream(new ByteArrayInputStream(TEST_CONTENT_BYTES));
 		CompletableFuture<String> storeResult = underTest.store(
@@ -203,6 +412,7 @@ class StorageServiceImplTest {
 		S3ObjectInputStream expected = new S3ObjectInputStream(null, null);
 		S3Object mockS3Obj = mock(S3Object.class);
 		Mockito.when(mockS3Obj.getObjectContent()).thenReturn(expected);
+		Mockito.when(mockS3Obj.getObjectMetadata()).thenReturn(new ObjectMetadata());
 		
 		Mockito.when(environment.getProperty(Constants.CPC_PLUS_BUCKET_NAME_VARIABLE)).thenReturn("Mock_Bucket");
 		Mockito.when(environment.getProperty(Constants.CPC_PLUS_FILENAME_VARIABLE)).thenReturn("Mock_Filename");
@@ -212,4 +422,37 @@ class StorageServiceImplTest {
 		
 		assertThat(actual).isEqualTo(expected);
 	}
+
+	@Test
+	void test_getCpcPlusValidationFile_changed() {
+		S3ObjectInputStream expected = new S3ObjectInputStream(null, null);
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setHeader("ETag", "\"new\"");
+		S3Object mockS3Obj = mock(S3Object.class);
+		Mockito.when(mockS3Obj.getObjectContent()).thenReturn(expected);
+		Mockito.when(mockS3Obj.getObjectMetadata()).thenReturn(metadata);
+		ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+
+		Mockito.when(environment.getProperty(Constants.CPC_PLUS_BUCKET_NAME_VARIABLE)).thenReturn("Mock_Bucket");
+		Mockito.when(environment.getProperty(Constants.CPC_PLUS_FILENAME_VARIABLE)).thenReturn("Mock_Filename");
+		Mockito.when(amazonS3Client.getObject(request.capture())).thenReturn(mockS3Obj);
+
+		StoredFile actual = underTest.getCpcPlusValidationFile("\"old\"");
+
+		assertThat(request.getValue().getNonmatchingETagConstraints()).containsExactly("\"old\"");
+		assertThat(actual.getContent()).isSameInstanceAs(expected);
+		assertThat(actual.getETag()).isEqualTo("\"new\"");
+	}
+
+	@Test
+	void test_getCpcPlusValidationFile_unchanged() {
+		Mockito.when(environment.getProperty(Constants.CPC_PLUS_BUCKET_NAME_VARIABLE)).thenReturn("Mock_Bucket");
+		Mockito.when(environment.getProperty(Constants.CPC_PLUS_FILENAME_VARIABLE)).thenReturn("Mock_Filename");
+		Mockito.when(amazonS3Client.getObject(any(GetObjectRequest.class))).thenReturn(null);
+
+		StoredFile actual = underTest.getCpcPlusValidationFile("\"old\"");
+
+		assertThat(actual.getContent()).isNull();
+		assertThat(actual.getETag()).isEqualTo("\"old\"");
+	}
 }
@@ -7,17 +7,18 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeAll;
@@ -31,6 +32,8 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +42,8 @@ import gov.cms.qpp.conversion.Context;
 import gov.cms.qpp.conversion.ConversionReport;
 import gov.cms.qpp.conversion.Converter;
 import gov.cms.qpp.conversion.PathSource;
+import gov.cms.qpp.conversion.api.exceptions.ConversionUnavailableException;
+import gov.cms.qpp.conversion.api.internal.cache.ValidationCache;
 import gov.cms.qpp.conversion.api.model.Constants;
 import gov.cms.qpp.conversion.api.model.ErrorMessage;
 import gov.cms.qpp.conversion.api.services.internal.ValidationServiceImpl;
@@ -49,11 +54,17 @@ import gov.cms.qpp.conversion.model.error.Location;
 import gov.cms.qpp.conversion.model.error.TransformException;
 import gov.cms.qpp.test.MockitoExtension;
 import gov.cms.qpp.test.helper.JsonTestHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class ValidationServiceImplTest {
 
+	private static final String VALIDATION_URL = "https://qpp.net/validate";
+
 	private ValidationServiceImpl objectUnderTest;
+	private CircuitBreaker circuitBreaker;
+	private MeterRegistry registry;
 
 	@Mock
 	private Environment environment;
@@ -73,7 +84,8 @@ class ValidationServiceImplTest {
 
 	@BeforeAll
 	static void setup() throws IOException {
-		service = new ValidationServiceImpl(null);
+		service = service(null, mock(RestTemplate.class), new CircuitBreaker("test", 1, 0, System::nanoTime), 1, false,
+				new SimpleMeterRegistry());
 		pathToSubmissionError = Paths.get("src/test/resources/submissionErrorFixture.json");
 		pathToSubmissionDuplicateEntryError = Paths.get("src/test/resources/submissionDuplicateEntryErrorFixture.json");
 		Path toConvert = Paths.get("../qrda-files/valid-QRDA-III-latest.xml");
@@ -91,16 +103,15 @@ class ValidationServiceImplTest {
 	}
 
 	@BeforeEach
-	void before() throws NoSuchFieldException, IllegalAccessException {
-		ValidationServiceImpl meep = new ValidationServiceImpl(environment);
-		Field rt = meep.getClass().getDeclaredField("restTemplate");
-		rt.setAccessible(true);
-		rt.set(meep, restTemplate);
-		rt.setAccessible(false);
-		objectUnderTest = spy(meep);
+	void before() {
+		circuitBreaker = new CircuitBreaker("test", 2, TimeUnit.SECONDS.toNanos(30), () -> 0L);
+		registry = new SimpleMeterRegistry();
+		objectUnderTest = spy(service(environment, restTemplate, circuitBreaker, 1, false, registry));
+		Mockito.clearInvocations(restTemplate);
 
 		ConversionReport report = mock(ConversionReport.class);
 		when(report.getEncodedWithMetadata()).thenReturn(qppWrapper);
+		when(report.getQppJson()).thenReturn(qppWrapper.toString());
 		when(converter.getReport()).thenReturn(report);
 	}
 
@@ -230,4 +241,126 @@ class ValidationServiceImplTest {
 		convertedErrors.getErrors().stream().flatMap(error -> error.getDetails().stream())
 			.map(Detail::getLocation).map(Location::getPath).forEach(path -> assertThat(path).isEqualTo(ValidationServiceImpl.UNABLE_PROVIDE_XPATH));
 	}
+
+	@Test
+	void testErrorHandlerIsSetOnce() {
+		RestTemplate client = mock(RestTemplate.class);
+		ValidationServiceImpl validationService = service(environment, client, circuitBreaker, 1, false, registry);
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(client.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+		validationService.validateQpp(converter.getReport());
+		validationService.validateQpp(converter.getReport());
+
+		verify(client, times(1)).setErrorHandler(any(ResponseErrorHandler.class));
+	}
+
+	@Test
+	void testFailedCallIsUnavailableWhenFailingClosed() {
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(restTemplate.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenThrow(new ResourceAccessException("Read timed out"));
+
+		ConversionUnavailableException thrown = assertThrows(ConversionUnavailableException.class,
+				() -> objectUnderTest.validateQpp(converter.getReport()));
+
+		assertThat(thrown).hasCauseThat().isInstanceOf(ResourceAccessException.class);
+		assertThat(thrown.getRetryAfterSeconds()).isEqualTo(5);
+		assertThat(unavailable("error")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testFailedCallIsSkippedWhenFailingOpen() {
+		ValidationServiceImpl failingOpen = service(environment, restTemplate, circuitBreaker, 1, true, registry);
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(restTemplate.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenThrow(new ResourceAccessException("Read timed out"));
+
+		failingOpen.validateQpp(converter.getReport());
+
+		assertThat(unavailable("error")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testServerErrorCountsAsFailure() {
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(restTemplate.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenReturn(new ResponseEntity<>(HttpStatus.BAD_GATEWAY));
+
+		assertThrows(ConversionUnavailableException.class, () -> objectUnderTest.validateQpp(converter.getReport()));
+		assertThrows(ConversionUnavailableException.class, () -> objectUnderTest.validateQpp(converter.getReport()));
+
+		assertThat(circuitBreaker.isOpen()).isTrue();
+	}
+
+	@Test
+	void testOpenCircuitSkipsCall() {
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		circuitBreaker.recordFailure();
+		circuitBreaker.recordFailure();
+
+		assertThrows(ConversionUnavailableException.class, () -> objectUnderTest.validateQpp(converter.getReport()));
+
+		verify(restTemplate, never()).postForEntity(any(String.class), any(HttpEntity.class), eq(String.class));
+		assertThat(unavailable("circuit")).isEqualTo(1.0);
+	}
+
+	@Test
+	void testFullBulkheadSkipsCall() {
+		ValidationServiceImpl noPermits = service(environment, restTemplate, circuitBreaker, 0, false, registry);
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+
+		assertThrows(ConversionUnavailableException.class, () -> noPermits.validateQpp(converter.getReport()));
+
+		verify(restTemplate, never()).postForEntity(any(String.class), any(HttpEntity.class), eq(String.class));
+		assertThat(unavailable("bulkhead")).isEqualTo(1.0);
+		assertThat(circuitBreaker.isOpen()).isFalse();
+	}
+
+	@Test
+	void testCallLatencyIsRecorded() throws IOException {
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(restTemplate.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenReturn(new ResponseEntity<>(HttpStatus.OK))
+				.thenReturn(new ResponseEntity<>(FileUtils.readFileToString(pathToSubmissionError.toFile(), "UTF-8"),
+						HttpStatus.UNPROCESSABLE_ENTITY));
+
+		objectUnderTest.validateQpp(converter.getReport());
+		assertThrows(TransformException.class, () -> objectUnderTest.validateQpp(converter.getReport()));
+
+		assertThat(registry.get(ValidationServiceImpl.REQUESTS_METRIC).tag("outcome", "valid").timer().count())
+				.isEqualTo(1);
+		assertThat(registry.get(ValidationServiceImpl.REQUESTS_METRIC).tag("outcome", "invalid").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void testCachedFailureSkipsCallButMapsEveryReport() throws IOException {
+		ValidationServiceImpl cached = spy(new ValidationServiceImpl(environment, restTemplate,
+				new ValidationCache(10, 5, false, registry), circuitBreaker, 1, 0, false, 5, registry));
+		when(environment.getProperty(eq(Constants.VALIDATION_URL_ENV_VARIABLE))).thenReturn(VALIDATION_URL);
+		when(restTemplate.postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class)))
+				.thenReturn(new ResponseEntity<>(FileUtils.readFileToString(pathToSubmissionError.toFile(), "UTF-8"),
+						HttpStatus.UNPROCESSABLE_ENTITY));
+
+		TransformException first = assertThrows(TransformException.class,
+				() -> cached.validateQpp(converter.getReport()));
+		TransformException second = assertThrows(TransformException.class,
+				() -> cached.validateQpp(converter.getReport()));
+
+		verify(restTemplate, times(1)).postForEntity(eq(VALIDATION_URL), any(HttpEntity.class), eq(String.class));
+		verify(cached, times(2)).convertQppValidationErrorsToQrda(any(String.class), any(JsonWrapper.class));
+		assertThat(second.getDetails()).isEqualTo(first.getDetails());
+	}
+
+	private double unavailable(String reason) {
+		return registry.get(ValidationServiceImpl.UNAVAILABLE_METRIC).tag("reason", reason).counter().count();
+	}
+
+	private static ValidationServiceImpl service(Environment environment, RestTemplate restTemplate,
+			CircuitBreaker circuitBreaker, int maxConcurrentCalls, boolean failOpen, MeterRegistry registry) {
+		return new ValidationServiceImpl(environment, restTemplate, new ValidationCache(0, 5, false, registry),
+				circuitBreaker, maxConcurrentCalls, 0, failOpen, 5, registry);
+	}
 }
@@ -0,0 +1,164 @@
+package gov.cms.qpp.test.allocation;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bytes allocated by and the wall time of a unit of work on the calling thread, and checks them against
+ * the budgets of an {@link AllocationBudgets} test class.
+ */
+public final class AllocationBudget {
+
+	private static final String ROW = "%-56s %14s %14s %8s %10s %10s %8s%n";
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private final Properties budgets;
+	private final AllocationBudgets settings;
+	private final boolean updating;
+	private final Map<String, Measurement> measurements = new TreeMap<>();
+
+	AllocationBudget(Properties budgets, AllocationBudgets settings, boolean updating) {
+		this.budgets = budgets;
+		this.settings = settings;
+		this.updating = updating;
+	}
+
+	/**
+	 * @return whether the JVM can measure the bytes allocated by a thread
+	 */
+	static boolean isSupported() {
+		return THREADS instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported();
+	}
+
+	/**
+	 * Runs the work until it is warmed up, measures it and fails if it exceeds the budgets of the name.
+	 *
+	 * @param name name of the budgets
+	 * @param work the work to measure, run on the calling thread
+	 * @return the measurement
+	 */
+	public Measurement measure(String name, Runnable work) {
+		for (int i = 0; i < settings.warmups(); i++) {
+			work.run();
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+		long threadId = Thread.currentThread().getId();
+		long[] bytes = new long[settings.iterations()];
+		long[] nanos = new long[settings.iterations()];
+		for (int i = 0; i < bytes.length; i++) {
+			long allocated = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			work.run();
+			nanos[i] = System.nanoTime() - start;
+			bytes[i] = threads.getThreadAllocatedBytes(threadId) - allocated;
+		}
+		Arrays.sort(bytes);
+		Arrays.sort(nanos);
+
+		Measurement measurement = new Measurement(bytes[0], TimeUnit.NANOSECONDS.toMillis(nanos[nanos.length / 2]),
+				budget(name, "bytes"), budget(name, "millis"));
+		synchronized (measurements) {
+			measurements.put(name, measurement);
+		}
+
+		if (!updating) {
+			assertWithMessage("allocation budget of %s, record it with -Dallocation.budgets.update", name)
+					.that(measurement.budgetBytes).isNotNull();
+			assertWithMessage("bytes allocated by %s", name)
+					.that(measurement.bytes).isAtMost(allowed(measurement.budgetBytes, settings.tolerance()));
+			if (measurement.budgetMillis != null) {
+				assertWithMessage("milliseconds taken by %s", name)
+						.that(measurement.millis).isAtMost(allowed(measurement.budgetMillis, settings.timeTolerance()));
+			}
+		}
+		return measurement;
+	}
+
+	private Long budget(String name, String kind) {
+		String budget = budgets.getProperty(name + "." + kind);
+		return budget == null ? null : Long.valueOf(budget.trim());
+	}
+
+	private static long allowed(long budget, double tolerance) {
+		return (long) Math.ceil(budget * (1 + tolerance));
+	}
+
+	/**
+	 * Renders a row per measured name with its budgets, the measured values and the difference between them.
+	 *
+	 * @return the report table
+	 */
+	String render() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format(Locale.ENGLISH, ROW, "", "budget bytes", "bytes", "delta", "budget ms", "ms", "delta"));
+		synchronized (measurements) {
+			measurements.forEach((name, measurement) -> table.append(String.format(Locale.ENGLISH, ROW, name,
+					measurement.budgetBytes == null ? "-" : measurement.budgetBytes, measurement.bytes,
+					delta(measurement.bytes, measurement.budgetBytes),
+					measurement.budgetMillis == null ? "-" : measurement.budgetMillis, measurement.millis,
+					delta(measurement.millis, measurement.budgetMillis))));
+		}
+		return table.toString();
+	}
+
+	/**
+	 * @return the measured values in the format of the budgets file
+	 */
+	String renderBudgets() {
+		StringBuilder lines = new StringBuilder();
+		synchronized (measurements) {
+			measurements.forEach((name, measurement) -> lines
+					.append(name).append(".bytes=").append(measurement.bytes).append(System.lineSeparator())
+					.append(name).append(".millis=").append(measurement.millis).append(System.lineSeparator()));
+		}
+		return lines.toString();
+	}
+
+	private static String delta(long measured, Long budget) {
+		if (budget == null || budget == 0) {
+			return "-";
+		}
+		return String.format(Locale.ENGLISH, "%+.1f%%", 100.0 * (measured - budget) / budget);
+	}
+
+	/**
+	 * The bytes allocated by and the wall time of a unit of work, with the budgets they were checked against.
+	 */
+	public static final class Measurement {
+		private final long bytes;
+		private final long millis;
+		private final Long budgetBytes;
+		private final Long budgetMillis;
+
+		Measurement(long bytes, long millis, Long budgetBytes, Long budgetMillis) {
+			this.bytes = bytes;
+			this.millis = millis;
+			this.budgetBytes = budgetBytes;
+			this.budgetMillis = budgetMillis;
+		}
+
+		/**
+		 * @return least bytes allocated by a measured run
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return median wall time of the measured runs
+		 */
+		public long getMillis() {
+			return millis;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package gov.cms.qpp.test.allocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the {@link AllocationBudget} of an {@link AllocationBudgets} test class and, once all of its tests ran,
+ * logs the report and writes it to {@code target/allocation-budget-report.txt}.
+ */
+public class AllocationBudgetExtension implements ExecutionCondition, BeforeAllCallback, AfterAllCallback,
+		ParameterResolver {
+
+	private static final Logger DEV_LOG = LoggerFactory.getLogger(AllocationBudgetExtension.class);
+	private static final ExtensionContext.Namespace NAMESPACE =
+			ExtensionContext.Namespace.create(AllocationBudgetExtension.class);
+	private static final String UPDATE_PROPERTY = "allocation.budgets.update";
+
+	@Override
+	public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+		if (AllocationBudget.isSupported()) {
+			return ConditionEvaluationResult.enabled("The JVM measures thread allocations");
+		}
+		return ConditionEvaluationResult.disabled("The JVM does NOT measure thread allocations");
+	}
+
+	@Override
+	public void beforeAll(ExtensionContext context) {
+		AllocationBudgets settings = AnnotationSupport.findAnnotation(context.getRequiredTestClass(),
+				AllocationBudgets.class).orElseThrow(() -> new ExtensionConfigurationException(
+						context.getRequiredTestClass() + " is not annotated with @AllocationBudgets"));
+
+		Properties budgets = new Properties();
+		try (InputStream resource = context.getRequiredTestClass().getClassLoader()
+				.getResourceAsStream(settings.value())) {
+			if (resource == null) {
+				throw new ExtensionConfigurationException("Allocation budgets " + settings.value() + " not found");
+			}
+			budgets.load(resource);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		boolean updating = System.getProperty(UPDATE_PROPERTY) != null;
+		context.getStore(NAMESPACE).put(AllocationBudget.class, new AllocationBudget(budgets, settings, updating));
+	}
+
+	@Override
+	public void afterAll(ExtensionContext context) throws IOException {
+		AllocationBudget budget = context.getStore(NAMESPACE).remove(AllocationBudget.class, AllocationBudget.class);
+		if (budget == null) {
+			return;
+		}
+
+		String report = budget.render();
+		DEV_LOG.info("Allocation budget report" + System.lineSeparator() + report);
+		Path target = Files.createDirectories(Paths.get("target"));
+		Files.write(target.resolve("allocation-budget-report.txt"), report.getBytes(StandardCharsets.UTF_8));
+
+		if (System.getProperty(UPDATE_PROPERTY) != null) {
+			Path measured = target.resolve("allocation-budgets.properties");
+			Files.write(measured, budget.renderBudgets().getBytes(StandardCharsets.UTF_8));
+			DEV_LOG.info("Wrote measured allocation budgets to " + measured.toAbsolutePath());
+		}
+	}
+
+	@Override
+	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		return parameterContext.getParameter().getType() == AllocationBudget.class;
+	}
+
+	@Override
+	public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		return extensionContext.getStore(NAMESPACE).get(AllocationBudget.class, AllocationBudget.class);
+	}
+}
@@ -0,0 +1,47 @@
+package gov.cms.qpp.test.allocation;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Checks the work measured through an injected {@link AllocationBudget} against budgets checked in as a properties
+ * file on the test classpath. Each measured name has a {@code <name>.bytes} and a {@code <name>.millis} budget.
+ *
+ * <p>Running with {@code -Dallocation.budgets.update} reports instead of failing, and writes the measured values to
+ * {@code target/allocation-budgets.properties} to be copied over the checked in budgets.
+ */
+@ExtendWith(AllocationBudgetExtension.class)
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface AllocationBudgets {
+
+	/**
+	 * @return classpath resource holding the budgets
+	 */
+	String value();
+
+	/**
+	 * @return fraction by which the allocated bytes may exceed their budget
+	 */
+	double tolerance() default 0.25;
+
+	/**
+	 * @return fraction by which the wall time may exceed its budget, generous since it depends on the machine
+	 */
+	double timeTolerance() default 4;
+
+	/**
+	 * @return runs of the work before it is measured
+	 */
+	int warmups() default 3;
+
+	/**
+	 * @return measured runs of the work, of which the least allocated bytes and the median time are kept
+	 */
+	int iterations() default 5;
+}